@@ -22,9 +22,6 @@
  */
 package org.libreoffice.lots;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -41,12 +38,11 @@ import com.sun.star.text.XTextRangeCompare;
 
 import org.libreoffice.ext.unohelper.common.UNO;
 import org.libreoffice.ext.unohelper.common.UnoCollection;
-import org.libreoffice.ext.unohelper.common.UnoHelperException;
-import org.libreoffice.ext.unohelper.document.text.Bookmark;
 import org.libreoffice.ext.unohelper.common.TextDocument;
 import org.libreoffice.ext.unohelper.util.UnoService;
 import org.libreoffice.lots.config.ConfigThingy;
 import org.libreoffice.lots.config.NodeNotFoundException;
+import org.libreoffice.lots.document.TextDocumentModel;
 import org.libreoffice.lots.document.TextRangeRelation;
 import org.libreoffice.lots.document.commands.DocumentCommand;
 import org.libreoffice.lots.document.commands.DocumentCommands;
@@ -69,6 +65,11 @@ public class TextModule
   private static final Pattern INSERTFRAG_PATTERN =
     DocumentCommands.getPatternForCommand("insertFrag");
 
+  /**
+   * The compiled text module sections of the current configuration.
+   */
+  private static TextModuleMatcher matcher;
+
   private TextModule()
   {
     // hide public constructor
@@ -81,8 +82,9 @@ public class TextModule
    * where no snippet identifier could be identified or where already one
    * insertFrag was present.
    *
-   * @param doc
-   *          Current text document in which to search
+   * @param model
+   *          Current text document in which to search. The new document commands are
+   *          registered in one batch.
    * @param range
    *          Position in which to search for text fragment identifiers. The
    *          Location can be a marked area or a collapsed cursor
@@ -99,22 +101,12 @@ public class TextModule
    *          could. If at least one was inserted, no exception is thrown
    *          thrown, but stopped the scan at the error point.
    */
-  public static void createInsertFragFromIdentifier(XTextDocument doc,
+  public static void createInsertFragFromIdentifier(TextDocumentModel model,
       XTextRange range, boolean isManual) throws WollMuxFehlerException
   {
-    ConfigThingy conf = WollMuxFiles.getWollmuxConf();
-
-    // fetches text modules from .conf and collects them in reverse
-    // Order in LinkedList tbList. So later defined
+    // the text module sections of the .conf in reverse order. So later defined
     // Text module sections always take precedence.
-    LinkedList<ConfigThingy> tbListe = new LinkedList<>();
-    ConfigThingy tbConf = conf.query("TextBlocks");
-    Iterator<ConfigThingy> iter = tbConf.iterator();
-    while (iter.hasNext())
-    {
-      ConfigThingy confTextbaustein = iter.next();
-      tbListe.addFirst(confTextbaustein);
-    }
+    TextModuleMatcher matcher = getMatcher(WollMuxFiles.getWollmuxConf());
 
     XParagraphCursor cursor =
       UNO.XParagraphCursor(range.getText().createTextCursorByRange(range));
@@ -128,120 +120,113 @@ public class TextModule
     String collectedContent = "";
     if (!completeContent.equals("")) cursor.collapseToEnd();
 
-    boolean processedAtLeastOneTBSuccessfully = false;
-    boolean foundAtLeastOneTBInCurrentParagraph = false;
-    while (true)
+    model.beginDocumentCommandsBatch();
+    try
     {
-      String identifierWithArgs = cursor.getString();
-      if (!identifierWithArgs.equals(""))
-        collectedContent = identifierWithArgs.substring(0, 1) + collectedContent;
-
-      String[] results = parseIdentifier(identifierWithArgs, tbListe);
-
-      if (results != null)
+      boolean processedAtLeastOneTBSuccessfully = false;
+      boolean foundAtLeastOneTBInCurrentParagraph = false;
+      while (true)
       {
-        foundAtLeastOneTBInCurrentParagraph = true;
+        String identifierWithArgs = cursor.getString();
+        if (!identifierWithArgs.equals(""))
+          collectedContent = identifierWithArgs.substring(0, 1) + collectedContent;
 
-        /*
-         * See if an insertFrag command already exists to prevent
-         * that a second one is placed over it, as this is various misconduct
-         * can produce.
-         */
-        Set<String> bms =
-          TextDocument.getBookmarkNamesMatching(INSERTFRAG_PATTERN, cursor);
+        String[] results = matcher.parse(identifierWithArgs);
 
-        if (bms.size() == 0)
-        {
-          createInsertFrag(doc, cursor, results, isManual);
-          processedAtLeastOneTBSuccessfully = true;
-
-          // Cursor collapses so that when you continue searching, it doesn't just happen
-          // processed phrase identifier still as part of next
-          // identifier is used.
-          // So the text module search behaves in contrast to the usual way
-          // of regular expression matching NOT greedy, but we take
-          // the shortest matching identifier
-          cursor.collapseToStart();
-        }
-        else
+        if (results != null)
         {
+          foundAtLeastOneTBInCurrentParagraph = true;
+
           /*
-           * An insertFrag command has already been issued at the current cursor position
-           * found.
-           *
-           * We only throw an error if we don't have any boilerplate
-           * have processed. Otherwise we just stop without error. It
-           * is an absolutely legitimate use case that a user first "TB1"
-           * type and then "insert text moduleLINK" (note: only with the
-           * Inserting a REFERENCES it is possible that an insertFrag bookmark
-           * exists.) and then go down one paragraph and type "TB2" and
-           * does "insert snippet link" again.
+           * See if an insertFrag command already exists to prevent
+           * that a second one is placed over it, as this is various misconduct
+           * can produce.
            */
-          if (!processedAtLeastOneTBSuccessfully)
-            throw new WollMuxFehlerException(
-              L.m("At the insertion point there is already a reference to a text block."));
+          Set<String> bms =
+            TextDocument.getBookmarkNamesMatching(INSERTFRAG_PATTERN, cursor);
+
+          if (bms.size() == 0)
+          {
+            createInsertFrag(model, cursor, results, isManual);
+            processedAtLeastOneTBSuccessfully = true;
+
+            // Cursor collapses so that when you continue searching, it doesn't just happen
+            // processed phrase identifier still as part of next
+            // identifier is used.
+            // So the text module search behaves in contrast to the usual way
+            // of regular expression matching NOT greedy, but we take
+            // the shortest matching identifier
+            cursor.collapseToStart();
+          }
           else
-            break;
+          {
+            /*
+             * An insertFrag command has already been issued at the current cursor position
+             * found.
+             *
+             * We only throw an error if we don't have any boilerplate
+             * have processed. Otherwise we just stop without error. It
+             * is an absolutely legitimate use case that a user first "TB1"
+             * type and then "insert text moduleLINK" (note: only with the
+             * Inserting a REFERENCES it is possible that an insertFrag bookmark
+             * exists.) and then go down one paragraph and type "TB2" and
+             * does "insert snippet link" again.
+             */
+            if (!processedAtLeastOneTBSuccessfully)
+              throw new WollMuxFehlerException(
+                L.m("At the insertion point there is already a reference to a text block."));
+            else
+              break;
+          }
         }
-      }
 
-      if (cursor.isStartOfParagraph())
-      {
-        // If we haven't found anything in the whole line, then stop.
-        if (!foundAtLeastOneTBInCurrentParagraph) break;
+        if (cursor.isStartOfParagraph())
+        {
+          // If we haven't found anything in the whole line, then stop.
+          if (!foundAtLeastOneTBInCurrentParagraph) break;
 
-        // go to the previous paragraph, resetting matchedInLine.
-        cursor.goLeft((short) 1, false);
-        foundAtLeastOneTBInCurrentParagraph = false;
-      }
-      else
-      {
-        // move one character to the left (allowing the cursor range to increase) and continue
-        // make.
-        cursor.goLeft((short) 1, true);
+          // go to the previous paragraph, resetting matchedInLine.
+          cursor.goLeft((short) 1, false);
+          foundAtLeastOneTBInCurrentParagraph = false;
+        }
+        else
+        {
+          // move one character to the left (allowing the cursor range to increase) and continue
+          // make.
+          cursor.goLeft((short) 1, true);
+        }
+
+        // Here is the comparison completeContent<->collectedContent: if both
+        // match can be aborted because the range then
+        // has been fully evaluated.
+        if (completeContent.length() > 0 && completeContent.equals(collectedContent))
+          break;
       }
 
-      // Here is the comparison completeContent<->collectedContent: if both
-      // match can be aborted because the range then
-      // has been fully evaluated.
-      if (completeContent.length() > 0 && completeContent.equals(collectedContent))
-        break;
+      if (!processedAtLeastOneTBSuccessfully)
+        throw new WollMuxFehlerException(
+          L.m("At the insertion place no text block could be found."));
+    } finally
+    {
+      model.commitDocumentCommandsBatch();
     }
-
-    if (!processedAtLeastOneTBSuccessfully)
-      throw new WollMuxFehlerException(
-        L.m("At the insertion place no text block could be found."));
   }
 
   /**
-   * Parses the supplied identifierWithArgs for all mappings of the form (MATCH
-   * ... FRAG_ID ...) contained in the boilerplate sections in tbList
-   * and returns null if there was no match on the MATCHes or
-   * if there was a match, an array with the new one in the first position
-   * contains frag_id and the arguments in the following places.
+   * Returns the compiled text module sections of the configuration. They are compiled again, if
+   * the configuration has been reloaded.
    *
-   * @param identifierWithArgs
-   *          A string of the form "<identifier>#arg1#...#argN" where the
-   *          Changed the separator "#" to text modules via the SEPARATOR key
-   *          can be.
-   * @param tbList
-   *          A list showing the boilerplate sections in order
-   *          contains in which they are to be evaluated.
-   * @return array of strings with (frag_id + args) or null
+   * @param conf
+   *          The configuration.
+   * @return The matcher for all text module sections.
    */
-  private static String[] parseIdentifier(String identifierWithArgs,
-      List<ConfigThingy> tbListe)
+  private static synchronized TextModuleMatcher getMatcher(ConfigThingy conf)
   {
-    Iterator<ConfigThingy> iterTbListe = tbListe.iterator();
-    while (iterTbListe.hasNext())
+    if (matcher == null || !matcher.isCompiledFrom(conf))
     {
-      ConfigThingy textbausteine = iterTbListe.next();
-
-      String[] results =
-        parseIdentifierInTextbausteine(identifierWithArgs, textbausteine);
-      if (results != null) return results;
+      matcher = TextModuleMatcher.compile(conf);
     }
-    return null;
+    return matcher;
   }
 
   /**
@@ -263,82 +248,16 @@ public class TextModule
   public static String[] parseIdentifierInTextbausteine(String identifierWithArgs,
       ConfigThingy textbausteine)
   {
-    // Determine the separator for this text module block
-    String separatorString = "#";
-    ConfigThingy separator = textbausteine.query("SEPARATOR");
-    if (separator.count() > 0)
-    {
-      try
-      {
-        separatorString = separator.getLastChild().toString();
-      }
-      catch (NodeNotFoundException e)
-      {
-        // optional
-      }
-    }
-
-    // Split identifierWithArgs and get first argument when on end
-    // SEPERATOR -1 is another empty element in args[]
-    // generated
-    String[] args = identifierWithArgs.split(separatorString, -1);
-    String first = args[0];
-
-    // Iterate over all nodes of the form "(MATCH ... FRAG_ID ...)"
-    ConfigThingy mappingsConf = textbausteine.queryByChild("MATCH");
-    Iterator<ConfigThingy> iterMappings = mappingsConf.iterator();
-    while (iterMappings.hasNext())
-    {
-      ConfigThingy mappingConf = iterMappings.next();
-
-      String frag_id = null;
-      try
-      {
-        frag_id = mappingConf.get("FRAG_ID").toString();
-      }
-      catch (NodeNotFoundException e)
-      {
-        LOGGER.error("FRAG_ID specification is missing in {}", mappingConf.stringRepresentation());
-        continue;
-      }
-
-      ConfigThingy matches = null;
-      try
-      {
-        matches = mappingConf.get("MATCH");
-      }
-      catch (NodeNotFoundException e)
-      {
-        // does not occur because the above queryByChild always returns MATCH
-        continue;
-      }
-
-      for (ConfigThingy it : matches)
-      {
-        String match = it.toString();
-
-        if (first.matches(match))
-        {
-          try
-          {
-            args[0] = first.replaceAll(match, frag_id);
-          }
-          catch (java.lang.Exception e)
-          {
-            LOGGER.error("The regular expression grouping $<zahl> used by FRAG_ID does not exist in MATCH.", e);
-          }
-          return args;
-        }
-      }
-    }
-    return null; // if nothing in it
+    TextModuleMatcher.Section section = TextModuleMatcher.Section.compile(textbausteine);
+    return section == null ? null : section.parse(identifierWithArgs);
   }
 
   /**
    * Creates a bookmark of type "WM(CMD'insertFrag' FRAG_ID '&lt;args[0]&gt;'
-   * ARGS('&lt;args[1]&gt;' '...' '&lt;args[n]&gt;')" in the document doc at position range.
+   * ARGS('&lt;args[1]&gt;' '...' '&lt;args[n]&gt;')" in the document at position range and
+   * registers it as document command.
    *
-   * @param doc
+   * @param model
    *          Current text document
    * @param range
    *          Place where the bookmark should be set
@@ -348,7 +267,7 @@ public class TextModule
    *          denotes insertions that have been made manually. Sets the optional
    *          node MODE = "manual"
    */
-  public static void createInsertFrag(XTextDocument doc, XTextRange range,
+  public static void createInsertFrag(TextDocumentModel model, XTextRange range,
       String[] args, boolean isManual)
 
   {
@@ -394,13 +313,7 @@ public class TextModule
 
     LOGGER.trace("Erzeuge Bookmark: '{}'", bookmarkName);
 
-    try
-    {
-      new Bookmark(bookmarkName, doc, range);
-    } catch (UnoHelperException e)
-    {
-      LOGGER.debug("", e);
-    }
+    model.addNewDocumentCommand(range, bookmarkName);
   }
 
   /**
@@ -0,0 +1,272 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.libreoffice.lots.config.ConfigThingy;
+import org.libreoffice.lots.config.NodeNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The compiled mappings of the form (MATCH ... FRAG_ID ...) of all TextBlocks sections. The
+ * regular expressions are compiled once and each one has a literal prefix, which is checked
+ * before the expression is evaluated.
+ */
+class TextModuleMatcher
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(TextModuleMatcher.class);
+
+  private final ConfigThingy conf;
+
+  private final List<Section> sections;
+
+  private TextModuleMatcher(ConfigThingy conf, List<Section> sections)
+  {
+    this.conf = conf;
+    this.sections = sections;
+  }
+
+  /**
+   * Compiles all TextBlocks sections of the configuration. Later sections take precedence.
+   *
+   * @param conf
+   *          The configuration.
+   * @return The matcher.
+   */
+  static TextModuleMatcher compile(ConfigThingy conf)
+  {
+    List<Section> sections = new ArrayList<>();
+    for (ConfigThingy textbausteine : conf.query("TextBlocks"))
+    {
+      Section section = Section.compile(textbausteine);
+      if (section != null)
+      {
+        sections.add(section);
+      }
+    }
+    Collections.reverse(sections);
+    return new TextModuleMatcher(conf, sections);
+  }
+
+  /**
+   * Has this matcher been compiled from the configuration?
+   */
+  boolean isCompiledFrom(ConfigThingy conf)
+  {
+    return this.conf == conf;
+  }
+
+  /**
+   * Parses the identifier with all sections in order of precedence.
+   *
+   * @param identifierWithArgs
+   *          A string of the form "&lt;identifier&gt;#arg1#...#argN".
+   * @return array of strings with (frag_id + args) or null
+   */
+  String[] parse(String identifierWithArgs)
+  {
+    for (Section section : sections)
+    {
+      String[] results = section.parse(identifierWithArgs);
+      if (results != null)
+      {
+        return results;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The compiled mappings of a single TextBlocks section.
+   */
+  static class Section
+  {
+    private final Pattern separator;
+
+    private final List<Mapping> mappings;
+
+    private Section(Pattern separator, List<Mapping> mappings)
+    {
+      this.separator = separator;
+      this.mappings = mappings;
+    }
+
+    /**
+     * Compiles a section of the form "TextBlocks(SEPARATOR ... abbreviation(...))".
+     *
+     * @return The compiled section or null if the separator isn't a valid regular expression.
+     */
+    static Section compile(ConfigThingy textbausteine)
+    {
+      String separatorString = "#";
+      ConfigThingy separatorConf = textbausteine.query("SEPARATOR");
+      if (separatorConf.count() > 0)
+      {
+        try
+        {
+          separatorString = separatorConf.getLastChild().toString();
+        }
+        catch (NodeNotFoundException e)
+        {
+          // optional
+        }
+      }
+      Pattern separator;
+      try
+      {
+        separator = Pattern.compile(separatorString);
+      } catch (PatternSyntaxException e)
+      {
+        LOGGER.error("SEPARATOR '{}' is not a valid regular expression", separatorString, e);
+        return null;
+      }
+
+      List<Mapping> mappings = new ArrayList<>();
+      for (ConfigThingy mappingConf : textbausteine.queryByChild("MATCH"))
+      {
+        String fragId;
+        ConfigThingy matches;
+        try
+        {
+          fragId = mappingConf.get("FRAG_ID").toString();
+          matches = mappingConf.get("MATCH");
+        }
+        catch (NodeNotFoundException e)
+        {
+          LOGGER.error("FRAG_ID specification is missing in {}",
+              mappingConf.stringRepresentation());
+          continue;
+        }
+
+        for (ConfigThingy it : matches)
+        {
+          String match = it.toString();
+          try
+          {
+            mappings.add(new Mapping(Pattern.compile(match), literalPrefix(match), fragId));
+          } catch (PatternSyntaxException e)
+          {
+            LOGGER.error("MATCH '{}' is not a valid regular expression", match, e);
+          }
+        }
+      }
+      return new Section(separator, mappings);
+    }
+
+    /**
+     * Parses the identifier with the mappings of this section.
+     *
+     * @param identifierWithArgs
+     *          A string of the form "&lt;identifier&gt;#arg1#...#argN".
+     * @return array of strings with (frag_id + args) or null
+     */
+    String[] parse(String identifierWithArgs)
+    {
+      // Split identifierWithArgs and get first argument when on end
+      // SEPERATOR -1 is another empty element in args[]
+      // generated
+      String[] args = separator.split(identifierWithArgs, -1);
+      String first = args[0];
+
+      for (Mapping mapping : mappings)
+      {
+        if (!first.startsWith(mapping.prefix))
+        {
+          continue;
+        }
+        Matcher m = mapping.pattern.matcher(first);
+        if (m.matches())
+        {
+          try
+          {
+            args[0] = m.replaceAll(mapping.fragId);
+          }
+          catch (java.lang.Exception e)
+          {
+            LOGGER.error("The regular expression grouping $<zahl> used by FRAG_ID does not exist in MATCH.", e);
+          }
+          return args;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Returns a prefix, which all strings matched by {@code regex} start with. The prefix consists
+   * of the leading letters and digits of the expression, without the last one if it is
+   * quantified. Expressions with alternatives have no prefix.
+   *
+   * @param regex
+   *          A valid regular expression.
+   * @return The prefix, may be empty.
+   */
+  static String literalPrefix(String regex)
+  {
+    if (regex.indexOf('|') >= 0)
+    {
+      return "";
+    }
+    int end = 0;
+    while (end < regex.length() && Character.isLetterOrDigit(regex.charAt(end))
+        && regex.charAt(end) < 128)
+    {
+      ++end;
+    }
+    if (end < regex.length() && end > 0)
+    {
+      char next = regex.charAt(end);
+      if (next == '*' || next == '?' || next == '{')
+      {
+        --end;
+      }
+    }
+    return regex.substring(0, end);
+  }
+
+  /**
+   * A regular expression and the fragment id it's mapped to.
+   */
+  private static class Mapping
+  {
+    private final Pattern pattern;
+
+    private final String prefix;
+
+    private final String fragId;
+
+    private Mapping(Pattern pattern, String prefix, String fragId)
+    {
+      this.pattern = pattern;
+      this.prefix = prefix;
+      this.fragId = fragId;
+    }
+  }
+}
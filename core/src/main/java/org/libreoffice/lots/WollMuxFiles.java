@@ -82,8 +82,12 @@ import org.libreoffice.ext.unohelper.util.UnoComponent;
 import org.libreoffice.ext.unohelper.util.UnoConfiguration;
 import org.libreoffice.ext.unohelper.util.UnoProperty;
 import org.libreoffice.ext.unohelper.util.UnoService;
+import org.libreoffice.lots.config.ConfigSnapshot;
 import org.libreoffice.lots.config.ConfigThingy;
 import org.libreoffice.lots.config.NodeNotFoundException;
+import org.libreoffice.lots.event.WollMuxEventHandler;
+import org.libreoffice.lots.func.ExternalFunction;
+import org.libreoffice.lots.func.print.PrintFunction;
 import org.libreoffice.lots.util.L;
 import org.libreoffice.lots.util.Utils;
 
@@ -114,6 +118,16 @@ public class WollMuxFiles
   private static final String WOLLMUX_NOCONF = L.m(
       "No WollMux configuration (lots.conf) found - therefore WollMux runs in NoConfig mode.");
 
+  /**
+   * Snapshot of the parsed lots.conf in the user's WollMux folder.
+   */
+  private static final String CONF_SNAPSHOT = "lots.conf.snapshot";
+
+  /**
+   * Snapshot of the parsed configuration from the configuration server.
+   */
+  private static final String SERVER_CONF_SNAPSHOT = "server.conf.snapshot";
+
   /**
    * Default context defined in lots.conf.
    */
@@ -182,7 +196,8 @@ public class WollMuxFiles
     {
       try
       {
-        wollmuxConf = new ConfigThingy("", wollMuxConfigFile.toURI().toURL());
+        wollmuxConf = new ConfigSnapshot(new File(getWollMuxDir(), CONF_SNAPSHOT))
+            .load("", wollMuxConfigFile.toURI().toURL());
 	String serverURI = wollmuxConf.getString("CONF_SERVER", null);
         if (serverURI != null)
         {
@@ -195,7 +210,8 @@ public class WollMuxFiles
 
           HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
 
-          wollmuxConf = new ConfigThingy("", response.body());
+          wollmuxConf = new ConfigSnapshot(new File(getWollMuxDir(), SERVER_CONF_SNAPSHOT))
+              .load("", response.body());
         }
       } catch (HttpTimeoutException ex) {
         LOGGER.error("Serverrespond takes more than 5 seconds", ex);
@@ -208,6 +224,8 @@ public class WollMuxFiles
       LOGGER.info(WOLLMUX_NOCONF);
     }
 
+    // the configuration is queried very often, but hardly ever modified
+    wollmuxConf.enableQueryIndex();
     return wollmuxConf;
   }
 
@@ -513,6 +531,18 @@ public class WollMuxFiles
       }
       out.write("losCacheFile: " + getLosCacheFile() + "\n");
 
+      out.write("===================== START event-metrics ==================\n");
+      out.write(WollMuxEventHandler.getInstance().getMetrics().toString());
+      out.write("===================== END event-metrics ==================\n");
+
+      out.write("===================== START print-metrics ==================\n");
+      out.write(PrintFunction.getMetrics().toString());
+      out.write("===================== END print-metrics ==================\n");
+
+      out.write("===================== START function-metrics ==================\n");
+      out.write(ExternalFunction.getMetrics().toString());
+      out.write("===================== END function-metrics ==================\n");
+
       out.write("===================== START JVM-Settings ==================\n");
       dumpJVMSettings(outStream, out);
       out.write("===================== END JVM-Settings ==================\n");
@@ -132,6 +132,7 @@ public class WollMuxSingleton
     if (SenderService.getInstance() != null)
     {
       // Initialize EventProcessor
+      WollMuxEventHandler.getInstance().setAsynchronous(isAsyncEvents());
       WollMuxEventHandler.getInstance().setAcceptEvents(true);
 
       // register global EventListener
@@ -245,6 +246,24 @@ public class WollMuxSingleton
     }
   }
 
+  /**
+   * Should events be processed asynchronously? Enabled by {@code ASYNC_EVENTS "true"} in the
+   * configuration.
+   *
+   * @return True if the last ASYNC_EVENTS in the configuration is "true".
+   */
+  private static boolean isAsyncEvents()
+  {
+    ConfigThingy async = WollMuxFiles.getWollmuxConf().query("ASYNC_EVENTS", 1);
+    try
+    {
+      return Boolean.parseBoolean(async.getLastChild().toString());
+    } catch (NodeNotFoundException e)
+    {
+      return false;
+    }
+  }
+
   /**
    * @return Returns the xComponentContext.
    */
@@ -0,0 +1,422 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import java.util.Arrays;
+
+/**
+ * Splits the data of a WollMux config file into tokens. The lexer reads the data line by line into
+ * a reused buffer and recognizes the tokens character by character. Only the current token is
+ * available, there is no list of tokens.
+ */
+final class ConfigLexer
+{
+  /**
+   * The types of the tokens.
+   */
+  enum TokenType
+  {
+    KEY,
+    STRING,
+    OPENPAREN,
+    CLOSEPAREN,
+    END,
+    INCLUDE;
+  }
+
+  private static final String INCLUDE = "%include";
+
+  private final URL url;
+
+  private final Reader read;
+
+  private final char[] buffer = new char[8192];
+
+  private int bufferPos = 0;
+
+  private int bufferEnd = 0;
+
+  /**
+   * True if the last line ended with '\r', so that a following '\n' has to be skipped.
+   */
+  private boolean skipLF = false;
+
+  private char[] line = new char[256];
+
+  private int lineLength = 0;
+
+  private int lineNo = 0;
+
+  private int pos = 0;
+
+  private boolean eof = false;
+
+  private final StringBuilder content = new StringBuilder();
+
+  private String contentString = "";
+
+  private int tokenLine;
+
+  private int tokenPosition;
+
+  /**
+   * Creates a new lexer. The reader isn't closed by the lexer.
+   *
+   * @param url
+   *          The URL of the data, used in error messages.
+   * @param read
+   *          The data.
+   */
+  ConfigLexer(URL url, Reader read)
+  {
+    this.url = url;
+    this.read = read;
+  }
+
+  /**
+   * Reads the next token. Comments are skipped. At the end of the data {@link TokenType#END} is
+   * returned on every call.
+   *
+   * @return The type of the token.
+   * @throws IOException
+   *           Reading the data failed.
+   * @throws SyntaxErrorException
+   *           The data at the current position isn't a token.
+   */
+  TokenType next() throws IOException, SyntaxErrorException
+  {
+    while (true)
+    {
+      if (pos >= lineLength)
+      {
+        if (eof || !readLine())
+        {
+          eof = true;
+          tokenLine = lineNo + 1;
+          tokenPosition = 0;
+          contentString = "";
+          return TokenType.END;
+        }
+        continue;
+      }
+
+      char ch = line[pos];
+      if (isWhitespace(ch))
+      {
+        ++pos;
+        continue;
+      }
+
+      tokenLine = lineNo;
+      tokenPosition = pos + 1;
+      int start = pos;
+
+      if (isKeyStart(ch))
+      {
+        do
+        {
+          ++pos;
+        } while (pos < lineLength && isKeyPart(line[pos]));
+        contentString = new String(line, start, pos - start);
+        return TokenType.KEY;
+      }
+
+      if (ch == '"' || ch == '\'')
+      {
+        int end = stringEnd(start, ch);
+        if (end > 0)
+        {
+          try
+          {
+            contentString = unescape(start + 1, end - 1, ch);
+          } catch (IllegalArgumentException x)
+          {
+            throw syntaxError(x);
+          }
+          pos = end;
+          return TokenType.STRING;
+        }
+      } else if (ch == '(')
+      {
+        ++pos;
+        contentString = "(";
+        return TokenType.OPENPAREN;
+      } else if (ch == ')')
+      {
+        ++pos;
+        contentString = ")";
+        return TokenType.CLOSEPAREN;
+      } else if (startsWithInclude())
+      {
+        pos += INCLUDE.length();
+        contentString = INCLUDE;
+        return TokenType.INCLUDE;
+      } else if (ch == '#')
+      {
+        // comments are discarded
+        pos = lineLength;
+        continue;
+      }
+
+      throw syntaxError(null);
+    }
+  }
+
+  /**
+   * The content of the current token. For strings, the quotes are removed and the escape sequences
+   * are evaluated.
+   */
+  String content()
+  {
+    return contentString;
+  }
+
+  /**
+   * The line of the current token, counted from 1.
+   */
+  int line()
+  {
+    return tokenLine;
+  }
+
+  /**
+   * The position of the first character of the current token in its line, counted from 1.
+   */
+  int position()
+  {
+    return tokenPosition;
+  }
+
+  /**
+   * The URL of the data.
+   */
+  URL url()
+  {
+    return url;
+  }
+
+  /**
+   * Reads the next line into {@link #line}. Lines are terminated by '\n', '\r' or "\r\n".
+   *
+   * @return False if there is no more line.
+   */
+  private boolean readLine() throws IOException
+  {
+    lineLength = 0;
+    pos = 0;
+    while (true)
+    {
+      if (bufferPos >= bufferEnd)
+      {
+        int n = read.read(buffer, 0, buffer.length);
+        if (n < 0)
+        {
+          if (lineLength > 0)
+          {
+            ++lineNo;
+            return true;
+          }
+          return false;
+        }
+        bufferPos = 0;
+        bufferEnd = n;
+        continue;
+      }
+
+      char ch = buffer[bufferPos++];
+      if (skipLF)
+      {
+        skipLF = false;
+        if (ch == '\n')
+        {
+          continue;
+        }
+      }
+      if (ch == '\n' || ch == '\r')
+      {
+        skipLF = ch == '\r';
+        ++lineNo;
+        return true;
+      }
+      if (lineLength == line.length)
+      {
+        line = Arrays.copyOf(line, line.length * 2);
+      }
+      line[lineLength++] = ch;
+    }
+  }
+
+  private boolean startsWithInclude()
+  {
+    if (lineLength - pos < INCLUDE.length())
+    {
+      return false;
+    }
+    for (int i = 0; i < INCLUDE.length(); i++)
+    {
+      if (line[pos + i] != INCLUDE.charAt(i))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the index after the closing quote of the string starting at {@code start}, or 0 if the
+   * string isn't closed in this line. A doubled quote doesn't close the string.
+   */
+  private int stringEnd(int start, char quote)
+  {
+    int idx = start + 1;
+    while (true)
+    {
+      while (idx < lineLength && line[idx] != quote)
+      {
+        ++idx;
+      }
+      if (idx >= lineLength)
+      {
+        return 0;
+      }
+      ++idx;
+      if (idx >= lineLength || line[idx] != quote)
+      {
+        return idx;
+      }
+      ++idx;
+    }
+  }
+
+  /**
+   * Replaces doubled quotes by a single one and evaluates the % escapes in the characters from
+   * {@code start} to {@code end} (exclusive).
+   */
+  private String unescape(int start, int end, char quote)
+  {
+    int idx = start;
+    while (idx < end && line[idx] != '%' && line[idx] != quote)
+    {
+      ++idx;
+    }
+    if (idx == end)
+    {
+      return new String(line, start, end - start);
+    }
+
+    content.setLength(0);
+    content.append(line, start, idx - start);
+    while (idx < end)
+    {
+      char ch = line[idx];
+      if (ch == quote)
+      {
+        content.append(quote);
+        idx += 2;
+      } else if (ch == '%' && idx + 1 < end)
+      {
+        switch (line[idx + 1])
+        {
+          case 'n':
+            content.append('\n');
+            idx += 2;
+            break;
+          case '%':
+            content.append('%');
+            idx += 2;
+            break;
+          case 'u':
+            content.append(parseUnicode(idx + 2, end));
+            idx += 6;
+            break;
+          default:
+            content.append('%');
+            ++idx;
+            break;
+        }
+      } else
+      {
+        content.append(ch);
+        ++idx;
+      }
+    }
+    return content.toString();
+  }
+
+  private char parseUnicode(int idx, int end)
+  {
+    if (idx + 4 > end)
+      throw new IllegalArgumentException("Incomplete %u escape!");
+    String code = new String(line, idx, 4);
+    try
+    {
+      return (char) Integer.parseInt(code, 16);
+    }
+    catch (NumberFormatException x)
+    {
+      throw new IllegalArgumentException("Incorrect hex number in %u escape: \"%u"
+        + code + "\"");
+    }
+  }
+
+  private SyntaxErrorException syntaxError(IllegalArgumentException cause)
+  {
+    String message = url + ": syntax error in line " + lineNo + " at char " + (pos + 1)
+        + ", text in error location: \"" + new String(line, pos, lineLength - pos) + "\"";
+    return cause == null ? new SyntaxErrorException(message)
+        : new SyntaxErrorException(message, cause);
+  }
+
+  private static boolean isWhitespace(char ch)
+  {
+    switch (ch)
+    {
+      case ' ':
+      case '\t':
+      case '\n':
+      case '\u000B':
+      case '\f':
+      case '\r':
+      case '\u00A0':
+      case ',':
+      case ';':
+      case '\uFEFF':
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isKeyStart(char ch)
+  {
+    return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '_';
+  }
+
+  private static boolean isKeyPart(char ch)
+  {
+    return isKeyStart(ch) || (ch >= '0' && ch <= '9');
+  }
+}
@@ -0,0 +1,456 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A binary snapshot of a parsed configuration. The snapshot stores the tree together with the
+ * modification time and the content hash of the configuration and of all included URLs. As long as
+ * none of them has changed, the tree is read from the snapshot instead of being parsed. Otherwise
+ * the configuration is parsed and the snapshot is rewritten in the background. If only the
+ * modification time or length of a file has changed but not its content, the snapshot is rewritten
+ * with the new values, so that the file isn't hashed again on the next start.
+ */
+public class ConfigSnapshot
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigSnapshot.class);
+
+  private static final int MAGIC = 0x4C4F5453;
+
+  private static final int VERSION = 1;
+
+  /**
+   * The URL of a source, which has been passed as string.
+   */
+  private static final String CONTENT_URL = "";
+
+  private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "lots-config-snapshot");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private final File file;
+
+  /**
+   * Creates a snapshot, which is stored in {@code file}.
+   *
+   * @param file
+   *          The file of the snapshot. It needn't exist.
+   */
+  public ConfigSnapshot(File file)
+  {
+    this.file = file;
+  }
+
+  /**
+   * Returns the configuration of {@code url}.
+   *
+   * @param name
+   *          The name of the root of the configuration.
+   * @param url
+   *          The URL of the configuration.
+   * @return The configuration, from the snapshot if it is still valid.
+   * @throws IOException
+   *           if loading data from {@code url} (or an included URL) fails.
+   * @throws SyntaxErrorException
+   *           if a syntactic error is found when parsing the data.
+   */
+  public ConfigThingy load(String name, URL url) throws IOException, SyntaxErrorException
+  {
+    ConfigThingy conf = read(name, url.toExternalForm(), null);
+    if (conf == null)
+    {
+      Recorder recorder = new Recorder();
+      conf = new ConfigThingy(name, url, recorder.open(url), recorder);
+      write(conf, recorder.sources);
+    }
+    return conf;
+  }
+
+  /**
+   * Returns the configuration {@code confString} like
+   * {@link ConfigThingy#ConfigThingy(String, String)}.
+   *
+   * @param name
+   *          The name of the root of the configuration.
+   * @param confString
+   *          The configuration.
+   * @return The configuration, from the snapshot if it is still valid.
+   * @throws IOException
+   *           if loading data from an included URL fails.
+   * @throws SyntaxErrorException
+   *           if a syntactic error is found when parsing the data.
+   */
+  public ConfigThingy load(String name, String confString)
+      throws IOException, SyntaxErrorException
+  {
+    byte[] hash = hash(confString.getBytes(StandardCharsets.UTF_8));
+    ConfigThingy conf = read(name, CONTENT_URL, hash);
+    if (conf == null)
+    {
+      Recorder recorder = new Recorder();
+      recorder.sources.add(new Source(CONTENT_URL, 0, 0, hash));
+      conf = new ConfigThingy(name, null, new StringReader(confString), recorder);
+      write(conf, recorder.sources);
+    }
+    return conf;
+  }
+
+  /**
+   * Reads the snapshot.
+   *
+   * @param name
+   *          The name of the root.
+   * @param url
+   *          The URL of the configuration.
+   * @param contentHash
+   *          The hash of the configuration, if it has been passed as string.
+   * @return The configuration or null if there is no valid snapshot.
+   */
+  private ConfigThingy read(String name, String url, byte[] contentHash)
+  {
+    if (!file.isFile())
+    {
+      return null;
+    }
+    try
+    {
+      /*
+       * The file isn't mapped, because a mapped file can't be replaced on Windows until the buffer
+       * has been garbage collected.
+       */
+      ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+      {
+        return null;
+      }
+      int count = readLength(buffer, Integer.BYTES);
+      List<Source> sources = new ArrayList<>(count);
+      boolean touched = false;
+      for (int i = 0; i < count; i++)
+      {
+        Source source = new Source(readString(buffer), buffer.getLong(), buffer.getLong(),
+            readBytes(buffer));
+        Source current = i == 0 && !source.url.equals(url) ? null : source.validate(contentHash);
+        if (current == null)
+        {
+          LOGGER.debug("Configuration snapshot {} is outdated: {}", file, source.url);
+          return null;
+        }
+        touched |= current != source;
+        sources.add(current);
+      }
+      ConfigThingy conf = new ConfigThingy(name);
+      readChildren(buffer, conf);
+      if (touched)
+      {
+        LOGGER.debug("Configuration snapshot {} is refreshed", file);
+        write(conf, sources);
+      }
+      return conf;
+    } catch (IOException | RuntimeException e)
+    {
+      LOGGER.debug("Configuration snapshot {} can't be read", file, e);
+      return null;
+    }
+  }
+
+  private static void readChildren(ByteBuffer buffer, ConfigThingy parent) throws IOException
+  {
+    // every child has at least a name length and a child count
+    int count = readLength(buffer, 2 * Integer.BYTES);
+    for (int i = 0; i < count; i++)
+    {
+      ConfigThingy child = new ConfigThingy(readString(buffer));
+      readChildren(buffer, child);
+      parent.addChild(child);
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) throws IOException
+  {
+    char[] chars = new char[readLength(buffer, Character.BYTES)];
+    buffer.asCharBuffer().get(chars);
+    buffer.position(buffer.position() + chars.length * Character.BYTES);
+    return new String(chars);
+  }
+
+  private static byte[] readBytes(ByteBuffer buffer) throws IOException
+  {
+    byte[] bytes = new byte[readLength(buffer, 1)];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Reads a length prefix and checks that the buffer contains enough data.
+   *
+   * @param buffer
+   *          The buffer.
+   * @param elementSize
+   *          The minimal number of bytes of one element.
+   * @return The number of elements.
+   * @throws IOException
+   *           The snapshot is corrupt.
+   */
+  private static int readLength(ByteBuffer buffer, int elementSize) throws IOException
+  {
+    int length = buffer.getInt();
+    if (length < 0 || (long) length * elementSize > buffer.remaining())
+    {
+      throw new IOException("Invalid length " + length + " at position " + buffer.position());
+    }
+    return length;
+  }
+
+  /**
+   * Waits until all snapshots are written.
+   */
+  static void awaitWrites() throws InterruptedException, ExecutionException
+  {
+    WRITER.submit(() -> {}).get();
+  }
+
+  /**
+   * Serializes the configuration and writes it to the snapshot file in the background.
+   */
+  private void write(ConfigThingy conf, List<Source> sources)
+  {
+    byte[] data;
+    try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes))
+    {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(sources.size());
+      for (Source source : sources)
+      {
+        writeString(out, source.url);
+        out.writeLong(source.lastModified);
+        out.writeLong(source.length);
+        out.writeInt(source.hash.length);
+        out.write(source.hash);
+      }
+      writeChildren(out, conf);
+      out.flush();
+      data = bytes.toByteArray();
+    } catch (IOException e)
+    {
+      LOGGER.debug("Configuration snapshot can't be created", e);
+      return;
+    }
+
+    WRITER.execute(() -> {
+      Path target = file.toPath();
+      Path temp = null;
+      try
+      {
+        temp = Files.createTempFile(target.toAbsolutePath().getParent(), file.getName(), ".tmp");
+        Files.write(temp, data);
+        try
+        {
+          Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+              StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e)
+        {
+          Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        LOGGER.debug("Configuration snapshot {} written", file);
+      } catch (IOException e)
+      {
+        LOGGER.debug("Configuration snapshot {} can't be written", file, e);
+        try
+        {
+          if (temp != null)
+          {
+            Files.deleteIfExists(temp);
+          }
+        } catch (IOException ex)
+        {
+          LOGGER.trace("", ex);
+        }
+      }
+    });
+  }
+
+  private static void writeChildren(DataOutputStream out, ConfigThingy parent) throws IOException
+  {
+    out.writeInt(parent.count());
+    for (ConfigThingy child : parent)
+    {
+      writeString(out, child.getName());
+      writeChildren(out, child);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException
+  {
+    out.writeInt(str.length());
+    out.writeChars(str);
+  }
+
+  private static byte[] hash(byte[] data)
+  {
+    try
+    {
+      return MessageDigest.getInstance("SHA-256").digest(data);
+    } catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * A configuration file or string, from which the snapshot has been created.
+   */
+  private static class Source
+  {
+    private final String url;
+
+    private final long lastModified;
+
+    private final long length;
+
+    private final byte[] hash;
+
+    private Source(String url, long lastModified, long length, byte[] hash)
+    {
+      this.url = url;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.hash = hash;
+    }
+
+    /**
+     * Is the source unchanged? Local files with the same modification time and length are
+     * considered unchanged, otherwise the content is compared.
+     *
+     * @param contentHash
+     *          The hash of the configuration passed as string.
+     * @return This source if it's unchanged, a source with the current modification time and
+     *         length if only they have changed, or null if the content has changed.
+     */
+    private Source validate(byte[] contentHash) throws IOException
+    {
+      if (CONTENT_URL.equals(url))
+      {
+        return Arrays.equals(hash, contentHash) ? this : null;
+      }
+      URL u = new URL(url);
+      File f = toFile(u);
+      long currentModified = 0;
+      long currentLength = 0;
+      if (f != null)
+      {
+        if (!f.isFile())
+        {
+          return null;
+        }
+        currentModified = f.lastModified();
+        currentLength = f.length();
+        if (currentModified == lastModified && currentLength == length)
+        {
+          return this;
+        }
+      }
+      try (InputStream in = u.openStream())
+      {
+        if (!Arrays.equals(hash, hash(in.readAllBytes())))
+        {
+          return null;
+        }
+      }
+      return f == null ? this : new Source(url, currentModified, currentLength, hash);
+    }
+  }
+
+  /**
+   * Returns the file of a URL or null, if it isn't a local file.
+   */
+  private static File toFile(URL url)
+  {
+    if (!"file".equals(url.getProtocol()))
+    {
+      return null;
+    }
+    try
+    {
+      return new File(url.toURI());
+    } catch (URISyntaxException | IllegalArgumentException e)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Reads the configuration and records the sources.
+   */
+  private static class Recorder implements ConfigThingy.UrlReader
+  {
+    private final List<Source> sources = new ArrayList<>();
+
+    @Override
+    public Reader open(URL url) throws IOException
+    {
+      File f = toFile(url);
+      long lastModified = f == null ? 0 : f.lastModified();
+      long length = f == null ? 0 : f.length();
+      byte[] data;
+      try (InputStream in = url.openStream())
+      {
+        data = in.readAllBytes();
+      }
+      sources.add(new Source(url.toExternalForm(), lastModified, length, hash(data)));
+      return new InputStreamReader(new ByteArrayInputStream(data), ConfigThingy.CHARSET);
+    }
+  }
+}
@@ -22,7 +22,6 @@
  */
 package org.libreoffice.lots.config;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -34,14 +33,19 @@ import java.net.URLEncoder;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.libreoffice.lots.config.ConfigLexer.TokenType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -100,8 +104,27 @@ public class ConfigThingy implements Iterable<ConfigThingy>
   /** The name of the node. For leaves, this is the (string) value of the node. */
   private String name;
 
+  /**
+   * Descendants of an indexed node with at least this many children use an index, too. Smaller
+   * subtrees are searched without an index.
+   */
+  private static final int QUERY_INDEX_MIN_CHILDREN = 32;
+
+  /**
+   * Counts the modifications of the indexed tree this node belongs to. It is shared by all nodes of
+   * the tree. An index is valid as long as this counter hasn't changed. Null if this node doesn't
+   * belong to an indexed tree.
+   */
+  private volatile AtomicLong indexModifications;
+
+  /** If true, this node is the root of an indexed tree and its queries always use an index. */
+  private volatile boolean indexRoot = false;
+
+  /** The index of this subtree. Created with the first query. */
+  private volatile QueryIndex queryIndex;
+
   /** Fallback names (to support old German config items) */
-  Map<String, String> oldConfigItems = new HashMap<String, String>() {{
+  private static final Map<String, String> OLD_CONFIG_ITEMS = new HashMap<String, String>() {{
       put("ColumnTransformation", "Spaltenumsetzung");
       put("LibreOfficeSettings", "OOoEinstellungen");
       put("Functions", "Funktionen");
@@ -138,6 +161,24 @@ public class ConfigThingy implements Iterable<ConfigThingy>
       put("OVERRIDE_FRAG_DB_COLUMN", "OVERRIDE_FRAG_DB_SPALTE");
   }};
 
+  /**
+   * Opens the data of a URL for parsing.
+   */
+  @FunctionalInterface
+  public interface UrlReader
+  {
+    /**
+     * Returns a reader for the data of {@code url}. The reader is closed by the parser.
+     *
+     * @throws IOException
+     *           if the data can't be read.
+     */
+    Reader open(URL url) throws IOException;
+  }
+
+  /** Reads the data of a URL as {@link #CHARSET}. */
+  private static final UrlReader DEFAULT_URL_READER = url -> new InputStreamReader(
+      url.openStream(), CHARSET);
 
   /**
    * Parses the data from the file specified by {@code url}.
@@ -190,6 +231,24 @@ public class ConfigThingy implements Iterable<ConfigThingy>
     childrenFromUrl(url, read);
   }
 
+  /**
+   * Like {@link #ConfigThingy(String, URL, Reader)}, but the data of all included URLs is read
+   * with {@code urlReader}.
+   *
+   * @param name
+   *           the name of the root of the created ConfigThingy tree.
+   * @throws IOException
+   *           if loading data from {@code url} (or an included URL) fails.
+   * @throws SyntaxErrorException
+   *           if a syntactic error is found when parsing the data from url.
+   */
+  public ConfigThingy(String name, URL url, Reader read, UrlReader urlReader)
+      throws IOException, SyntaxErrorException
+  {
+    this(name);
+    childrenFromUrl(url, read, urlReader);
+  }
+
   /**
    * Copy Constructor (deep copy).
    */
@@ -246,79 +305,81 @@ public class ConfigThingy implements Iterable<ConfigThingy>
    */
   protected void childrenFromUrl(URL url, Reader read) throws IOException,
       SyntaxErrorException
+  {
+    childrenFromUrl(url, read, DEFAULT_URL_READER);
+  }
+
+  private void childrenFromUrl(URL url, Reader read, UrlReader urlReader) throws IOException,
+      SyntaxErrorException
   {
     try
     {
       Deque<ConfigThingy> stack = new ArrayDeque<>();
       stack.push(this);
-      List<StringContentToken> tokens = tokenize(url, read);
-      Iterator<StringContentToken> liter = tokens.iterator();
-      Token token1;
-      Token token2;
+      ConfigLexer lexer = new ConfigLexer(url, read);
+      TokenType type;
       do
       {
-        token1 = liter.next();
+        type = lexer.next();
         ConfigThingy child;
-        switch (token1.type())
+        switch (type)
         {
           case INCLUDE:
-            token2 = liter.next();
-            if (token2.type() == TokenType.STRING && !token2.contentString().isEmpty())
+            if (lexer.next() == TokenType.STRING && !lexer.content().isEmpty())
             {
               try
               {
-                URL includeURL = new URL(url, urlEncode(token2.contentString()));
-                stack.peek().childrenFromUrl(includeURL,
-                  new InputStreamReader(includeURL.openStream(), CHARSET));
+                URL includeURL = new URL(url, urlEncode(lexer.content()));
+                stack.peek().childrenFromUrl(includeURL, urlReader.open(includeURL), urlReader);
               }
               catch (IOException iox)
               {
-                throw new IOException(token2.url() + " in line " + token2.line()
-                  + " at char " + token2.position()
+                throw new IOException(lexer.url() + " in line " + lexer.line()
+                  + " at char " + lexer.position()
                   + ": %include failed: ", iox);
               }
             }
             else
             {
-              throw new SyntaxErrorException(token2.url()
+              throw new SyntaxErrorException(lexer.url()
                 + ": URL string (enclosed in quotes) expected in line "
-                + token2.line() + " at char " + token2.position());
+                + lexer.line() + " at char " + lexer.position());
             }
             break;
 
           case KEY:
-            token2 = liter.next();
-            switch (token2.type())
+            String key = lexer.content();
+            switch (lexer.next())
             {
               case OPENPAREN:
-                child = new ConfigThingy(token1.contentString());
+                child = new ConfigThingy(key);
                 stack.peek().addChild(child);
                 stack.push(child);
                 break;
               case STRING:
-                child = new ConfigThingy(token1.contentString());
-                ConfigThingy grandchild = new ConfigThingy(token2.contentString());
+                child = new ConfigThingy(key);
+                ConfigThingy grandchild = new ConfigThingy(lexer.content());
                 child.addChild(grandchild);
                 stack.peek().addChild(child);
                 break;
               default:
-                throw new SyntaxErrorException(token2.url()
-                  + ": syntax error in line " + token2.line() + " at char "
-                  + token2.position());
+                throw new SyntaxErrorException(lexer.url()
+                  + ": syntax error in line " + lexer.line() + " at char "
+                  + lexer.position());
             }
             break;
 
           case STRING:
-            child = new ConfigThingy(token1.contentString());
+            child = new ConfigThingy(lexer.content());
             stack.peek().addChild(child);
             break;
 
           case CLOSEPAREN:
             // Attention: root must not be popped.
             if (stack.size() <= 1)
-              throw new SyntaxErrorException(token1.url()
+              throw new SyntaxErrorException(lexer.url()
                 + ": Bracket ')' without matching bracket '(' in line "
-                + token1.line() + " at char " + token1.position());
+                + lexer.line() + " at char " + lexer.position());
             stack.pop();
             break;
 
@@ -332,15 +393,15 @@ public class ConfigThingy implements Iterable<ConfigThingy>
             break;
 
           default:
-            throw new SyntaxErrorException(token1.url() + ": syntax error in line"
-              + token1.line() + " at char " + token1.position());
+            throw new SyntaxErrorException(lexer.url() + ": syntax error in line"
+              + lexer.line() + " at char " + lexer.position());
         }
 
-      } while (token1.type() != TokenType.END);
+      } while (type != TokenType.END);
 
       if (stack.size() > 1)
       {
-        throw new SyntaxErrorException(token1.url() + ": " + (stack.size() - 1)
+        throw new SyntaxErrorException(lexer.url() + ": " + (stack.size() - 1)
           + " closing brackets are missing");
       }
     }
@@ -404,6 +465,12 @@ public class ConfigThingy implements Iterable<ConfigThingy>
   public void addChild(ConfigThingy child)
   {
     children.add(child);
+    AtomicLong modifications = indexModifications;
+    if (modifications != null)
+    {
+      child.joinIndex(modifications);
+      modifications.incrementAndGet();
+    }
   }
 
   /**
@@ -505,6 +572,65 @@ public class ConfigThingy implements Iterable<ConfigThingy>
   public void setName(String newName)
   {
     name = newName;
+    AtomicLong modifications = indexModifications;
+    if (modifications != null)
+    {
+      modifications.incrementAndGet();
+    }
+  }
+
+  /**
+   * Lets the queries of this node use an index of the node names, which is created with the first
+   * query. Descendants only use an index of their own, if they have many children. Intended for
+   * large configurations that are queried often and rarely modified, because any modification of
+   * a node of this tree with {@link #addChild} or {@link #setName} invalidates the indexes of the
+   * tree. The results are the same as without an index. The index can't be disabled. Children must
+   * not be removed via {@link #iterator()}.
+   */
+  public void enableQueryIndex()
+  {
+    indexRoot = true;
+    if (indexModifications == null)
+    {
+      joinIndex(new AtomicLong());
+    }
+  }
+
+  /**
+   * Adds this node and all its descendants to the indexed tree with the modification counter
+   * {@code modifications}.
+   */
+  private void joinIndex(AtomicLong modifications)
+  {
+    if (indexModifications == modifications)
+    {
+      return;
+    }
+    indexModifications = modifications;
+    for (ConfigThingy child : children)
+    {
+      child.joinIndex(modifications);
+    }
+  }
+
+  /**
+   * Returns the valid index of this subtree or null if this node's queries don't use an index.
+   */
+  QueryIndex getQueryIndex()
+  {
+    AtomicLong modifications = indexModifications;
+    if (modifications == null || (!indexRoot && children.size() < QUERY_INDEX_MIN_CHILDREN))
+    {
+      return null;
+    }
+    long modification = modifications.get();
+    QueryIndex index = queryIndex;
+    if (index == null || index.getModification() != modification)
+    {
+      index = new QueryIndex(this, modification);
+      queryIndex = index;
+    }
+    return index;
   }
 
   /**
@@ -556,6 +682,8 @@ public class ConfigThingy implements Iterable<ConfigThingy>
    *          are inserted into this list. Each node appears at most once in this list,
    *          i.e. if getParents==true and a node has several children with name name,
    *          this node is nevertheless inserted only once.
+   * @param foundParents
+   *          the parents already in {@code found} if {@code getParents==true}.
    * @param parentLevel
    *          the search depth for breadth-first search of {@code parent},
    *          i.e. this has search depth {@code parentLevel + 1}
@@ -570,7 +698,8 @@ public class ConfigThingy implements Iterable<ConfigThingy>
    *         i.e. if a search with a higher searchlevel could possibly yield results.
    */
   private boolean rollcall(ConfigThingy parent, String name,
-      List<ConfigThingy> found, int parentLevel, int searchLevel, boolean getParents)
+      List<ConfigThingy> found, Set<ConfigThingy> foundParents, int parentLevel, int searchLevel,
+      boolean getParents)
   {
     int level = parentLevel + 1;
     if (searchLevel == level)
@@ -579,7 +708,7 @@ public class ConfigThingy implements Iterable<ConfigThingy>
       {
         if (getParents)
         {
-          if (!found.contains(parent)) {
+          if (foundParents.add(parent)) {
             found.add(parent);
           }
         }
@@ -594,7 +723,7 @@ public class ConfigThingy implements Iterable<ConfigThingy>
       for (ConfigThingy child : children)
       {
         boolean result =
-          child.rollcall(this, name, found, level, searchLevel, getParents);
+          child.rollcall(this, name, found, foundParents, level, searchLevel, getParents);
         haveMore = haveMore || result;
       }
       return haveMore;
@@ -687,8 +816,8 @@ public class ConfigThingy implements Iterable<ConfigThingy>
     ConfigThingy res = query(name, false, maxlevel, minlevel);
     if (res.count() == 0)
     {
-      if (oldConfigItems.containsKey(name))
-        res = get(oldConfigItems.get(name), maxlevel, minlevel);
+      if (OLD_CONFIG_ITEMS.containsKey(name))
+        res = get(OLD_CONFIG_ITEMS.get(name), maxlevel, minlevel);
       if (res.count() == 0)
         throw new NodeNotFoundException("Knoten " + getName() + " hat keinen Nachfahren '" + name + "'");
     }
@@ -829,14 +958,21 @@ public class ConfigThingy implements Iterable<ConfigThingy>
    */
   public ConfigThingy queryAll(String name, int maxlevel, boolean getParents)
   {
+    QueryIndex index = getQueryIndex();
+    if (index != null)
+    {
+      return new ConfigThingy("<query results>", index.findAll(name, getParents, maxlevel));
+    }
+
     ArrayList<ConfigThingy> found = new ArrayList<>();
+    Set<ConfigThingy> foundParents = Collections.newSetFromMap(new IdentityHashMap<>());
 
     boolean hasMore;
 
     int searchlevel = 1;
     do
     {
-      hasMore = rollcall(this, name, found, -1, searchlevel++, getParents);
+      hasMore = rollcall(this, name, found, foundParents, -1, searchlevel++, getParents);
     } while (hasMore && searchlevel < maxlevel + 1);
 
     return new ConfigThingy("<query results>", found);
@@ -849,20 +985,29 @@ public class ConfigThingy implements Iterable<ConfigThingy>
   protected ConfigThingy query(String name, boolean getParents, int maxlevel,
       int minlevel)
   {
-    List<ConfigThingy> found = new ArrayList<>();
-    boolean haveMore;
-    int searchlevel = minlevel;
-    do
+    List<ConfigThingy> found;
+    QueryIndex index = getQueryIndex();
+    if (index != null)
     {
-      if (searchlevel > maxlevel) {
-        break;
-      }
-      haveMore = rollcall(this, name, found, -1, searchlevel, getParents);
-      ++searchlevel;
-    } while (found.isEmpty() && haveMore);
+      found = index.find(name, getParents, maxlevel, minlevel);
+    } else
+    {
+      found = new ArrayList<>();
+      Set<ConfigThingy> foundParents = Collections.newSetFromMap(new IdentityHashMap<>());
+      boolean haveMore;
+      int searchlevel = minlevel;
+      do
+      {
+        if (searchlevel > maxlevel) {
+          break;
+        }
+        haveMore = rollcall(this, name, found, foundParents, -1, searchlevel, getParents);
+        ++searchlevel;
+      } while (found.isEmpty() && haveMore);
+    }
 
-    if (found.isEmpty() && oldConfigItems.containsKey(name)) {
-      ConfigThingy res = query(oldConfigItems.get(name), getParents, maxlevel, minlevel);
+    if (found.isEmpty() && OLD_CONFIG_ITEMS.containsKey(name)) {
+      ConfigThingy res = query(OLD_CONFIG_ITEMS.get(name), getParents, maxlevel, minlevel);
       if (res.count() == 0)
         return new ConfigThingy("<query results>");
     }
@@ -1137,509 +1282,6 @@ public class ConfigThingy implements Iterable<ConfigThingy>
       throw new InvalidIdentifierException(id);
   }
 
-  private enum TokenType
-  {
-    KEY,
-    STRING,
-    OPENPAREN,
-    CLOSEPAREN,
-    END,
-    INCLUDE,
-    LINECOMMENT;
-  }
-
-  /**
-   * The {@link ConfigThingy#tokenize(URL)} method returns a list of objects
-   * that all implement this interface.
-   */
-  private interface Token
-  {
-    /**
-     * Returns the URL of the document in which this token was found.
-     */
-    public URL url();
-
-    /**
-     * Returns the line in which this token was found.
-     */
-    public int line();
-
-    /**
-     * Returns the position of the first character of this token in its line, counted from 1.
-     */
-    public int position();
-
-    /**
-     * Returns the type of this token, e.g. {@link #KEY}.
-     */
-    public TokenType type();
-
-    /**
-     * Returns the text representation of this token.
-     * This is NOT necessarily identical with the string from which this token was parsed.
-     * For example, separators like the quotation marks for delimiting strings do not appear
-     * in the string returned here.
-     * Nor do escape sequences used in the input data stream to represent certain characters
-     * such as newline appear in this string.
-     */
-    public String contentString();
-  }
-
-  /**
-   * Abstract base class for tokens that store their {@link #contentString()} value in a string variable.
-   */
-  private abstract static class StringContentToken implements Token
-  {
-    protected String content;
-
-    protected int myLine;
-
-    protected int myPosition;
-
-    protected URL myURL;
-
-    public StringContentToken(URL url, int line, int position)
-    {
-      myURL = url;
-      myLine = line;
-      myPosition = position;
-    }
-
-    @Override
-    public URL url()
-    {
-      return myURL;
-    }
-
-    @Override
-    public int line()
-    {
-      return myLine;
-    }
-
-    @Override
-    public int position()
-    {
-      return myPosition;
-    }
-
-    @Override
-    public String contentString()
-    {
-      return content;
-    }
-  }
-
-  /**
-   * Token for a string according to the syntax for WollMux config files.
-   */
-  private static class StringToken extends StringContentToken
-  {
-    /**
-     * Creates a new StringToken
-     *
-     * @param tokenData
-     *          a string for which {@link #atStartOf(String)} returns a value greater than 0.
-     */
-    public StringToken(String tokenData, URL url, int line, int position)
-    {
-      super(url, line, position);
-
-      int len = atStartOf(tokenData);
-      if (len < 2) {
-        throw new IllegalArgumentException("String token expected!");
-      }
-
-      char quote = tokenData.charAt(0);
-
-      /*
-       * Evaluate % escapes, as well as replace quotequote with quote
-       */
-      StringBuilder buffy = new StringBuilder(tokenData.substring(1, len - 1));
-      String quoteStr = Character.toString(quote);
-      int startidx = 0;
-      int idx;
-      while (true)
-      {
-        idx = buffy.indexOf("%", startidx);
-        int idx2 = buffy.indexOf(quoteStr, startidx);
-
-        if (idx < 0 && idx2 < 0) {
-          break;
-        }
-
-        String repstr;
-        int replen;
-
-        if (idx < 0 || (idx2 >= 0 && idx2 < idx)) // quotequote
-        {
-          idx = idx2;
-          replen = 2;
-          repstr = quoteStr;
-        }
-        else // % escape
-        {
-          if (idx + 1 >= buffy.length()) {
-            break;
-          }
-
-          // default: replace with the same character, i.e. %
-          repstr = Character.toString(buffy.charAt(idx));
-          replen = 1;
-
-          switch (buffy.charAt(idx + 1))
-          {
-            case 'n':
-              repstr = "\n";
-              replen = 2;
-              break;
-            case '%':
-              repstr = "%";
-              replen = 2;
-              break;
-            case 'u':
-              repstr = parseUnicode(buffy, idx + 2);
-              replen = 6;
-              break;
-            default:
-              break;
-          }
-        }
-        buffy.replace(idx, idx + replen, repstr);
-        startidx = idx + repstr.length();
-      }
-
-      content = buffy.toString();
-    }
-
-    private String parseUnicode(StringBuilder str, int idx)
-    {
-      if (idx + 4 > str.length())
-        throw new IllegalArgumentException("Incomplete %u escape!");
-      String code = str.substring(idx, idx + 4);
-      try
-      {
-        char ch = (char) Integer.parseInt(code, 16);
-        return Character.toString(ch);
-      }
-      catch (NumberFormatException x)
-      {
-        throw new IllegalArgumentException("Incorrect hex number in %u escape: \"%u"
-          + code + "\"");
-      }
-    }
-
-    @Override
-    public TokenType type()
-    {
-      return TokenType.STRING;
-    }
-
-    /**
-     * Returns the length of the longest prefix of str which can be interpreted
-     * as a token of this class.
-     */
-    public static int atStartOf(String str)
-    {
-      if (str.length() < 2) {
-        return 0;
-      }
-      char quote = str.charAt(0);
-      if (quote != '"' && quote != '\'') {
-        return 0;
-      }
-
-      int idx = 1;
-      while (true)
-      {
-        idx = str.indexOf(quote, idx);
-        if (idx < 0) {
-          return 0;
-        }
-        ++idx;
-        if (idx >= str.length() || str.charAt(idx) != quote) {
-          return idx;
-        }
-        ++idx;
-      }
-    }
-  }
-
-  /**
-   * A token for a key according to the syntax for WollMux config files.
-   */
-  private static class KeyToken extends StringContentToken
-  {
-    /**
-     * Regex for the identification of valid keys.
-     */
-    private static Pattern p = Pattern.compile("^([a-zA-Z_][a-zA-Z_0-9]*)");
-
-    /**
-     * Creates a new KeyToken
-     *
-     * @param tokenData
-     *          a string for which {@link #atStartOf(String)} returns a value greater than 0.
-     */
-    public KeyToken(String tokenData, URL url, int line, int position)
-    {
-      super(url, line, position);
-      Matcher m = p.matcher(tokenData);
-      if (!m.find()) {
-        throw new IllegalArgumentException("Key token expected!");
-      }
-      content = m.group(1);
-    }
-
-    @Override
-    public TokenType type()
-    {
-      return TokenType.KEY;
-    }
-
-    /**
-     * Returns the length of the longest prefix of str which can be interpreted
-     * as a token of this class.
-     */
-    public static int atStartOf(String str)
-    {
-      Matcher m = p.matcher(str);
-      if (!m.find()) {
-        return 0;
-      }
-      return m.end();
-    }
-  }
-
-  /**
-   * Token for opening round bracket.
-   */
-  private static class OpenParenToken extends StringContentToken
-  {
-    public OpenParenToken(URL url, int line, int position)
-    {
-      super(url, line, position);
-      content = "(";
-    }
-
-    @Override
-    public TokenType type()
-    {
-      return TokenType.OPENPAREN;
-    }
-
-    /**
-     * Returns 1 if {@code str} starts with '(', 0 otherwise.
-     */
-    public static int atStartOf(String str)
-    {
-      return str.startsWith("(") ? 1 : 0;
-    }
-  }
-
-  /**
-   * Token for closing round bracket.
-   */
-  private static class CloseParenToken extends StringContentToken
-  {
-    public CloseParenToken(URL url, int line, int position)
-    {
-      super(url, line, position);
-      content = ")";
-    }
-
-    @Override
-    public TokenType type()
-    {
-      return TokenType.CLOSEPAREN;
-    }
-
-    /**
-     * Returns 1 if {@code str} starts with ')', 0 otherwise.
-     */
-    public static int atStartOf(String str)
-    {
-      return str.startsWith(")") ? 1 : 0;
-    }
-  }
-
-  /**
-   * Token for the string "%include".
-   */
-  private static class IncludeToken extends StringContentToken
-  {
-    private static final String INC = "%include";
-
-    public IncludeToken(URL url, int line, int position)
-    {
-      super(url, line, position);
-      content = INC;
-    }
-
-    @Override
-    public TokenType type()
-    {
-      return TokenType.INCLUDE;
-    }
-
-    /**
-     * Returns the length of the longest prefix of str which can be interpreted
-     * as a token of this class.
-     */
-    public static int atStartOf(String str)
-    {
-      return str.startsWith(INC) ? INC.length() : 0;
-    }
-  }
-
-  /**
-   * Token for a comment according to WollMux config file syntax.
-   * ATTENTION: Tokens of this class are currently not returned by
-   * {@link ConfigThingy#tokenize(URL)}, but discarded.
-   */
-  private static class LineCommentToken extends StringContentToken
-  {
-
-    /**
-     * Creates a new LineCommentToken.
-     *
-     * @param tokenData
-     *          a string whose first character is '#'.
-     */
-    public LineCommentToken(String tokenData, URL url, int line, int position)
-    {
-      super(url, line, position);
-      content = tokenData.substring(1);
-    }
-
-    @Override
-    public TokenType type()
-    {
-      return TokenType.LINECOMMENT;
-    }
-
-    /**
-     * Returns the length of the longest prefix of {@code str}
-     * which can be interpreted as a token of this class.
-     */
-    public static int atStartOf(String str)
-    {
-      return str.startsWith("#") ? str.length() : 0;
-    }
-  }
-
-  /**
-   * Signals the end of the input data stream.
-   */
-  private static class EndToken extends StringContentToken
-  {
-    public EndToken(URL url, int line, int position)
-    {
-      super(url, line, position);
-      content = "";
-    }
-
-    @Override
-    public TokenType type()
-    {
-      return TokenType.END;
-    }
-  }
-
-  /**
-   * Splits the data from {@code read} into {@link Tokens}s.
-   * As source URL {@code url} is entered in the tokens.
-   *
-   * @return the list of identified tokens, terminated by at least 7 {@link EndToken}s.
-   * @throws IOException
-   *           in case something goes wrong when accessing the data from {@code url}.
-   * @throws SyntaxErrorException
-   *           if a string cannot be identified as a token.
-   */
-  private static List<StringContentToken> tokenize(URL url, Reader read)
-      throws IOException, SyntaxErrorException
-  {
-    List<StringContentToken> tokens = new ArrayList<>();
-    BufferedReader in = new BufferedReader(read);
-    String line;
-
-    int lineNo = 0;
-    Pattern whitespace = Pattern.compile("^(\\p{Space}|\\u00A0|,|;|\\uFEFF)+");
-    while (null != (line = in.readLine()))
-    {
-      ++lineNo;
-      int pos = 0;
-
-      while (line.length() > 0)
-      {
-        Matcher wsm = whitespace.matcher(line);
-        if (wsm.find())
-        {
-          pos += wsm.end();
-          line = line.substring(wsm.end());
-          if (line.length() == 0) {
-            continue;
-          }
-        }
-
-        int tokenLength;
-        try
-        {
-          if (0 != (tokenLength = KeyToken.atStartOf(line)))
-          {
-            tokens.add(new KeyToken(line, url, lineNo, pos + 1));
-          }
-          else if (0 != (tokenLength = StringToken.atStartOf(line)))
-          {
-            tokens.add(new StringToken(line, url, lineNo, pos + 1));
-          }
-          else if (0 != (tokenLength = OpenParenToken.atStartOf(line)))
-          {
-            tokens.add(new OpenParenToken(url, lineNo, pos + 1));
-          }
-          else if (0 != (tokenLength = CloseParenToken.atStartOf(line)))
-          {
-            tokens.add(new CloseParenToken(url, lineNo, pos + 1));
-          }
-          else if (0 != (tokenLength = IncludeToken.atStartOf(line)))
-          {
-            tokens.add(new IncludeToken(url, lineNo, pos + 1));
-          }
-          else if (0 != (tokenLength = LineCommentToken.atStartOf(line)))
-          {
-            // LineCommentTokens werden nicht in tokens eingefügt, weil
-            // der Parser im Fall von 2er Paaren wie KEY STRING nicht in
-            // der Lage ist über Kommentare hinwegzulesen. Anstatt ihm das
-            // Einzubauen ist es einfacher, Kommentare einfach wegzuschmeissen.
-          }
-          else
-          {
-            throw new SyntaxErrorException(url + ": syntax error in line " + lineNo
-              + " at char " + (pos + 1) + ", text in error location: \"" + line
-              + "\"");
-          }
-        }
-        catch (IllegalArgumentException x)
-        {
-          throw new SyntaxErrorException(url + ": syntax error in line " + lineNo
-            + " at char " + (pos + 1) + ", text in error location: \"" + line
-            + "\"", x);
-        }
-
-        pos += tokenLength;
-        line = line.substring(tokenLength);
-      }
-    }
-
-    // add a couple EndTokens so that users don't have to worry about
-    // checking if there's enough input remaining
-    ++lineNo;
-    for (int i = 0; i < 7; ++i)
-      tokens.add(new EndToken(url, lineNo, 0));
-
-    return tokens;
-  }
-
   /**
    * Returns a textual tree representation of {@code conf}.
    * Each line is prefixed with {@code childPrefix}.
@@ -0,0 +1,159 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index of all nodes of a {@link ConfigThingy} tree by name and search depth. It answers the
+ * queries of {@link ConfigThingy} without walking the tree once per search depth. The results are
+ * in the same order as those of the breadth-first search.
+ */
+final class QueryIndex
+{
+  /**
+   * The nodes with the same name at one search depth.
+   */
+  private static final class Level
+  {
+    private final List<ConfigThingy> nodes = new ArrayList<>();
+
+    private final List<ConfigThingy> parents = new ArrayList<>();
+
+    /**
+     * The parents already in {@link #parents}. Only needed while building the index.
+     */
+    private Set<ConfigThingy> knownParents = Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+
+  private final long modification;
+
+  private final Map<String, NavigableMap<Integer, Level>> levels = new HashMap<>();
+
+  /**
+   * Creates the index of the tree with root {@code root}.
+   *
+   * @param root
+   *          The root of the tree. It has search depth 0.
+   * @param modification
+   *          The modification counter of the indexed tree at the time the index is created.
+   */
+  QueryIndex(ConfigThingy root, long modification)
+  {
+    this.modification = modification;
+    add(root, root, 0);
+    for (NavigableMap<Integer, Level> byLevel : levels.values())
+    {
+      for (Level level : byLevel.values())
+      {
+        level.knownParents = null;
+      }
+    }
+  }
+
+  private void add(ConfigThingy parent, ConfigThingy node, int depth)
+  {
+    Level level = levels.computeIfAbsent(node.getName(), k -> new TreeMap<>())
+        .computeIfAbsent(depth, k -> new Level());
+    level.nodes.add(node);
+    if (level.knownParents.add(parent))
+    {
+      level.parents.add(parent);
+    }
+    for (ConfigThingy child : node)
+    {
+      add(node, child, depth + 1);
+    }
+  }
+
+  /**
+   * The modification counter of {@link ConfigThingy} at the time the index was created.
+   */
+  long getModification()
+  {
+    return modification;
+  }
+
+  /**
+   * Returns the nodes named {@code name} (or their parents if {@code getParents == true}) on the
+   * lowest search depth between {@code minlevel} and {@code maxlevel} which has such nodes.
+   *
+   * @return A new list, which is empty if there are no such nodes.
+   */
+  List<ConfigThingy> find(String name, boolean getParents, int maxlevel, int minlevel)
+  {
+    NavigableMap<Integer, Level> byLevel = levels.get(name);
+    if (byLevel == null || minlevel < 0)
+    {
+      return new ArrayList<>();
+    }
+    Map.Entry<Integer, Level> entry = byLevel.ceilingEntry(minlevel);
+    if (entry == null || entry.getKey() > maxlevel)
+    {
+      return new ArrayList<>();
+    }
+    Level level = entry.getValue();
+    return new ArrayList<>(getParents ? level.parents : level.nodes);
+  }
+
+  /**
+   * Returns all nodes named {@code name} (or their parents if {@code getParents == true}) from
+   * search depth 1 to {@code maxlevel}. Each parent is returned only once.
+   *
+   * @return A new list, which is empty if there are no such nodes.
+   */
+  List<ConfigThingy> findAll(String name, boolean getParents, int maxlevel)
+  {
+    List<ConfigThingy> found = new ArrayList<>();
+    NavigableMap<Integer, Level> byLevel = levels.get(name);
+    if (byLevel == null)
+    {
+      return found;
+    }
+    Set<ConfigThingy> knownParents = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Level level : byLevel.subMap(1, true, Math.max(1, maxlevel), true).values())
+    {
+      if (!getParents)
+      {
+        found.addAll(level.nodes);
+        continue;
+      }
+      for (ConfigThingy parent : level.parents)
+      {
+        if (knownParents.add(parent))
+        {
+          found.add(parent);
+        }
+      }
+    }
+    return found;
+  }
+}
@@ -27,15 +27,41 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
- * Performs an asynchronous search in a {@link Datasource}.
+ * Performs an asynchronous search in one or more {@link Datasource}s. The search runs on a
+ * dedicated executor, can deliver its results in batches while they are found and can be
+ * canceled, e.g. if it has been superseded by a newer search. The queries of a search strategy
+ * are sent to their data sources concurrently and each has to be answered within the data source
+ * timeout (see {@link Search#runConcurrently(List, java.util.function.Function, long)}).
  */
 public class AsyncSearch
 {
 
-  private Map<String, String> searchQuery;
-  private Datasource datasource;
+  /**
+   * Maximum number of searches running at the same time.
+   */
+  private static final int MAX_PARALLEL_SEARCHES = 2;
+
+  private static final ExecutorService EXECUTOR = Search.createExecutor("lots-async-search-",
+      MAX_PARALLEL_SEARCHES);
+
+  private List<Query> queries;
+  private Map<String, Datasource> datasources;
+
+  /**
+   * Time in milliseconds each query may take. If it's negative
+   * {@link Datasource#getDatasourceTimeout()} is used.
+   */
+  private long timeout = -1;
+
+  private volatile boolean canceled = false;
+  private volatile CompletableFuture<QueryResults> future;
+  private volatile Future<?> task;
 
   /**
    * A new search query.
@@ -47,8 +73,55 @@ public class AsyncSearch
    */
   public AsyncSearch(Map<String, String> searchQuery, Datasource datasource)
   {
-    this.searchQuery = searchQuery;
-    this.datasource = datasource;
+    if (searchQuery == null || searchQuery.isEmpty() || datasource == null)
+    {
+      queries = Collections.emptyList();
+      datasources = Collections.emptyMap();
+      return;
+    }
+
+    List<QueryPart> parts = new ArrayList<>();
+    for (Map.Entry<String, String> entry : searchQuery.entrySet())
+    {
+      parts.add(new QueryPart(entry.getKey(), entry.getValue()));
+    }
+    queries = List.of(new Query(datasource.getName(), parts));
+    datasources = Collections.singletonMap(datasource.getName(), datasource);
+  }
+
+  /**
+   * A new search query, which is resolved by a {@link SearchStrategy}.
+   *
+   * @param queryString
+   *          The search string as entered by the user.
+   * @param searchStrategy
+   *          The strategy which maps the search string to queries.
+   * @param datasources
+   *          The data sources referenced by the strategy.
+   */
+  public AsyncSearch(String queryString, SearchStrategy searchStrategy,
+      Map<String, Datasource> datasources)
+  {
+    if (queryString == null || searchStrategy == null || datasources == null)
+    {
+      this.queries = Collections.emptyList();
+      this.datasources = Collections.emptyMap();
+    } else
+    {
+      this.queries = Search.parseQuery(searchStrategy, queryString);
+      this.datasources = datasources;
+    }
+  }
+
+  /**
+   * Set the time each query may take.
+   *
+   * @param timeout
+   *          Time in milliseconds.
+   */
+  void setTimeout(long timeout)
+  {
+    this.timeout = timeout;
   }
 
   /**
@@ -58,28 +131,117 @@ public class AsyncSearch
    */
   public CompletableFuture<QueryResults> runSearchAsync()
   {
-    return CompletableFuture.supplyAsync(() -> {
+    return runSearchAsync(batch -> {});
+  }
 
-      if (searchQuery == null || datasource == null)
+  /**
+   * Start an asynchronous search, which passes the results to the consumer while they are found.
+   * The consumer is called on the search threads, so it may be called concurrently by the queries
+   * of a search strategy. Datasets found by several queries of a search strategy may be passed
+   * more than once, the result of the future is free of duplicates. No batch is delivered after
+   * the search has been canceled.
+   *
+   * @param batchConsumer
+   *          Receives the results in batches.
+   * @return A future with all results. Never null. The future is canceled if the search is
+   *         canceled. It completes exceptionally with a {@link TimeoutException} if no data
+   *         source answered in time.
+   */
+  public CompletableFuture<QueryResults> runSearchAsync(Consumer<List<Dataset>> batchConsumer)
+  {
+    CompletableFuture<QueryResults> f = new CompletableFuture<>();
+    future = f;
+    if (canceled)
+    {
+      f.cancel(false);
+      return f;
+    }
+    task = EXECUTOR.submit(() -> {
+      try
+      {
+        QueryResults results = search(batchConsumer);
+        if (canceled)
+        {
+          f.cancel(false);
+        } else
+        {
+          f.complete(results);
+        }
+      } catch (InterruptedException e)
       {
-        return new QueryResultsList(Collections.emptyList());
+        f.cancel(false);
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException | TimeoutException e)
+      {
+        f.completeExceptionally(e);
       }
-
-      return search(searchQuery);
     });
+    return f;
   }
 
-  private QueryResults search(Map<String, String> query)
+  /**
+   * Cancel the search. Running queries are interrupted and stop at the latest with the next batch.
+   */
+  public void cancel()
   {
-    List<QueryPart> parts = new ArrayList<>();
+    canceled = true;
+    CompletableFuture<QueryResults> f = future;
+    if (f != null)
+    {
+      f.cancel(false);
+    }
+    Future<?> t = task;
+    if (t != null)
+    {
+      t.cancel(true);
+    }
+  }
 
-    for (Map.Entry<String, String> entry : query.entrySet())
+  /**
+   * Has the search been canceled?
+   *
+   * @return True if {@link #cancel()} has been called.
+   */
+  public boolean isCanceled()
+  {
+    return canceled;
+  }
+
+  private QueryResults search(Consumer<List<Dataset>> batchConsumer)
+      throws TimeoutException, InterruptedException
+  {
+    if (queries.isEmpty() || canceled)
     {
-      QueryPart qp = new QueryPart(entry.getKey(), entry.getValue());
-      parts.add(qp);
+      return new QueryResultsList(Collections.emptyList());
     }
+    List<QueryResults> listOfQueryResultsList = Search.runConcurrently(queries,
+        query -> runQuery(query, batchConsumer),
+        timeout < 0 ? Datasource.getDatasourceTimeout() : timeout);
+    return Search.mergeListOfQueryResultsList(listOfQueryResultsList);
+  }
 
-    return datasource.find(parts);
+  private QueryResults runQuery(Query query, Consumer<List<Dataset>> batchConsumer)
+  {
+    Datasource datasource = datasources.get(query.getDatasourceName());
+    List<Dataset> results = new ArrayList<>();
+    Consumer<List<Dataset>> collector = batch -> {
+      results.addAll(batch);
+      batchConsumer.accept(batch);
+    };
+
+    if (query.numberOfQueryParts() == 0)
+    {
+      List<Dataset> contents = new ArrayList<>();
+      datasource.getContents().forEach(contents::add);
+      if (!contents.isEmpty() && !canceled)
+      {
+        collector.accept(contents);
+      }
+    } else
+    {
+      datasource.findIncremental(query.getQueryParts(), collector, this::isCanceled);
+    }
+    return new QueryResultsList(results);
   }
 
 }
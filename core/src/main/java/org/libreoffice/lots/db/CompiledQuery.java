@@ -0,0 +1,222 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.db;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A list of {@link QueryPart}s compiled once for repeated matching against many datasets. Every
+ * part is converted to lower case and compiled to a {@link Pattern} exactly once. Parts without
+ * regular expression meta characters are matched by a simple substring search.
+ *
+ * The semantics are the same as those of {@link DatasetPredicate#makePredicate(List)}: Invalid *
+ * characters are filtered out and a part matches if its search string is found anywhere in the
+ * column value (case insensitive).
+ */
+public class CompiledQuery implements Predicate<Dataset>
+{
+  private static final Pattern REGEX_META = Pattern.compile("[\\\\^$.|?+()\\[\\]{}]");
+
+  private final CompiledPart[] parts;
+
+  /**
+   * Compiles a query.
+   *
+   * @param query
+   *          List of {@link QueryPart}.
+   */
+  public CompiledQuery(List<QueryPart> query)
+  {
+    parts = new CompiledPart[query.size()];
+    for (int i = 0; i < parts.length; i++)
+    {
+      parts[i] = new CompiledPart(query.get(i));
+    }
+  }
+
+  /**
+   * Is this query empty?
+   *
+   * @return True if there are no query parts.
+   */
+  public boolean isEmpty()
+  {
+    return parts.length == 0;
+  }
+
+  /**
+   * Get the number of query parts.
+   */
+  int size()
+  {
+    return parts.length;
+  }
+
+  /**
+   * Get the column of the i-th query part.
+   */
+  String getColumnName(int i)
+  {
+    return parts[i].columnName;
+  }
+
+  /**
+   * Get the lower case search string of the i-th query part if it is matched as a plain substring.
+   *
+   * @return The search string or null if it is matched as regular expression.
+   */
+  String getLiteral(int i)
+  {
+    return parts[i].literal;
+  }
+
+  @Override
+  public boolean test(Dataset ds)
+  {
+    try
+    {
+      for (CompiledPart part : parts)
+      {
+        if (!part.matches(toLowerCase(ds.get(part.columnName))))
+        {
+          return false;
+        }
+      }
+      return true;
+    } catch (ColumnNotFoundException ex)
+    {
+      return false;
+    }
+  }
+
+  /**
+   * Binds this query to a schema. The returned predicate tests rows whose values are already in
+   * lower case and ordered like the schema (see {@link #toLowerCaseRow(List, Dataset)}). If a
+   * column of the query isn't part of the schema the predicate never matches.
+   *
+   * @param schema
+   *          The schema of the rows.
+   * @return A predicate for pre-lowercased rows.
+   */
+  public Predicate<String[]> bind(List<String> schema)
+  {
+    Map<String, Integer> columnIndex = new HashMap<>();
+    for (int i = 0; i < schema.size(); i++)
+    {
+      columnIndex.putIfAbsent(schema.get(i), i);
+    }
+    int[] indexes = new int[parts.length];
+    for (int i = 0; i < parts.length; i++)
+    {
+      Integer index = columnIndex.get(parts[i].columnName);
+      if (index == null)
+      {
+        return row -> false;
+      }
+      indexes[i] = index;
+    }
+    return row -> {
+      for (int i = 0; i < parts.length; i++)
+      {
+        if (!parts[i].matches(row[indexes[i]]))
+        {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  /**
+   * Converts a dataset to an array of lower case values ordered like the schema. Columns without
+   * value are converted to an empty string, columns the dataset doesn't know to null. Such columns
+   * never match.
+   *
+   * @param schema
+   *          The schema.
+   * @param ds
+   *          The dataset.
+   * @return Array of lower case values.
+   */
+  public static String[] toLowerCaseRow(List<String> schema, Dataset ds)
+  {
+    String[] row = new String[schema.size()];
+    for (int i = 0; i < row.length; i++)
+    {
+      try
+      {
+        row[i] = toLowerCase(ds.get(schema.get(i)));
+      } catch (ColumnNotFoundException ex)
+      {
+        row[i] = null;
+      }
+    }
+    return row;
+  }
+
+  private static String toLowerCase(String value)
+  {
+    return value == null ? "" : value.toLowerCase();
+  }
+
+  private static class CompiledPart
+  {
+    private final String columnName;
+
+    private final String literal;
+
+    private final Pattern pattern;
+
+    CompiledPart(QueryPart part)
+    {
+      columnName = part.getColumnName();
+      String search = part.getSearchString().replace("*", "").toLowerCase();
+      if (REGEX_META.matcher(search).find())
+      {
+        pattern = Pattern.compile(search);
+        literal = null;
+      } else
+      {
+        pattern = null;
+        literal = search;
+      }
+    }
+
+    boolean matches(String lowerCaseValue)
+    {
+      if (lowerCaseValue == null)
+      {
+        return false;
+      }
+      if (literal != null)
+      {
+        return lowerCaseValue.contains(literal);
+      }
+      return pattern.matcher(lowerCaseValue).find();
+    }
+  }
+}
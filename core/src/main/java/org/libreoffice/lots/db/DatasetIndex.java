@@ -0,0 +1,248 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index over the datasets of a {@link RAMDatasource}. The index always maps keys to
+ * datasets. For the configured columns it additionally contains a trigram index of the lower case
+ * values, which restricts {@link RAMDatasource#find(List)} to candidate rows.
+ *
+ * Rows are identified by their position in the data source.
+ */
+class DatasetIndex
+{
+  /**
+   * Length of the n-grams in the column indexes.
+   */
+  static final int GRAM_LENGTH = 3;
+
+  private final Map<String, int[]> keyToRows = new HashMap<>();
+
+  /**
+   * Mapping from column to the trigram index of this column.
+   */
+  private final Map<String, Map<String, int[]>> columnIndexes = new HashMap<>();
+
+  /**
+   * Creates the index.
+   *
+   * @param schema
+   *          The schema of the data source.
+   * @param data
+   *          The datasets.
+   * @param lowerCaseData
+   *          The lower case values of the datasets (see
+   *          {@link CompiledQuery#toLowerCaseRow(List, Dataset)}).
+   * @param indexedColumns
+   *          The columns which should get a trigram index. They have to be part of the schema.
+   */
+  DatasetIndex(List<String> schema, List<Dataset> data, List<String[]> lowerCaseData,
+      Collection<String> indexedColumns)
+  {
+    Map<String, Postings> keys = new HashMap<>();
+    int row = 0;
+    for (Dataset ds : data)
+    {
+      keys.computeIfAbsent(ds.getKey(), k -> new Postings()).add(row);
+      row++;
+    }
+    keys.forEach((key, postings) -> keyToRows.put(key, postings.toArray()));
+
+    for (String column : indexedColumns)
+    {
+      int columnIndex = schema.indexOf(column);
+      Map<String, Postings> grams = new HashMap<>();
+      row = 0;
+      for (String[] values : lowerCaseData)
+      {
+        String value = values[columnIndex];
+        if (value != null)
+        {
+          for (int i = 0; i + GRAM_LENGTH <= value.length(); i++)
+          {
+            grams.computeIfAbsent(value.substring(i, i + GRAM_LENGTH), k -> new Postings()).add(row);
+          }
+        }
+        row++;
+      }
+      Map<String, int[]> index = new HashMap<>();
+      grams.forEach((gram, postings) -> index.put(gram, postings.toArray()));
+      columnIndexes.put(column, index);
+    }
+  }
+
+  /**
+   * Get the rows of all datasets with one of the given keys.
+   *
+   * @param keys
+   *          The keys.
+   * @return Ascending row numbers without duplicates.
+   */
+  int[] getRowsByKey(Collection<String> keys)
+  {
+    Postings rows = new Postings();
+    for (String key : keys)
+    {
+      int[] keyRows = keyToRows.get(key);
+      if (keyRows != null)
+      {
+        for (int row : keyRows)
+        {
+          rows.add(row);
+        }
+      }
+    }
+    int[] result = rows.toArray();
+    Arrays.sort(result);
+    return removeDuplicates(result);
+  }
+
+  /**
+   * Get the rows which may match a query. Only query parts which are plain substrings of at least
+   * {@link #GRAM_LENGTH} characters on indexed columns restrict the candidates. The candidates
+   * still have to be tested with the query.
+   *
+   * @param query
+   *          The query.
+   * @return Ascending row numbers or null if the index can't restrict the rows.
+   */
+  int[] getCandidates(CompiledQuery query)
+  {
+    List<int[]> postings = new ArrayList<>();
+    for (int i = 0; i < query.size(); i++)
+    {
+      Map<String, int[]> index = columnIndexes.get(query.getColumnName(i));
+      String literal = query.getLiteral(i);
+      if (index == null || literal == null || literal.length() < GRAM_LENGTH)
+      {
+        continue;
+      }
+      for (int j = 0; j + GRAM_LENGTH <= literal.length(); j++)
+      {
+        int[] rows = index.get(literal.substring(j, j + GRAM_LENGTH));
+        if (rows == null)
+        {
+          return new int[0];
+        }
+        postings.add(rows);
+      }
+    }
+    if (postings.isEmpty())
+    {
+      return null;
+    }
+
+    postings.sort(Comparator.comparingInt(rows -> rows.length));
+    int[] candidates = postings.get(0);
+    for (int i = 1; i < postings.size() && candidates.length > 0; i++)
+    {
+      candidates = intersect(candidates, postings.get(i));
+    }
+    return candidates;
+  }
+
+  /**
+   * Is the column indexed?
+   *
+   * @param column
+   *          The column.
+   * @return True if there is a trigram index for the column.
+   */
+  boolean isIndexed(String column)
+  {
+    return columnIndexes.containsKey(column);
+  }
+
+  private static int[] intersect(int[] a, int[] b)
+  {
+    int[] result = new int[Math.min(a.length, b.length)];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < a.length && j < b.length)
+    {
+      if (a[i] < b[j])
+      {
+        i++;
+      } else if (a[i] > b[j])
+      {
+        j++;
+      } else
+      {
+        result[k++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, k);
+  }
+
+  private static int[] removeDuplicates(int[] sorted)
+  {
+    int k = 0;
+    for (int i = 0; i < sorted.length; i++)
+    {
+      if (k == 0 || sorted[k - 1] != sorted[i])
+      {
+        sorted[k++] = sorted[i];
+      }
+    }
+    return Arrays.copyOf(sorted, k);
+  }
+
+  /**
+   * Growing list of row numbers. Rows added in ascending order are stored only once.
+   */
+  private static class Postings
+  {
+    private int[] rows = new int[4];
+
+    private int size = 0;
+
+    void add(int row)
+    {
+      if (size > 0 && rows[size - 1] == row)
+      {
+        return;
+      }
+      if (size == rows.length)
+      {
+        rows = Arrays.copyOf(rows, size * 2);
+      }
+      rows[size++] = row;
+    }
+
+    int[] toArray()
+    {
+      return Arrays.copyOf(rows, size);
+    }
+  }
+}
@@ -24,7 +24,6 @@ package org.libreoffice.lots.db;
 
 import java.util.List;
 import java.util.function.Predicate;
-import java.util.regex.Pattern;
 
 /**
  *
@@ -41,7 +40,8 @@ public class DatasetPredicate
 
   /**
    * Matches a List of {@link QueryPart} against a given {@link Dataset}. Invalid * character in
-   * QueryPart's search string are filtered out.
+   * QueryPart's search string are filtered out. The query is compiled once, so the predicate can
+   * be used for many datasets.
    *
    * @param query
    *          List of {@link QueryPart}
@@ -49,21 +49,6 @@ public class DatasetPredicate
    */
   public static Predicate<Dataset> makePredicate(List<QueryPart> query)
   {
-    return query.stream().map(part -> {
-      @SuppressWarnings("squid:S1488")
-      Predicate<Dataset> pred = (Dataset ds) -> {
-        try
-        {
-          return Pattern.compile(part.getSearchString().replace("*", "").toLowerCase())
-              .matcher(ds.get(part.getColumnName()).toLowerCase())
-              .find();
-        } catch (ColumnNotFoundException ex)
-        {
-          return false;
-        }
-      };
-
-      return pred;
-    }).reduce(matchAll, Predicate::and);
+    return new CompiledQuery(query);
   }
 }
@@ -22,8 +22,11 @@
  */
 package org.libreoffice.lots.db;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import org.libreoffice.lots.WollMuxFiles;
@@ -60,6 +63,11 @@ public abstract class Datasource
 
   private static Long datasourceTimeout = null;
 
+  /**
+   * Preferred number of datasets per batch of {@link #findIncremental(List, Consumer, BooleanSupplier)}.
+   */
+  public static final int RESULT_BATCH_SIZE = 50;
+
   /**
    * Returns a list containing the titles of all columns in the data source.
    */
@@ -87,6 +95,31 @@ public abstract class Datasource
    */
   public abstract QueryResults find(List<QueryPart> query);
 
+  /**
+   * Like {@link #find(List)}, but the results are delivered in batches as soon as they are
+   * available. The search stops early if canceled returns true. Data sources which can produce
+   * their results incrementally should override the default implementation, which delivers the
+   * results of {@link #find(List)} in one batch.
+   *
+   * @param query
+   *          Query to search against the data source.
+   * @param consumer
+   *          Receives the batches of results. It's called from the searching thread.
+   * @param canceled
+   *          Tells whether the search has been canceled.
+   */
+  public void findIncremental(List<QueryPart> query, Consumer<List<Dataset>> consumer,
+      BooleanSupplier canceled)
+  {
+    QueryResults results = find(query);
+    List<Dataset> batch = new ArrayList<>(results.size());
+    results.forEach(batch::add);
+    if (!batch.isEmpty() && !canceled.getAsBoolean())
+    {
+      consumer.accept(batch);
+    }
+  }
+
   /**
    * Returns an implementation-dependent subset of records from the data source.
    * Ideally, the data source should return all of its records here, or at least as many as possible.
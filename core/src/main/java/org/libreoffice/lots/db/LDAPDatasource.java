@@ -30,11 +30,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import javax.naming.Context;
@@ -129,10 +134,32 @@ public class LDAPDatasource extends Datasource
   private static final Pattern KEY_RE = Pattern.compile("^(\\(&(\\([^()=]+[^()]*\\))+\\))?"
       + KEY_SEPARATOR_0_NON_0_RE + "([a-zA-Z_][a-zA-Z0-9_]*=.*" + SEPARATOR + ")?$");
 
+  /** Default maximum number of entries of each cache. */
+  private static final int DEFAULT_CACHE_SIZE = 500;
+
+  /** Default time to live of cached entries in seconds. */
+  private static final long DEFAULT_CACHE_TTL = 300;
+
+  /**
+   * Caches for relative attributes shared by all data sources with the same URL, base DN and user.
+   */
+  private static final Map<String, LRUCache<CacheKey, Attributes>> ATTRIBUTE_CACHES = new ConcurrentHashMap<>();
+
+  /**
+   * Cache for relative attributes.
+   */
+  private LRUCache<CacheKey, Attributes> attributeCache;
+
+  /**
+   * Cache for datasets with absolute key attributes. Maps the key of a dataset to all datasets with
+   * this key.
+   */
+  private LRUCache<String, List<Dataset>> keyCache;
+
   /**
-   * temporary cache for relative attributes (is created with every new search)
+   * Cache for the results of {@link #find(List)}.
    */
-  private Map<CacheKey, Attributes> attributeCache = new HashMap<>();
+  private LRUCache<List<List<String>>, List<Dataset>> queryCache;
 
   /**
    * Creates a new LDAP Datasource.
@@ -141,7 +168,9 @@ public class LDAPDatasource extends Datasource
    *          Contains all data sources that were fully instantiated up to the
    *          point of defining this LDAPDatasource (not currently used).
    * @param sourceDesc
-   *          The 'data source' node containing the description of this LDAPDatasource..
+   *          The 'data source' node containing the description of this LDAPDatasource.. The
+   *          optional entries CACHE_SIZE (number of entries) and CACHE_TTL (time to live in
+   *          seconds) configure the caches of search results. CACHE_SIZE 0 disables caching.
    * @param context
    *          The context relative to which URLs should be resolved (not currently used)..
    * @throws ConfigurationErrorException
@@ -200,6 +229,22 @@ public class LDAPDatasource extends Datasource
       properties.put(Context.SECURITY_CREDENTIALS, password);
     }
 
+    int cacheSize = (int) parseCacheConfig(sourceDesc, "CACHE_SIZE", DEFAULT_CACHE_SIZE);
+    long cacheTtl = parseCacheConfig(sourceDesc, "CACHE_TTL", DEFAULT_CACHE_TTL) * 1000;
+    if (cacheSize == 0)
+    {
+      attributeCache = new LRUCache<>(cacheSize, cacheTtl);
+    } else
+    {
+      // Attributes don't depend on the columns of the data source, so they can be shared.
+      // Datasets are built for the columns of this data source and can't.
+      String directory = url + "\n" + baseDN + "\n" + user;
+      attributeCache = ATTRIBUTE_CACHES.computeIfAbsent(directory,
+          k -> new LRUCache<>(cacheSize, cacheTtl));
+    }
+    keyCache = new LRUCache<>(cacheSize, cacheTtl);
+    queryCache = new LRUCache<>(cacheSize, cacheTtl);
+
     ConfigThingy spalten = sourceDesc.query("Columns");
 
     if (spalten.count() == 0)
@@ -328,6 +373,41 @@ public class LDAPDatasource extends Datasource
     }
   }
 
+  /**
+   * Parses a non negative number of the cache configuration.
+   *
+   * @param sourceDesc
+   *          The description of the data source.
+   * @param key
+   *          The name of the configuration entry.
+   * @param defaultValue
+   *          The value if there's no entry.
+   * @return The configured value.
+   * @throws ConfigurationErrorException
+   *           The entry isn't a non negative number.
+   */
+  private long parseCacheConfig(ConfigThingy sourceDesc, String key, long defaultValue)
+  {
+    String value = sourceDesc.getString(key);
+    if (value == null)
+    {
+      return defaultValue;
+    }
+    try
+    {
+      long number = Long.parseLong(value);
+      if (number >= 0 && number <= Integer.MAX_VALUE)
+      {
+        return number;
+      }
+    } catch (NumberFormatException e)
+    {
+      LOGGER.trace("", e);
+    }
+    throw new ConfigurationErrorException(
+        errorMessage() + L.m("{0} has to be a non negative number: {1}", key, value));
+  }
+
   /** Set the timeout properties. */
   private void setTimeout(long timeout)
   {
@@ -429,73 +509,85 @@ public class LDAPDatasource extends Datasource
 
     List<Dataset> results = new ArrayList<>(keys.size());
 
-    try
-    {
-      attributeCache.clear();
-
-      if (keyStatus == ABSOLUTE_ONLY || keyStatus == ABSOLUTE_AND_RELATIVE)
-      { // Absolute attributes present.
-        results.addAll(handleAbsoluteKeys(keys));
-      } else
-      { // Only relative attributes
-        for (String currentKey : keys)
-        {
-          List<QueryPart> query = keyToFindQuery(currentKey);
+    if (keyStatus == ABSOLUTE_ONLY || keyStatus == ABSOLUTE_AND_RELATIVE)
+    { // Absolute attributes present.
+      results.addAll(handleAbsoluteKeys(keys));
+    } else
+    { // Only relative attributes
+      for (String currentKey : keys)
+      {
+        List<QueryPart> query = keyToFindQuery(currentKey);
 
-          QueryResults res = find(query);
-          for (Dataset ds : res)
-            results.add(ds);
-        }
+        QueryResults res = find(query);
+        for (Dataset ds : res)
+          results.add(ds);
       }
-
-      return new QueryResultsList(results);
-    } finally
-    {
-      attributeCache.clear();
     }
+
+    return new QueryResultsList(results);
   }
 
+  /**
+   * Get the datasets of absolute keys. Datasets in the key cache aren't requested again. The
+   * datasets are returned in the order of the keys, no matter whether they have been cached.
+   *
+   * @param keys
+   *          The keys.
+   * @return The datasets of the keys.
+   */
   private List<Dataset> handleAbsoluteKeys(Collection<String> keys)
   {
-    List<Dataset> results = new ArrayList<>();
+    Map<String, List<Dataset>> datasetsOfKey = new LinkedHashMap<>();
     // build searchFilter
     StringBuilder searchFilter = new StringBuilder();
 
     for (String currentKey : keys)
     {
-      if (!KEY_RE.matcher(currentKey).matches())
+      if (!KEY_RE.matcher(currentKey).matches() || datasetsOfKey.containsKey(currentKey))
       {
         continue;
       }
-      String[] ks = currentKey.split(KEY_SEPARATOR_0_NON_0_RE, 2);
-      searchFilter.append(ks[0]);
+      List<Dataset> cached = keyCache.get(currentKey);
+      datasetsOfKey.put(currentKey, cached);
+      if (cached == null)
+      {
+        String[] ks = currentKey.split(KEY_SEPARATOR_0_NON_0_RE, 2);
+        searchFilter.append(ks[0]);
+      }
     }
-    if (searchFilter.length() == 0)
+    LOGGER.debug("Key cache of {}: {}", datasourceName, keyCache);
+
+    if (searchFilter.length() > 0)
     {
-      return results;
-    }
-    searchFilter.insert(0, "(|");
-    searchFilter.append(")");
+      searchFilter.insert(0, "(|");
+      searchFilter.append(")");
 
-    // search LDAP
-    NamingEnumeration<SearchResult> currentResults = searchLDAP("", searchFilter.toString(),
-        SearchControls.SUBTREE_SCOPE, true);
+      // search LDAP
+      NamingEnumeration<SearchResult> currentResults = searchLDAP("", searchFilter.toString(),
+          SearchControls.SUBTREE_SCOPE, true);
 
-    while (currentResults != null && currentResults.hasMoreElements())
-    {
-      try
+      Map<String, List<Dataset>> found = new LinkedHashMap<>();
+      while (currentResults != null && currentResults.hasMoreElements())
       {
-        SearchResult currentResult = currentResults.next();
-        Dataset dataset = getDataset(currentResult);
-        if (keyStatus == ABSOLUTE_ONLY || keys.contains(dataset.getKey()))
+        try
         {
-          results.add(dataset);
+          SearchResult currentResult = currentResults.next();
+          Dataset dataset = getDataset(currentResult);
+          if (keyStatus == ABSOLUTE_ONLY || keys.contains(dataset.getKey()))
+          {
+            found.computeIfAbsent(dataset.getKey(), k -> new ArrayList<>()).add(dataset);
+          }
+        } catch (NamingException e)
+        {
+          LOGGER.error("Error in LDAP-Directory.", e);
         }
-      } catch (NamingException e)
-      {
-        LOGGER.error("Error in LDAP-Directory.", e);
       }
+      found.forEach(keyCache::put);
+      found.forEach(datasetsOfKey::putIfAbsent);
     }
+
+    List<Dataset> results = new ArrayList<>();
+    datasetsOfKey.values().stream().filter(Objects::nonNull).forEach(results::addAll);
     return results;
   }
 
@@ -612,6 +704,72 @@ public class LDAPDatasource extends Datasource
    */
   @Override
   public QueryResults find(List<QueryPart> query)
+  {
+    List<List<String>> cacheKey = toCacheKey(query);
+    List<Dataset> results = queryCache.get(cacheKey);
+    if (results == null)
+    {
+      results = search(query, batch -> {}, () -> false);
+      // Empty results aren't cached, they may be caused by a network error.
+      if (!results.isEmpty())
+      {
+        queryCache.put(cacheKey, results);
+      }
+    }
+    LOGGER.debug("Query cache of {}: {}", datasourceName, queryCache);
+    return new QueryResultsList(results);
+  }
+
+  /**
+   * Get the key of a query in {@link #queryCache}. It consists of the column name and the search
+   * string of each part, so that different queries can't have the same key.
+   */
+  private static List<List<String>> toCacheKey(List<QueryPart> query)
+  {
+    List<List<String>> key = new ArrayList<>(query.size());
+    for (QueryPart part : query)
+    {
+      key.add(List.of(part.getColumnName(), part.getSearchString()));
+    }
+    return key;
+  }
+
+  @Override
+  public void findIncremental(List<QueryPart> query, Consumer<List<Dataset>> consumer,
+      BooleanSupplier canceled)
+  {
+    List<List<String>> cacheKey = toCacheKey(query);
+    List<Dataset> results = queryCache.get(cacheKey);
+    if (results != null)
+    {
+      if (!results.isEmpty() && !canceled.getAsBoolean())
+      {
+        consumer.accept(results);
+      }
+      return;
+    }
+    results = search(query, consumer, canceled);
+    // Canceled searches are incomplete and mustn't be cached.
+    if (results != null && !results.isEmpty())
+    {
+      queryCache.put(cacheKey, results);
+    }
+  }
+
+  /**
+   * Searches the directory for all datasets matching the query. The datasets are passed to the
+   * consumer in batches of {@link #RESULT_BATCH_SIZE} while they are created.
+   *
+   * @param query
+   *          The query.
+   * @param consumer
+   *          Receives the datasets in batches.
+   * @param canceled
+   *          Is checked between the batches. The search stops if it returns true.
+   * @return The matching datasets or null if the search was canceled.
+   */
+  private List<Dataset> search(List<QueryPart> query, Consumer<List<Dataset>> consumer,
+      BooleanSupplier canceled)
   {
     StringBuilder searchFilter = new StringBuilder();
     List<RelativePaths> positiveSubtreePathLists = new ArrayList<>();
@@ -627,7 +785,7 @@ public class LDAPDatasource extends Datasource
 
       if (colDef == null)
       {
-        return new QueryResultsList(new Vector<Dataset>(0));
+        return List.of();
       }
 
       String attributeName = colDef.attributeName;
@@ -921,7 +1079,7 @@ public class LDAPDatasource extends Datasource
     if (searchFilter.length() == 0 && mergedPositiveSubtreePathLists == null
         && mergedNegativeSubtreePaths == null)
     {
-      return new QueryResultsList(new Vector<Dataset>(0));
+      return List.of();
     }
 
     List<SearchResult> currentResultList = new ArrayList<>();
@@ -995,21 +1153,30 @@ public class LDAPDatasource extends Datasource
     List<Dataset> results = new ArrayList<>();
 
     // generate Datasets from SearchResults
-
-    attributeCache.clear();
-
-    try
+    int delivered = 0;
+    for (SearchResult currentResult : currentResultList)
     {
-      for (SearchResult currentResult : currentResultList)
+      results.add(getDataset(currentResult));
+      if (results.size() - delivered == RESULT_BATCH_SIZE)
       {
-        results.add(getDataset(currentResult));
+        if (canceled.getAsBoolean())
+        {
+          return null;
+        }
+        consumer.accept(new ArrayList<>(results.subList(delivered, results.size())));
+        delivered = results.size();
       }
-    } finally
+    }
+    if (canceled.getAsBoolean())
     {
-      attributeCache.clear();
+      return null;
+    }
+    if (delivered < results.size())
+    {
+      consumer.accept(new ArrayList<>(results.subList(delivered, results.size())));
     }
 
-    return new QueryResultsList(results);
+    return Collections.unmodifiableList(results);
   }
 
   /**
@@ -1456,6 +1623,22 @@ public class LDAPDatasource extends Datasource
 
   }
 
+  /**
+   * Get the cache of {@link #find(List)} results, e.g. to read its statistics.
+   */
+  public LRUCache<List<List<String>>, List<Dataset>> getQueryCache()
+  {
+    return queryCache;
+  }
+
+  /**
+   * Get the cache of datasets by key, e.g. to read its statistics.
+   */
+  public LRUCache<String, List<Dataset>> getKeyCache()
+  {
+    return keyCache;
+  }
+
   private String errorMessage()
   {
     return L.m("Error in data source definition of \"{0}\": ", datasourceName);
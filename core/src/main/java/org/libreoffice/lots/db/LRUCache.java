@@ -0,0 +1,199 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A thread safe, size bounded cache with least recently used eviction. Entries expire after a
+ * fixed time to live. The cache counts hits, misses and evictions.
+ *
+ * @param <K>
+ *          Type of the keys.
+ * @param <V>
+ *          Type of the values.
+ */
+public class LRUCache<K, V>
+{
+  private final int maxSize;
+
+  private final long ttl;
+
+  private final LongSupplier clock;
+
+  private final LinkedHashMap<K, Entry<V>> entries;
+
+  private long hits = 0;
+
+  private long misses = 0;
+
+  private long evictions = 0;
+
+  /**
+   * Creates a new cache.
+   *
+   * @param maxSize
+   *          The maximum number of entries. If it is 0, nothing is cached.
+   * @param ttl
+   *          The time to live of an entry in milliseconds.
+   */
+  public LRUCache(int maxSize, long ttl)
+  {
+    this(maxSize, ttl, System::currentTimeMillis);
+  }
+
+  /**
+   * Creates a new cache with a special clock.
+   *
+   * @param maxSize
+   *          The maximum number of entries. If it is 0, nothing is cached.
+   * @param ttl
+   *          The time to live of an entry in milliseconds.
+   * @param clock
+   *          Provides the current time in milliseconds.
+   */
+  LRUCache(int maxSize, long ttl, LongSupplier clock)
+  {
+    this.maxSize = maxSize;
+    this.ttl = ttl;
+    this.clock = clock;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true)
+    {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest)
+      {
+        if (size() > LRUCache.this.maxSize)
+        {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Get a value from the cache.
+   *
+   * @param key
+   *          The key.
+   * @return The value or null if there is no value or the value has expired.
+   */
+  public synchronized V get(K key)
+  {
+    Entry<V> entry = entries.get(key);
+    if (entry != null && entry.expires <= clock.getAsLong())
+    {
+      entries.remove(key);
+      evictions++;
+      entry = null;
+    }
+    if (entry == null)
+    {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.value;
+  }
+
+  /**
+   * Put a value into the cache. If the cache is full, the least recently used value is removed.
+   *
+   * @param key
+   *          The key.
+   * @param value
+   *          The value, mustn't be null.
+   */
+  public synchronized void put(K key, V value)
+  {
+    if (maxSize > 0)
+    {
+      entries.put(key, new Entry<>(value, clock.getAsLong() + ttl));
+    }
+  }
+
+  /**
+   * Remove all values from the cache. The statistics are kept.
+   */
+  public synchronized void clear()
+  {
+    entries.clear();
+  }
+
+  /**
+   * Get the number of cached values including expired ones, which haven't been removed yet.
+   */
+  public synchronized int size()
+  {
+    return entries.size();
+  }
+
+  /**
+   * Get the number of successful lookups.
+   */
+  public synchronized long getHits()
+  {
+    return hits;
+  }
+
+  /**
+   * Get the number of lookups without value.
+   */
+  public synchronized long getMisses()
+  {
+    return misses;
+  }
+
+  /**
+   * Get the number of values, which were removed because the cache was full or they expired.
+   */
+  public synchronized long getEvictions()
+  {
+    return evictions;
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    return "LRUCache [size=" + entries.size() + ", hits=" + hits + ", misses=" + misses
+        + ", evictions=" + evictions + "]";
+  }
+
+  private static class Entry<V>
+  {
+    private final V value;
+
+    private final long expires;
+
+    Entry(V value, long expires)
+    {
+      this.value = value;
+      this.expires = expires;
+    }
+  }
+}
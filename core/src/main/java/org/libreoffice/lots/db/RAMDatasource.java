@@ -24,11 +24,17 @@ package org.libreoffice.lots.db;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.Vector;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import org.libreoffice.lots.config.ConfigThingy;
+import org.libreoffice.lots.config.ConfigurationErrorException;
+import org.libreoffice.lots.util.L;
+
 /**
  * Superclass for data sources that keep their data entirely in memory
  */
@@ -50,7 +56,20 @@ public class RAMDatasource extends Datasource
   private String name;
 
   /**
-   * Creates a new RAMDatasource with the name 'name'. 'data' and 'schema' are included as references, not copied.
+   * The values of all datasets in lower case ordered like the schema. Built on the first search
+   * or together with the index if there are indexed columns.
+   */
+  private volatile List<String[]> lowerCaseData;
+
+  /**
+   * Index of the keys and the indexed columns.
+   */
+  private DatasetIndex index;
+
+  /**
+   * Creates a new RAMDatasource with the name 'name'. 'schema' is included as reference, not
+   * copied. 'data' is included as reference if it supports random access, otherwise it is copied.
+   * Neither may be changed afterwards, because the index is built from them.
    *
    * @param name
    *          the name of the data source
@@ -64,6 +83,27 @@ public class RAMDatasource extends Datasource
     init(name, schema, data);
   }
 
+  /**
+   * Creates a new RAMDatasource with the name 'name' and indexes on some columns. 'schema' is
+   * included as reference, not copied. 'data' is included as reference if it supports random
+   * access, otherwise it is copied. Neither may be changed afterwards, because the index is built
+   * from them.
+   *
+   * @param name
+   *          the name of the data source
+   * @param schema
+   *          the schema of the data source
+   * @param data
+   *          the data source records
+   * @param indexedColumns
+   *          columns which get an index for faster searches
+   */
+  public RAMDatasource(String name, List<String> schema, List<Dataset> data,
+      Collection<String> indexedColumns)
+  {
+    init(name, schema, data, indexedColumns);
+  }
+
   /**
    * Creates an uninitialized RAMDatasource. A derived class that uses this constructor should call 'init()'
    * to perform the necessary initializations.
@@ -78,9 +118,55 @@ public class RAMDatasource extends Datasource
    */
   protected void init(String name, List<String> schema, List<Dataset> data)
   {
+    init(name, schema, data, List.of());
+  }
+
+  /**
+   * Performs the initialization actions of the constructor with the same parameters.
+   * This method should be used by derived classes when they use the constructor without arguments.
+   *
+   * @throws ConfigurationErrorException
+   *           if an indexed column isn't part of the schema.
+   */
+  protected void init(String name, List<String> schema, List<Dataset> data,
+      Collection<String> indexedColumns)
+  {
+    for (String column : indexedColumns)
+    {
+      if (!schema.contains(column))
+      {
+        throw new ConfigurationErrorException(
+            L.m("Error in definition of data source {0}: Indexed column \"{1}\" is not defined in schema",
+                name, column));
+      }
+    }
     this.schema = schema;
-    this.data = data;
+    this.data = data instanceof RandomAccess ? data : new ArrayList<>(data);
     this.name = name;
+    this.lowerCaseData = null;
+    this.index = new DatasetIndex(schema, this.data,
+        indexedColumns.isEmpty() ? List.of() : getLowerCaseData(), indexedColumns);
+  }
+
+  /**
+   * Parses the columns which should be indexed. They are defined in the "INDEX" section of a data
+   * source description, e.g. INDEX("Vorname" "Nachname").
+   *
+   * @param sourceDesc
+   *          The description of the data source.
+   * @return The columns to index.
+   */
+  protected static List<String> parseIndexedColumns(ConfigThingy sourceDesc)
+  {
+    List<String> columns = new ArrayList<>();
+    for (ConfigThingy indexDesc : sourceDesc.query("INDEX", 1))
+    {
+      for (ConfigThingy column : indexDesc)
+      {
+        columns.add(column.toString());
+      }
+    }
+    return columns;
   }
 
   @Override
@@ -92,15 +178,11 @@ public class RAMDatasource extends Datasource
   @Override
   public QueryResults getDatasetsByKey(Collection<String> keys)
   {
-    List<Dataset> res = new ArrayList<>();
-    Iterator<Dataset> iter = data.iterator();
-    while (iter.hasNext())
+    int[] rows = index.getRowsByKey(keys);
+    List<Dataset> res = new ArrayList<>(rows.length);
+    for (int row : rows)
     {
-      Dataset ds = iter.next();
-      if (keys.contains(ds.getKey()))
-      {
-        res.add(ds);
-      }
+      res.add(data.get(row));
     }
 
     return new QueryResultsList(res);
@@ -119,18 +201,81 @@ public class RAMDatasource extends Datasource
       return new QueryResultsList(new Vector<Dataset>(0));
     }
 
-    Predicate<Dataset> pred = DatasetPredicate.makePredicate(query);
-
     List<Dataset> results = new ArrayList<>();
+    search(query, results::addAll, () -> false);
+    return new QueryResultsList(results);
+  }
+
+  @Override
+  public void findIncremental(List<QueryPart> query, Consumer<List<Dataset>> consumer,
+      BooleanSupplier canceled)
+  {
+    if (!query.isEmpty())
+    {
+      search(query, consumer, canceled);
+    }
+  }
+
+  /**
+   * Tests all candidate rows of the index against the query and delivers the matches in batches.
+   * Cancellation is checked before every batch and every 1024 rows.
+   */
+  private void search(List<QueryPart> query, Consumer<List<Dataset>> consumer,
+      BooleanSupplier canceled)
+  {
+    CompiledQuery compiledQuery = new CompiledQuery(query);
+    Predicate<String[]> pred = compiledQuery.bind(schema);
+    List<String[]> rows = getLowerCaseData();
+    int[] candidates = index.getCandidates(compiledQuery);
+    int count = candidates == null ? rows.size() : candidates.length;
 
-    data.forEach(ds -> {
-      if (pred.test(ds))
+    List<Dataset> batch = new ArrayList<>();
+    for (int k = 0; k < count; k++)
+    {
+      if ((k & 1023) == 1023 && canceled.getAsBoolean())
+      {
+        return;
+      }
+      int i = candidates == null ? k : candidates[k];
+      if (pred.test(rows.get(i)))
       {
-        results.add(ds);
+        batch.add(data.get(i));
+        if (batch.size() == RESULT_BATCH_SIZE)
+        {
+          if (canceled.getAsBoolean())
+          {
+            return;
+          }
+          consumer.accept(batch);
+          batch = new ArrayList<>();
+        }
       }
-    });
+    }
+    if (!batch.isEmpty() && !canceled.getAsBoolean())
+    {
+      consumer.accept(batch);
+    }
+  }
 
-    return new QueryResultsList(results);
+  /**
+   * Get the values of all datasets in lower case, so that they don't have to be converted on
+   * every search.
+   *
+   * @return List of rows in the same order as the data.
+   */
+  private List<String[]> getLowerCaseData()
+  {
+    List<String[]> rows = lowerCaseData;
+    if (rows == null)
+    {
+      rows = new ArrayList<>(data.size());
+      for (Dataset ds : data)
+      {
+        rows.add(CompiledQuery.toLowerCaseRow(schema, ds));
+      }
+      lowerCaseData = rows;
+    }
+    return rows;
   }
 
   @Override
@@ -27,9 +27,20 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import org.libreoffice.lots.config.ConfigThingy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Diese Klasse stellt Methoden zur Verfügung um in Datenquellen Suchen durchzuführen.
@@ -37,6 +48,20 @@ import org.libreoffice.lots.config.ConfigThingy;
 public class Search
 {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(Search.class);
+
+  /**
+   * Maximale Anzahl an Datenquellen, die gleichzeitig durchsucht werden.
+   */
+  private static final int MAX_PARALLEL_QUERIES = 4;
+
+  /**
+   * Executor für die nebenläufige Suche. Die Threads sind Daemons und werden beendet, wenn sie
+   * eine Minute nicht benutzt wurden.
+   */
+  private static final ExecutorService EXECUTOR = createExecutor("lots-search-",
+      MAX_PARALLEL_QUERIES);
+
   private Search()
   {
     // hide implicit public constructor
@@ -68,21 +93,164 @@ public class Search
 
     List<Query> queries = parseQuery(searchStrategy, queryString);
 
-    QueryResults results = null;
     List<QueryResults> listOfQueryResultsList = new ArrayList<>();
 
     for (Query query : queries)
     {
-      if (query.numberOfQueryParts() == 0)
-      {
-        results = datasources.get(query.getDatasourceName()).getContents();
-      } else
+      listOfQueryResultsList.add(runQuery(query, datasources));
+    }
+    return mergeListOfQueryResultsList(listOfQueryResultsList);
+  }
+
+  /**
+   * Wie {@link #search(String, SearchStrategy, Map)}, aber die {@link Query}s der Suchstrategie
+   * werden gleichzeitig ausgeführt. Jede Anfrage muss innerhalb von
+   * {@link Datasource#getDatasourceTimeout()} Millisekunden beantwortet werden. Die Ergebnisse
+   * langsamerer Datenquellen werden verworfen, die übrigen Ergebnisse werden in der Reihenfolge
+   * der Suchstrategie zurückgeliefert.
+   *
+   * @param queryString
+   *          die Suchanfrage
+   * @param searchStrategy
+   *          die zu verwendende Suchstrategie
+   * @param datasources
+   *          Data source to use.
+   * @return Results as an Iterable of Dataset as {@link QueryResults}
+   */
+  public static QueryResults searchConcurrently(String queryString, SearchStrategy searchStrategy,
+      Map<String, Datasource> datasources)
+  {
+    if (queryString == null || searchStrategy == null || datasources == null)
+    {
+      return null;
+    }
+    return searchConcurrently(queryString, searchStrategy, datasources,
+        Datasource.getDatasourceTimeout());
+  }
+
+  /**
+   * Wie {@link #searchConcurrently(String, SearchStrategy, Map)} mit einem vorgegebenen Timeout.
+   *
+   * @param timeout
+   *          Zeit in Millisekunden, die jede Anfrage maximal dauern darf.
+   */
+  static QueryResults searchConcurrently(String queryString, SearchStrategy searchStrategy,
+      Map<String, Datasource> datasources, long timeout)
+  {
+    if (queryString == null || searchStrategy == null || datasources == null)
+    {
+      return null;
+    }
+
+    List<Query> queries = parseQuery(searchStrategy, queryString);
+    try
+    {
+      return mergeListOfQueryResultsList(
+          runConcurrently(queries, query -> runQuery(query, datasources), timeout));
+    } catch (TimeoutException e)
+    {
+      LOGGER.debug("", e);
+    } catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    return new QueryResultsList(new ArrayList<>());
+  }
+
+  /**
+   * Führt die Anfragen gleichzeitig auf dem Executor der Suche aus. Jede Anfrage muss bis zum
+   * Ablauf des Timeouts beantwortet werden, sonst wird sie über ihr {@link Future} abgebrochen,
+   * d.h. der Thread der Anfrage wird unterbrochen, und ihr Ergebnis wird verworfen.
+   *
+   * @param queries
+   *          Die Anfragen.
+   * @param runner
+   *          Führt eine Anfrage aus.
+   * @param timeout
+   *          Zeit in Millisekunden, die jede Anfrage maximal dauern darf.
+   * @return Die Ergebnisse der rechtzeitig beantworteten Anfragen in der Reihenfolge der Anfragen.
+   * @throws TimeoutException
+   *           Keine der Anfragen wurde rechtzeitig beantwortet.
+   * @throws InterruptedException
+   *           Der aufrufende Thread wurde unterbrochen. Alle Anfragen wurden abgebrochen.
+   */
+  static List<QueryResults> runConcurrently(List<Query> queries,
+      Function<Query, QueryResults> runner, long timeout)
+      throws TimeoutException, InterruptedException
+  {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    List<Future<QueryResults>> futures = new ArrayList<>();
+    for (Query query : queries)
+    {
+      futures.add(EXECUTOR.submit(() -> runner.apply(query)));
+    }
+
+    List<QueryResults> listOfQueryResultsList = new ArrayList<>();
+    boolean timedOut = false;
+    try
+    {
+      for (int i = 0; i < futures.size(); i++)
       {
-        results = datasources.get(query.getDatasourceName()).find(query.getQueryParts());
+        Future<QueryResults> future = futures.get(i);
+        try
+        {
+          listOfQueryResultsList
+              .add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e)
+        {
+          LOGGER.warn("Suche in Datenquelle {} hat das Zeitlimit überschritten",
+              queries.get(i).getDatasourceName());
+          future.cancel(true);
+          timedOut = true;
+        } catch (ExecutionException e)
+        {
+          if (e.getCause() instanceof RuntimeException)
+          {
+            throw (RuntimeException) e.getCause();
+          }
+          throw new IllegalStateException(e.getCause());
+        }
       }
-      listOfQueryResultsList.add(results);
+    } finally
+    {
+      futures.forEach(f -> f.cancel(true));
     }
-    return mergeListOfQueryResultsList(listOfQueryResultsList);
+
+    if (timedOut && listOfQueryResultsList.isEmpty())
+    {
+      throw new TimeoutException("Keine Datenquelle hat rechtzeitig geantwortet");
+    }
+    return listOfQueryResultsList;
+  }
+
+  /**
+   * Führt eine einzelne Anfrage auf ihrer Datenquelle aus.
+   */
+  private static QueryResults runQuery(Query query, Map<String, Datasource> datasources)
+  {
+    if (query.numberOfQueryParts() == 0)
+    {
+      return datasources.get(query.getDatasourceName()).getContents();
+    } else
+    {
+      return datasources.get(query.getDatasourceName()).find(query.getQueryParts());
+    }
+  }
+
+  /**
+   * Erzeugt einen Executor mit höchstens threads Daemon-Threads, deren Namen mit prefix beginnen.
+   */
+  static ExecutorService createExecutor(String prefix, int threads)
+  {
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+        new LinkedBlockingQueue<>(), r -> {
+          Thread t = new Thread(r, prefix + threadCount.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   /**
@@ -90,7 +258,7 @@ public class Search
    *
    * @return bereinigte Ergebnisliste.
    */
-  private static QueryResults mergeListOfQueryResultsList(List<QueryResults> listOfQueryResultsList)
+  static QueryResults mergeListOfQueryResultsList(List<QueryResults> listOfQueryResultsList)
   {
     QueryResultsSet results = new QueryResultsSet((o1, o2) -> {
       if (o1.getClass() == o2.getClass() && o1.getKey() == o2.getKey())
@@ -123,7 +291,7 @@ public class Search
    *
    * @return die leere Liste falls keine Liste bestimmt werden konnte.
    */
-  private static List<Query> parseQuery(SearchStrategy searchStrategy, String queryString)
+  static List<Query> parseQuery(SearchStrategy searchStrategy, String queryString)
   {
     List<Query> queryList = new ArrayList<>();
 
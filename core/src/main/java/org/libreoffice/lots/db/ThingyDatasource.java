@@ -55,7 +55,8 @@ public class ThingyDatasource extends RAMDatasource
    *          ThingyDatasource bereits vollständig instanziierten Datenquellen.
    * @param sourceDesc
    *          der "DataSource"-Knoten, der die Beschreibung dieser
-   *          ThingyDatasource enthält.
+   *          ThingyDatasource enthält. Optional können mit INDEX("Spalte1" ...)
+   *          Spalten angegeben werden, für die ein Suchindex aufgebaut wird.
    * @param context
    *          der Kontext relativ zu dem URLs aufgelöst werden sollen.
    */
@@ -98,7 +99,7 @@ public class ThingyDatasource extends RAMDatasource
       List<Dataset> data = parseData(conf, name, schema, schemaOrdered,
           keyCols);
 
-      init(name, schema, data);
+      init(name, schema, data, parseIndexedColumns(sourceDesc));
     }
     catch (NodeNotFoundException x)
     {
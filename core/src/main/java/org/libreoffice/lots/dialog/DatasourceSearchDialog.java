@@ -33,7 +33,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -73,12 +75,12 @@ import org.libreoffice.ext.unohelper.util.UnoComponent;
 import org.libreoffice.ext.unohelper.util.UnoProperty;
 import org.libreoffice.lots.config.ConfigThingy;
 import org.libreoffice.lots.config.ConfigurationErrorException;
+import org.libreoffice.lots.db.AsyncSearch;
 import org.libreoffice.lots.db.ColumnNotFoundException;
 import org.libreoffice.lots.db.ColumnTransformer;
 import org.libreoffice.lots.db.Dataset;
 import org.libreoffice.lots.db.Datasource;
 import org.libreoffice.lots.db.QueryResults;
-import org.libreoffice.lots.db.Search;
 import org.libreoffice.lots.db.SearchStrategy;
 import org.libreoffice.lots.func.FunctionFactory;
 import org.libreoffice.lots.func.FunctionLibrary;
@@ -399,7 +401,12 @@ public class DatasourceSearchDialog implements Dialog
     /**
      * Mapping from search results display string to the actual data set.
      */
-    Map<String, Dataset> datasets = new TreeMap<>();
+    SortedMap<String, Dataset> datasets = new TreeMap<>();
+
+    /**
+     * The running search. It's canceled as soon as a new search is started.
+     */
+    private AsyncSearch currentSearch;
 
     /**
      * Create a new tab.
@@ -671,6 +678,30 @@ public class DatasourceSearchDialog implements Dialog
       updatePreview(null);
     }
 
+    /**
+     * Add a batch of search results to the control {@link #resultsList}.
+     *
+     * @param batch
+     *          Some results of the running search.
+     */
+    private void addListElements(List<Dataset> batch)
+    {
+      if (resultsList == null)
+      {
+        return;
+      }
+      for (Dataset d : batch)
+      {
+        d = columnTransformer.transform(d);
+        String display = substituteVars(d);
+        if (datasets.put(display, d) == null)
+        {
+          short pos = (short) datasets.headMap(display).size();
+          resultsList.addItem(display, pos);
+        }
+      }
+    }
+
     /**
      * Select a data set.
      */
@@ -704,26 +735,54 @@ public class DatasourceSearchDialog implements Dialog
         return;
       }
 
-      CompletableFuture.supplyAsync(() -> {
-        QueryResults r = null;
-        try
+      AsyncSearch search;
+      synchronized (this)
+      {
+        if (currentSearch != null)
+        {
+          currentSearch.cancel();
+        }
+        search = new AsyncSearch(query.getText(), searchStrategy, datasources);
+        currentSearch = search;
+        setListElements(null);
+      }
+
+      search.runSearchAsync(batch -> {
+        synchronized (this)
+        {
+          if (search == currentSearch && !search.isCanceled())
+          {
+            addListElements(batch);
+          }
+        }
+      }).whenComplete((r, e) -> {
+        synchronized (this)
         {
-          r = Search.search(query.getText(), searchStrategy, datasources);
-        } catch (IllegalArgumentException x)
+          if (search != currentSearch)
+          {
+            return;
+          }
+          currentSearch = null;
+          if (e == null)
+          {
+            setListElements(columnTransformer.transform(r));
+            return;
+          }
+        }
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        if (cause instanceof CancellationException)
+        {
+          return;
+        }
+        LOGGER.error("", cause);
+        if (cause instanceof IllegalArgumentException || cause instanceof TimeoutException)
         {
-          LOGGER.error("", x);
           InfoDialog.showInfoModal(L.m("Search timeout"),
               L.m("Processing your search query took too long and was therefore aborted.\n"
                   + "The reason for this could be a problem with the data source or with the used\n"
                   + "search term matching too many results.\n"
                   + "Please try another, more precise search query."));
         }
-        return r;
-      }).thenAcceptAsync(r -> {
-        if (r != null && resultsList != null)
-        {
-          setListElements(columnTransformer.transform(r));
-        }
       });
     }
 
@@ -0,0 +1,128 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.document;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Counts for each visibility element how many of its groups are hidden. An element is visible
+ * if the count is zero. Groups without a state don't hide an element.
+ *
+ * The counts are only valid for the map of group states and the modification count of the
+ * visibility elements they have been computed for. All changes of the group states have to be
+ * passed to {@link #groupChanged(Boolean, boolean, Collection)}.
+ */
+class HiddenGroupCounter
+{
+  private final Map<String, Boolean> groupState;
+
+  private final int modificationCount;
+
+  private final Map<VisibilityElement, int[]> hiddenGroups = new IdentityHashMap<>();
+
+  /**
+   * Compute the counts for the current group states.
+   *
+   * @param elements
+   *          All visibility elements.
+   * @param groupState
+   *          The visibility states of the groups.
+   * @param modificationCount
+   *          The modification count of the elements.
+   */
+  HiddenGroupCounter(Collection<VisibilityElement> elements, Map<String, Boolean> groupState,
+      int modificationCount)
+  {
+    this.groupState = groupState;
+    this.modificationCount = modificationCount;
+    for (VisibilityElement element : elements)
+    {
+      int hidden = 0;
+      for (String groupId : element.getGroups())
+      {
+        if (Boolean.FALSE.equals(groupState.get(groupId)))
+        {
+          hidden++;
+        }
+      }
+      hiddenGroups.put(element, new int[] { hidden });
+    }
+  }
+
+  /**
+   * Are the counts valid for these group states and elements?
+   *
+   * @param groupState
+   *          The visibility states of the groups.
+   * @param modificationCount
+   *          The modification count of the elements.
+   * @return True if the counts can be used.
+   */
+  boolean isValidFor(Map<String, Boolean> groupState, int modificationCount)
+  {
+    return this.groupState == groupState && this.modificationCount == modificationCount;
+  }
+
+  /**
+   * Update the counts of the elements of a group after its state has changed.
+   *
+   * @param oldState
+   *          The previous state of the group, may be null.
+   * @param visible
+   *          The new state of the group.
+   * @param elements
+   *          The elements of the group.
+   */
+  void groupChanged(Boolean oldState, boolean visible, Collection<VisibilityElement> elements)
+  {
+    boolean wasHidden = Boolean.FALSE.equals(oldState);
+    if (wasHidden == !visible)
+    {
+      return;
+    }
+    int delta = visible ? -1 : 1;
+    for (VisibilityElement element : elements)
+    {
+      int[] count = hiddenGroups.get(element);
+      if (count != null)
+      {
+        count[0] += delta;
+      }
+    }
+  }
+
+  /**
+   * Should the element be visible?
+   *
+   * @param element
+   *          The visibility element.
+   * @return True if none of its groups is hidden.
+   */
+  boolean isVisible(VisibilityElement element)
+  {
+    int[] count = hiddenGroups.get(element);
+    return count == null || count[0] == 0;
+  }
+}
@@ -24,10 +24,12 @@ package org.libreoffice.lots.document;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -66,12 +68,14 @@ import org.libreoffice.lots.dialog.DialogLibrary;
 import org.libreoffice.lots.document.FormFieldFactory.FormField;
 import org.libreoffice.lots.document.PersistentDataContainer.DataID;
 import org.libreoffice.lots.document.commands.DocumentCommand;
+import org.libreoffice.lots.document.commands.DocumentCommands;
 import org.libreoffice.lots.event.handlers.OnFormValueChanged;
 import org.libreoffice.lots.event.handlers.OnSetVisibleState;
 import org.libreoffice.lots.form.config.FormConfig;
 import org.libreoffice.lots.form.control.FormController;
 import org.libreoffice.lots.form.model.FormModel;
 import org.libreoffice.lots.form.model.FormModelException;
+import org.libreoffice.lots.func.EvaluationCache;
 import org.libreoffice.lots.func.Function;
 import org.libreoffice.lots.func.FunctionFactory;
 import org.libreoffice.lots.func.FunctionLibrary;
@@ -113,6 +117,12 @@ public class TextDocumentController
    */
   private SimulationResults simulationResult = null;
 
+  /**
+   * The number of hidden groups of each visibility element. It's recomputed if the group states
+   * or the visibility elements have changed otherwise.
+   */
+  private HiddenGroupCounter hiddenGroupCounter = null;
+
   /**
    * Preview mode is set by default. If false, only the field names are displayed and not the field
    * values.
@@ -442,6 +452,19 @@ public class TextDocumentController
     updateDocumentFormFields(id);
   }
 
+  /**
+   * Set several form values of the form model and document at once. The persistent data is written
+   * once and each form field of the document is updated once.
+   *
+   * @param values
+   *          Mapping from the names of the form elements to their values.
+   */
+  public synchronized void addFormFieldValues(Map<String, String> values)
+  {
+    setFormFieldValues(values);
+    updateDocumentFormFields(values.keySet());
+  }
+
   /**
    * Execute all functions until one returns with an non-empty String. This String is the action to
    * be executed on the document. Supported actions are:
@@ -711,6 +734,7 @@ public class TextDocumentController
       return true;
     }
     Map<String, String> values = Optional.ofNullable(mapIdToValues).orElse(new HashMap<>());
+    EvaluationCache cache = new EvaluationCache();
 
     for (FormField field : fields)
     {
@@ -720,7 +744,7 @@ public class TextDocumentController
       {
         if (field.singleParameterTrafo())
         {
-          refValue = getTransformedValue(trafoName, value);
+          refValue = getTransformedValue(trafoName, value, cache);
         } else
         {
           // abort if parameters are missing
@@ -732,7 +756,7 @@ public class TextDocumentController
             return false;
           }
 
-          refValue = getTransformedValue(trafoName, values);
+          refValue = getTransformedValue(trafoName, values, cache);
         }
       }
 
@@ -754,14 +778,29 @@ public class TextDocumentController
    * @return The result of the TRAFO or an error String if the TRAFO is undefined.
    */
   public String getTransformedValue(String trafoName)
+  {
+    return getTransformedValue(trafoName, new EvaluationCache());
+  }
+
+  /**
+   * Execute a TRAFO with the form values of the document or simulation.
+   *
+   * @param trafoName
+   *          The name of the TRAFO. It has to be defined in the global or document function
+   *          library.
+   * @param cache
+   *          The cache of the current update.
+   * @return The result of the TRAFO or an error String if the TRAFO is undefined.
+   */
+  private String getTransformedValue(String trafoName, EvaluationCache cache)
   {
     if (simulationResult == null)
     {
-      return getTransformedValue(trafoName, model.getFormFieldValuesMap());
+      return getTransformedValue(trafoName, model.getFormFieldValuesMap(), cache);
     }
     else
     {
-      return getTransformedValue(trafoName, simulationResult.getFormFieldValues());
+      return getTransformedValue(trafoName, simulationResult.getFormFieldValues(), cache);
     }
   }
 
@@ -777,6 +816,24 @@ public class TextDocumentController
    *         null value is returned.
    */
   public String getTransformedValue(String trafoName, String value)
+  {
+    return getTransformedValue(trafoName, value, new EvaluationCache());
+  }
+
+  /**
+   * Execute a TRAFO with all parameters set to the given value.
+   *
+   * @param trafoName
+   *          The name of the TRAFO. It has to be defined in the global or document function
+   *          library.
+   * @param value
+   *          The value of all parameters.
+   * @param cache
+   *          The cache of the current update.
+   * @return The result of the TRAFO or an error String if the TRAFO is undefined. If trafoName is
+   *         null value is returned.
+   */
+  private String getTransformedValue(String trafoName, String value, EvaluationCache cache)
   {
     String transformed = value;
     if (trafoName != null)
@@ -788,7 +845,7 @@ public class TextDocumentController
         String[] pars = func.parameters();
         for (int i = 0; i < pars.length; i++)
           args.put(pars[i], value);
-        transformed = func.getResult(args);
+        transformed = cache.getResult(func, args);
       } else
       {
         transformed = L.m("<ERROR: TRAFO \"{0}\" not defined>", trafoName);
@@ -806,9 +863,12 @@ public class TextDocumentController
    *          library.
    * @param mapIdToValues
    *          Provides the values used by the TRAFO.
+   * @param cache
+   *          The cache of the current update.
    * @return The result of the TRAFO or an error String if the TRAFO is undefined.
    */
-  private String getTransformedValue(String trafoName, Map<String, String> mapIdToValues)
+  private String getTransformedValue(String trafoName, Map<String, String> mapIdToValues,
+      EvaluationCache cache)
   {
     Function func = getFunctionLibrary().get(trafoName);
     if (func != null)
@@ -817,7 +877,7 @@ public class TextDocumentController
       String[] pars = func.parameters();
       for (int i = 0; i < pars.length; i++)
         args.put(pars[i], mapIdToValues.get(pars[i]));
-      return func.getResult(args);
+      return cache.getResult(func, args);
     } else
     {
       LOGGER.error("ERROR: TRAFO '{}' not defined.", trafoName);
@@ -1061,26 +1121,61 @@ public class TextDocumentController
    */
   public void updateDocumentFormFields(String fieldId)
   {
-    if (formFieldPreviewMode)
+    updateDocumentFormFields(Collections.singletonList(fieldId));
+  }
+
+  /**
+   * Like {@link #updateDocumentFormFields(String)} for several fields. Each form field is set at
+   * most once, fields which don't belong to a single id (e.g. text fields with a TRAFO) are set
+   * once for all ids. TRAFOs used by several fields are computed only once.
+   *
+   * @param fieldIds
+   *          The ids of the fields to update.
+   */
+  public void updateDocumentFormFields(Collection<String> fieldIds)
+  {
+    if (fieldIds.isEmpty())
     {
-      String value = model.getFormFieldValuesMap().get(fieldId);
-      if (simulationResult != null)
-        value = simulationResult.getFormFieldValues().get(fieldId);
-      if (value == null)
-      {
-        value = "";
-      }
-      setFormFields(fieldId, value, true);
-    } else
+      return;
+    }
+    EvaluationCache cache = new EvaluationCache();
+    String value = null;
+    for (String fieldId : fieldIds)
     {
-      setFormFields(fieldId, "<" + fieldId + ">", false);
+      value = getDocumentFormFieldValue(fieldId);
+      setFormFields(model.getIdToFormFields().get(fieldId), value, formFieldPreviewMode, false,
+          cache);
+      setFormFields(model.getIdToTextFieldFormFields().get(fieldId), value, formFieldPreviewMode,
+          true, cache);
     }
+    setFormFields(model.getStaticTextFieldFormFields(), value, formFieldPreviewMode, true, cache);
+    LOGGER.debug("TRAFOs of {}: {}", fieldIds, cache);
     if (simulationResult == null)
     {
       model.setDocumentModified(true);
     }
   }
 
+  /**
+   * Get the value shown by the form fields of an id. In preview mode it's the form value, in
+   * non-preview mode it's the field name.
+   *
+   * @param fieldId
+   *          The id of the fields.
+   * @return The value to show.
+   */
+  private String getDocumentFormFieldValue(String fieldId)
+  {
+    if (!formFieldPreviewMode)
+    {
+      return "<" + fieldId + ">";
+    }
+    String value = model.getFormFieldValuesMap().get(fieldId);
+    if (simulationResult != null)
+      value = simulationResult.getFormFieldValues().get(fieldId);
+    return value == null ? "" : value;
+  }
+
   /**
    * Show or hide all visibility elements within a group.
    *
@@ -1090,6 +1185,19 @@ public class TextDocumentController
    *          If true shows the elements, otherwise hides the elements.
    */
   public void setVisibleState(String groupId, boolean visible)
+  {
+    setVisibleStates(Collections.singletonMap(groupId, visible));
+  }
+
+  /**
+   * Show or hide the visibility elements of several groups. Only the elements of these groups are
+   * updated and the cursor is refocused at most once.
+   *
+   * @param states
+   *          Mapping from group id to the new state of the group. True shows the elements, false
+   *          hides them.
+   */
+  public void setVisibleStates(Map<String, Boolean> states)
   {
     try
     {
@@ -1102,22 +1210,28 @@ public class TextDocumentController
         groupState = model.getMapGroupIdToVisibilityState();
       }
 
-      groupState.put(groupId, visible);
+      DocumentCommands commands = model.getDocumentCommands();
+      int modificationCount = commands.getSetGroupsModificationCount();
+      if (hiddenGroupCounter == null || !hiddenGroupCounter.isValidFor(groupState, modificationCount))
+      {
+        hiddenGroupCounter = new HiddenGroupCounter(commands.getSetGroups(), groupState, modificationCount);
+      }
+
+      for (Map.Entry<String, Boolean> state : states.entrySet())
+      {
+        boolean visible = state.getValue();
+        Boolean oldState = groupState.put(state.getKey(), visible);
+        hiddenGroupCounter.groupChanged(oldState, visible,
+            commands.getSetGroups(Collections.singleton(state.getKey())));
+      }
 
       VisibilityElement firstChangedElement = null;
 
       // update visibilities
-      for (VisibilityElement visibleElement : model.getDocumentCommands().getSetGroups())
+      for (VisibilityElement visibleElement : commands.getSetGroups(states.keySet()))
       {
-        Set<String> groups = visibleElement.getGroups();
-        if (!groups.contains(groupId))
-        {
-          continue;
-        }
-
         // get new visibility state
-        boolean setVisible = groups.stream().map(groupState::get).filter(Objects::nonNull).reduce(Boolean::logicalAnd)
-            .orElse(true);
+        boolean setVisible = hiddenGroupCounter.isVisible(visibleElement);
 
         /*
          * remember first changed visibility to set the cursor to its position later cursor can't be
@@ -1172,27 +1286,7 @@ public class TextDocumentController
    */
   private void updateAllFormFields()
   {
-    for (String fieldId : model.getAllFieldIDs())
-    {
-      updateDocumentFormFields(fieldId);
-    }
-  }
-
-  /**
-   * Set all form fields with an id to a new value.
-   *
-   * @param fieldId
-   *          The id of the fields.
-   * @param value
-   *          The new value of the fields.
-   * @param applyTrafo
-   *          If true TRAFOs are applied.
-   */
-  private void setFormFields(String fieldId, String value, boolean applyTrafo)
-  {
-    setFormFields(model.getIdToFormFields().get(fieldId), value, applyTrafo, false);
-    setFormFields(model.getIdToTextFieldFormFields().get(fieldId), value, applyTrafo, true);
-    setFormFields(model.getStaticTextFieldFormFields(), value, applyTrafo, true);
+    updateDocumentFormFields(model.getAllFieldIDs());
   }
 
   /**
@@ -1208,8 +1302,12 @@ public class TextDocumentController
    * @param useKnownFormValues
    *          If true the TRAFOs use the real value of the fields. If false all fields get the given
    *          value.
+   * @param cache
+   *          The cache of the current update. TRAFOs used by several fields are computed only
+   *          once.
    */
-  private void setFormFields(List<FormField> formFields, String value, boolean applyTrafo, boolean useKnownFormValues)
+  private void setFormFields(List<FormField> formFields, String value, boolean applyTrafo,
+      boolean useKnownFormValues, EvaluationCache cache)
   {
     if (formFields == null)
     {
@@ -1229,11 +1327,11 @@ public class TextDocumentController
         {
           if (useKnownFormValues)
           {
-            result = getTransformedValue(trafoName);
+            result = getTransformedValue(trafoName, cache);
           }
           else
           {
-            result = getTransformedValue(trafoName, value);
+            result = getTransformedValue(trafoName, value, cache);
           }
         }
 
@@ -1431,22 +1529,36 @@ public class TextDocumentController
    *          The new value of the field. If null the field is deleted from the persistend data.
    */
   public void setFormFieldValue(String fieldId, String value)
+  {
+    setFormFieldValues(Collections.singletonMap(fieldId, value));
+  }
+
+  /**
+   * Like {@link #setFormFieldValue(String, String)} for several fields. The persistent data is
+   * stored only once.
+   *
+   * @param values
+   *          Mapping from the ids of the fields to their new values.
+   */
+  public void setFormFieldValues(Map<String, String> values)
   {
     if (simulationResult == null)
     {
       model.updateLastTouchedByVersionInfo();
-      if (value == null)
-      {
-        model.getFormFieldValues().remove(fieldId);
-      }
-      else
-      {
-        model.getFormFieldValues().put(fieldId, value);
-      }
+      values.forEach((fieldId, value) -> {
+        if (value == null)
+        {
+          model.getFormFieldValues().remove(fieldId);
+        }
+        else
+        {
+          model.getFormFieldValues().put(fieldId, value);
+        }
+      });
       model.getPersistentData().setData(DataID.FORMULARWERTE, getFormFieldValuesString());
     } else
     {
-      simulationResult.setFormFieldValue(fieldId, value);
+      values.forEach(simulationResult::setFormFieldValue);
     }
   }
 
@@ -1608,7 +1720,8 @@ public class TextDocumentController
     ConfigThingy func = model.getFormDescription().query(FORMULAR).query(FUNKTIONEN).query(trafoName, 2).getLastChild();
 
     FunctionLibrary funcLib = getFunctionLibrary();
-    Function function = FunctionFactory.parseChildren(trafoConf, funcLib, getDialogLibrary(), getFunctionContext());
+    Function function = FunctionFactory
+        .compile(FunctionFactory.parseChildren(trafoConf, funcLib, getDialogLibrary(), getFunctionContext()));
     funcLib.add(trafoName, function);
 
     // remove children of func, so that we can reset them later
@@ -1657,7 +1770,7 @@ public class TextDocumentController
 
     try
     {
-      funcLib.add(name, FunctionFactory.parseChildren(funcConf, funcLib, dLib, context));
+      funcLib.add(name, FunctionFactory.compile(FunctionFactory.parseChildren(funcConf, funcLib, dLib, context)));
 
       ConfigThingy betterNameFunc = new ConfigThingy(name);
       for (ConfigThingy func : funcConf)
@@ -1826,7 +1939,9 @@ public class TextDocumentController
           getIDToPresetValue(), this);
       boolean modified = model.isDocumentModified();
       model.setDocumentModifiable(false);
-      formModel.notifyWithCurrentVisibilites(this::setVisibleState);
+      Map<String, Boolean> visibilities = new LinkedHashMap<>();
+      formModel.notifyWithCurrentVisibilites(visibilities::put);
+      setVisibleStates(visibilities);
       model.setDocumentModified(modified);
       model.setDocumentModifiable(true);
     }
@@ -1933,6 +2048,22 @@ public class TextDocumentController
       new OnFormValueChanged(this, id, value).emit();
     }
   }
+
+  /**
+   * Set the values of several form fields at once. The fields are updated by one event.
+   *
+   * @param values
+   *          Mapping from the ids of the form fields to their new values.
+   */
+  public void setValuesChanged(Map<String, String> values)
+  {
+    Map<String, String> changed = new LinkedHashMap<>(values);
+    changed.remove("");
+    if (!changed.isEmpty())
+    {
+      new OnFormValueChanged(this, changed).emit();
+    }
+  }
   /**
    * Set the visibility of a group.
    *
@@ -1946,4 +2077,18 @@ public class TextDocumentController
     new OnSetVisibleState(this, groupId, visible, null).emit();
   }
 
+  /**
+   * Set the visibility of several groups at once.
+   *
+   * @param states
+   *          Mapping from group id to true if the group should be visible, false otherwise.
+   */
+  public void setVisibilityChanged(Map<String, Boolean> states)
+  {
+    if (!states.isEmpty())
+    {
+      new OnSetVisibleState(this, states, null).emit();
+    }
+  }
+
 }
@@ -1259,10 +1259,43 @@ public class TextDocumentModel
    *          The text range.
    * @param cmdStr
    *          The command.
+   * @return The name of the new bookmark or null.
    */
-  public synchronized void addNewDocumentCommand(XTextRange r, String cmdStr)
+  public synchronized String addNewDocumentCommand(XTextRange r, String cmdStr)
   {
-    documentCommands.addNewDocumentCommand(r, cmdStr);
+    return documentCommands.addNewDocumentCommand(r, cmdStr);
+  }
+
+  /**
+   * {@link DocumentCommands#registerDocumentCommand(String)}
+   *
+   * @param bookmarkName
+   *          The name of a bookmark, which has been inserted by the caller.
+   */
+  public synchronized void registerDocumentCommand(String bookmarkName)
+  {
+    documentCommands.registerDocumentCommand(bookmarkName);
+  }
+
+  /**
+   * Start a batch of new document commands. The document commands are updated once when the
+   * batch is committed instead of after every {@link #addNewDocumentCommand(XTextRange, String)}.
+   *
+   * {@link DocumentCommands#beginBatch()}
+   */
+  public synchronized void beginDocumentCommandsBatch()
+  {
+    documentCommands.beginBatch();
+  }
+
+  /**
+   * {@link DocumentCommands#commitBatch()}
+   *
+   * @return True if the document commands have changed.
+   */
+  public synchronized boolean commitDocumentCommandsBatch()
+  {
+    return documentCommands.commitBatch();
   }
 
   /**
@@ -24,6 +24,8 @@ package org.libreoffice.lots.document.commands;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -108,11 +110,11 @@ public class DocumentCommands implements Iterable<DocumentCommand>
   private HashSet<TextSection> allTextSectionsWithGROUPS;
 
   /**
-   * Enthält die nach Position sortierte Liste aller Sichtbarkeitselemente
+   * Enthält den nach Position sortierten Index aller Sichtbarkeitselemente
    * (setGroups-Kommando und TextSection mit GROUPS-Attribut) des Dokuments und wird
    * über update() aktualisiert.
    */
-  private LinkedList<VisibilityElement> visibilityElements;
+  private VisibilityIndex visibilityElements;
 
   /**
    * Enthält eine nach Position sortierte Liste aller setJumpMark-Kommandos und wird
@@ -126,6 +128,27 @@ public class DocumentCommands implements Iterable<DocumentCommand>
    */
   private HashSet<PrintBlockCommand> printBlocks;
 
+  /**
+   * Anzahl der geschachtelten Aufrufe von {@link #beginBatch()}, die noch nicht mit
+   * {@link #commitBatch()} abgeschlossen wurden.
+   */
+  private int batchDepth = 0;
+
+  /**
+   * Die Namen der Bookmarks, die innerhalb des laufenden Batches eingefügt wurden.
+   */
+  private List<String> batchBookmarks = new ArrayList<>();
+
+  /**
+   * Anzahl der Bookmarks, die beim letzten update() untersucht wurden.
+   */
+  private int scannedBookmarks = 0;
+
+  /**
+   * Anzahl der TextSections, die beim letzten update() untersucht wurden.
+   */
+  private int scannedTextSections = 0;
+
   /**
    * Pattern zum Erkennen von insertValue und insertFormValue-Bookmarks.
    */
@@ -142,7 +165,7 @@ public class DocumentCommands implements Iterable<DocumentCommand>
     this.doc = doc;
     this.allCommands = new HashSet<>();
 
-    this.visibilityElements = new LinkedList<>();
+    this.visibilityElements = new VisibilityIndex();
     this.setJumpMarkCommands = new LinkedList<>();
     this.printBlocks = new HashSet<>();
     this.allTextSectionsWithGROUPS = new HashSet<>();
@@ -199,20 +222,132 @@ public class DocumentCommands implements Iterable<DocumentCommand>
    *          ignoriert.
    * @param cmdStr
    *          Das Kommando als String der Form "WM(...)".
+   * @return Der Name des neuen Bookmarks oder null, wenn kein Bookmark angelegt wurde.
    */
-  public void addNewDocumentCommand(XTextRange r, String cmdStr)
+  public String addNewDocumentCommand(XTextRange r, String cmdStr)
   {
     if (r == null) {
-      return;
+      return null;
     }
+    String bookmarkName = null;
     try
     {
-      new Bookmark(cmdStr, UNO.XTextDocument(doc), r);
+      bookmarkName = new Bookmark(cmdStr, UNO.XTextDocument(doc), r).getName();
     } catch (UnoHelperException e)
     {
       LOGGER.debug("", e);
     }
-    update();
+    if (bookmarkName != null)
+    {
+      registerDocumentCommand(bookmarkName);
+    }
+    return bookmarkName;
+  }
+
+  /**
+   * Meldet ein Bookmark an, das bereits außerhalb dieser Klasse in das Dokument eingefügt
+   * wurde. Innerhalb eines Batches wird nur dieses Bookmark beim Abschluss des Batches
+   * ausgewertet, ansonsten wird sofort update() ausgeführt.
+   *
+   * @param bookmarkName
+   *          Der Name des neuen Bookmarks.
+   */
+  public void registerDocumentCommand(String bookmarkName)
+  {
+    if (batchDepth > 0)
+    {
+      batchBookmarks.add(bookmarkName);
+    } else
+    {
+      update();
+    }
+  }
+
+  /**
+   * Startet einen Batch: Bis zum zugehörigen {@link #commitBatch()} aktualisiert
+   * {@link #addNewDocumentCommand(XTextRange, String)} die Dokumentkommandos nicht mehr
+   * nach jedem neuen Bookmark. Beim Abschluss des Batches werden nur die im Batch
+   * eingefügten Bookmarks ausgewertet, das Dokument wird nicht erneut vollständig
+   * durchsucht. Batches können geschachtelt werden, es zählt der Abschluss des äußersten
+   * Batches.
+   */
+  public void beginBatch()
+  {
+    ++batchDepth;
+  }
+
+  /**
+   * Schließt einen mit {@link #beginBatch()} gestarteten Batch ab. Beim Abschluss des
+   * äußersten Batches werden die im Batch eingefügten Dokumentkommandos in die
+   * Datenstrukturen übernommen.
+   *
+   * @return true, wenn durch den Abschluss neue Dokumentkommandos hinzugekommen sind.
+   * @throws IllegalStateException
+   *           wenn kein Batch gestartet wurde.
+   */
+  public boolean commitBatch()
+  {
+    if (batchDepth == 0)
+    {
+      throw new IllegalStateException("commitBatch() without beginBatch()");
+    }
+    --batchDepth;
+    if (batchDepth > 0 || batchBookmarks.isEmpty())
+    {
+      return false;
+    }
+    List<String> names = batchBookmarks;
+    batchBookmarks = new ArrayList<>();
+    return addBookmarks(names);
+  }
+
+  /**
+   * Übernimmt die Dokumentkommandos der Bookmarks mit den Namen names, ohne alle
+   * Bookmarks des Dokuments zu untersuchen.
+   *
+   * @return true, wenn neue Dokumentkommandos hinzugekommen sind.
+   */
+  private boolean addBookmarks(List<String> names)
+  {
+    HashSet<String> knownBookmarks = new HashSet<>();
+    for (DocumentCommand cmd : allCommands)
+    {
+      knownBookmarks.add(cmd.getBookmarkName());
+    }
+
+    HashSet<DocumentCommand> newDocumentCommands = new HashSet<>();
+    for (String name : names)
+    {
+      if (!knownBookmarks.add(name))
+        continue;
+      Matcher m = wmCmdPattern.matcher(name);
+      if (m.find())
+      {
+        DocumentCommand cmd = createCommand(name, m.group(1), doc);
+        if (cmd != null) {
+          newDocumentCommands.add(cmd);
+        }
+      }
+    }
+    addNewDocumentCommands(newDocumentCommands);
+    LOGGER.trace("commitBatch: Neue Dokumentkommandos: {}", newDocumentCommands.size());
+    return !newDocumentCommands.isEmpty();
+  }
+
+  /**
+   * Liefert die Anzahl der Bookmarks, die beim letzten update() untersucht wurden.
+   */
+  public int getScannedBookmarks()
+  {
+    return scannedBookmarks;
+  }
+
+  /**
+   * Liefert die Anzahl der TextSections, die beim letzten update() untersucht wurden.
+   */
+  public int getScannedTextSections()
+  {
+    return scannedTextSections;
   }
 
   /**
@@ -251,12 +386,16 @@ public class DocumentCommands implements Iterable<DocumentCommand>
     try
     {
       String[] bookmarkNames = doc.getBookmarks().getElementNames();
+      scannedBookmarks = bookmarkNames.length;
       for (int i = 0; i < bookmarkNames.length; i++)
       {
         String name = bookmarkNames[i];
+        // bekannte Bookmarks und Bookmarks ohne "WM" müssen nicht geparst werden
+        if (knownBookmarks.contains(name) || !name.contains("WM"))
+          continue;
         Matcher m = wmCmdPattern.matcher(name);
 
-        if (m.find() && !knownBookmarks.contains(name))
+        if (m.find())
         {
           DocumentCommand cmd = createCommand(name, m.group(1), doc);
           if (cmd != null) {
@@ -274,9 +413,10 @@ public class DocumentCommands implements Iterable<DocumentCommand>
       LOGGER.trace("", e);
     }
 
-    LOGGER.trace("updateBookmarks fertig nach {} ms. Entfernte/Neue Dokumentkommandos: {} / {}",
-        Integer.valueOf((int) (System.currentTimeMillis() - startTime)), retiredDocumentCommands.size(),
-        newDocumentCommands.size());
+    LOGGER.trace(
+        "updateBookmarks fertig nach {} ms. Untersuchte Bookmarks: {}. Entfernte/Neue Dokumentkommandos: {} / {}",
+        Integer.valueOf((int) (System.currentTimeMillis() - startTime)), scannedBookmarks,
+        retiredDocumentCommands.size(), newDocumentCommands.size());
     return !retiredDocumentCommands.isEmpty() || !newDocumentCommands.isEmpty();
   }
 
@@ -313,12 +453,15 @@ public class DocumentCommands implements Iterable<DocumentCommand>
     // TextSections scannen und HashSet mit allen TextSections aufbauen:
     HashSet<TextSection> newTextSections = new HashSet<>();
     String[] textSectionNames = supp.getTextSections().getElementNames();
+    scannedTextSections = textSectionNames.length;
     for (int i = 0; i < textSectionNames.length; i++)
     {
       String name = textSectionNames[i];
+      if (knownTextSections.contains(name) || !name.contains("GROUPS"))
+        continue;
       Matcher m = sectionWithGROUPSPattern.matcher(name);
 
-      if (m.find() && !knownTextSections.contains(name))
+      if (m.find())
       {
         TextSection s =
           createTextSection(name, m.group(1), UNO.XTextSectionsSupplier(doc));
@@ -354,6 +497,7 @@ public class DocumentCommands implements Iterable<DocumentCommand>
         0, 0, 0, 0, };
     LOGGER.trace("addNewDocumentCommands");
 
+    List<SetGroups> newSetGroups = new ArrayList<>();
     long lastTime = System.currentTimeMillis();
     for (Iterator<DocumentCommand> iter = newDocumentCommands.iterator(); iter.hasNext();)
     {
@@ -364,7 +508,7 @@ public class DocumentCommands implements Iterable<DocumentCommand>
 
       if (cmd instanceof SetGroups)
       {
-        addNewVisibilityElement((SetGroups) cmd);
+        newSetGroups.add((SetGroups) cmd);
         id = 1;
       }
       else if (cmd instanceof SetJumpMark)
@@ -386,6 +530,9 @@ public class DocumentCommands implements Iterable<DocumentCommand>
       }
       lastTime = currentTime;
     }
+    visibilityElements.addAll(newSetGroups);
+    long currentTime = System.currentTimeMillis();
+    times[1] += currentTime - lastTime;
 
     LOGGER.trace("addNewDocumentCommands statistics (number of elements, overalltime to add):");
     LOGGER.trace("- SetGroups:     {}, {} ms", counters[1], times[1]);
@@ -409,63 +556,8 @@ public class DocumentCommands implements Iterable<DocumentCommand>
       TextSection s = iter.next();
 
       allTextSectionsWithGROUPS.add(s);
-
-      addNewVisibilityElement(s);
-    }
-  }
-
-  /**
-   * Fügt das neue Sichtbarkeitselement (SetGroups-Kommando bzw. Textbereich mit
-   * GROUPS im Namen) sortiert in die bereits vorsortierte LinkedList aller
-   * Sichtbarkeitselemente hinzu, wobei die Gruppenzuordnung von verschachtelten
-   * Sichtbarkeitselementen gemäß der Vererbungsstruktur der Sichtbarkeitsgruppen auf
-   * untergeordnete Sichtbarkeitselemente übertragen werden.
-   *
-   * @param element
-   *          das hinzuzufügende Sichtbarkeitselement.
-   */
-  private void addNewVisibilityElement(VisibilityElement element)
-  {
-    boolean inserted = false;
-    XTextRange anchor = element.getAnchor();
-    if (anchor == null) {
-      return;
-    }
-
-    ListIterator<VisibilityElement> iter = visibilityElements.listIterator();
-    while (iter.hasNext())
-    {
-      VisibilityElement current = iter.next();
-
-      TreeRelation rel = new TreeRelation(current.getAnchor(), anchor);
-
-      // setzen der Gruppen:
-      if (rel.isAEqualB())
-      {
-        element.addGroups(current.getGroups());
-        current.addGroups(element.getGroups());
-      }
-      else if (rel.isAChildOfB())
-      {
-        current.addGroups(element.getGroups());
-      }
-      else if (rel.isBChildOfA())
-      {
-        element.addGroups(current.getGroups());
-      }
-
-      // sortiertes Einfügen:
-      if (!inserted && (rel.isAGreaterThanB() || rel.isAEqualB()))
-      {
-        iter.previous();
-        iter.add(element);
-        inserted = true;
-        iter.next();
-      }
-    }
-    if (!inserted) {
-      visibilityElements.add(element);
     }
+    visibilityElements.addAll(newElements);
   }
 
   /**
@@ -547,7 +639,32 @@ public class DocumentCommands implements Iterable<DocumentCommand>
    */
   public List<VisibilityElement> getSetGroups()
   {
-    return visibilityElements;
+    return visibilityElements.getElements();
+  }
+
+  /**
+   * Liefert alle Sichtbarkeitselemente, denen (auch durch Vererbung) mindestens eine
+   * der Sichtbarkeitsgruppen aus groupIds zugeordnet ist. Jedes Element ist höchstens
+   * einmal enthalten.
+   *
+   * @param groupIds
+   *          Die IDs der Sichtbarkeitsgruppen.
+   * @return eine eventuell leere Liste der Sichtbarkeitselemente.
+   */
+  public List<VisibilityElement> getSetGroups(Collection<String> groupIds)
+  {
+    return visibilityElements.getElements(groupIds);
+  }
+
+  /**
+   * Liefert einen Zähler, der sich bei jeder Änderung an der Menge der
+   * Sichtbarkeitselemente oder an deren Gruppenzuordnung erhöht.
+   *
+   * @return die Anzahl der bisherigen Änderungen.
+   */
+  public int getSetGroupsModificationCount()
+  {
+    return visibilityElements.getModificationCount();
   }
 
   /**
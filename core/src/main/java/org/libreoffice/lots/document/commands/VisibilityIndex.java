@@ -0,0 +1,580 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.document.commands;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.star.lang.IllegalArgumentException;
+import com.sun.star.text.XTextRange;
+import com.sun.star.text.XTextRangeCompare;
+import com.sun.star.uno.UnoRuntime;
+
+import org.libreoffice.ext.unohelper.common.UNO;
+import org.libreoffice.lots.document.VisibilityElement;
+
+/**
+ * Nach Dokumentposition sortierter Index aller Sichtbarkeitselemente eines Dokuments.
+ * Die Elemente werden pro Text-Objekt (Haupttext, Tabellenzelle, Rahmen, ...) nach
+ * Anfang aufsteigend und bei gleichem Anfang nach Ende absteigend sortiert, so dass
+ * umschließende Elemente immer vor den von ihnen umschlossenen Elementen stehen.
+ *
+ * Die Vererbung der Sichtbarkeitsgruppen auf umschlossene Elemente wird bei großen
+ * Änderungen in einem Durchlauf über die sortierte Liste bestimmt. Einzelne neue
+ * Elemente werden per binärer Suche einsortiert und erben die Gruppen über die Kette der
+ * jeweils nächsten umschließenden Elemente. Sobald sich Elemente eines Text-Objekts
+ * überlappen, ohne sich zu umschließen, ist diese Kette unvollständig. Dann werden wie
+ * beim Durchlauf alle vorherigen Elemente geprüft.
+ */
+class VisibilityIndex
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(VisibilityIndex.class);
+
+  /**
+   * Zugriff auf die Positionen von Textbereichen.
+   */
+  interface Positions
+  {
+    /**
+     * Liefert einen Schlüssel für das Text-Objekt, in dem range liegt. Nur Bereiche mit
+     * gleichem Schlüssel können miteinander verglichen werden.
+     */
+    Object getTextKey(XTextRange range);
+
+    /**
+     * Liefert einen Comparator für Positionen (kollabierte Textbereiche) im Text-Objekt
+     * von range. Eine Position ist kleiner, wenn sie im Dokument weiter vorne liegt.
+     * Liegt eine Position in einem anderen Text-Objekt, wirft der Comparator eine
+     * {@link java.lang.IllegalArgumentException}.
+     */
+    Comparator<XTextRange> getComparator(XTextRange range);
+  }
+
+  /**
+   * Bestimmt die Positionen über die UNO-Schnittstelle {@link XTextRangeCompare}.
+   */
+  static final Positions UNO_POSITIONS = new Positions()
+  {
+    @Override
+    public Object getTextKey(XTextRange range)
+    {
+      return UnoRuntime.generateOid(range.getText());
+    }
+
+    @Override
+    public Comparator<XTextRange> getComparator(XTextRange range)
+    {
+      XTextRangeCompare compare = UNO.XTextRangeCompare(range.getText());
+      return (a, b) -> {
+        try
+        {
+          return -compare.compareRegionStarts(a, b);
+        } catch (IllegalArgumentException e)
+        {
+          throw new java.lang.IllegalArgumentException("Textbereiche sind nicht vergleichbar", e);
+        }
+      };
+    }
+  };
+
+  private final Positions positions;
+
+  /**
+   * Die sortierten Elemente pro Text-Objekt.
+   */
+  private final Map<Object, Bucket> buckets = new LinkedHashMap<>();
+
+  /**
+   * Alle Elemente des Index oder null, wenn die Liste nach einer Änderung neu erstellt
+   * werden muss.
+   */
+  private List<VisibilityElement> elements = null;
+
+  /**
+   * Zuordnung der groupIds auf die nach Position sortierten Elemente mit dieser Gruppe
+   * oder null, wenn die Zuordnung nach einer Änderung neu erstellt werden muss.
+   */
+  private Map<String, List<VisibilityElement>> elementsByGroup = null;
+
+  /**
+   * Die Position jedes Elements in {@link #getElements()} oder null, wenn die Zuordnung
+   * nach einer Änderung neu erstellt werden muss.
+   */
+  private Map<VisibilityElement, Integer> ordinals = null;
+
+  /**
+   * Anzahl der bisherigen Änderungen an den Elementen oder deren Gruppen.
+   */
+  private int modificationCount = 0;
+
+  VisibilityIndex()
+  {
+    this(UNO_POSITIONS);
+  }
+
+  VisibilityIndex(Positions positions)
+  {
+    this.positions = positions;
+  }
+
+  /**
+   * Fügt neue Sichtbarkeitselemente hinzu und überträgt die Sichtbarkeitsgruppen
+   * umschließender Elemente auf die umschlossenen Elemente. Elemente gleicher Ausdehnung
+   * erhalten gegenseitig ihre Gruppen. Elemente ohne Anker werden ignoriert.
+   *
+   * @param newElements
+   *          Die neuen Sichtbarkeitselemente.
+   */
+  void addAll(Collection<? extends VisibilityElement> newElements)
+  {
+    Map<Bucket, List<Entry>> added = new LinkedHashMap<>();
+    for (VisibilityElement element : newElements)
+    {
+      XTextRange anchor = element.getAnchor();
+      if (anchor == null)
+      {
+        continue;
+      }
+      Bucket bucket = buckets.computeIfAbsent(positions.getTextKey(anchor),
+          key -> new Bucket(positions.getComparator(anchor)));
+      Entry entry = new Entry(element, anchor.getStart(), anchor.getEnd());
+      // Nicht vergleichbare Elemente würden die Sortierung des Text-Objekts zerstören.
+      try
+      {
+        bucket.compare.compare(entry.start, entry.end);
+      } catch (java.lang.IllegalArgumentException e)
+      {
+        LOGGER.warn("Sichtbarkeitselement wird ignoriert, da es nicht im Text-Objekt liegt",
+            e);
+        continue;
+      }
+      added.computeIfAbsent(bucket, b -> new ArrayList<>()).add(entry);
+    }
+
+    for (Map.Entry<Bucket, List<Entry>> e : added.entrySet())
+    {
+      e.getKey().addAll(e.getValue());
+    }
+    if (!added.isEmpty())
+    {
+      changed();
+    }
+  }
+
+  /**
+   * Entfernt Sichtbarkeitselemente aus dem Index. Bereits vererbte Gruppen bleiben
+   * erhalten.
+   *
+   * @param retired
+   *          Die zu entfernenden Elemente.
+   */
+  void removeAll(Collection<? extends VisibilityElement> retired)
+  {
+    if (retired.isEmpty())
+    {
+      return;
+    }
+    Set<VisibilityElement> set = new HashSet<>(retired);
+    boolean removed = false;
+    for (Iterator<Bucket> iter = buckets.values().iterator(); iter.hasNext();)
+    {
+      Bucket bucket = iter.next();
+      removed |= bucket.removeAll(set);
+      if (bucket.entries.isEmpty())
+      {
+        iter.remove();
+      }
+    }
+    if (removed)
+    {
+      changed();
+    }
+  }
+
+  /**
+   * Liefert alle Sichtbarkeitselemente, innerhalb eines Text-Objekts nach Position
+   * sortiert.
+   *
+   * @return Eine nicht veränderbare Liste.
+   */
+  List<VisibilityElement> getElements()
+  {
+    if (elements == null)
+    {
+      List<VisibilityElement> list = new ArrayList<>();
+      for (Bucket bucket : buckets.values())
+      {
+        for (Entry entry : bucket.entries)
+        {
+          list.add(entry.element);
+        }
+      }
+      elements = Collections.unmodifiableList(list);
+    }
+    return elements;
+  }
+
+  /**
+   * Liefert alle Sichtbarkeitselemente mit der Sichtbarkeitsgruppe groupId in der
+   * Reihenfolge von {@link #getElements()}.
+   *
+   * @return Eine nicht veränderbare, eventuell leere Liste.
+   */
+  List<VisibilityElement> getElements(String groupId)
+  {
+    return getElementsByGroup().getOrDefault(groupId, Collections.emptyList());
+  }
+
+  /**
+   * Liefert alle Sichtbarkeitselemente mit mindestens einer der Sichtbarkeitsgruppen
+   * aus groupIds ohne Duplikate in der Reihenfolge von {@link #getElements()}.
+   *
+   * @return Eine eventuell leere Liste.
+   */
+  List<VisibilityElement> getElements(Collection<String> groupIds)
+  {
+    if (groupIds.size() == 1)
+    {
+      return getElements(groupIds.iterator().next());
+    }
+    Map<String, List<VisibilityElement>> byGroup = getElementsByGroup();
+    Set<VisibilityElement> found = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (String groupId : groupIds)
+    {
+      found.addAll(byGroup.getOrDefault(groupId, Collections.emptyList()));
+    }
+    List<VisibilityElement> list = new ArrayList<>(found);
+    list.sort(Comparator.comparing(ordinals::get));
+    return list;
+  }
+
+  /**
+   * Liefert die Anzahl der bisherigen Änderungen an den Elementen des Index oder an
+   * deren Gruppen. Damit können abgeleitete Datenstrukturen erkennen, ob sie neu
+   * erstellt werden müssen.
+   */
+  int getModificationCount()
+  {
+    return modificationCount;
+  }
+
+  private Map<String, List<VisibilityElement>> getElementsByGroup()
+  {
+    if (elementsByGroup == null)
+    {
+      Map<String, List<VisibilityElement>> byGroup = new HashMap<>();
+      Map<VisibilityElement, Integer> positions = new IdentityHashMap<>();
+      for (VisibilityElement element : getElements())
+      {
+        positions.put(element, positions.size());
+        for (String groupId : element.getGroups())
+        {
+          byGroup.computeIfAbsent(groupId, g -> new ArrayList<>()).add(element);
+        }
+      }
+      byGroup.replaceAll((groupId, list) -> Collections.unmodifiableList(list));
+      elementsByGroup = byGroup;
+      ordinals = positions;
+    }
+    return elementsByGroup;
+  }
+
+  private void changed()
+  {
+    elements = null;
+    elementsByGroup = null;
+    ordinals = null;
+    modificationCount++;
+  }
+
+  /**
+   * Ein Sichtbarkeitselement mit den gecachten Positionen von Anfang und Ende seines
+   * Ankers.
+   */
+  private static class Entry
+  {
+    private final VisibilityElement element;
+
+    private final XTextRange start;
+
+    private final XTextRange end;
+
+    /**
+     * Das nächste umschließende Element oder null.
+     */
+    private Entry parent;
+
+    private boolean removed = false;
+
+    private Entry(VisibilityElement element, XTextRange start, XTextRange end)
+    {
+      this.element = element;
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /**
+   * Die sortierten Elemente eines Text-Objekts.
+   */
+  private static class Bucket
+  {
+    private final Comparator<XTextRange> compare;
+
+    private final Comparator<Entry> order;
+
+    private List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Gibt es Elemente, die sich überlappen, ohne dass eines das andere umschließt?
+     */
+    private boolean overlapping = false;
+
+    private Bucket(Comparator<XTextRange> compare)
+    {
+      this.compare = compare;
+      this.order = (a, b) -> {
+        int c = compare.compare(a.start, b.start);
+        return c != 0 ? c : compare.compare(b.end, a.end);
+      };
+    }
+
+    /**
+     * Fügt die neuen Einträge ein. Wenige Einträge werden einzeln per binärer Suche
+     * einsortiert, ansonsten werden sie sortiert, mit der vorhandenen Liste
+     * zusammengeführt und die Vererbung der Gruppen für die ganze Liste neu bestimmt.
+     */
+    private void addAll(List<Entry> added)
+    {
+      int n = entries.size();
+      int log = 32 - Integer.numberOfLeadingZeros(n);
+      if (added.size() * log < n)
+      {
+        for (Entry entry : added)
+        {
+          insert(entry);
+        }
+        return;
+      }
+
+      added.sort(order);
+      List<Entry> merged = new ArrayList<>(n + added.size());
+      int i = 0;
+      int j = 0;
+      while (i < n && j < added.size())
+      {
+        if (order.compare(added.get(j), entries.get(i)) < 0)
+        {
+          merged.add(added.get(j++));
+        } else
+        {
+          merged.add(entries.get(i++));
+        }
+      }
+      merged.addAll(entries.subList(i, n));
+      merged.addAll(added.subList(j, added.size()));
+      entries = merged;
+      inheritGroups();
+    }
+
+    /**
+     * Bestimmt in einem Durchlauf über die sortierte Liste zu jedem Element die
+     * umschließenden Elemente und überträgt deren Gruppen. Da sich Bookmarks auch
+     * überlappen können, werden alle noch nicht abgeschlossenen Elemente geprüft und
+     * nicht nur ein Stack verschachtelter Elemente.
+     */
+    private void inheritGroups()
+    {
+      overlapping = false;
+      List<Entry> open = new ArrayList<>();
+      for (Entry entry : entries)
+      {
+        open.removeIf(o -> compare.compare(o.end, entry.start) < 0);
+        entry.parent = null;
+        for (Entry o : open)
+        {
+          if (contains(o, entry))
+          {
+            inherit(o, entry);
+            entry.parent = o;
+          } else
+          {
+            overlapping = true;
+          }
+        }
+        open.add(entry);
+      }
+    }
+
+    /**
+     * Sortiert einen einzelnen Eintrag mit O(log n) Vergleichen ein. Die Gruppen werden
+     * von den umschließenden Elementen übernommen und an alle umschlossenen Elemente
+     * weitergegeben. Solange sich keine Elemente überlappen, liegen alle umschließenden
+     * Elemente auf der Kette der nächsten umschließenden Elemente des Vorgängers.
+     */
+    private void insert(Entry entry)
+    {
+      int low = 0;
+      int high = entries.size();
+      while (low < high)
+      {
+        int mid = (low + high) >>> 1;
+        if (order.compare(entries.get(mid), entry) <= 0)
+        {
+          low = mid + 1;
+        } else
+        {
+          high = mid;
+        }
+      }
+      entries.add(low, entry);
+
+      if (overlapping)
+      {
+        for (int i = 0; i < low; i++)
+        {
+          Entry candidate = entries.get(i);
+          if (contains(candidate, entry))
+          {
+            inherit(candidate, entry);
+            entry.parent = candidate;
+          }
+        }
+      } else
+      {
+        Entry candidate = low > 0 ? entries.get(low - 1) : null;
+        while (candidate != null)
+        {
+          if (contains(candidate, entry))
+          {
+            inherit(candidate, entry);
+            if (entry.parent == null)
+            {
+              entry.parent = candidate;
+            }
+            if (!equal(candidate, entry))
+            {
+              break;
+            }
+          } else if (compare.compare(candidate.end, entry.start) >= 0)
+          {
+            overlapping = true;
+          }
+          candidate = candidate.parent;
+        }
+      }
+
+      Set<Entry> descendants = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (int i = low + 1; i < entries.size(); i++)
+      {
+        Entry next = entries.get(i);
+        if (compare.compare(next.start, entry.end) > 0)
+        {
+          break;
+        }
+        if (contains(entry, next))
+        {
+          next.element.addGroups(entry.element.getGroups());
+          if (next.parent == null || !descendants.contains(next.parent))
+          {
+            next.parent = entry;
+          }
+          descendants.add(next);
+        } else
+        {
+          overlapping = true;
+        }
+      }
+    }
+
+    /**
+     * Entfernt die Einträge der Elemente aus retired und hängt deren umschlossene
+     * Elemente an das nächste verbleibende umschließende Element.
+     */
+    private boolean removeAll(Set<VisibilityElement> retired)
+    {
+      boolean removed = false;
+      for (Entry entry : entries)
+      {
+        if (retired.contains(entry.element))
+        {
+          entry.removed = true;
+          removed = true;
+        }
+      }
+      if (!removed)
+      {
+        return false;
+      }
+      entries.removeIf(entry -> entry.removed);
+      for (Entry entry : entries)
+      {
+        while (entry.parent != null && entry.parent.removed)
+        {
+          entry.parent = entry.parent.parent;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Umschließt outer das Element inner? outer muss in der Sortierung vor inner
+     * stehen.
+     */
+    private boolean contains(Entry outer, Entry inner)
+    {
+      return compare.compare(inner.end, outer.end) <= 0;
+    }
+
+    private boolean equal(Entry a, Entry b)
+    {
+      return compare.compare(a.start, b.start) == 0 && compare.compare(a.end, b.end) == 0;
+    }
+
+    /**
+     * Überträgt die Gruppen von outer auf inner. Bei gleicher Ausdehnung erhält auch
+     * outer die Gruppen von inner.
+     */
+    private void inherit(Entry outer, Entry inner)
+    {
+      inner.element.addGroups(outer.element.getGroups());
+      if (equal(outer, inner))
+      {
+        outer.element.addGroups(inner.element.getGroups());
+      }
+    }
+  }
+}
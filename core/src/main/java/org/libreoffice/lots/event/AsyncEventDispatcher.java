@@ -0,0 +1,196 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.event;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import org.libreoffice.lots.event.handlers.WollMuxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatches {@link WollMuxEvent}s asynchronously. Events with the same
+ * {@link WollMuxEvent#getDispatchKey() dispatch key} are processed one after another in the order
+ * they were emitted, events with different keys may be processed concurrently. A queued event is
+ * replaced by an event with the same {@link WollMuxEvent#getCoalescingKey() coalescing key}, which
+ * is emitted before its processing has started. The newer event takes the position of the older
+ * one in the queue.
+ */
+class AsyncEventDispatcher
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncEventDispatcher.class);
+
+  private final Consumer<WollMuxEvent> sink;
+
+  private final Executor executor;
+
+  private final EventMetrics metrics;
+
+  /**
+   * The lanes which have queued or running events.
+   */
+  private final Map<Object, Lane> lanes = new HashMap<>();
+
+  /**
+   * Create a new dispatcher.
+   *
+   * @param sink
+   *          Processes the events.
+   * @param executor
+   *          The executor running the lanes.
+   * @param metrics
+   *          Collects statistics.
+   */
+  AsyncEventDispatcher(Consumer<WollMuxEvent> sink, Executor executor, EventMetrics metrics)
+  {
+    this.sink = sink;
+    this.executor = executor;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Queue an event.
+   *
+   * @param event
+   *          The event.
+   */
+  void dispatch(WollMuxEvent event)
+  {
+    Lane lane;
+    boolean start;
+    synchronized (this)
+    {
+      lane = lanes.computeIfAbsent(event.getDispatchKey(), Lane::new);
+      start = lane.enqueue(new Pending(event));
+    }
+    if (start)
+    {
+      executor.execute(lane::drain);
+    }
+  }
+
+  private static class Pending
+  {
+    private WollMuxEvent event;
+
+    private final Object coalescingKey;
+
+    private final long enqueued = System.nanoTime();
+
+    private Pending(WollMuxEvent event)
+    {
+      this.event = event;
+      this.coalescingKey = event.getCoalescingKey();
+    }
+  }
+
+  /**
+   * The events of one dispatch key.
+   */
+  private class Lane
+  {
+    private final Object key;
+
+    private final Queue<Pending> queue = new ArrayDeque<>();
+
+    private final Map<Object, Pending> coalescable = new HashMap<>();
+
+    private boolean running = false;
+
+    private Lane(Object key)
+    {
+      this.key = key;
+    }
+
+    /**
+     * Add an event. Has to be called with the lock of the dispatcher.
+     *
+     * @return True if the lane has to be started.
+     */
+    private boolean enqueue(Pending pending)
+    {
+      if (pending.coalescingKey != null)
+      {
+        Pending old = coalescable.putIfAbsent(pending.coalescingKey, pending);
+        if (old != null)
+        {
+          old.event = pending.event;
+          metrics.coalesced();
+          return false;
+        }
+      }
+      queue.add(pending);
+      metrics.enqueued();
+      if (running)
+      {
+        return false;
+      }
+      running = true;
+      return true;
+    }
+
+    /**
+     * Process events until the lane is empty.
+     */
+    private void drain()
+    {
+      while (true)
+      {
+        Pending pending;
+        WollMuxEvent event;
+        synchronized (AsyncEventDispatcher.this)
+        {
+          pending = queue.poll();
+          if (pending == null)
+          {
+            running = false;
+            lanes.remove(key);
+            return;
+          }
+          if (pending.coalescingKey != null)
+          {
+            coalescable.remove(pending.coalescingKey, pending);
+          }
+          event = pending.event;
+          metrics.dequeued();
+        }
+
+        long start = System.nanoTime();
+        try
+        {
+          sink.accept(event);
+        } catch (RuntimeException e)
+        {
+          LOGGER.error("", e);
+        }
+        metrics.processed(event.getClass().getSimpleName(), start - pending.enqueued,
+            System.nanoTime() - start);
+      }
+    }
+  }
+}
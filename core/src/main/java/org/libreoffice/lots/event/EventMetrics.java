@@ -0,0 +1,182 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.event;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of the {@link WollMuxEventHandler}: the depth of the event queue, the number of
+ * coalesced events and the latency of each event type.
+ */
+public final class EventMetrics
+{
+  private final Map<String, TypeMetrics> types = new TreeMap<>();
+
+  private int queueDepth = 0;
+
+  private int maxQueueDepth = 0;
+
+  private long coalesced = 0;
+
+  /**
+   * An event has been added to the queue.
+   */
+  synchronized void enqueued()
+  {
+    queueDepth++;
+    maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+  }
+
+  /**
+   * An event has been removed from the queue, either because it is processed or because it has
+   * been superseded by a newer event.
+   */
+  synchronized void dequeued()
+  {
+    queueDepth--;
+  }
+
+  /**
+   * A queued event has been superseded by a newer event.
+   */
+  synchronized void coalesced()
+  {
+    coalesced++;
+  }
+
+  /**
+   * An event has been processed.
+   *
+   * @param type
+   *          The type of the event.
+   * @param waitNanos
+   *          The time the event spent in the queue.
+   * @param processNanos
+   *          The time needed to process the event.
+   */
+  synchronized void processed(String type, long waitNanos, long processNanos)
+  {
+    types.computeIfAbsent(type, t -> new TypeMetrics()).add(waitNanos, processNanos);
+  }
+
+  /**
+   * Get the number of events waiting to be processed.
+   *
+   * @return The current depth of the queue.
+   */
+  public synchronized int getQueueDepth()
+  {
+    return queueDepth;
+  }
+
+  /**
+   * Get the maximum number of events which were waiting at the same time.
+   *
+   * @return The maximum depth of the queue.
+   */
+  public synchronized int getMaxQueueDepth()
+  {
+    return maxQueueDepth;
+  }
+
+  /**
+   * Get the number of events which weren't processed because a newer event superseded them.
+   *
+   * @return The number of coalesced events.
+   */
+  public synchronized long getCoalesced()
+  {
+    return coalesced;
+  }
+
+  /**
+   * Get the number of processed events of a type.
+   *
+   * @param type
+   *          The simple class name of the event.
+   * @return The number of processed events.
+   */
+  public synchronized long getCount(String type)
+  {
+    TypeMetrics m = types.get(type);
+    return m == null ? 0 : m.count;
+  }
+
+  /**
+   * Get the average latency of an event type, i.e. the time between emitting the event and the
+   * end of its processing.
+   *
+   * @param type
+   *          The simple class name of the event.
+   * @return The average latency in milliseconds.
+   */
+  public synchronized double getAverageLatency(String type)
+  {
+    TypeMetrics m = types.get(type);
+    if (m == null || m.count == 0)
+    {
+      return 0;
+    }
+    return (double) (m.waitNanos + m.processNanos) / m.count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    StringBuilder buf = new StringBuilder();
+    buf.append("queue depth: ").append(queueDepth).append(" (max ").append(maxQueueDepth)
+        .append("), coalesced: ").append(coalesced).append('\n');
+    types.forEach((type, m) -> buf.append(type).append(": ").append(m).append('\n'));
+    return buf.toString();
+  }
+
+  private static class TypeMetrics
+  {
+    private long count;
+
+    private long waitNanos;
+
+    private long processNanos;
+
+    private long maxNanos;
+
+    private void add(long wait, long process)
+    {
+      count++;
+      waitNanos += wait;
+      processNanos += process;
+      maxNanos = Math.max(maxNanos, wait + process);
+    }
+
+    @Override
+    public String toString()
+    {
+      long ms = TimeUnit.MILLISECONDS.toNanos(1);
+      return String.format("count %d, avg wait %.2f ms, avg processing %.2f ms, max latency %.2f ms",
+          count, (double) waitNanos / count / ms, (double) processNanos / count / ms,
+          (double) maxNanos / ms);
+    }
+  }
+}
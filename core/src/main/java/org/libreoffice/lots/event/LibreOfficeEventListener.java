@@ -190,7 +190,7 @@ public class LibreOfficeEventListener implements XEventListener
     // info is null, if it's a temporary file.
     if (info != null)
     {
-      new OnTextDocumentClosed(info).emit();
+      new OnTextDocumentClosed(source, info).emit();
     }
   }
 
@@ -23,6 +23,11 @@
 package org.libreoffice.lots.event;
 
 import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.libreoffice.lots.event.handlers.WollMuxEvent;
 import org.slf4j.Logger;
@@ -32,6 +37,10 @@ import com.google.common.eventbus.EventBus;
 
 /**
  * The global event handler of {@link WollMuxEvent}. It's a singleton.
+ *
+ * By default events are processed synchronously on the thread which emits them. In asynchronous
+ * mode they are processed by worker threads, see {@link AsyncEventDispatcher}. Events of the same
+ * document keep their order, superseded events are dropped.
  */
 public class WollMuxEventHandler
 {
@@ -42,6 +51,13 @@ public class WollMuxEventHandler
    */
   public static final String ON_WOLLMUX_PROCESSING_FINISHED = "OnWollMuxProcessingFinished";
 
+  /**
+   * Maximum number of lanes, which are processed concurrently in asynchronous mode. Further lanes
+   * wait until a thread is available.
+   */
+  private static final int MAX_EVENT_THREADS = Math.max(4,
+      Runtime.getRuntime().availableProcessors());
+
   /**
    * The only instance of this class.
    */
@@ -57,6 +73,21 @@ public class WollMuxEventHandler
    */
   private boolean acceptEvents = false;
 
+  /**
+   * Statistics of the processed events.
+   */
+  private final EventMetrics metrics = new EventMetrics();
+
+  /**
+   * The dispatcher of the asynchronous mode or null if events are processed synchronously.
+   */
+  private volatile AsyncEventDispatcher dispatcher = null;
+
+  /**
+   * The threads of the asynchronous mode.
+   */
+  private ExecutorService executor;
+
   /**
    * Accept or reject new events.
    *
@@ -72,6 +103,62 @@ public class WollMuxEventHandler
       LOGGER.debug("EventProcessor: blockiere Entgegennahme von Events!");
   }
 
+  /**
+   * Switch between synchronous and asynchronous processing of events.
+   *
+   * @param async
+   *          If true, events are processed by worker threads. If false, events are processed on
+   *          the thread which emits them.
+   */
+  public synchronized void setAsynchronous(boolean async)
+  {
+    if (async == (dispatcher != null))
+    {
+      return;
+    }
+    if (async)
+    {
+      AtomicInteger threadCount = new AtomicInteger();
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_EVENT_THREADS, MAX_EVENT_THREADS, 1,
+          TimeUnit.MINUTES, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "lots-events-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          });
+      pool.allowCoreThreadTimeOut(true);
+      executor = pool;
+      dispatcher = new AsyncEventDispatcher(eventBus::post, pool, metrics);
+      LOGGER.debug("EventProcessor: asynchrone Verarbeitung.");
+    } else
+    {
+      dispatcher = null;
+      // queued events are still processed
+      executor.shutdown();
+      executor = null;
+      LOGGER.debug("EventProcessor: synchrone Verarbeitung.");
+    }
+  }
+
+  /**
+   * Are events processed asynchronously?
+   *
+   * @return True if events are processed by worker threads.
+   */
+  public boolean isAsynchronous()
+  {
+    return dispatcher != null;
+  }
+
+  /**
+   * Get the statistics of the processed events.
+   *
+   * @return The metrics.
+   */
+  public EventMetrics getMetrics()
+  {
+    return metrics;
+  }
+
   /**
    * Create a new WollMux event bus and register all listeners implementing
    * {@link WollMuxEventListener}.
@@ -140,7 +227,16 @@ public class WollMuxEventHandler
   {
     if (acceptEvents)
     {
-      eventBus.post(event);
+      AsyncEventDispatcher d = dispatcher;
+      if (d != null)
+      {
+        d.dispatch(event);
+      } else
+      {
+        long start = System.nanoTime();
+        eventBus.post(event);
+        metrics.processed(event.getClass().getSimpleName(), 0, System.nanoTime() - start);
+      }
     }
   }
 }
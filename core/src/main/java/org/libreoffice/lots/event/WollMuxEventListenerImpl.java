@@ -39,6 +39,7 @@ import org.libreoffice.lots.event.handlers.OnKill;
 import org.libreoffice.lots.event.handlers.OnManagePrintFunction;
 import org.libreoffice.lots.event.handlers.OnNotifyDocumentEventListener;
 import org.libreoffice.lots.event.handlers.OnOpenDocument;
+import org.libreoffice.lots.event.handlers.OnPALChangedNotify;
 import org.libreoffice.lots.event.handlers.OnPrint;
 import org.libreoffice.lots.event.handlers.OnPrintPage;
 import org.libreoffice.lots.event.handlers.OnRemoveDocumentEventListener;
@@ -460,4 +461,16 @@ public class WollMuxEventListenerImpl implements WollMuxEventListener
     event.process();
   }
 
+  /**
+   * Execute the event
+   *
+   * @param event
+   *          The event.
+   */
+  @Subscribe
+  public void onPALChangedNotify(OnPALChangedNotify event)
+  {
+    event.process();
+  }
+
 }
@@ -31,6 +31,7 @@ import com.sun.star.ui.XDeck;
 import org.libreoffice.ext.unohelper.common.UNO;
 import org.libreoffice.ext.unohelper.common.UnoHelperException;
 import org.libreoffice.ext.unohelper.util.UnoSidebar;
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.WollMuxFiles;
 import org.libreoffice.lots.document.TextDocumentController;
@@ -104,4 +105,10 @@ public class OnActivateSidebar extends WollMuxEvent
   {
     return this.getClass().getSimpleName() + "(" + documentController.getModel().doc.hashCode() + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
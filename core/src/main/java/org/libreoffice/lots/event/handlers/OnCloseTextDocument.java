@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.document.TextDocumentController;
 
 /**
@@ -54,4 +55,10 @@ public class OnCloseTextDocument extends WollMuxEvent
     return this.getClass().getSimpleName() + "(#"
         + documentController.getModel().hashCode() + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
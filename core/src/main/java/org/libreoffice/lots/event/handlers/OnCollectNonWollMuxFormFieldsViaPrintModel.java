@@ -24,6 +24,7 @@ package org.libreoffice.lots.event.handlers;
 
 import java.awt.event.ActionListener;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.TextDocumentController;
 
@@ -70,4 +71,10 @@ public class OnCollectNonWollMuxFormFieldsViaPrintModel extends WollMuxEvent
     return this.getClass().getSimpleName() + "(" + documentController.getModel()
         + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.TextDocumentController;
 import de.muenchen.allg.itd51.wollmux.interfaces.XPrintModel;
@@ -65,4 +66,10 @@ public class OnExecutePrintFunction extends WollMuxEvent
     return this.getClass().getSimpleName() + "(" + documentController.getModel()
         + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
@@ -22,6 +22,12 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.document.TextDocumentController;
 
 /**
@@ -31,9 +37,7 @@ import org.libreoffice.lots.document.TextDocumentController;
  */
 public class OnFormValueChanged extends WollMuxEvent
 {
-  private String fieldId;
-
-  private String newValue;
+  private Map<String, String> values;
 
   private TextDocumentController documentController;
 
@@ -51,21 +55,45 @@ public class OnFormValueChanged extends WollMuxEvent
       String fieldId,
       String newValue)
   {
-    this.fieldId = fieldId;
-    this.newValue = newValue;
+    this(documentController, Collections.singletonMap(fieldId, newValue));
+  }
+
+  /**
+   * Create this event for several form fields, which are updated together.
+   *
+   * @param documentController
+   *          The document containing the fields.
+   * @param values
+   *          Mapping from the ids of the form fields to their new values.
+   */
+  public OnFormValueChanged(TextDocumentController documentController,
+      Map<String, String> values)
+  {
+    this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
     this.documentController = documentController;
   }
 
   @Override
   protected void doit()
   {
-    documentController.addFormFieldValue(fieldId, newValue);
+    documentController.addFormFieldValues(values);
+  }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
+
+  @Override
+  public Object getCoalescingKey()
+  {
+    return List.of(OnFormValueChanged.class, values.keySet());
   }
 
   @Override
   public String toString()
   {
-    return this.getClass().getSimpleName() + "(" + fieldId + "', '" + newValue
-        + "')";
+    return this.getClass().getSimpleName() + "(" + values + ")";
   }
 }
@@ -25,6 +25,7 @@ package org.libreoffice.lots.event.handlers;
 import java.awt.event.ActionListener;
 
 import org.libreoffice.lots.GlobalFunctions;
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.DocumentManager;
 import org.libreoffice.lots.document.TextDocumentController;
@@ -81,4 +82,10 @@ public class OnFormularMax4000Show extends WollMuxEvent
     return this.getClass().getSimpleName() + "(" + documentController.getModel()
         + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
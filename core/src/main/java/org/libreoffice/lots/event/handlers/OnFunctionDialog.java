@@ -38,6 +38,7 @@ import com.sun.star.lang.WrappedTargetException;
 
 import org.libreoffice.ext.unohelper.common.UNO;
 import org.libreoffice.lots.GlobalFunctions;
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.config.ConfigurationErrorException;
 import org.libreoffice.lots.dialog.Dialog;
@@ -209,4 +210,10 @@ public class OnFunctionDialog extends WollMuxEvent
       enableAllOOoWindows(true);
     }
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.dialog.InfoDialog;
 import org.libreoffice.lots.document.DocumentManager;
@@ -107,4 +108,10 @@ public class OnJumpToMark extends WollMuxEvent
     return this.getClass().getSimpleName() + "(#" + doc.hashCode() + ", " + msg
         + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(doc);
+  }
 }
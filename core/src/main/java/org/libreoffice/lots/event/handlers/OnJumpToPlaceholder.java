@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.TextModule;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.TextDocumentController;
@@ -71,4 +72,10 @@ public class OnJumpToPlaceholder extends WollMuxEvent
     return this.getClass().getSimpleName() + "(" + documentController.getModel()
         + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.DocumentManager;
 import org.libreoffice.lots.document.TextDocumentController;
@@ -76,4 +77,10 @@ public class OnManagePrintFunction extends WollMuxEvent
     return this.getClass().getSimpleName() + "(#" + doc.hashCode() + ", '"
         + functionName + "', remove=" + remove + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(doc);
+  }
 }
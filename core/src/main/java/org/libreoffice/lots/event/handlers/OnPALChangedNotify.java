@@ -0,0 +1,57 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.event.handlers;
+
+import org.libreoffice.lots.WollMuxFehlerException;
+
+/**
+ * Event for notifying the listeners of the personal sender list, after the list has been changed
+ * in the background.
+ */
+public class OnPALChangedNotify extends WollMuxEvent
+{
+  private final Runnable notification;
+
+  /**
+   * Create this event.
+   *
+   * @param notification
+   *          Notifies the listeners.
+   */
+  public OnPALChangedNotify(Runnable notification)
+  {
+    this.notification = notification;
+  }
+
+  @Override
+  protected void doit() throws WollMuxFehlerException
+  {
+    notification.run();
+  }
+
+  @Override
+  public Object getCoalescingKey()
+  {
+    return OnPALChangedNotify.class;
+  }
+}
@@ -36,6 +36,7 @@ import org.libreoffice.ext.unohelper.common.UnoProps;
 import org.libreoffice.ext.unohelper.util.UnoConfiguration;
 import org.libreoffice.ext.unohelper.util.UnoProperty;
 import org.libreoffice.ext.unohelper.util.UnoService;
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.TextDocumentController;
 
@@ -118,4 +119,10 @@ public class OnPrintPage extends WollMuxEvent
           UnoProperty.EMPTY_PAGES);
     }
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
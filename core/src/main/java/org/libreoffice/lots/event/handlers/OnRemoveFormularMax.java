@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.DocumentManager;
 import org.libreoffice.lots.document.TextDocumentController;
@@ -51,4 +52,10 @@ public class OnRemoveFormularMax extends WollMuxEvent
     DocumentManager.getDocumentManager()
         .setCurrentFormularMax4000(documentController.getModel().doc, null);
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
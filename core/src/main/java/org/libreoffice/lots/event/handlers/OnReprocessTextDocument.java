@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.WollMuxFiles;
 import org.libreoffice.lots.document.TextDocumentController;
@@ -82,4 +83,10 @@ public class OnReprocessTextDocument extends WollMuxEvent
   {
     return this.getClass().getSimpleName() + "(" + model + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
@@ -39,6 +39,7 @@ import com.sun.star.uno.AnyConverter;
 import org.libreoffice.ext.unohelper.common.UNO;
 import org.libreoffice.ext.unohelper.util.UnoComponent;
 import org.libreoffice.ext.unohelper.util.UnoProperty;
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.config.ConfigThingy;
 import org.libreoffice.lots.config.ConfigurationErrorException;
@@ -176,4 +177,10 @@ public class OnSaveAs extends WollMuxEvent
     return this.getClass().getSimpleName() + "(" + documentController.getModel()
         + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
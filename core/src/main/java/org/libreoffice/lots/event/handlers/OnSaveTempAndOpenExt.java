@@ -26,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.libreoffice.ext.unohelper.common.UNO;
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.OpenExt;
 import org.libreoffice.lots.WollMuxFiles;
 import org.libreoffice.lots.document.TextDocumentController;
@@ -79,4 +80,10 @@ public class OnSaveTempAndOpenExt extends WollMuxEvent
         + documentController.getModel().hashCode() + ", " + ext
         + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
@@ -23,7 +23,12 @@
 package org.libreoffice.lots.event.handlers;
 
 import java.awt.event.ActionListener;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.DocumentManager;
 import org.libreoffice.lots.document.TextDocumentController;
@@ -39,9 +44,7 @@ public class OnSetFormValue extends WollMuxEvent
 {
   private XTextDocument doc;
 
-  private String id;
-
-  private String value;
+  private Map<String, String> values;
 
   private final ActionListener listener;
 
@@ -59,10 +62,25 @@ public class OnSetFormValue extends WollMuxEvent
    */
   public OnSetFormValue(XTextDocument doc, String id, String value,
       ActionListener listener)
+  {
+    this(doc, Collections.singletonMap(id, value), listener);
+  }
+
+  /**
+   * Create this event for several fields, which are updated together. Depending fields are
+   * computed once for all values.
+   *
+   * @param doc
+   *          The document.
+   * @param values
+   *          Mapping from the IDs of the fields to their new values.
+   * @param listener
+   *          A listener to notify after processing is finished.
+   */
+  public OnSetFormValue(XTextDocument doc, Map<String, String> values, ActionListener listener)
   {
     this.doc = doc;
-    this.id = id;
-    this.value = value;
+    this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
     this.listener = listener;
   }
 
@@ -72,24 +90,46 @@ public class OnSetFormValue extends WollMuxEvent
     TextDocumentController documentController = DocumentManager.getTextDocumentController(doc);
 
     FormController formModel = DocumentManager.getDocumentManager().getFormController(doc);
-    if (formModel != null && formModel.hasFieldId(id))
-    {
-      formModel.setValue(id, value, e -> new OnSetFormValueFinished(listener).emit());
-    } else
-    {
-      documentController.addFormFieldValue(id, value);
-      if (listener != null)
+    Map<String, String> formValues = new LinkedHashMap<>();
+    Map<String, String> documentValues = new LinkedHashMap<>();
+    values.forEach((id, value) -> {
+      if (formModel != null && formModel.hasFieldId(id))
+      {
+        formValues.put(id, value);
+      } else
       {
-        listener.actionPerformed(null);
+        documentValues.put(id, value);
       }
+    });
+
+    if (!documentValues.isEmpty())
+    {
+      documentController.addFormFieldValues(documentValues);
     }
+    if (!formValues.isEmpty())
+    {
+      formModel.setValues(formValues, e -> new OnSetFormValueFinished(doc, listener).emit());
+    } else if (listener != null)
+    {
+      listener.actionPerformed(null);
+    }
+  }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(doc);
+  }
+
+  @Override
+  public Object getCoalescingKey()
+  {
+    return listener == null ? List.of(OnSetFormValue.class, values.keySet()) : null;
   }
 
   @Override
   public String toString()
   {
-    return this.getClass().getSimpleName() + "(#" + doc.hashCode() + ", id='"
-        + id
-        + "', value='" + value + "')";
+    return this.getClass().getSimpleName() + "(#" + doc.hashCode() + ", values=" + values + ")";
   }
 }
@@ -24,23 +24,32 @@ package org.libreoffice.lots.event.handlers;
 
 import java.awt.event.ActionListener;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 
+import com.sun.star.text.XTextDocument;
+
 /**
  * Event for notification that the form model as updated all fields.
  */
 public class OnSetFormValueFinished extends WollMuxEvent
 {
+  private XTextDocument doc;
+
   private ActionListener listener;
 
   /**
    * Create this event.
    *
+   * @param doc
+   *          The document. The listener is notified after all pending events of the document have
+   *          been processed.
    * @param unlockActionListener
    *          The listener to notify.
    */
-  public OnSetFormValueFinished(ActionListener unlockActionListener)
+  public OnSetFormValueFinished(XTextDocument doc, ActionListener unlockActionListener)
   {
+    this.doc = doc;
     this.listener = unlockActionListener;
   }
 
@@ -51,6 +60,12 @@ public class OnSetFormValueFinished extends WollMuxEvent
       listener.actionPerformed(null);
   }
 
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(doc);
+  }
+
   @Override
   public String toString()
   {
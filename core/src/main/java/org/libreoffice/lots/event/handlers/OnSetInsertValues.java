@@ -25,6 +25,7 @@ package org.libreoffice.lots.event.handlers;
 import java.awt.event.ActionListener;
 import java.util.Map;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.DocumentManager;
 import org.libreoffice.lots.document.TextDocumentController;
@@ -113,4 +114,10 @@ public class OnSetInsertValues extends WollMuxEvent
     return this.getClass().getSimpleName() + "(#" + doc.hashCode()
         + ", Nr.Values=" + mapDbSpalteToValue.size() + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(doc);
+  }
 }
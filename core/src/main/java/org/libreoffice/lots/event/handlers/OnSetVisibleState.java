@@ -23,7 +23,12 @@
 package org.libreoffice.lots.event.handlers;
 
 import java.awt.event.ActionListener;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.document.TextDocumentController;
 
 /**
@@ -31,9 +36,7 @@ import org.libreoffice.lots.document.TextDocumentController;
  */
 public class OnSetVisibleState extends WollMuxEvent
 {
-  private String groupId;
-
-  private boolean visible;
+  private Map<String, Boolean> states;
 
   private ActionListener listener;
 
@@ -54,10 +57,25 @@ public class OnSetVisibleState extends WollMuxEvent
   public OnSetVisibleState(TextDocumentController documentController,
       String groupId,
       boolean visible, ActionListener listener)
+  {
+    this(documentController, Collections.singletonMap(groupId, visible), listener);
+  }
+
+  /**
+   * Create this event for several groups, which are updated together.
+   *
+   * @param documentController
+   *          The document.
+   * @param states
+   *          Mapping from the IDs of the visibility groups to their new states.
+   * @param listener
+   *          The listener to notify after completion.
+   */
+  public OnSetVisibleState(TextDocumentController documentController,
+      Map<String, Boolean> states, ActionListener listener)
   {
     this.documentController = documentController;
-    this.groupId = groupId;
-    this.visible = visible;
+    this.states = Collections.unmodifiableMap(new LinkedHashMap<>(states));
     this.listener = listener;
   }
 
@@ -69,15 +87,26 @@ public class OnSetVisibleState extends WollMuxEvent
   @Override
   protected void doit()
   {
-    documentController.setVisibleState(groupId, visible);
+    documentController.setVisibleStates(states);
     if (listener != null)
       listener.actionPerformed(null);
   }
 
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
+
+  @Override
+  public Object getCoalescingKey()
+  {
+    return listener == null ? List.of(OnSetVisibleState.class, states.keySet()) : null;
+  }
+
   @Override
   public String toString()
   {
-    return this.getClass().getSimpleName() + "('" + groupId + "', " + visible
-        + ")";
+    return this.getClass().getSimpleName() + "(" + states + ")";
   }
 }
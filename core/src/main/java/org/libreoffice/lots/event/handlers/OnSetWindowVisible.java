@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.document.TextDocumentController;
 
 /**
@@ -59,4 +60,10 @@ public class OnSetWindowVisible extends WollMuxEvent
   {
     return this.getClass().getSimpleName() + "(" + visible + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.DocumentManager;
 import org.libreoffice.lots.document.TextDocumentModel;
@@ -31,18 +32,23 @@ import org.libreoffice.lots.document.TextDocumentModel;
  */
 public class OnTextDocumentClosed extends WollMuxEvent
 {
+  private Object doc;
+
   private DocumentManager.Info docInfo;
 
   /**
    * Creates this event.
    *
+   * @param doc
+   *          The closed document.
    * @param docInfo
    *          The {@link DocumentManager.Info} of the document. It isn't necessary that there's
    *          always a {@link TextDocumentModel}, because
    *          {@link DocumentManager.Info#hasTextDocumentModel()} is called.
    */
-  public OnTextDocumentClosed(DocumentManager.Info docInfo)
+  public OnTextDocumentClosed(Object doc, DocumentManager.Info docInfo)
   {
+    this.doc = doc;
     this.docInfo = docInfo;
   }
 
@@ -59,4 +65,10 @@ public class OnTextDocumentClosed extends WollMuxEvent
           .dispose(docInfo.getTextDocumentController().getModel().doc);
     }
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(doc);
+  }
 }
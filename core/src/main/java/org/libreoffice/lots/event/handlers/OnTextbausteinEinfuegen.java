@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.event.handlers;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.TextModule;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.dialog.InfoDialog;
@@ -67,7 +68,7 @@ public class OnTextbausteinEinfuegen extends WollMuxEvent
     try
     {
       TextModule.createInsertFragFromIdentifier(
-          documentController.getModel().doc, viewCursor, reprocess);
+          documentController.getModel(), viewCursor, reprocess);
       if (reprocess)
       {
         new OnReprocessTextDocument(documentController).emit();
@@ -88,4 +89,10 @@ public class OnTextbausteinEinfuegen extends WollMuxEvent
     return this.getClass().getSimpleName() + "(" + documentController.getModel()
         + ", " + reprocess + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
@@ -68,6 +68,33 @@ public abstract class WollMuxEvent
     WollMuxEventHandler.getInstance().handle(this);
   }
 
+  /**
+   * Events with the same dispatch key are processed in the order they were emitted, if the
+   * {@link WollMuxEventHandler} works asynchronously. Events with different keys may be processed
+   * concurrently. Events which access a document have to return the document, because the
+   * controller of the document isn't thread safe.
+   *
+   * @return The key or null, if the event has to be ordered with all other global events.
+   */
+  public Object getDispatchKey()
+  {
+    return null;
+  }
+
+  /**
+   * If the {@link WollMuxEventHandler} works asynchronously, a queued event is replaced if another
+   * event with the same dispatch key and an equal coalescing key is emitted. The newer event is
+   * processed at the position of the older one. Events should only
+   * return a key, if the newer event makes the older one obsolete and nobody waits for the older
+   * one.
+   *
+   * @return The key or null, if the event must not be dropped.
+   */
+  public Object getCoalescingKey()
+  {
+    return null;
+  }
+
   @Override
   public String toString()
   {
@@ -29,11 +29,11 @@ import java.util.Optional;
 
 import org.libreoffice.lots.config.ConfigurationErrorException;
 import org.libreoffice.lots.dialog.DialogLibrary;
+import org.libreoffice.lots.func.EvaluationCache;
 import org.libreoffice.lots.func.Function;
 import org.libreoffice.lots.func.FunctionFactory;
 import org.libreoffice.lots.func.FunctionLibrary;
 import org.libreoffice.lots.func.Values;
-import org.libreoffice.lots.func.Values.SimpleMap;
 import org.libreoffice.lots.ui.UIElementConfig;
 import org.libreoffice.lots.ui.UIElementType;
 
@@ -116,7 +116,8 @@ public class Control
     type = conf.getType();
     try
     {
-      plausi = FunctionFactory.parseGrandchildren(conf.getPlausi(), funcLib, dialogLib, functionContext);
+      plausi = FunctionFactory
+          .compile(FunctionFactory.parseGrandchildren(conf.getPlausi(), funcLib, dialogLib, functionContext));
       if (plausi == null)
       {
         plausi = FunctionFactory.alwaysTrueFunction();
@@ -128,7 +129,8 @@ public class Control
     try
     {
       autofill = Optional
-          .ofNullable(FunctionFactory.parseGrandchildren(conf.getAutofill(), funcLib, dialogLib, functionContext));
+          .ofNullable(FunctionFactory
+              .compile(FunctionFactory.parseGrandchildren(conf.getAutofill(), funcLib, dialogLib, functionContext)));
     } catch (ConfigurationErrorException e)
     {
       autofill = Optional.empty();
@@ -167,6 +169,19 @@ public class Control
     okay = plausi.getBoolean(values);
   }
 
+  /**
+   * Check if the control is valid based on the given values.
+   *
+   * @param values
+   *          The form values.
+   * @param cache
+   *          The cache of the current update.
+   */
+  public void setOkay(Values values, EvaluationCache cache)
+  {
+    okay = cache.getBoolean(plausi, values);
+  }
+
   public Optional<Function> getAutofill()
   {
     return autofill;
@@ -220,6 +235,16 @@ public class Control
     }
   }
 
+  public List<Control> getDependingAutoFillFormFields()
+  {
+    return dependingAutoFillFormFields;
+  }
+
+  public List<Control> getDependingPlausiFormFields()
+  {
+    return dependingPlausiFormFields;
+  }
+
   /**
    * Add a dependency for an AUTOFILL function.
    *
@@ -242,34 +267,6 @@ public class Control
     dependingPlausiFormFields.add(control);
   }
 
-  /**
-   * Compute the value of all dependent fields. The value is only computed once for each control.
-   *
-   * @param value
-   *          The new value of this control.
-   * @param values
-   *          The values of all fields.
-   * @param modified
-   *          Already computed fields.
-   */
-  public void computeNewValues(String value, SimpleMap values, SimpleMap modified)
-  {
-    modified.put(id, value);
-    SimpleMap newValues = new SimpleMap(values);
-    newValues.putAll(modified);
-    for (Control control : dependingAutoFillFormFields)
-    {
-      if (!modified.hasValue(control.id))
-      {
-        String v = control.computeValue(newValues);
-        if (v != null)
-        {
-          control.computeNewValues(v, newValues, modified);
-        }
-      }
-    }
-  }
-
   /**
    * Compute the value of the control based on {@link #autofill} and the provided values. The value
    * has to be set with {@link #setValue(String)}.
@@ -279,7 +276,7 @@ public class Control
    * @return The result of the AUTOFILL function if there's one. Otherwise the first option if it's
    *         a {@link UIElementType#COMBOBOX} or the empty string.
    */
-  public String computeValue(SimpleMap values)
+  public String computeValue(Values values)
   {
     if (autofill.isPresent())
       return autofill.get().getResult(values);
@@ -289,6 +286,24 @@ public class Control
       return "";
   }
 
+  /**
+   * Compute the value of the control like {@link #computeValue(Values)}, but reuse the results of
+   * functions already computed during the current update.
+   *
+   * @param values
+   *          The values of the model.
+   * @param cache
+   *          The cache of the current update.
+   * @return The result of the AUTOFILL function if there's one. Otherwise the first option if it's
+   *         a {@link UIElementType#COMBOBOX} or the empty string.
+   */
+  public String computeValue(Values values, EvaluationCache cache)
+  {
+    if (autofill.isPresent())
+      return cache.getResult(autofill.get(), values);
+    return computeValue(values);
+  }
+
   /**
    * Is this control visible?
    *
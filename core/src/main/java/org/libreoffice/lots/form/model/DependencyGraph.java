@@ -0,0 +1,233 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.form.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.libreoffice.lots.func.EvaluationCache;
+import org.libreoffice.lots.func.Values;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The dependencies between the controls of a form. The controls are sorted topologically by their
+ * AUTOFILL functions, so that a changed value can be propagated by evaluating each depending
+ * control at most once and only after all controls it depends on.
+ */
+class DependencyGraph
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(DependencyGraph.class);
+
+  /**
+   * Position of each control in the topological order.
+   */
+  private final Map<Control, Integer> rank = new HashMap<>();
+
+  /**
+   * Create the graph. The dependencies of the controls have to be known.
+   *
+   * @param controls
+   *          All controls of the form.
+   */
+  DependencyGraph(Collection<Control> controls)
+  {
+    Map<Control, Integer> inDegree = new HashMap<>();
+    controls.forEach(c -> inDegree.put(c, 0));
+    for (Control control : controls)
+    {
+      for (Control dependent : control.getDependingAutoFillFormFields())
+      {
+        inDegree.merge(dependent, 1, Integer::sum);
+      }
+    }
+
+    Queue<Control> ready = new ArrayDeque<>();
+    for (Control control : controls)
+    {
+      if (inDegree.get(control) == 0)
+      {
+        ready.add(control);
+      }
+    }
+    while (!ready.isEmpty())
+    {
+      Control control = ready.poll();
+      rank.put(control, rank.size());
+      for (Control dependent : control.getDependingAutoFillFormFields())
+      {
+        if (inDegree.merge(dependent, -1, Integer::sum) == 0)
+        {
+          ready.add(dependent);
+        }
+      }
+    }
+
+    for (Control control : controls)
+    {
+      if (!rank.containsKey(control))
+      {
+        LOGGER.warn("AUTOFILL von {} hat zyklische Abhängigkeiten", control.getId());
+        rank.put(control, rank.size());
+      }
+    }
+  }
+
+  /**
+   * Set the value of a control and recompute all depending values, states and visibilities.
+   *
+   * @param source
+   *          The control whose value changes.
+   * @param value
+   *          The new value.
+   * @param values
+   *          A view of the current values of all controls.
+   * @return The controls and groups which have changed.
+   */
+  Changes update(Control source, String value, Values values)
+  {
+    return update(Collections.singletonMap(source, value), values);
+  }
+
+  /**
+   * Set the values of several controls and recompute all depending values, states and
+   * visibilities in one pass. Each depending control is evaluated at most once, no matter how many
+   * of the controls it depends on have changed. A control whose value is set explicitly keeps this
+   * value, even if its AUTOFILL depends on another of the controls.
+   *
+   * @param sources
+   *          Mapping from the controls whose values change to their new values.
+   * @param values
+   *          A view of the current values of all controls.
+   * @return The controls and groups which have changed.
+   */
+  Changes update(Map<Control, String> sources, Values values)
+  {
+    Changes changes = new Changes();
+    EvaluationCache cache = new EvaluationCache();
+    Set<Control> visited = new HashSet<>();
+    PriorityQueue<Control> dirty = new PriorityQueue<>(Comparator.comparing(rank::get));
+    sources.forEach((source, value) -> {
+      source.setValue(value);
+      changes.values.add(source);
+      visited.add(source);
+      dirty.addAll(source.getDependingAutoFillFormFields());
+    });
+    while (!dirty.isEmpty())
+    {
+      Control control = dirty.poll();
+      if (!visited.add(control))
+      {
+        continue;
+      }
+      String v = control.computeValue(values, cache);
+      if (v != null && !v.equals(control.getValue()))
+      {
+        control.setValue(v);
+        changes.values.add(control);
+        dirty.addAll(control.getDependingAutoFillFormFields());
+      }
+    }
+
+    Set<Control> changed = new HashSet<>(changes.values);
+    Set<Control> plausis = new LinkedHashSet<>();
+    Set<VisibilityGroup> groups = new LinkedHashSet<>();
+    for (Control control : changes.values)
+    {
+      plausis.addAll(control.getDependingPlausiFormFields());
+      groups.addAll(control.getDependingGroups());
+    }
+    for (Control control : plausis)
+    {
+      boolean okay = control.isOkay();
+      control.setOkay(values, cache);
+      if (okay != control.isOkay() || changed.contains(control))
+      {
+        changes.states.add(control);
+      }
+    }
+    for (VisibilityGroup group : groups)
+    {
+      boolean visible = group.isVisible();
+      group.computeVisibility(values, cache);
+      if (visible != group.isVisible())
+      {
+        changes.groups.add(group);
+      }
+    }
+    if (LOGGER.isDebugEnabled())
+    {
+      LOGGER.debug("Änderung von {}: {}",
+          sources.keySet().stream().map(Control::getId).collect(Collectors.joining(", ")), cache);
+    }
+    return changes;
+  }
+
+  /**
+   * The result of {@link DependencyGraph#update(Map, Values)}.
+   */
+  static class Changes
+  {
+    private final List<Control> values = new ArrayList<>();
+
+    private final List<Control> states = new ArrayList<>();
+
+    private final List<VisibilityGroup> groups = new ArrayList<>();
+
+    /**
+     * @return The controls with a new value in the order they were computed.
+     */
+    List<Control> getValues()
+    {
+      return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * @return The controls whose state has to be shown again.
+     */
+    List<Control> getStates()
+    {
+      return Collections.unmodifiableList(states);
+    }
+
+    /**
+     * @return The groups whose visibility has changed.
+     */
+    List<VisibilityGroup> getGroups()
+    {
+      return Collections.unmodifiableList(groups);
+    }
+  }
+}
@@ -38,9 +38,9 @@ import org.libreoffice.lots.form.config.FormConfig;
 import org.libreoffice.lots.form.config.TabConfig;
 import org.libreoffice.lots.form.config.VisibilityGroupConfig;
 import org.libreoffice.lots.form.sidebar.FormSidebarController;
+import org.libreoffice.lots.func.EvaluationCache;
 import org.libreoffice.lots.func.FunctionLibrary;
 import org.libreoffice.lots.func.Values;
-import org.libreoffice.lots.func.Values.SimpleMap;
 import org.libreoffice.lots.ui.UIElementConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,6 +83,16 @@ public class FormModel
    */
   private Map<String, List<Control>> mapDialogNameToListOfControlsWithDependingAutofill = new HashMap<>();
 
+  /**
+   * View of the current values of all controls. Used as parameter of all functions.
+   */
+  private final Values values = new ControlValues();
+
+  /**
+   * The dependencies between the controls.
+   */
+  private DependencyGraph dependencyGraph;
+
   /**
    * Instance of TextDocumentController.
    */
@@ -144,6 +154,7 @@ public class FormModel
     {
       storeDepsForFormField(control);
     }
+    dependencyGraph = new DependencyGraph(formControls.values());
 
     this.initControls(presetValues);
   }
@@ -155,8 +166,8 @@ public class FormModel
    */
   private void initControls(Map<String, String> presetValues)
   {
+    EvaluationCache cache = new EvaluationCache();
     // Initialize controls with preset values or AUTOFILL function
-    SimpleMap values = idToValue();
     for (Control control : formControls.values())
     {
       String value = "";
@@ -165,24 +176,24 @@ public class FormModel
         value = presetValues.get(control.getId());
       } else
       {
-        value = control.computeValue(values);
+        value = control.computeValue(values, cache);
       }
       if (!value.equals(control.getValue()))
       {
         txtDocController.setValueChanged(control.getId(), value);
         control.setValue(value);
-        values.put(control.getId(), value);
       }
     }
 
     for (Control control : formControls.values())
     {
-      control.setOkay(values);
+      control.setOkay(values, cache);
     }
     for (VisibilityGroup group : visiblities.values())
     {
-      storeDepsForVisibility(group);
+      storeDepsForVisibility(group, cache);
     }
+    LOGGER.debug("Initialisierung: {}", cache);
   }
 
   public void setFormSidebarController(FormSidebarController formSidebarController)
@@ -255,8 +266,9 @@ public class FormModel
   }
 
   /**
-   * Set the value of a control and notify the listeners. All depending controls are updated. For
-   * all changed controls the state is computed.
+   * Set the value of a control and notify the listeners. All depending controls are updated in
+   * topological order, each at most once. For all changed controls and the controls whose PLAUSI
+   * depends on them the state is computed. The listeners are only notified about changes.
    *
    * @param id
    *          The ID of the control.
@@ -267,37 +279,68 @@ public class FormModel
   {
     if (formControls.containsKey(id) && !formControls.get(id).getValue().equals(value))
     {
-      Control field = formControls.get(id);
-      SimpleMap modified = new SimpleMap();
-
-      // compute dependent controls
-      field.computeNewValues(value, idToValue(), modified);
-      SimpleMap newValues = idToValue();
-      newValues.putAll(modified);
-      List<VisibilityGroup> modifiedGroups = new ArrayList<>();
+      notifyChanges(dependencyGraph.update(formControls.get(id), value, values));
+    }
+  }
 
-      // update values and notify listener
-      for (Map.Entry<String, String> changedEntries : modified)
+  /**
+   * Set the values of several controls at once and notify the listeners. The depending controls,
+   * states and visibilities are computed in a single pass, so that each of them is updated at most
+   * once. The document gets all changed values with one update.
+   *
+   * @param newValues
+   *          Mapping from the IDs of the controls to their new values. Unknown IDs are ignored.
+   */
+  public void setValues(final Map<String, String> newValues)
+  {
+    Map<Control, String> sources = new LinkedHashMap<>();
+    newValues.forEach((id, value) -> {
+      Control control = formControls.get(id);
+      if (control != null && !control.getValue().equals(value))
       {
-        Control control = formControls.get(changedEntries.getKey());
-        control.setValue(changedEntries.getValue());
-        control.setOkay(newValues);
-        formSidebarController.setFormUiValue(control.getId(), control.getValue());
-        formSidebarController.setControlBackground(control.getId(), control.isOkay(), false);
-        txtDocController.setValueChanged(control.getId(), control.getValue());
-        modifiedGroups.addAll(control.getDependingGroups());
+        sources.put(control, value);
       }
-      modifiedGroups.forEach(g -> g.computeVisibility(newValues));
+    });
+    if (!sources.isEmpty())
+    {
+      notifyChanges(dependencyGraph.update(sources, values));
+    }
+  }
 
-        for (VisibilityGroup g : modifiedGroups)
-        {
-          if (txtDocController != null && formSidebarController != null) {
-            //update vis. in doc
-            txtDocController.setVisibilityChanged(g.getGroupId(), g.isVisible());
-            //update vis in form-ui
-            formSidebarController.visibilityChanged(g.getGroupId());
-          }
-        }
+  /**
+   * Notify the form UI and the document about the changes of an update.
+   *
+   * @param changes
+   *          The changed values, states and visibilities.
+   */
+  private void notifyChanges(DependencyGraph.Changes changes)
+  {
+    Map<String, String> changedValues = new LinkedHashMap<>();
+    for (Control control : changes.getValues())
+    {
+      formSidebarController.setFormUiValue(control.getId(), control.getValue());
+      changedValues.put(control.getId(), control.getValue());
+    }
+    txtDocController.setValuesChanged(changedValues);
+    for (Control control : changes.getStates())
+    {
+      formSidebarController.setControlBackground(control.getId(), control.isOkay(), false);
+    }
+
+    if (txtDocController != null && formSidebarController != null)
+    {
+      // update vis. in doc
+      Map<String, Boolean> visibilities = new LinkedHashMap<>();
+      for (VisibilityGroup g : changes.getGroups())
+      {
+        visibilities.put(g.getGroupId(), g.isVisible());
+      }
+      txtDocController.setVisibilityChanged(visibilities);
+      // update vis in form-ui
+      for (VisibilityGroup g : changes.getGroups())
+      {
+        formSidebarController.visibilityChanged(g.getGroupId());
+      }
     }
   }
 
@@ -373,7 +416,7 @@ public class FormModel
     for (Control c : mapDialogNameToListOfControlsWithDependingAutofill.get(dialogName))
     {
       c.getAutofill()
-          .ifPresent(autofill -> setValue(c.getId(), autofill.getResult(idToValue())));
+          .ifPresent(autofill -> setValue(c.getId(), autofill.getResult(values)));
     }
   }
 
@@ -390,18 +433,29 @@ public class FormModel
   }
 
   /**
-   * Create a mapping from control ID to control value.
-   *
-   * @return A mapping which can be used as function parameter.
+   * A view of the values of the controls, which can be used as function parameter. Changes of the
+   * controls are visible immediately.
    */
-  private SimpleMap idToValue()
+  private class ControlValues implements Values
   {
-    SimpleMap values = new Values.SimpleMap();
-    for (Map.Entry<String, Control> entry : formControls.entrySet())
+    @Override
+    public boolean hasValue(String id)
+    {
+      return formControls.containsKey(id);
+    }
+
+    @Override
+    public String getString(String id)
+    {
+      Control control = formControls.get(id);
+      return control == null ? "" : control.getValue();
+    }
+
+    @Override
+    public boolean getBoolean(String id)
     {
-      values.put(entry.getKey(), entry.getValue().getValue());
+      return "true".equalsIgnoreCase(getString(id));
     }
-    return values;
   }
 
   /**
@@ -460,8 +514,10 @@ public class FormModel
    *
    * @param group
    *          A visibility group.
+   * @param cache
+   *          The cache of the initialization.
    */
-  private void storeDepsForVisibility(VisibilityGroup group)
+  private void storeDepsForVisibility(VisibilityGroup group, EvaluationCache cache)
   {
     String[] deps = group.getCondition().parameters();
     for (int i = 0; i < deps.length; ++i)
@@ -473,7 +529,7 @@ public class FormModel
       }
     }
 
-    group.computeVisibility(idToValue());
+    group.computeVisibility(values, cache);
   }
 
   /**
@@ -27,6 +27,7 @@ import java.util.Map;
 import org.libreoffice.lots.config.ConfigurationErrorException;
 import org.libreoffice.lots.dialog.DialogLibrary;
 import org.libreoffice.lots.form.config.VisibilityGroupConfig;
+import org.libreoffice.lots.func.EvaluationCache;
 import org.libreoffice.lots.func.Function;
 import org.libreoffice.lots.func.FunctionFactory;
 import org.libreoffice.lots.func.FunctionLibrary;
@@ -70,7 +71,8 @@ public class VisibilityGroup
     groupId = conf.getGroupId();
     try
     {
-      condition = FunctionFactory.parseChildren(conf.getCondition(), funcLib, dialogLib, functionContext);
+      condition = FunctionFactory
+          .compile(FunctionFactory.parseChildren(conf.getCondition(), funcLib, dialogLib, functionContext));
       if (condition == null)
       {
         condition = FunctionFactory.alwaysTrueFunction();
@@ -106,4 +108,17 @@ public class VisibilityGroup
   {
     visible = condition.getBoolean(values);
   }
+
+  /**
+   * Compute the visibility of this group.
+   *
+   * @param values
+   *          The form values.
+   * @param cache
+   *          The cache of the current update.
+   */
+  public void computeVisibility(Values values, EvaluationCache cache)
+  {
+    visible = cache.getBoolean(condition, values);
+  }
 }
@@ -998,10 +998,12 @@ public class FormularMax4kController
 
   /**
    * Scannt das Dokument doc durch und erzeugt {@link FormControlModel}s für alle
-   * Formularfelder, die noch kein umschließendes WollMux-Bookmark haben.
+   * Formularfelder, die noch kein umschließendes WollMux-Bookmark haben. Die dabei
+   * erzeugten Bookmarks werden in einem Batch als Dokumentkommandos angemeldet.
    */
   public void scan()
   {
+    documentController.getModel().beginDocumentCommandsBatch();
     try
     {
       formTitle = getTitle();
@@ -1012,6 +1014,10 @@ public class FormularMax4kController
     {
       LOGGER.error("Error during the scanning process", x);
     }
+    finally
+    {
+      documentController.getModel().commitDocumentCommandsBatch();
+    }
   }
 
   public String getTitle()
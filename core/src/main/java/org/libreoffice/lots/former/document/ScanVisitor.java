@@ -291,6 +291,7 @@ public class ScanVisitor implements DocumentTreeVisitor
     try
     {
       bookmarkName = control.surroundWithBookmark(bookmarkName);
+      formularMax4000.getDocumentController().getModel().registerDocumentCommand(bookmarkName);
       InsertionModel imodel = new InsertionModel4InsertXValue(bookmarkName,
           UNO.XBookmarksSupplier(formularMax4000.getDocumentController().getModel().doc),
           formularMax4000.getFunctionSelectionProvider(), formularMax4000);
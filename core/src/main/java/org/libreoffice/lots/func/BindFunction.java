@@ -38,14 +38,16 @@ import org.libreoffice.lots.util.L;
 
 public class BindFunction implements Function
 {
-  private Map<String, Function> mapParamNameToSetFunction = new HashMap<>();
+  Map<String, Function> mapParamNameToSetFunction = new HashMap<>();
 
-  private Function func;
+  Function func;
 
   private String[] params;
 
   private Set<String> functionDialogReferences = new HashSet<>();
 
+  private boolean cacheable;
+
   public BindFunction(Function func, ConfigThingy conf, FunctionLibrary funcLib,
       DialogLibrary dialogLib, Map<Object, Object> context)
   {
@@ -96,6 +98,9 @@ public class BindFunction implements Function
      */
     myParams.addAll(setFuncParams);
     params = myParams.toArray(new String[0]);
+
+    cacheable = func.isCacheable()
+        && mapParamNameToSetFunction.values().stream().allMatch(Function::isCacheable);
   }
 
   @Override
@@ -110,9 +115,21 @@ public class BindFunction implements Function
     set.addAll(functionDialogReferences);
   }
 
+  @Override
+  public boolean isCacheable()
+  {
+    return cacheable;
+  }
+
   @Override
   public String getResult(Values parameters)
   {
+    EvaluationCache cache = parameters == null ? null : parameters.getEvaluationCache();
+    Object[] arguments = cache != null && cacheable ? arguments(parameters) : null;
+    if (arguments != null)
+    {
+      return cache.getResult(func, arguments, parameters);
+    }
     TranslatedValues trans = new TranslatedValues(parameters);
     String res = func.getResult(trans);
     if (trans.hasError) return FunctionLibrary.ERROR;
@@ -122,12 +139,47 @@ public class BindFunction implements Function
   @Override
   public boolean getBoolean(Values parameters)
   {
+    EvaluationCache cache = parameters == null ? null : parameters.getEvaluationCache();
+    Object[] arguments = cache != null && cacheable ? arguments(parameters) : null;
+    if (arguments != null)
+    {
+      return cache.getBoolean(func, arguments, parameters);
+    }
     TranslatedValues trans = new TranslatedValues(parameters);
     boolean res = func.getBoolean(trans);
     if (trans.hasError) return false;
     return res;
   }
 
+  /**
+   * The arguments of the bound function for an {@link EvaluationCache}. All bound values are
+   * computed in advance, which is only done for cacheable functions.
+   *
+   * @return The arguments or null if a value, which isn't bound here, is an error.
+   */
+  private Object[] arguments(Values parameters)
+  {
+    String[] names = func.parameters();
+    Object[] arguments = new Object[names.length];
+    for (int i = 0; i < names.length; i++)
+    {
+      Function setFunc = mapParamNameToSetFunction.get(names[i]);
+      if (setFunc != null)
+      {
+        String res = setFunc.getResult(parameters);
+        arguments[i] = res == FunctionLibrary.ERROR ? EvaluationCache.ERROR_ARGUMENT : res;
+      } else
+      {
+        arguments[i] = EvaluationCache.argument(parameters, names[i]);
+        if (arguments[i] == EvaluationCache.ERROR_ARGUMENT)
+        {
+          return null;
+        }
+      }
+    }
+    return arguments;
+  }
+
   private class TranslatedValues implements Values
   {
     private Values values;
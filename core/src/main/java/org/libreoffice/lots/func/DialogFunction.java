@@ -56,6 +56,13 @@ public class DialogFunction implements Function
     set.add(dialogName);
   }
 
+  @Override
+  public boolean isCacheable()
+  {
+    // The data of the dialog may change at any time.
+    return false;
+  }
+
   @Override
   public String getResult(Values parameters)
   {
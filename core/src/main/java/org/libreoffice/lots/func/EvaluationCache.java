@@ -0,0 +1,357 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.func;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+/**
+ * Remembers the results of functions during one propagation of changed values, e.g. all
+ * AUTOFILLs, PLAUSIs and visibility conditions which depend on a changed form value. A result is
+ * identified by the function instance and the values of its {@link Function#parameters()}. So
+ * the result of a function from the function library, which is used by several TRAFOs or BINDs,
+ * is computed only once for the same values.
+ *
+ * Functions which aren't {@link Function#isCacheable()} are always evaluated. The cache doesn't
+ * notice changes of values, so a new cache has to be used for each propagation. It mustn't be
+ * used by more than one thread.
+ */
+public class EvaluationCache
+{
+  /**
+   * The argument of a bound parameter, whose function returned {@link FunctionLibrary#ERROR}.
+   */
+  static final Object ERROR_ARGUMENT = new Object();
+
+  private final Map<Key, Entry> entries = new HashMap<>();
+
+  private int hits = 0;
+
+  private int misses = 0;
+
+  private int uncached = 0;
+
+  /**
+   * Call {@link Function#getResult(Values)} or reuse a previous result.
+   *
+   * @param func
+   *          The function.
+   * @param values
+   *          The parameters of the function.
+   * @return The result of the function.
+   */
+  public String getResult(Function func, Values values)
+  {
+    Object[] arguments = func.isCacheable() ? arguments(func, values) : null;
+    if (arguments == null)
+    {
+      uncached++;
+      return func.getResult(new Arguments(ArrayUtils.EMPTY_STRING_ARRAY,
+          ArrayUtils.EMPTY_OBJECT_ARRAY, values));
+    }
+    return getResult(func, arguments, values);
+  }
+
+  /**
+   * Call {@link Function#getBoolean(Values)} or reuse a previous result.
+   *
+   * @param func
+   *          The function.
+   * @param values
+   *          The parameters of the function.
+   * @return The result of the function.
+   */
+  public boolean getBoolean(Function func, Values values)
+  {
+    Object[] arguments = func.isCacheable() ? arguments(func, values) : null;
+    if (arguments == null)
+    {
+      uncached++;
+      return func.getBoolean(new Arguments(ArrayUtils.EMPTY_STRING_ARRAY,
+          ArrayUtils.EMPTY_OBJECT_ARRAY, values));
+    }
+    return getBoolean(func, arguments, values);
+  }
+
+  /**
+   * Get the result of a cacheable function.
+   *
+   * @param func
+   *          The function.
+   * @param arguments
+   *          The values of the parameters of the function in the same order as
+   *          {@link Function#parameters()}. Null if there's no value, {@link #ERROR_ARGUMENT} if
+   *          the value is bound to a function, which returned an error.
+   * @param values
+   *          Provides all other values.
+   * @return The result of the function or {@link FunctionLibrary#ERROR} if the function read an
+   *         {@link #ERROR_ARGUMENT}.
+   */
+  String getResult(Function func, Object[] arguments, Values values)
+  {
+    Entry entry = entries.computeIfAbsent(new Key(func, arguments), k -> new Entry());
+    if (entry.result != null)
+    {
+      hits++;
+      return entry.result;
+    }
+    misses++;
+    Arguments args = new Arguments(func.parameters(), arguments, values);
+    String res = func.getResult(args);
+    entry.result = args.error ? FunctionLibrary.ERROR : res;
+    return entry.result;
+  }
+
+  /**
+   * Get the result of a cacheable function as boolean.
+   *
+   * @see #getResult(Function, Object[], Values)
+   */
+  boolean getBoolean(Function func, Object[] arguments, Values values)
+  {
+    Entry entry = entries.computeIfAbsent(new Key(func, arguments), k -> new Entry());
+    if (entry.bool != null)
+    {
+      hits++;
+      return entry.bool;
+    }
+    misses++;
+    Arguments args = new Arguments(func.parameters(), arguments, values);
+    boolean res = func.getBoolean(args);
+    entry.bool = !args.error && res;
+    return entry.bool;
+  }
+
+  /**
+   * The argument of a parameter, which isn't bound by the caller.
+   *
+   * @return The value, null if there's no value or {@link #ERROR_ARGUMENT} if the value is bound
+   *         to an error by a surrounding BIND. An error mustn't be read before the function
+   *         needs it, so such a function can't be cached.
+   */
+  static Object argument(Values values, String id)
+  {
+    if (values instanceof Arguments)
+    {
+      return ((Arguments) values).peek(id);
+    }
+    return values.hasValue(id) ? values.getString(id) : null;
+  }
+
+  /**
+   * The arguments of all parameters of a function.
+   *
+   * @return The arguments or null if one of them is {@link #ERROR_ARGUMENT}.
+   */
+  private static Object[] arguments(Function func, Values values)
+  {
+    String[] params = func.parameters();
+    Object[] arguments = new Object[params.length];
+    for (int i = 0; i < params.length; i++)
+    {
+      arguments[i] = argument(values, params[i]);
+      if (arguments[i] == ERROR_ARGUMENT)
+      {
+        return null;
+      }
+    }
+    return arguments;
+  }
+
+  /**
+   * Get the number of results, which have been reused.
+   *
+   * @return The number of hits.
+   */
+  public int getHits()
+  {
+    return hits;
+  }
+
+  /**
+   * Get the number of results, which have been computed and remembered.
+   *
+   * @return The number of misses.
+   */
+  public int getMisses()
+  {
+    return misses;
+  }
+
+  /**
+   * Get the number of evaluations of functions which aren't cacheable.
+   *
+   * @return The number of uncached evaluations.
+   */
+  public int getUncached()
+  {
+    return uncached;
+  }
+
+  /**
+   * Get the share of reused results among all evaluations.
+   *
+   * @return A number between 0 and 1.
+   */
+  public double getHitRate()
+  {
+    int total = hits + misses + uncached;
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("EvaluationCache [hits=%d, misses=%d, uncached=%d, hit rate=%.1f%%]",
+        hits, misses, uncached, getHitRate() * 100);
+  }
+
+  private static final class Key
+  {
+    private final Function func;
+
+    private final Object[] arguments;
+
+    private final int hash;
+
+    private Key(Function func, Object[] arguments)
+    {
+      this.func = func;
+      this.arguments = arguments;
+      this.hash = 31 * System.identityHashCode(func) + Arrays.hashCode(arguments);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (this == obj)
+      {
+        return true;
+      }
+      if (!(obj instanceof Key))
+      {
+        return false;
+      }
+      Key other = (Key) obj;
+      return func == other.func && hash == other.hash
+          && Arrays.equals(arguments, other.arguments);
+    }
+  }
+
+  private static final class Entry
+  {
+    private String result;
+
+    private Boolean bool;
+  }
+
+  /**
+   * The values passed to a function on a cache miss. The arguments are read only once to build
+   * the key. Other ids are passed to the surrounding values.
+   */
+  private final class Arguments implements Values
+  {
+    private final String[] names;
+
+    private final Object[] arguments;
+
+    private final Values values;
+
+    private boolean error = false;
+
+    private Arguments(String[] names, Object[] arguments, Values values)
+    {
+      this.names = names;
+      this.arguments = arguments;
+      this.values = values;
+    }
+
+    private int indexOf(String id)
+    {
+      for (int i = 0; i < names.length; i++)
+      {
+        if (names[i].equals(id))
+        {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private Object peek(String id)
+    {
+      int i = indexOf(id);
+      return i < 0 ? argument(values, id) : arguments[i];
+    }
+
+    @Override
+    public boolean hasValue(String id)
+    {
+      int i = indexOf(id);
+      return i < 0 ? values.hasValue(id) : arguments[i] != null;
+    }
+
+    @Override
+    public String getString(String id)
+    {
+      int i = indexOf(id);
+      if (i < 0)
+      {
+        return values.getString(id);
+      }
+      Object arg = arguments[i];
+      if (arg == ERROR_ARGUMENT)
+      {
+        error = true;
+        return "";
+      }
+      return arg == null ? "" : (String) arg;
+    }
+
+    @Override
+    public boolean getBoolean(String id)
+    {
+      int i = indexOf(id);
+      if (i < 0)
+      {
+        return values.getBoolean(id);
+      }
+      return "true".equalsIgnoreCase(getString(id));
+    }
+
+    @Override
+    public EvaluationCache getEvaluationCache()
+    {
+      return EvaluationCache.this;
+    }
+  }
+}
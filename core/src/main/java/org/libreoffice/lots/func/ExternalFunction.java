@@ -22,9 +22,14 @@
  */
 package org.libreoffice.lots.func;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -37,11 +42,18 @@ import com.sun.star.uno.AnyConverter;
 import org.libreoffice.ext.unohelper.common.UNO;
 import org.libreoffice.lots.config.ConfigThingy;
 import org.libreoffice.lots.config.ConfigurationErrorException;
+import org.libreoffice.lots.db.LRUCache;
 import org.libreoffice.lots.util.L;
 
 /**
  * An external described by a ConfigThingy (i.e. not as a ConfigThingy
  * defined) function.
+ *
+ * Static Java methods are bound to a {@link MethodHandle} when the function is
+ * created. The optional entries CACHE_SIZE (number of entries) and CACHE_TTL
+ * (time to live in seconds, default 300) enable a cache of the results, which
+ * is keyed by the arguments. It should only be used for functions whose result
+ * depends on nothing else, e.g. Basic macros doing a conversion.
  */
 public class ExternalFunction
 {
@@ -49,6 +61,32 @@ public class ExternalFunction
   private static final Logger LOGGER = LoggerFactory
       .getLogger(ExternalFunction.class);
 
+  private static final long DEFAULT_CACHE_TTL = 300;
+
+  private static final ExternalFunctionMetrics METRICS = new ExternalFunctionMetrics();
+
+  /**
+   * Up to this number of parameters the Java method is called without an
+   * argument array.
+   */
+  private static final int MAX_DIRECT_PARAMS = 3;
+
+  /**
+   * The URL of the function.
+   */
+  private String url;
+
+  /**
+   * The statistics of this function.
+   */
+  private ExternalFunctionMetrics.FunctionMetrics metrics;
+
+  /**
+   * The number of calls used for sampling the latency. Lost updates don't
+   * matter.
+   */
+  private int calls = 0;
+
   /**
    * If the function is a Scripting Framework function, here is it
    * Reference saved to the script.
@@ -61,6 +99,22 @@ public class ExternalFunction
    */
   private Method method = null;
 
+  /**
+   * If the function is a static Java method, which can be accessed by a
+   * {@link MethodHandle}, this handle calls it with the arguments as Objects.
+   */
+  private MethodHandle handle = null;
+
+  /**
+   * Calls {@link #handle} with the arguments as array.
+   */
+  private MethodHandle spreader = null;
+
+  /**
+   * The cache of the results or null if they aren't cached.
+   */
+  private LRUCache<List<Object>, Object> resultCache = null;
+
   /**
    * The names of the parameters that the function expects.
    */
@@ -92,7 +146,8 @@ public class ExternalFunction
         ? this.getClass().getClassLoader()
         : classLoader;
 
-    String url = conf.getString("URL");
+    url = conf.getString("URL");
+    metrics = METRICS.forFunction(String.valueOf(url));
 
     try
     {
@@ -118,6 +173,9 @@ public class ExternalFunction
           throw new ConfigurationErrorException(L.m(
             "Class \"{0}\" contains no PUBLIC method called \"{1}", classStr,
             methodStr));
+        handle = bind(method);
+        if (handle != null)
+          spreader = handle.asSpreader(Object[].class, method.getParameterCount());
       }
       else
       {
@@ -143,6 +201,78 @@ public class ExternalFunction
     }
 
     params = paramList.toArray(new String[] {});
+
+    int cacheSize = (int) parseCacheConfig(conf, "CACHE_SIZE", 0);
+    if (cacheSize > 0)
+    {
+      long cacheTtl = parseCacheConfig(conf, "CACHE_TTL", DEFAULT_CACHE_TTL) * 1000;
+      resultCache = new LRUCache<>(cacheSize, cacheTtl);
+    }
+  }
+
+  /**
+   * Create a handle for a static method, which takes Objects and returns an
+   * Object.
+   *
+   * @return The handle or null if the method can only be called by reflection.
+   */
+  private static MethodHandle bind(Method method)
+  {
+    if (!Modifier.isStatic(method.getModifiers()))
+    {
+      return null;
+    }
+    try
+    {
+      return MethodHandles.publicLookup().unreflect(method).asFixedArity()
+          .asType(MethodType.genericMethodType(method.getParameterCount()));
+    } catch (IllegalAccessException e)
+    {
+      LOGGER.debug("Method {} is called by reflection", method, e);
+      return null;
+    }
+  }
+
+  private static long parseCacheConfig(ConfigThingy conf, String key, long defaultValue)
+  {
+    String value = conf.getString(key);
+    if (value == null)
+    {
+      return defaultValue;
+    }
+    try
+    {
+      long number = Long.parseLong(value);
+      if (number >= 0 && number <= Integer.MAX_VALUE)
+      {
+        return number;
+      }
+    } catch (NumberFormatException e)
+    {
+      LOGGER.trace("", e);
+    }
+    throw new ConfigurationErrorException(
+        L.m("{0} has to be a non negative number: {1}", key, value));
+  }
+
+  /**
+   * The statistics of all external functions.
+   *
+   * @return The statistics.
+   */
+  public static ExternalFunctionMetrics getMetrics()
+  {
+    return METRICS;
+  }
+
+  /**
+   * Are the results cached?
+   *
+   * @return True if CACHE_SIZE is configured.
+   */
+  public boolean isCached()
+  {
+    return resultCache != null;
   }
 
   /**
@@ -166,12 +296,55 @@ public class ExternalFunction
    */
   public Object invoke(Values parameters) throws Exception
   {
+    if (handle != null && resultCache == null && params.length <= MAX_DIRECT_PARAMS
+        && params.length == method.getParameterCount())
+    {
+      boolean timed = ++calls % ExternalFunctionMetrics.JAVA_SAMPLE_RATE == 0;
+      long start = timed ? System.nanoTime() : 0;
+      try
+      {
+        return invokeDirect(parameters);
+      }
+      finally
+      {
+        metrics.called(timed ? System.nanoTime() - start : -1);
+      }
+    }
     Object[] args = new Object[params.length];
     for (int i = 0; i < params.length; ++i)
       args[i] = parameters.getString(params[i]);
     return invoke(args);
   }
 
+  /**
+   * Calls the Java method without an argument array.
+   */
+  private Object invokeDirect(Values parameters) throws Exception
+  {
+    Object a0 = params.length > 0 ? parameters.getString(params[0]) : null;
+    Object a1 = params.length > 1 ? parameters.getString(params[1]) : null;
+    Object a2 = params.length > 2 ? parameters.getString(params[2]) : null;
+    try
+    {
+      switch (params.length)
+      {
+      case 0:
+        return (Object) handle.invokeExact();
+      case 1:
+        return (Object) handle.invokeExact(a0);
+      case 2:
+        return (Object) handle.invokeExact(a0, a1);
+      default:
+        return (Object) handle.invokeExact(a0, a1, a2);
+      }
+    }
+    catch (Throwable e)
+    {
+      // same as reflection
+      throw new InvocationTargetException(e);
+    }
+  }
+
   /**
    * Calls the function with arguments args.
    *
@@ -184,6 +357,34 @@ public class ExternalFunction
    *           if there is a problem
    */
   public Object invoke(Object[] args) throws Exception
+  {
+    List<Object> key = null;
+    if (resultCache != null)
+    {
+      key = Arrays.asList(args.clone());
+      Object result = resultCache.get(key);
+      if (result != null)
+      {
+        metrics.cacheHit();
+        return result;
+      }
+    }
+    boolean timed = script != null || ++calls % ExternalFunctionMetrics.JAVA_SAMPLE_RATE == 0;
+    long start = timed ? System.nanoTime() : 0;
+    try
+    {
+      Object result = call(args);
+      if (key != null && result != null)
+        resultCache.put(key, result);
+      return result;
+    }
+    finally
+    {
+      metrics.called(timed ? System.nanoTime() - start : -1);
+    }
+  }
+
+  private Object call(Object[] args) throws Exception
   {
     short[][] aOutParamIndex = new short[][] { new short[0] };
     Object[][] aOutParam = new Object[][] { new Object[0] };
@@ -195,6 +396,20 @@ public class ExternalFunction
       }
       return result;
     }
+    else if (spreader != null)
+    {
+      if (args.length != method.getParameterCount())
+        throw new IllegalArgumentException("wrong number of arguments");
+      try
+      {
+        return (Object) spreader.invokeExact(args);
+      }
+      catch (Throwable e)
+      {
+        // same as reflection
+        throw new InvocationTargetException(e);
+      }
+    }
     else if (method != null)
     {
       return method.invoke(null, args);
@@ -55,6 +55,14 @@ public class ExternalFunctionFunction implements Function
     // Externe Funtkionen haben keine Dialoge.
   }
 
+  @Override
+  public boolean isCacheable()
+  {
+    // Externe Funktionen können Seiteneffekte haben, außer ihre Ergebnisse
+    // werden explizit gecacht.
+    return func.isCached();
+  }
+
   @Override
   public String getResult(Values parameters)
   {
@@ -0,0 +1,165 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.func;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of the {@link ExternalFunction}s: the number of calls, the number of results taken
+ * from the result cache and the latency of each function, identified by its URL. The latency of
+ * scripts is measured for every call. Java methods are so fast, that only every
+ * {@value #JAVA_SAMPLE_RATE}th call is measured.
+ */
+public final class ExternalFunctionMetrics
+{
+  /**
+   * Only one of this number of calls of a Java method is timed.
+   */
+  static final int JAVA_SAMPLE_RATE = 64;
+
+  private final Map<String, FunctionMetrics> functions = new ConcurrentSkipListMap<>();
+
+  /**
+   * Get the statistics of a function. They are shared by all functions with the same URL, so
+   * that they are looked up only once.
+   *
+   * @param url
+   *          The URL of the function.
+   * @return The statistics.
+   */
+  FunctionMetrics forFunction(String url)
+  {
+    return functions.computeIfAbsent(url, u -> new FunctionMetrics());
+  }
+
+  /**
+   * Get the number of calls of a function.
+   *
+   * @param url
+   *          The URL of the function.
+   * @return The number of calls including those answered by the cache.
+   */
+  public long getCount(String url)
+  {
+    FunctionMetrics m = functions.get(url);
+    return m == null ? 0 : m.count;
+  }
+
+  /**
+   * Get the number of calls of a function, whose result was taken from the cache.
+   *
+   * @param url
+   *          The URL of the function.
+   * @return The number of cache hits.
+   */
+  public long getCacheHits(String url)
+  {
+    FunctionMetrics m = functions.get(url);
+    return m == null ? 0 : m.cacheHits;
+  }
+
+  /**
+   * Get the average latency of a function. Results taken from the cache aren't considered.
+   *
+   * @param url
+   *          The URL of the function.
+   * @return The average latency in milliseconds.
+   */
+  public double getAverageLatency(String url)
+  {
+    FunctionMetrics m = functions.get(url);
+    return m == null ? 0 : m.averageNanos() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public String toString()
+  {
+    StringBuilder buf = new StringBuilder();
+    functions.forEach((url, m) -> buf.append(url).append(": ").append(m).append('\n'));
+    return buf.toString();
+  }
+
+  /**
+   * The statistics of one function. The counters aren't synchronized, because they are updated on
+   * every call. So concurrent calls may be lost.
+   */
+  static final class FunctionMetrics
+  {
+    private long count;
+
+    private long cacheHits;
+
+    private long timed;
+
+    private long nanos;
+
+    private long maxNanos;
+
+    /**
+     * The result of a call has been taken from the cache.
+     */
+    void cacheHit()
+    {
+      count++;
+      cacheHits++;
+    }
+
+    /**
+     * The function has been called.
+     *
+     * @param time
+     *          The time needed by the call in nanoseconds or a negative number if it hasn't been
+     *          measured.
+     */
+    void called(long time)
+    {
+      count++;
+      if (time >= 0)
+      {
+        timed(time);
+      }
+    }
+
+    private synchronized void timed(long time)
+    {
+      timed++;
+      nanos += time;
+      maxNanos = Math.max(maxNanos, time);
+    }
+
+    private synchronized double averageNanos()
+    {
+      return timed == 0 ? 0 : (double) nanos / timed;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+      long ms = TimeUnit.MILLISECONDS.toNanos(1);
+      return String.format("count %d, cache hits %d, avg latency %.3f ms, max latency %.3f ms",
+          count, cacheHits, averageNanos() / ms, (double) maxNanos / ms);
+    }
+  }
+}
@@ -64,4 +64,15 @@ public interface Function
    */
   public boolean getBoolean(Values parameters);
 
+  /**
+   * Does the result only depend on the values of the {@link #parameters()}? Only then
+   * results can be reused by an {@link EvaluationCache}. Functions which call external
+   * code or read function dialogs are not cacheable, nor are functions which use
+   * such a function.
+   */
+  public default boolean isCacheable()
+  {
+    return true;
+  }
+
 }
@@ -0,0 +1,1438 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.func;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Lowers a tree of parsed {@link Function}s into a tree of stateless evaluation nodes. The
+ * compiled function returns exactly the same strings as the interpreted one, including the
+ * identity of {@link FunctionLibrary#ERROR}.
+ *
+ * <ul>
+ * <li>Sub-trees which don't depend on any value are evaluated once at compile time.</li>
+ * <li>Numeric functions pass {@link BigDecimal}s to each other instead of formatting and parsing
+ * strings. Constant numbers are parsed only once.</li>
+ * <li>BIND is inlined: bound values are evaluated directly by the SET functions, so no wrapper of
+ * the {@link Values} is needed.</li>
+ * <li>Children are stored in arrays, evaluation doesn't create iterators or other helper
+ * objects.</li>
+ * </ul>
+ *
+ * Functions which can't be compiled (EXTERN, DIALOG and unknown implementations) are called as
+ * they are. A BIND whose function uses such a function isn't inlined.
+ */
+final class FunctionCompiler
+{
+  private static final Values NONE = new Values.None();
+
+  private FunctionCompiler()
+  {
+    // hide public ctor
+  }
+
+  /**
+   * Compile a function.
+   *
+   * @param func
+   *          The function, may be null.
+   * @return A function with the same results or null if func is null.
+   */
+  static Function compile(Function func)
+  {
+    if (func == null || func instanceof CompiledFunction)
+    {
+      return func;
+    }
+    return new CompiledFunction(func, compile(func, null));
+  }
+
+  /**
+   * Compile a function.
+   *
+   * @param func
+   *          The function.
+   * @param bound
+   *          The nodes computing the values bound by surrounding BIND functions or null.
+   * @return The node.
+   */
+  private static Node compile(Function func, Map<String, Node> bound)
+  {
+    if (func instanceof CompiledFunction)
+    {
+      CompiledFunction compiled = (CompiledFunction) func;
+      if (bound == null)
+      {
+        return compiled.root;
+      }
+      func = compiled.source;
+    }
+    return fold(lower(func, bound));
+  }
+
+  private static Node lower(Function func, Map<String, Node> bound)
+  {
+    Class<?> type = func.getClass();
+    if (type == StringLiteralFunction.class)
+    {
+      String literal = ((StringLiteralFunction) func).literal;
+      return new Const(literal, literal.equalsIgnoreCase("true"));
+    } else if (type == AlwaysTrueFunction.class)
+    {
+      return new Const("true", true);
+    } else if (type == ValueFunction.class)
+    {
+      String name = ((ValueFunction) func).params[0];
+      Node node = bound == null ? null : bound.get(name);
+      return node != null ? node : new Value(name);
+    } else if (type == CatFunction.class)
+    {
+      return new Cat(children(((CatFunction) func).subFunction, bound));
+    } else if (type == LengthFunction.class)
+    {
+      return new Length(new Cat(children(((LengthFunction) func).subFunction, bound)));
+    } else if (type == AndFunction.class)
+    {
+      return new Logic(children(((AndFunction) func).subFunction, bound), false, "false", "true");
+    } else if (type == OrFunction.class)
+    {
+      return new Logic(children(((OrFunction) func).subFunction, bound), true, "true", "false");
+    } else if (type == NotFunction.class)
+    {
+      return new Logic(children(((NotFunction) func).subFunction, bound), false, "true", "false");
+    } else if (type == IfFunction.class)
+    {
+      IfFunction f = (IfFunction) func;
+      return new If(compile(f.ifFunction, bound), compile(f.thenFunction, bound),
+          compile(f.elseFunction, bound));
+    } else if (type == MatchFunction.class)
+    {
+      MatchFunction f = (MatchFunction) func;
+      return new Match(compile(f.input, bound), f.pattern);
+    } else if (type == ReplaceFunction.class)
+    {
+      ReplaceFunction f = (ReplaceFunction) func;
+      return new Replace(compile(f.input, bound), f.pattern, compile(f.replace, bound));
+    } else if (type == SplitFunction.class)
+    {
+      SplitFunction f = (SplitFunction) func;
+      return new Split(compile(f.input, bound), Pattern.compile(f.regex), f.index);
+    } else if (type == StrCmpFunction.class)
+    {
+      return new StrCmp(children(((StrCmpFunction) func).subFunction, bound));
+    } else if (type == IsErrorFunction.class)
+    {
+      IsErrorFunction f = (IsErrorFunction) func;
+      return new IsError(compile(f.func, bound), f.objectCompare);
+    } else if (type == SelectFunction.class)
+    {
+      SelectFunction f = (SelectFunction) func;
+      return new Select(children(f.subFunction, bound),
+          f.onErrorFunction == null ? null : compile(f.onErrorFunction, bound));
+    } else if (type == SumFunction.class || type == MinusFunction.class
+        || type == AbsFunction.class || type == SignFunction.class
+        || type == ProductFunction.class || type == DiffFunction.class)
+    {
+      NumberFunction f = (NumberFunction) func;
+      return new Arithmetic(Operation.of(type), children(f.subFunction, bound), f.decimalPoint);
+    } else if (type == NumberCompareFunction.class)
+    {
+      NumberCompareFunction f = (NumberCompareFunction) func;
+      return new NumberCompare(children(f.subFunction, bound),
+          f.marginFun == null ? null : compile(f.marginFun, bound), f.cmp1, f.cmp2, f.result,
+          f.decimalPoint);
+    } else if (type == DivideFunction.class)
+    {
+      DivideFunction f = (DivideFunction) func;
+      return new Divide(compile(f.dividendFunction, bound),
+          f.divisorFunction == null ? null : compile(f.divisorFunction, bound), f.minScale,
+          f.maxScale, decimalPoint());
+    } else if (type == BindFunction.class && isCompilable(func))
+    {
+      BindFunction f = (BindFunction) func;
+      Bind bind = new Bind();
+      Map<String, Node> inner = bound == null ? new HashMap<>() : new HashMap<>(bound);
+      for (Map.Entry<String, Function> set : f.mapParamNameToSetFunction.entrySet())
+      {
+        inner.put(set.getKey(), new BoundValue(compile(set.getValue(), bound), bind));
+      }
+      bind.func = compile(f.func, inner);
+      if (bound == null && f.func instanceof CompiledFunction && f.isCacheable())
+      {
+        return new Call(bind, (CompiledFunction) f.func, f.mapParamNameToSetFunction);
+      }
+      return bind;
+    }
+    return new Interpreted(func);
+  }
+
+  private static Node[] children(Collection<Function> functions, Map<String, Node> bound)
+  {
+    Node[] nodes = new Node[functions.size()];
+    int i = 0;
+    for (Function f : functions)
+    {
+      nodes[i++] = compile(f, bound);
+    }
+    return nodes;
+  }
+
+  /**
+   * Replace a node by its result, if it doesn't depend on any value.
+   */
+  private static Node fold(Node node)
+  {
+    if (node instanceof Const || !node.isConstant())
+    {
+      return node;
+    }
+    try
+    {
+      return new Const(node.eval(NONE), node.evalBoolean(NONE));
+    } catch (RuntimeException e)
+    {
+      return node;
+    }
+  }
+
+  /**
+   * Can the function and all its sub-functions be compiled? Only then BIND can be inlined,
+   * because interpreted functions need the bound values as {@link Values}.
+   */
+  private static boolean isCompilable(Function func)
+  {
+    if (func instanceof CompiledFunction)
+    {
+      return isCompilable(((CompiledFunction) func).source);
+    }
+    Class<?> type = func.getClass();
+    if (type == StringLiteralFunction.class || type == AlwaysTrueFunction.class
+        || type == ValueFunction.class)
+    {
+      return true;
+    } else if (func instanceof MultiFunction && type != SelectFunction.class
+        && type != NumberCompareFunction.class)
+    {
+      return isKnownMultiFunction(type) && allCompilable(((MultiFunction) func).subFunction);
+    } else if (type == SelectFunction.class)
+    {
+      SelectFunction f = (SelectFunction) func;
+      return allCompilable(f.subFunction)
+          && (f.onErrorFunction == null || isCompilable(f.onErrorFunction));
+    } else if (type == NumberCompareFunction.class)
+    {
+      NumberCompareFunction f = (NumberCompareFunction) func;
+      return allCompilable(f.subFunction) && (f.marginFun == null || isCompilable(f.marginFun));
+    } else if (type == IfFunction.class)
+    {
+      IfFunction f = (IfFunction) func;
+      return isCompilable(f.ifFunction) && isCompilable(f.thenFunction)
+          && isCompilable(f.elseFunction);
+    } else if (type == MatchFunction.class)
+    {
+      return isCompilable(((MatchFunction) func).input);
+    } else if (type == ReplaceFunction.class)
+    {
+      ReplaceFunction f = (ReplaceFunction) func;
+      return isCompilable(f.input) && isCompilable(f.replace);
+    } else if (type == SplitFunction.class)
+    {
+      return isCompilable(((SplitFunction) func).input);
+    } else if (type == IsErrorFunction.class)
+    {
+      return isCompilable(((IsErrorFunction) func).func);
+    } else if (type == DivideFunction.class)
+    {
+      DivideFunction f = (DivideFunction) func;
+      return isCompilable(f.dividendFunction)
+          && (f.divisorFunction == null || isCompilable(f.divisorFunction));
+    } else if (type == BindFunction.class)
+    {
+      BindFunction f = (BindFunction) func;
+      return isCompilable(f.func) && allCompilable(f.mapParamNameToSetFunction.values());
+    }
+    return false;
+  }
+
+  private static boolean isKnownMultiFunction(Class<?> type)
+  {
+    return type == CatFunction.class || type == LengthFunction.class || type == AndFunction.class
+        || type == OrFunction.class || type == NotFunction.class || type == StrCmpFunction.class
+        || type == SumFunction.class || type == MinusFunction.class || type == AbsFunction.class
+        || type == SignFunction.class || type == ProductFunction.class
+        || type == DiffFunction.class;
+  }
+
+  private static boolean allCompilable(Collection<Function> functions)
+  {
+    for (Function f : functions)
+    {
+      if (!isCompilable(f))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The decimal separator of the current locale as used by {@link DivideFunction}.
+   */
+  private static char decimalPoint()
+  {
+    try
+    {
+      return ((DecimalFormat) NumberFormat.getInstance()).getDecimalFormatSymbols()
+          .getDecimalSeparator();
+    } catch (Exception x)
+    {
+      return '.';
+    }
+  }
+
+  /**
+   * Parse a number like {@link NumberFunction#makeBigDecimal(String)}.
+   *
+   * @return The number or null if str isn't a number.
+   */
+  private static BigDecimal parseNumber(String str, char decimalPoint)
+  {
+    try
+    {
+      if (decimalPoint != '.')
+      {
+        str = str.replace('.', 'ß');
+      }
+      return new BigDecimal(str.replace(decimalPoint, '.'));
+    } catch (NumberFormatException x)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Format a number like {@link NumberFunction#formatBigDecimal(BigDecimal)}.
+   */
+  private static String formatNumber(BigDecimal num, char decimalPoint)
+  {
+    if (num.compareTo(BigDecimal.ZERO) == 0)
+    {
+      return "0";
+    }
+    return num.stripTrailingZeros().toPlainString().replace('.', decimalPoint);
+  }
+
+  /**
+   * The result of the compilation.
+   */
+  static final class CompiledFunction implements Function
+  {
+    private final Function source;
+
+    private final Node root;
+
+    private final boolean cacheable;
+
+    private CompiledFunction(Function source, Node root)
+    {
+      this.source = source;
+      this.root = root;
+      this.cacheable = source.isCacheable();
+    }
+
+    @Override
+    public String[] parameters()
+    {
+      return source.parameters();
+    }
+
+    @Override
+    public void getFunctionDialogReferences(Collection<String> set)
+    {
+      source.getFunctionDialogReferences(set);
+    }
+
+    @Override
+    public boolean isCacheable()
+    {
+      return cacheable;
+    }
+
+    @Override
+    public String getResult(Values parameters)
+    {
+      return root.eval(parameters);
+    }
+
+    @Override
+    public boolean getBoolean(Values parameters)
+    {
+      return root.evalBoolean(parameters);
+    }
+  }
+
+  /**
+   * A node of the compiled tree. Nodes are immutable and can be evaluated concurrently.
+   */
+  private abstract static class Node
+  {
+    /**
+     * The result as String, same as {@link Function#getResult(Values)}.
+     */
+    abstract String eval(Values values);
+
+    /**
+     * The result as boolean, same as {@link Function#getBoolean(Values)}.
+     */
+    boolean evalBoolean(Values values)
+    {
+      return eval(values).equalsIgnoreCase("true");
+    }
+
+    /**
+     * The result as number for numeric functions.
+     *
+     * @return The number or null if the result is an error or not a number.
+     */
+    BigDecimal evalNumber(Values values, char decimalPoint)
+    {
+      String str = eval(values);
+      if (str.equals(FunctionLibrary.ERROR))
+      {
+        return null;
+      }
+      return parseNumber(str, decimalPoint);
+    }
+
+    /**
+     * Is the result independent of any value?
+     */
+    abstract boolean isConstant();
+
+    static boolean allConstant(Node... nodes)
+    {
+      for (Node node : nodes)
+      {
+        if (node != null && !node.isConstant())
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class Const extends Node
+  {
+    private final String value;
+
+    private final boolean bool;
+
+    /**
+     * The value parsed as number by {@link #evalNumber(Values, char)}.
+     */
+    private volatile ParsedNumber number;
+
+    private Const(String value, boolean bool)
+    {
+      this.value = value;
+      this.bool = bool;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      return value;
+    }
+
+    @Override
+    boolean evalBoolean(Values values)
+    {
+      return bool;
+    }
+
+    @Override
+    BigDecimal evalNumber(Values values, char decimalPoint)
+    {
+      ParsedNumber parsed = number;
+      if (parsed == null || parsed.decimalPoint != decimalPoint)
+      {
+        parsed = new ParsedNumber(super.evalNumber(values, decimalPoint), decimalPoint);
+        number = parsed;
+      }
+      return parsed.value;
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return true;
+    }
+  }
+
+  private static final class ParsedNumber
+  {
+    private final BigDecimal value;
+
+    private final char decimalPoint;
+
+    private ParsedNumber(BigDecimal value, char decimalPoint)
+    {
+      this.value = value;
+      this.decimalPoint = decimalPoint;
+    }
+  }
+
+  private static final class Value extends Node
+  {
+    private final String name;
+
+    private Value(String name)
+    {
+      this.name = name;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      if (!values.hasValue(name))
+      {
+        return FunctionLibrary.ERROR;
+      }
+      return values.getString(name);
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return false;
+    }
+  }
+
+  private static final class Interpreted extends Node
+  {
+    private final Function func;
+
+    private Interpreted(Function func)
+    {
+      this.func = func;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      return func.getResult(values);
+    }
+
+    @Override
+    boolean evalBoolean(Values values)
+    {
+      return func.getBoolean(values);
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return false;
+    }
+  }
+
+  private static final class Cat extends Node
+  {
+    private final Node[] children;
+
+    private Cat(Node[] children)
+    {
+      this.children = children;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      if (children.length == 1)
+      {
+        return children[0].eval(values);
+      }
+      StringBuilder res = new StringBuilder();
+      for (Node child : children)
+      {
+        String str = child.eval(values);
+        if (str == FunctionLibrary.ERROR)
+        {
+          return FunctionLibrary.ERROR;
+        }
+        res.append(str);
+      }
+      return res.toString();
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return allConstant(children);
+    }
+  }
+
+  private static final class Length extends Node
+  {
+    private final Cat cat;
+
+    private Length(Cat cat)
+    {
+      this.cat = cat;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      String res = cat.eval(values);
+      if (res == FunctionLibrary.ERROR)
+      {
+        return FunctionLibrary.ERROR;
+      }
+      return Integer.toString(res.length());
+    }
+
+    @Override
+    boolean evalBoolean(Values values)
+    {
+      return false;
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return cat.isConstant();
+    }
+  }
+
+  /**
+   * AND, OR and NOT: The first child whose boolean value equals stopOn determines the result
+   * stopResult, otherwise the result is endResult.
+   */
+  private static final class Logic extends Node
+  {
+    private final Node[] children;
+
+    private final boolean stopOn;
+
+    private final String stopResult;
+
+    private final String endResult;
+
+    private Logic(Node[] children, boolean stopOn, String stopResult, String endResult)
+    {
+      this.children = children;
+      this.stopOn = stopOn;
+      this.stopResult = stopResult;
+      this.endResult = endResult;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      for (Node child : children)
+      {
+        String str = child.eval(values);
+        if (str == FunctionLibrary.ERROR)
+        {
+          return FunctionLibrary.ERROR;
+        }
+        if (str.equalsIgnoreCase("true") == stopOn)
+        {
+          return stopResult;
+        }
+      }
+      return endResult;
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return allConstant(children);
+    }
+  }
+
+  private static final class If extends Node
+  {
+    private final Node condition;
+
+    private final Node thenNode;
+
+    private final Node elseNode;
+
+    private If(Node condition, Node thenNode, Node elseNode)
+    {
+      this.condition = condition;
+      this.thenNode = thenNode;
+      this.elseNode = elseNode;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      String str = condition.eval(values);
+      if (str == FunctionLibrary.ERROR)
+      {
+        return FunctionLibrary.ERROR;
+      }
+      return str.equalsIgnoreCase("true") ? thenNode.eval(values) : elseNode.eval(values);
+    }
+
+    @Override
+    boolean evalBoolean(Values values)
+    {
+      String str = condition.eval(values);
+      if (str == FunctionLibrary.ERROR)
+      {
+        return false;
+      }
+      return str.equalsIgnoreCase("true") ? thenNode.evalBoolean(values)
+          : elseNode.evalBoolean(values);
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return allConstant(condition, thenNode, elseNode);
+    }
+  }
+
+  private static final class Match extends Node
+  {
+    private final Node input;
+
+    private final Pattern pattern;
+
+    private Match(Node input, Pattern pattern)
+    {
+      this.input = input;
+      this.pattern = pattern;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      String str = input.eval(values);
+      if (str == FunctionLibrary.ERROR)
+      {
+        return FunctionLibrary.ERROR;
+      }
+      return pattern.matcher(str).matches() ? "true" : "false";
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return input.isConstant();
+    }
+  }
+
+  private static final class Replace extends Node
+  {
+    private final Node input;
+
+    private final Pattern pattern;
+
+    private final Node replace;
+
+    private Replace(Node input, Pattern pattern, Node replace)
+    {
+      this.input = input;
+      this.pattern = pattern;
+      this.replace = replace;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      String str = input.eval(values);
+      String repStr = replace.eval(values);
+      if (str == FunctionLibrary.ERROR || repStr == FunctionLibrary.ERROR)
+      {
+        return FunctionLibrary.ERROR;
+      }
+      return pattern.matcher(str).replaceAll(repStr);
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return allConstant(input, replace);
+    }
+  }
+
+  private static final class Split extends Node
+  {
+    private final Node input;
+
+    private final Pattern pattern;
+
+    private final int index;
+
+    private Split(Node input, Pattern pattern, int index)
+    {
+      this.input = input;
+      this.pattern = pattern;
+      this.index = index;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      String str = input.eval(values);
+      if (str == FunctionLibrary.ERROR)
+      {
+        return FunctionLibrary.ERROR;
+      }
+      String[] a = pattern.split(str);
+      if (index < 0 || index >= a.length)
+      {
+        return "";
+      }
+      return a[index];
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return input.isConstant();
+    }
+  }
+
+  private static final class StrCmp extends Node
+  {
+    private final Node[] children;
+
+    private StrCmp(Node[] children)
+    {
+      this.children = children;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      String compare = children[0].eval(values);
+      if (compare == FunctionLibrary.ERROR)
+      {
+        return FunctionLibrary.ERROR;
+      }
+      int prevCompare = 0;
+      for (int i = 1; i < children.length; i++)
+      {
+        String str = children[i].eval(values);
+        if (str == FunctionLibrary.ERROR)
+        {
+          return FunctionLibrary.ERROR;
+        }
+        int res = Integer.signum(compare.compareTo(str));
+        if (res * prevCompare < 0)
+        {
+          return "0";
+        }
+        prevCompare += res;
+      }
+      switch (Integer.signum(prevCompare))
+      {
+      case -1:
+        return "-1";
+      case 1:
+        return "1";
+      default:
+        return "true";
+      }
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return allConstant(children);
+    }
+  }
+
+  private static final class IsError extends Node
+  {
+    private final Node func;
+
+    private final boolean objectCompare;
+
+    private IsError(Node func, boolean objectCompare)
+    {
+      this.func = func;
+      this.objectCompare = objectCompare;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      return evalBoolean(values) ? "true" : "false";
+    }
+
+    @Override
+    boolean evalBoolean(Values values)
+    {
+      String str = func.eval(values);
+      return objectCompare ? str == FunctionLibrary.ERROR : FunctionLibrary.ERROR.equals(str);
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return func.isConstant();
+    }
+  }
+
+  private static final class Select extends Node
+  {
+    private final Node[] children;
+
+    private final Node onError;
+
+    private Select(Node[] children, Node onError)
+    {
+      this.children = children;
+      this.onError = onError;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      String result = FunctionLibrary.ERROR;
+      for (Node child : children)
+      {
+        String str = child.eval(values);
+        if (str != FunctionLibrary.ERROR)
+        {
+          result = str;
+          if (str.length() > 0)
+          {
+            break;
+          }
+        } else if (onError != null)
+        {
+          return onError.eval(values);
+        }
+      }
+      return result;
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return allConstant(children) && allConstant(onError);
+    }
+  }
+
+  /**
+   * The operations of the subclasses of {@link NumberFunction} without parameters.
+   */
+  private enum Operation
+  {
+    SUM, MINUS, ABS, SIGN, PRODUCT, DIFF;
+
+    static Operation of(Class<?> type)
+    {
+      if (type == MinusFunction.class)
+      {
+        return MINUS;
+      } else if (type == AbsFunction.class)
+      {
+        return ABS;
+      } else if (type == SignFunction.class)
+      {
+        return SIGN;
+      } else if (type == ProductFunction.class)
+      {
+        return PRODUCT;
+      } else if (type == DiffFunction.class)
+      {
+        return DIFF;
+      }
+      return SUM;
+    }
+  }
+
+  private static final class Arithmetic extends Node
+  {
+    private final Operation operation;
+
+    private final Node[] children;
+
+    private final char decimalPoint;
+
+    private Arithmetic(Operation operation, Node[] children, char decimalPoint)
+    {
+      this.operation = operation;
+      this.children = children;
+      this.decimalPoint = decimalPoint;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      BigDecimal num = compute(values);
+      if (num == null)
+      {
+        return FunctionLibrary.ERROR;
+      }
+      if (operation == Operation.SIGN)
+      {
+        return Integer.toString(num.signum());
+      }
+      return formatNumber(num, decimalPoint);
+    }
+
+    @Override
+    BigDecimal evalNumber(Values values, char decimalPoint)
+    {
+      if (decimalPoint != this.decimalPoint)
+      {
+        return super.evalNumber(values, decimalPoint);
+      }
+      BigDecimal num = compute(values);
+      if (num != null && operation == Operation.SIGN)
+      {
+        return BigDecimal.valueOf(num.signum());
+      }
+      return num;
+    }
+
+    private BigDecimal compute(Values values)
+    {
+      BigDecimal result = operation == Operation.PRODUCT ? BigDecimal.ONE : BigDecimal.ZERO;
+      for (int i = 0; i < children.length; i++)
+      {
+        BigDecimal num = children[i].evalNumber(values, decimalPoint);
+        if (num == null)
+        {
+          return null;
+        }
+        if (operation == Operation.PRODUCT)
+        {
+          result = result.multiply(num);
+        } else if (operation == Operation.DIFF && i > 0)
+        {
+          result = result.subtract(num);
+        } else
+        {
+          result = result.add(num);
+        }
+      }
+      if (operation == Operation.MINUS)
+      {
+        return result.negate();
+      } else if (operation == Operation.ABS)
+      {
+        return result.abs();
+      }
+      return result;
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return allConstant(children);
+    }
+  }
+
+  private static final class NumberCompare extends Node
+  {
+    private final Node[] children;
+
+    private final Node marginNode;
+
+    private final int cmp1;
+
+    private final int cmp2;
+
+    private final String result;
+
+    private final char decimalPoint;
+
+    private NumberCompare(Node[] children, Node marginNode, int cmp1, int cmp2, String result,
+        char decimalPoint)
+    {
+      this.children = children;
+      this.marginNode = marginNode;
+      this.cmp1 = cmp1;
+      this.cmp2 = cmp2;
+      this.result = result;
+      this.decimalPoint = decimalPoint;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      BigDecimal margin = BigDecimal.ZERO;
+      if (marginNode != null)
+      {
+        String str = marginNode.eval(values);
+        if (str == FunctionLibrary.ERROR)
+        {
+          return FunctionLibrary.ERROR;
+        }
+        margin = parseNumber(str, decimalPoint);
+        if (margin == null)
+        {
+          return FunctionLibrary.ERROR;
+        }
+        margin = margin.abs();
+      }
+
+      BigDecimal compare = children[0].evalNumber(values, decimalPoint);
+      if (compare == null)
+      {
+        return FunctionLibrary.ERROR;
+      }
+      BigDecimal lowBound = compare.subtract(margin);
+      BigDecimal highBound = compare.add(margin);
+      int prevCompare = 0;
+      for (int i = 1; i < children.length; i++)
+      {
+        BigDecimal num = children[i].evalNumber(values, decimalPoint);
+        if (num == null)
+        {
+          return FunctionLibrary.ERROR;
+        }
+        int res;
+        if (lowBound.compareTo(num) <= 0 && num.compareTo(highBound) <= 0)
+        {
+          res = 0;
+        } else
+        {
+          res = compare.compareTo(num);
+        }
+        if (res == cmp1 || res == cmp2)
+        {
+          return "false";
+        }
+        if (res * prevCompare < 0)
+        {
+          return "0";
+        }
+        prevCompare += res;
+      }
+
+      if (result != null)
+      {
+        return result;
+      }
+      switch (Integer.signum(prevCompare))
+      {
+      case 1:
+        return "1";
+      case -1:
+        return "-1";
+      default:
+        return "true";
+      }
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return allConstant(children) && allConstant(marginNode);
+    }
+  }
+
+  private static final class Divide extends Node
+  {
+    private final Node dividend;
+
+    private final Node divisor;
+
+    private final int minScale;
+
+    private final int maxScale;
+
+    private final char decimalPoint;
+
+    private Divide(Node dividend, Node divisor, int minScale, int maxScale, char decimalPoint)
+    {
+      this.dividend = dividend;
+      this.divisor = divisor;
+      this.minScale = minScale;
+      this.maxScale = maxScale;
+      this.decimalPoint = decimalPoint;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      BigDecimal bigResult = compute(values);
+      if (bigResult == null)
+      {
+        return FunctionLibrary.ERROR;
+      }
+
+      String result;
+      if (bigResult.compareTo(BigDecimal.ZERO) == 0)
+      {
+        result = "0";
+      } else
+      {
+        result = bigResult.stripTrailingZeros().toPlainString();
+      }
+      StringBuilder buffy = new StringBuilder(result);
+      int idx = result.indexOf('.');
+      if (idx == 0)
+      {
+        buffy.insert(0, "0");
+        idx = 1;
+      }
+      if (idx < 0 && minScale > 0)
+      {
+        buffy.append(".0");
+        idx = buffy.length() - 2;
+      }
+      int decimalDigits = (idx < 0) ? 0 : buffy.length() - idx - 1;
+      for (int i = decimalDigits; i < minScale; ++i)
+      {
+        buffy.append('0');
+      }
+      return buffy.toString().replace('.', decimalPoint);
+    }
+
+    @Override
+    boolean evalBoolean(Values values)
+    {
+      return false;
+    }
+
+    @Override
+    BigDecimal evalNumber(Values values, char decimalPoint)
+    {
+      if (decimalPoint != this.decimalPoint)
+      {
+        return super.evalNumber(values, decimalPoint);
+      }
+      return compute(values);
+    }
+
+    private BigDecimal compute(Values values)
+    {
+      BigDecimal bigDividend = dividend.evalNumber(values, decimalPoint);
+      if (bigDividend == null)
+      {
+        return null;
+      }
+      BigDecimal bigDivisor = BigDecimal.ONE;
+      if (divisor != null)
+      {
+        bigDivisor = divisor.evalNumber(values, decimalPoint);
+        if (bigDivisor == null || bigDivisor.signum() == 0)
+        {
+          return null;
+        }
+      }
+      return bigDividend.divide(bigDivisor, maxScale, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return allConstant(dividend, divisor);
+    }
+  }
+
+  /**
+   * Signals that a value bound by a BIND function is an error. The whole BIND function then
+   * results in an error, so the evaluation of its function can stop.
+   */
+  private static final class BindError extends RuntimeException
+  {
+    private static final long serialVersionUID = 1L;
+
+    private BindError()
+    {
+      super(null, null, false, false);
+    }
+  }
+
+  private static final class Bind extends Node
+  {
+    private final BindError error = new BindError();
+
+    private Node func;
+
+    @Override
+    String eval(Values values)
+    {
+      try
+      {
+        return func.eval(values);
+      } catch (BindError e)
+      {
+        if (e != error)
+        {
+          throw e;
+        }
+        return FunctionLibrary.ERROR;
+      }
+    }
+
+    @Override
+    boolean evalBoolean(Values values)
+    {
+      try
+      {
+        return func.evalBoolean(values);
+      } catch (BindError e)
+      {
+        if (e != error)
+        {
+          throw e;
+        }
+        return false;
+      }
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return func.isConstant();
+    }
+  }
+
+  private static final class BoundValue extends Node
+  {
+    private final Node set;
+
+    private final Bind bind;
+
+    private BoundValue(Node set, Bind bind)
+    {
+      this.set = set;
+      this.bind = bind;
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      String res = set.eval(values);
+      if (res == FunctionLibrary.ERROR)
+      {
+        throw bind.error;
+      }
+      return res;
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return set.isConstant();
+    }
+  }
+  /**
+   * A BIND of a function from the function library. Without an {@link EvaluationCache} the
+   * inlined BIND is evaluated. Otherwise the library function is called through the cache, so
+   * that its result is shared by all BINDs and TRAFOs with the same arguments.
+   */
+  private static final class Call extends Node
+  {
+    private final Node inlined;
+
+    private final CompiledFunction target;
+
+    private final String[] names;
+
+    /**
+     * The nodes computing the bound values, null for parameters which aren't bound.
+     */
+    private final Node[] set;
+
+    private Call(Node inlined, CompiledFunction target, Map<String, Function> sets)
+    {
+      this.inlined = inlined;
+      this.target = target;
+      this.names = target.parameters();
+      this.set = new Node[names.length];
+      for (int i = 0; i < names.length; i++)
+      {
+        Function f = sets.get(names[i]);
+        set[i] = f == null ? null : compile(f, null);
+      }
+    }
+
+    @Override
+    String eval(Values values)
+    {
+      EvaluationCache cache = values.getEvaluationCache();
+      Object[] arguments = cache == null ? null : arguments(values);
+      if (arguments == null)
+      {
+        return inlined.eval(values);
+      }
+      return cache.getResult(target, arguments, values);
+    }
+
+    @Override
+    boolean evalBoolean(Values values)
+    {
+      EvaluationCache cache = values.getEvaluationCache();
+      Object[] arguments = cache == null ? null : arguments(values);
+      if (arguments == null)
+      {
+        return inlined.evalBoolean(values);
+      }
+      return cache.getBoolean(target, arguments, values);
+    }
+
+    /**
+     * Same as the arguments computed by {@link BindFunction}.
+     */
+    private Object[] arguments(Values values)
+    {
+      Object[] arguments = new Object[names.length];
+      for (int i = 0; i < names.length; i++)
+      {
+        if (set[i] != null)
+        {
+          String res = set[i].eval(values);
+          arguments[i] = res == FunctionLibrary.ERROR ? EvaluationCache.ERROR_ARGUMENT : res;
+        } else
+        {
+          arguments[i] = EvaluationCache.argument(values, names[i]);
+          if (arguments[i] == EvaluationCache.ERROR_ARGUMENT)
+          {
+            return null;
+          }
+        }
+      }
+      return arguments;
+    }
+
+    @Override
+    boolean isConstant()
+    {
+      return inlined.isConstant();
+    }
+  }
+}
@@ -60,6 +60,22 @@ public class FunctionFactory
     // hide public ctor
   }
 
+  /**
+   * Compiles a parsed function into a tree of stateless nodes, which is evaluated without
+   * interpreting the function objects. Parts which don't depend on any value are computed once,
+   * numbers are passed between numeric functions without formatting and parsing and BIND is
+   * inlined. The results are exactly the same as those of func. EXTERN and DIALOG functions are
+   * still called as they are.
+   *
+   * @param func
+   *          The function, may be null.
+   * @return The compiled function or null if func is null.
+   */
+  public static Function compile(Function func)
+  {
+    return FunctionCompiler.compile(func);
+  }
+
   /**
    * Returns a function that always returns true.
    */
@@ -748,7 +764,7 @@ public class FunctionFactory
         {
           Function func =
             parseChildren(funcConf, funcs, dialogLib, context);
-          funcs.add(name, func);
+          funcs.add(name, compile(func));
         }
         catch (ConfigurationErrorException e)
         {
@@ -778,7 +794,7 @@ public class FunctionFactory
           if (func == null)
             throw new ConfigurationErrorException(
                 L.m("Empty functions definition is not allowed. Instead use the empty string \"\""));
-          trafos.put(name, func);
+          trafos.put(name, compile(func));
         } catch (ConfigurationErrorException e)
         {
           LOGGER.error("Error during parsing of the column replacement function for the result column \"{}\"",
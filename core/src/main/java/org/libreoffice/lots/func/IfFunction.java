@@ -29,11 +29,11 @@ import java.util.Set;
 
 public class IfFunction implements Function
 {
-  private Function ifFunction;
+  Function ifFunction;
 
-  private Function thenFunction;
+  Function thenFunction;
 
-  private Function elseFunction;
+  Function elseFunction;
 
   private String[] params;
 
@@ -64,6 +64,13 @@ public class IfFunction implements Function
     elseFunction.getFunctionDialogReferences(set);
   }
 
+  @Override
+  public boolean isCacheable()
+  {
+    return ifFunction.isCacheable() && thenFunction.isCacheable()
+        && elseFunction.isCacheable();
+  }
+
   @Override
   public String getResult(Values parameters)
   {
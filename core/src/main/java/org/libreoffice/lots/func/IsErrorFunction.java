@@ -32,9 +32,9 @@ import org.libreoffice.lots.util.L;
 
 public class IsErrorFunction implements Function
 {
-  private Function func;
+  Function func;
 
-  private boolean objectCompare;
+  boolean objectCompare;
 
   /**
    * Falls objectCompare == true, wird == Function,ERROR getestet, ansonsten
@@ -63,6 +63,12 @@ public class IsErrorFunction implements Function
     func.getFunctionDialogReferences(set);
   }
 
+  @Override
+  public boolean isCacheable()
+  {
+    return func.isCacheable();
+  }
+
   @Override
   public String getResult(Values parameters)
   {
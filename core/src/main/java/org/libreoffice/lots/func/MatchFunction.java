@@ -27,9 +27,9 @@ import java.util.regex.Pattern;
 
 public class MatchFunction implements Function
 {
-  private Pattern pattern;
+  Pattern pattern;
 
-  private Function input;
+  Function input;
 
   public MatchFunction(Function input, Pattern p)
   {
@@ -58,6 +58,12 @@ public class MatchFunction implements Function
     input.getFunctionDialogReferences(set);
   }
 
+  @Override
+  public boolean isCacheable()
+  {
+    return input.isCacheable();
+  }
+
   @Override
   public boolean getBoolean(Values parameters)
   {
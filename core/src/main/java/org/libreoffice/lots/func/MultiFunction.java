@@ -145,4 +145,17 @@ public abstract class MultiFunction implements Function
       iter.next().getFunctionDialogReferences(set);
     }
   }
+
+  @Override
+  public boolean isCacheable()
+  {
+    for (Function func : subFunction)
+    {
+      if (!func.isCacheable())
+      {
+        return false;
+      }
+    }
+    return true;
+  }
 }
@@ -40,13 +40,13 @@ public class NumberCompareFunction extends NumberFunction
 
   private BigDecimal highBound;
 
-  private int cmp1;
+  int cmp1;
 
-  private int cmp2;
+  int cmp2;
 
   private int prevCompare;
 
-  private String result;
+  String result;
 
   private BigDecimal margin;
 
@@ -117,6 +117,12 @@ public class NumberCompareFunction extends NumberFunction
     if (marginFun != null) marginFun.getFunctionDialogReferences(set);
   }
 
+  @Override
+  public boolean isCacheable()
+  {
+    return super.isCacheable() && (marginFun == null || marginFun.isCacheable());
+  }
+
   @Override
   protected String initComputation(Values parameters)
   {
@@ -30,11 +30,11 @@ import java.util.regex.Pattern;
 
 public class ReplaceFunction implements Function
 {
-  private Pattern pattern;
+  Pattern pattern;
 
-  private Function input;
+  Function input;
 
-  private Function replace;
+  Function replace;
 
   private String[] params;
 
@@ -71,6 +71,12 @@ public class ReplaceFunction implements Function
     replace.getFunctionDialogReferences(set);
   }
 
+  @Override
+  public boolean isCacheable()
+  {
+    return input.isCacheable() && replace.isCacheable();
+  }
+
   @Override
   public boolean getBoolean(Values parameters)
   {
@@ -32,7 +32,7 @@ import org.libreoffice.lots.dialog.DialogLibrary;
 
 public class SelectFunction extends MultiFunction
 {
-  private Function onErrorFunction;
+  Function onErrorFunction;
 
   public SelectFunction(Collection<Function> subFunction)
   {
@@ -73,6 +73,12 @@ public class SelectFunction extends MultiFunction
     if (onErrorFunction != null) onErrorFunction.getFunctionDialogReferences(set);
   }
 
+  @Override
+  public boolean isCacheable()
+  {
+    return super.isCacheable() && (onErrorFunction == null || onErrorFunction.isCacheable());
+  }
+
   @Override
   public String getResult(Values parameters)
   {
@@ -27,11 +27,11 @@ import java.util.regex.Pattern;
 
 public class SplitFunction implements Function
 {
-  private String regex;
+  String regex;
 
-  private Function input;
+  Function input;
 
-  private int index;
+  int index;
 
   private String[] params;
 
@@ -65,6 +65,12 @@ public class SplitFunction implements Function
     input.getFunctionDialogReferences(set);
   }
 
+  @Override
+  public boolean isCacheable()
+  {
+    return input.isCacheable();
+  }
+
   @Override
   public boolean getBoolean(Values parameters)
   {
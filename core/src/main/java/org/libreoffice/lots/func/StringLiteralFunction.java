@@ -28,7 +28,7 @@ import org.apache.commons.lang3.ArrayUtils;
 
 public class StringLiteralFunction implements Function
 {
-  private String literal;
+  String literal;
 
   private boolean bool;
 
@@ -56,6 +56,17 @@ public interface Values
    */
   public boolean getBoolean(String id);
 
+  /**
+   * The cache which is used for the functions evaluated with these values. Implementations
+   * that wrap other values must pass on the cache of the wrapped values.
+   *
+   * @return The cache or null if results are not cached.
+   */
+  public default EvaluationCache getEvaluationCache()
+  {
+    return null;
+  }
+
   /**
    * Dummy class that exposes a Values ​​interface that doesn't have values
    * contains.
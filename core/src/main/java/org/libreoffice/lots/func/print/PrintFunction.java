@@ -22,8 +22,17 @@
  */
 package org.libreoffice.lots.func.print;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.muenchen.allg.itd51.wollmux.interfaces.XPrintModel;
 
@@ -40,6 +49,9 @@ import org.slf4j.LoggerFactory;
  * Print functions are ordered by {@link #order}.
  *
  * Print functions can be accessed in a {@link PrintFunctionLibrary} by their {@link #functionName}.
+ *
+ * Print functions are executed on the threads of a shared executor. The following print functions
+ * of a chain are executed on the same thread as their caller, which waits for them anyway.
  */
 public abstract class PrintFunction implements Comparable<PrintFunction>
 {
@@ -50,6 +62,21 @@ public abstract class PrintFunction implements Comparable<PrintFunction>
 
   public static final String PRINT_RESULT_FILE = "WollMux_Print_Result_File";
 
+  private static final PrintFunctionMetrics METRICS = new PrintFunctionMetrics();
+
+  /**
+   * Is the current thread a thread of {@link #EXECUTOR}?
+   */
+  private static final ThreadLocal<Boolean> PRINT_THREAD = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+  /**
+   * The print functions running on the current thread. Each entry holds the time spent in the
+   * following print functions.
+   */
+  private static final ThreadLocal<Deque<long[]>> RUNNING = ThreadLocal.withInitial(ArrayDeque::new);
+
+  private static final ExecutorService EXECUTOR = createExecutor();
+
   private String functionName;
 
   private int order;
@@ -119,26 +146,97 @@ public abstract class PrintFunction implements Comparable<PrintFunction>
     return Objects.equals(functionName, other.functionName) && order == other.order;
   }
 
+  private static ExecutorService createExecutor()
+  {
+    AtomicInteger threadCount = new AtomicInteger();
+    return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1, TimeUnit.MINUTES,
+        new SynchronousQueue<>(), r -> {
+          Thread t = new Thread(() -> {
+            PRINT_THREAD.set(Boolean.TRUE);
+            r.run();
+          }, "lots-print-" + threadCount.incrementAndGet());
+          t.setDaemon(true);
+          METRICS.threadStarted();
+          return t;
+        });
+  }
+
+  /**
+   * Get the statistics of all print functions.
+   *
+   * @return The metrics of the print functions.
+   */
+  public static PrintFunctionMetrics getMetrics()
+  {
+    return METRICS;
+  }
+
   /**
-   * Execute this print function in a separate thread.
+   * Execute this print function on a thread of the print executor.
    *
    * @param printModel
    *          The {@link XPrintModel} to print.
-   * @return The separate thread.
+   * @return A future, which completes as soon as the print function has finished. Errors of the
+   *         print function are logged, the future never completes exceptionally.
    */
-  public Thread printAsync(XPrintModel printModel)
+  public CompletableFuture<Void> printAsync(XPrintModel printModel)
   {
-    Thread t = new Thread(() -> {
-      try
-      {
-        print(printModel);
-      } catch (Exception ex)
+    return CompletableFuture.runAsync(() -> printTimed(printModel), EXECUTOR);
+  }
+
+  /**
+   * Execute this print function and wait until it has finished. If the current thread already
+   * executes a print function, this print function is executed directly. Otherwise it's executed
+   * by {@link #printAsync(XPrintModel)}.
+   *
+   * @param printModel
+   *          The {@link XPrintModel} to print.
+   */
+  public void printAndWait(XPrintModel printModel)
+  {
+    if (Boolean.TRUE.equals(PRINT_THREAD.get()))
+    {
+      printTimed(printModel);
+      return;
+    }
+    try
+    {
+      printAsync(printModel).get();
+    } catch (InterruptedException e)
+    {
+      LOGGER.error("", e);
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e)
+    {
+      LOGGER.error("Fehler beim Drucken", e.getCause());
+    }
+  }
+
+  private void printTimed(XPrintModel printModel)
+  {
+    Deque<long[]> running = RUNNING.get();
+    long[] following = new long[1];
+    running.push(following);
+    boolean failed = false;
+    long start = System.nanoTime();
+    try
+    {
+      print(printModel);
+    } catch (Exception ex)
+    {
+      failed = true;
+      LOGGER.error("Fehler beim Drucken", ex);
+    } finally
+    {
+      long nanos = System.nanoTime() - start;
+      running.pop();
+      long[] caller = running.peek();
+      if (caller != null)
       {
-        LOGGER.error("Fehler beim Drucken", ex);
+        caller[0] += nanos;
       }
-    });
-    t.start();
-    return t;
+      METRICS.executed(functionName, nanos, nanos - following[0], failed);
+    }
   }
 
   /**
@@ -0,0 +1,158 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.func.print;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of the print functions: how often each function has been executed, how long it took
+ * including the functions called by it and how long it took by itself. The number of threads
+ * shows how many threads have been started for the print chains.
+ */
+public final class PrintFunctionMetrics
+{
+  private final Map<String, FunctionMetrics> functions = new TreeMap<>();
+
+  private int threads = 0;
+
+  /**
+   * A new thread for executing print functions has been started.
+   */
+  synchronized void threadStarted()
+  {
+    threads++;
+  }
+
+  /**
+   * A print function has been executed.
+   *
+   * @param functionName
+   *          The name of the print function.
+   * @param nanos
+   *          The time needed by the function including the following print functions.
+   * @param selfNanos
+   *          The time needed by the function without the following print functions.
+   * @param failed
+   *          True if the function threw an exception.
+   */
+  synchronized void executed(String functionName, long nanos, long selfNanos, boolean failed)
+  {
+    functions.computeIfAbsent(functionName, n -> new FunctionMetrics()).add(nanos, selfNanos,
+        failed);
+  }
+
+  /**
+   * Get the number of threads started for print functions.
+   *
+   * @return The number of threads.
+   */
+  public synchronized int getThreads()
+  {
+    return threads;
+  }
+
+  /**
+   * Get the number of executions of a print function.
+   *
+   * @param functionName
+   *          The name of the print function.
+   * @return The number of executions.
+   */
+  public synchronized long getCount(String functionName)
+  {
+    FunctionMetrics m = functions.get(functionName);
+    return m == null ? 0 : m.count;
+  }
+
+  /**
+   * Get the total time spent in a print function without the following print functions.
+   *
+   * @param functionName
+   *          The name of the print function.
+   * @return The time in milliseconds.
+   */
+  public synchronized double getSelfTime(String functionName)
+  {
+    FunctionMetrics m = functions.get(functionName);
+    return m == null ? 0 : (double) m.selfNanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Get the total time spent in a print function including the following print functions.
+   *
+   * @param functionName
+   *          The name of the print function.
+   * @return The time in milliseconds.
+   */
+  public synchronized double getTotalTime(String functionName)
+  {
+    FunctionMetrics m = functions.get(functionName);
+    return m == null ? 0 : (double) m.nanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    StringBuilder buf = new StringBuilder();
+    buf.append("threads: ").append(threads).append('\n');
+    functions.forEach((name, m) -> buf.append(name).append(": ").append(m).append('\n'));
+    return buf.toString();
+  }
+
+  private static class FunctionMetrics
+  {
+    private long count;
+
+    private long failed;
+
+    private long nanos;
+
+    private long selfNanos;
+
+    private long maxSelfNanos;
+
+    private void add(long total, long self, boolean error)
+    {
+      count++;
+      if (error)
+      {
+        failed++;
+      }
+      nanos += total;
+      selfNanos += self;
+      maxSelfNanos = Math.max(maxSelfNanos, self);
+    }
+
+    @Override
+    public String toString()
+    {
+      long ms = TimeUnit.MILLISECONDS.toNanos(1);
+      return String.format(
+          "count %d, failed %d, self %.2f ms (avg %.2f ms, max %.2f ms), total %.2f ms", count,
+          failed, (double) selfNanos / ms, (double) selfNanos / count / ms,
+          (double) maxSelfNanos / ms, (double) nanos / ms);
+    }
+  }
+}
@@ -32,8 +32,6 @@ import org.slf4j.LoggerFactory;
 import com.sun.star.text.XTextCursor;
 import com.sun.star.text.XTextRange;
 
-import org.libreoffice.ext.unohelper.common.UnoHelperException;
-import org.libreoffice.ext.unohelper.document.text.Bookmark;
 import org.libreoffice.lots.config.ConfigThingy;
 import org.libreoffice.lots.config.ConfigurationErrorException;
 import org.libreoffice.lots.config.NodeNotFoundException;
@@ -139,34 +137,42 @@ public class FieldSubstitution implements Iterable<FieldSubstitution.SubstElemen
       return;
     }
 
-    List<FormField> c = controller.getModel().getIdToFormFields().get(fieldId);
-    if (c != null)
+    // the new insertFormValue commands are registered once at the end
+    controller.getModel().beginDocumentCommandsBatch();
+    try
     {
-      for (FormField f : c)
+      List<FormField> c = controller.getModel().getIdToFormFields().get(fieldId);
+      if (c != null)
       {
-        if (f.getTrafoName() != null)
-        {
-          updateTrafoField(controller, f, true);
-        } else
+        for (FormField f : c)
         {
-          updateField(controller, f, true);
+          if (f.getTrafoName() != null)
+          {
+            updateTrafoField(controller, f, true);
+          } else
+          {
+            updateField(controller, f, true);
+          }
         }
       }
-    }
 
-    c = controller.getModel().getIdToTextFieldFormFields().get(fieldId);
-    if (c != null)
-    {
-      for (FormField f : c)
+      c = controller.getModel().getIdToTextFieldFormFields().get(fieldId);
+      if (c != null)
       {
-        if (f.getTrafoName() != null)
-        {
-          updateTrafoField(controller, f, false);
-        } else
+        for (FormField f : c)
         {
-          updateField(controller, f, false);
+          if (f.getTrafoName() != null)
+          {
+            updateTrafoField(controller, f, false);
+          } else
+          {
+            updateField(controller, f, false);
+          }
         }
       }
+    } finally
+    {
+      controller.getModel().commitDocumentCommandsBatch();
     }
   }
 
@@ -183,40 +189,35 @@ public class FieldSubstitution implements Iterable<FieldSubstitution.SubstElemen
   private void updateField(TextDocumentController controller, FormField formField,
       boolean isInsertFormValue)
   {
-    try
+    XTextRange anchor = formField.getAnchor();
+    if (formField.getAnchor() != null)
     {
-      XTextRange anchor = formField.getAnchor();
-      if (formField.getAnchor() != null)
+      // create cursor, delete field and set text.
+      XTextCursor cursor = anchor.getText().createTextCursorByRange(anchor);
+      formField.dispose();
+      cursor.setString(toString());
+
+      // replace fields with book marks
+      cursor.collapseToStart();
+      for (FieldSubstitution.SubstElement ele : elements)
       {
-        // create cursor, delete field and set text.
-        XTextCursor cursor = anchor.getText().createTextCursorByRange(anchor);
-        formField.dispose();
-        cursor.setString(toString());
-
-        // replace fields with book marks
-        cursor.collapseToStart();
-        for (FieldSubstitution.SubstElement ele : elements)
+        if (ele.isFixedText())
+        {
+          cursor.goRight((short) ele.getValue().length(), false);
+        } else if (ele.isField())
         {
-          if (ele.isFixedText())
+          cursor.goRight((short) (1 + ele.getValue().length() + 1), true);
+          if (isInsertFormValue)
           {
-            cursor.goRight((short) ele.getValue().length(), false);
-          } else if (ele.isField())
+            controller.getModel().addNewDocumentCommand(cursor,
+                "WM(CMD 'insertFormValue' ID '" + ele.getValue() + "')");
+          } else
           {
-            cursor.goRight((short) (1 + ele.getValue().length() + 1), true);
-            if (isInsertFormValue)
-            {
-              new Bookmark("WM(CMD 'insertFormValue' ID '" + ele.getValue() + "')", controller.getModel().doc, cursor);
-            } else
-            {
-              controller.insertMailMergeField(ele.getValue(), cursor);
-            }
-            cursor.collapseToEnd();
+            controller.insertMailMergeField(ele.getValue(), cursor);
           }
+          cursor.collapseToEnd();
         }
       }
-    } catch (UnoHelperException e)
-    {
-      LOGGER.debug("", e);
     }
   }
 
@@ -282,7 +283,7 @@ public class FieldSubstitution implements Iterable<FieldSubstitution.SubstElemen
       FunctionLibrary funcLib = controller.getFunctionLibrary();
       Function func = FunctionFactory.parseChildren(trafoConf, funcLib,
           controller.getDialogLibrary(), controller.getFunctionContext());
-      funcLib.add(trafoName, func);
+      funcLib.add(trafoName, FunctionFactory.compile(func));
     } catch (NodeNotFoundException e)
     {
       LOGGER.error(
@@ -22,6 +22,7 @@
  */
 package org.libreoffice.lots.mailmerge;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -34,9 +35,12 @@ import org.libreoffice.lots.dialog.InfoDialog;
 import org.libreoffice.lots.document.TextDocumentController;
 import org.libreoffice.lots.func.print.PrintFunction;
 import org.libreoffice.lots.mailmerge.ds.DatasourceModel;
+import org.libreoffice.lots.mailmerge.ds.RecordTable;
 import org.libreoffice.lots.mailmerge.mail.EMailSender;
 import org.libreoffice.lots.mailmerge.mail.MailServerSettings;
+import org.libreoffice.lots.mailmerge.mail.SmtpSessionPool;
 import org.libreoffice.lots.mailmerge.print.MailMergePrintFunction;
+import org.libreoffice.lots.mailmerge.print.OutputFileWriter;
 import org.libreoffice.lots.mailmerge.print.PrintToEmail;
 import org.libreoffice.lots.mailmerge.print.SetFormValue;
 import org.libreoffice.lots.mailmerge.printsettings.PrintSettings;
@@ -63,6 +67,11 @@ public class MailMergeRunner implements Runnable
    */
   final XPrintModel pmod;
 
+  /**
+   * The records of the mail merge. They're released as soon as the mail merge has finished.
+   */
+  private final RecordTable data;
+
   /**
    * Setup a mail merge.
    *
@@ -82,20 +91,55 @@ public class MailMergeRunner implements Runnable
     pmod = PrintModels.createPrintModel(documentController);
     collectPrintFunctions(settings, documentController.getModel().getPrintFunctions());
     collectRecordIds(settings, model.getNumberOfRecords());
-    setPropertyValue(SetFormValue.PROP_QUERYRESULTS, model.getData());
+    data = model.getData();
+    data.retain();
+    setPropertyValue(SetFormValue.PROP_QUERYRESULTS, data);
     setProperties(settings);
   }
 
   @Override
   public void run()
   {
-    if (pmod.isCanceled())
+    try
     {
-      return;
+      if (!pmod.isCanceled())
+      {
+        print();
+      }
+    } finally
+    {
+      data.release();
     }
+  }
 
+  /**
+   * Print all records and wait until all mails and files have been written.
+   */
+  private void print()
+  {
     long startTime = System.currentTimeMillis();
     pmod.printWithProps();
+    // wait until all mails are sent
+    SmtpSessionPool pool = (SmtpSessionPool) pmod.getProp(PrintToEmail.PROP_EMAIL_SMTP_SESSION_POOL,
+        null);
+    if (pool != null)
+    {
+      pool.close();
+    }
+    // wait until all files are written
+    OutputFileWriter writer = (OutputFileWriter) pmod
+        .getProp(MailMergePrintFunction.PROP_OUTPUT_FILE_WRITER, null);
+    if (writer != null)
+    {
+      try
+      {
+        writer.close();
+      } catch (IOException e)
+      {
+        LOGGER.error("", e);
+        InfoDialog.showInfoModal(L.m("Error during printing"), e.getMessage());
+      }
+    }
     long duration = (System.currentTimeMillis() - startTime) / 1000;
     LOGGER.debug("MailMerge finished after {} seconds", duration);
 
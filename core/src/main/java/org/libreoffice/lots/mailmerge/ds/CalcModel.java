@@ -26,12 +26,20 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -39,8 +47,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.CharMatcher;
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import com.sun.star.awt.AsyncCallback;
 import com.sun.star.awt.XTopWindow;
 import com.sun.star.container.NoSuchElementException;
 import com.sun.star.frame.XModel;
@@ -70,6 +77,19 @@ public class CalcModel implements DatasourceModel
 {
   private static final Logger LOGGER = LoggerFactory.getLogger(CalcModel.class);
 
+  /**
+   * Delay in milliseconds after the last modification of the calc file before the data is read
+   * again.
+   */
+  private static final long REFRESH_DELAY = 300;
+
+  /**
+   * Maximum time in seconds a read of the data waits for a running re-read.
+   */
+  private static final long REFRESH_TIMEOUT = 10;
+
+  private static final ScheduledThreadPoolExecutor REFRESH_EXECUTOR = createRefreshExecutor();
+
   /**
    * The name of this database. It's the window title without Office.
    */
@@ -81,34 +101,41 @@ public class CalcModel implements DatasourceModel
   private XSpreadsheetDocument spreadSheetDocument;
 
   /**
-   * The data of one sheet.
+   * The data of one sheet. It's replaced as a whole after each read.
    */
-  HashBasedTable<Integer, String, String> data = HashBasedTable.create();
+  private volatile SheetData sheetData = new SheetData();
 
   /**
    * The name of the sheet.
    */
-  private String sheetName;
+  private volatile String sheetName;
 
   /**
-   * Set of columns, which contain data.
+   * A scheduled or running re-read of the data after modifications of the calc file. It's reset
+   * after the re-read has installed its data.
    */
-  private SortedSet<Integer> columnIndexes = new TreeSet<>();
+  private FutureTask<Void> pendingRefresh;
 
   /**
-   * Set or rows, which contain data.
+   * The number of reads, which have been started.
    */
-  private SortedSet<Integer> rowIndexes = new TreeSet<>();
+  private long reads = 0;
 
   /**
-   * Mapping from column name to column indexes.
+   * The number of the read, which has provided {@link #sheetData}. Results of older reads are
+   * dropped.
    */
-  private Map<String, String> mapColumnNameToCalcColumnName = new HashMap<>();
+  private long installedRead = 0;
+
+  /**
+   * Executor for notifying the listeners.
+   */
+  private final Executor notifier;
 
   /**
    * Listener on this model.
    */
-  private Set<DatasourceModelListener> listener = new HashSet<>();
+  private Set<DatasourceModelListener> listener = new CopyOnWriteArraySet<>();
 
   /**
    * Listener for changes in the calc file.
@@ -125,14 +152,7 @@ public class CalcModel implements DatasourceModel
     @Override
     public void modified(EventObject event)
     {
-      try
-      {
-        readTable();
-        listener.forEach(DatasourceModelListener::datasourceChanged);
-      } catch (NoTableSelectedException ex)
-      {
-        LOGGER.debug("", ex);
-      }
+      scheduleRefresh();
     }
   };
 
@@ -144,6 +164,20 @@ public class CalcModel implements DatasourceModel
    */
   public CalcModel(XSpreadsheetDocument spreadSheetDocument)
   {
+    this(spreadSheetDocument, CalcModel::runOnMainThread);
+  }
+
+  /**
+   * Create a new {@link DatasourceModel} based on a calc file.
+   *
+   * @param spreadSheetDocument
+   *          The calc document.
+   * @param notifier
+   *          The executor, which notifies the listeners about changes of the calc file.
+   */
+  CalcModel(XSpreadsheetDocument spreadSheetDocument, Executor notifier)
+  {
+    this.notifier = notifier;
     String title = UnoProperty.getPropertyByPropertyValues(UNO.XModel(spreadSheetDocument).getArgs(),
         UnoProperty.TITLE);
     this.datasourceName = UNO.stripOpenOfficeFromWindowName(title);
@@ -167,6 +201,14 @@ public class CalcModel implements DatasourceModel
   public void dispose()
   {
     UNO.XModifiable(spreadSheetDocument).removeModifyListener(modifyListener);
+    synchronized (this)
+    {
+      if (pendingRefresh != null)
+      {
+        pendingRefresh.cancel(false);
+        pendingRefresh = null;
+      }
+    }
   }
 
   @Override
@@ -211,7 +253,8 @@ public class CalcModel implements DatasourceModel
     {
       throw new NoTableSelectedException();
     }
-    return mapColumnNameToCalcColumnName.keySet();
+    refreshIfPending();
+    return sheetData.mapping.keySet();
   }
 
   @Override
@@ -241,13 +284,14 @@ public class CalcModel implements DatasourceModel
   }
 
   @Override
-  public Table<Integer, String, String> getData() throws NoTableSelectedException
+  public RecordTable getData() throws NoTableSelectedException
   {
     if (sheetName == null)
     {
       throw new NoTableSelectedException();
     }
-    return data;
+    refreshIfPending();
+    return sheetData.data;
   }
 
   @Override
@@ -257,7 +301,8 @@ public class CalcModel implements DatasourceModel
     {
       throw new NoTableSelectedException();
     }
-    return data.rowKeySet().size();
+    refreshIfPending();
+    return sheetData.data.getNumberOfRecords();
   }
 
   @Override
@@ -267,7 +312,8 @@ public class CalcModel implements DatasourceModel
     {
       throw new NoTableSelectedException();
     }
-    return data.row(rowIndex);
+    refreshIfPending();
+    return sheetData.data.getRecord(rowIndex);
   }
 
   @Override
@@ -302,6 +348,10 @@ public class CalcModel implements DatasourceModel
     {
       throw new NoTableSelectedException();
     }
+    refreshIfPending();
+    SheetData current = sheetData;
+    SortedSet<Integer> columnIndexes = current.content.columns;
+    SortedSet<Integer> rowIndexes = current.content.rows;
     XCellRangesQuery sheet;
     try
     {
@@ -325,7 +375,7 @@ public class CalcModel implements DatasourceModel
     {
       String fieldId = ent.getKey();
       FieldSubstitution subst = ent.getValue();
-      String formulaStr = buildFormula(rowNumPlaceholder, subst);
+      String formulaStr = buildFormula(rowNumPlaceholder, subst, current.mapping);
       if (formulaStr == null)
       {
         continue;
@@ -394,14 +444,190 @@ public class CalcModel implements DatasourceModel
    *           No sheet is selected.
    */
   private void readTable() throws NoTableSelectedException
+  {
+    long read;
+    synchronized (this)
+    {
+      if (pendingRefresh != null)
+      {
+        pendingRefresh.cancel(false);
+        pendingRefresh = null;
+      }
+      read = ++reads;
+    }
+    install(read, null, readAll(readSheet()));
+  }
+
+  /**
+   * Read the data again after the calc file has been modified. If only some values have changed,
+   * only these values are read and the listeners are informed about the changed records.
+   * Otherwise the whole sheet is read.
+   *
+   * The calc file is read without holding the monitor of this model, because Office calls the
+   * modify listener with the SolarMutex held. Only the new data is installed under the monitor.
+   */
+  private void refresh()
+  {
+    long read;
+    synchronized (this)
+    {
+      read = ++reads;
+    }
+    try
+    {
+      SheetContent content = readSheet();
+      boolean installed;
+      Set<Integer> records;
+      do
+      {
+        SheetData base = sheetData;
+        records = new TreeSet<>();
+        SheetData changed = readChanges(content, base, records);
+        if (records.isEmpty())
+        {
+          installed = install(read, null, readAll(content));
+        } else
+        {
+          installed = install(read, base, changed);
+        }
+      } while (!installed && isCurrent(read));
+
+      if (!installed)
+      {
+        return;
+      }
+      if (records.isEmpty())
+      {
+        notifier.execute(() -> listener.forEach(DatasourceModelListener::datasourceChanged));
+      } else
+      {
+        LOGGER.trace("{} Datensätze wurden geändert", records.size());
+        Set<Integer> changed = Collections.unmodifiableSet(records);
+        notifier.execute(() -> listener.forEach(l -> l.recordsChanged(changed)));
+      }
+    } catch (NoTableSelectedException ex)
+    {
+      LOGGER.debug("", ex);
+    }
+  }
+
+  /**
+   * Replace the data of the sheet.
+   *
+   * @param read
+   *          The number of the read, which has provided the data.
+   * @param base
+   *          The data the new data is based on or null if it doesn't depend on the current data.
+   * @param data
+   *          The new data.
+   * @return True if the data has been replaced. False if a newer read has already been installed
+   *         or the current data isn't the base anymore.
+   */
+  private synchronized boolean install(long read, SheetData base, SheetData data)
+  {
+    if (read < installedRead || (base != null && sheetData != base))
+    {
+      return false;
+    }
+    sheetData = data;
+    installedRead = read;
+    return true;
+  }
+
+  /**
+   * Has no newer read been installed?
+   *
+   * @param read
+   *          The number of a read.
+   * @return True if the result of the read can still be installed.
+   */
+  private synchronized boolean isCurrent(long read)
+  {
+    return read >= installedRead;
+  }
+
+  /**
+   * Read the data after {@link #REFRESH_DELAY} milliseconds. If there are further modifications
+   * in the meantime, the delay starts again.
+   */
+  private synchronized void scheduleRefresh()
+  {
+    if (pendingRefresh != null)
+    {
+      pendingRefresh.cancel(false);
+    }
+    FutureTask<Void> task = new FutureTask<Void>(this::refresh, null)
+    {
+      @Override
+      protected void done()
+      {
+        synchronized (CalcModel.this)
+        {
+          if (pendingRefresh == this)
+          {
+            pendingRefresh = null;
+          }
+        }
+      }
+    };
+    pendingRefresh = task;
+    REFRESH_EXECUTOR.schedule(task, REFRESH_DELAY, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Make sure the data reflects all modifications of the calc file. A scheduled re-read, which
+   * hasn't started yet, is run immediately on the calling thread. A running re-read is awaited.
+   */
+  private void refreshIfPending()
+  {
+    FutureTask<Void> refresh;
+    synchronized (this)
+    {
+      refresh = pendingRefresh;
+    }
+    while (refresh != null)
+    {
+      // does nothing if the re-read is already running or done
+      refresh.run();
+      try
+      {
+        refresh.get(REFRESH_TIMEOUT, TimeUnit.SECONDS);
+        return;
+      } catch (CancellationException ex)
+      {
+        // replaced by a newer re-read
+        FutureTask<Void> cancelled = refresh;
+        synchronized (this)
+        {
+          refresh = pendingRefresh != cancelled ? pendingRefresh : null;
+        }
+      } catch (InterruptedException ex)
+      {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException | TimeoutException ex)
+      {
+        LOGGER.debug("Die Daten wurden nicht aktualisiert", ex);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Read the visible part of the currently selected sheet, which contains data.
+   *
+   * @return The content of the sheet.
+   * @throws NoTableSelectedException
+   *           No sheet is selected.
+   */
+  private SheetContent readSheet() throws NoTableSelectedException
   {
     if (sheetName == null)
     {
       throw new NoTableSelectedException();
     }
 
-    data.clear();
-    mapColumnNameToCalcColumnName.clear();
+    SheetContent content = new SheetContent();
     if (spreadSheetDocument != null)
     {
       try
@@ -415,67 +641,167 @@ public class CalcModel implements DatasourceModel
               (short) (com.sun.star.sheet.CellFlags.VALUE | com.sun.star.sheet.CellFlags.DATETIME
                   | com.sun.star.sheet.CellFlags.STRING | com.sun.star.sheet.CellFlags.FORMULA));
           CellRangeAddress[] nonEmptyCellRangeAddresses = nonEmptyCellRanges.getRangeAddresses();
-          columnIndexes = new TreeSet<>(Arrays.stream(nonEmptyCellRangeAddresses)
+          content.columns = new TreeSet<>(Arrays.stream(nonEmptyCellRangeAddresses)
               .flatMap(nonEmptyCells -> Arrays.stream(UNO.XCellRangesQuery(visibleCellRanges)
                   .queryIntersection(nonEmptyCells).getRangeAddresses()))
               .flatMap(addr -> IntStream.rangeClosed(addr.StartColumn, addr.EndColumn).boxed())
               .distinct().sorted().collect(Collectors.toSet()));
-          rowIndexes = new TreeSet<>(Arrays.stream(nonEmptyCellRangeAddresses)
+          content.rows = new TreeSet<>(Arrays.stream(nonEmptyCellRangeAddresses)
               .flatMap(nonEmptyCells -> Arrays.stream(UNO.XCellRangesQuery(visibleCellRanges)
                   .queryIntersection(nonEmptyCells).getRangeAddresses()))
               .flatMap(addr -> IntStream.rangeClosed(addr.StartRow, addr.EndRow).boxed()).distinct()
               .sorted().collect(Collectors.toSet()));
-          if (!rowIndexes.isEmpty() && !columnIndexes.isEmpty())
+          if (!content.rows.isEmpty() && !content.columns.isEmpty())
           {
-            int startRow = rowIndexes.first();
-            int endRow = rowIndexes.last();
-            int startColumn = columnIndexes.first();
-            int endColumn = columnIndexes.last();
-            XCellRange range = UNO.XCellRange(sheet).getCellRangeByPosition(startColumn, startRow,
+            int startRow = content.rows.first();
+            int endRow = content.rows.last();
+            int startColumn = content.columns.first();
+            int endColumn = content.columns.last();
+            content.range = UNO.XCellRange(sheet).getCellRangeByPosition(startColumn, startRow,
                 endColumn, endRow);
-            Object[][] cellData = UNO.XCellRangeData(range).getDataArray();
-            readRowData(cellData, range);
+            content.cellData = UNO.XCellRangeData(content.range).getDataArray();
           }
         }
       } catch (Exception e)
       {
         LOGGER.debug("", e);
+        content = new SheetContent();
       }
     }
+    return content;
   }
 
   /**
-   * Read the data of row and put it into the data table. If row doesn't contain data nothing is
-   * done.
+   * Read all records of the sheet into a new table. Rows which don't contain data are skipped.
    *
-   * @param cellData
-   *          The data of the whole sheet..
-   * @throws IndexOutOfBoundsException
+   * @param content
+   *          The content of the sheet.
+   * @return The data of the sheet.
    */
-  private void readRowData(Object[][] cellData, XCellRange range) throws IndexOutOfBoundsException
+  private SheetData readAll(SheetContent content)
   {
-    List<Integer> rows = new ArrayList<>(rowIndexes);
-    for (int record = 0; record < rowIndexes.size(); record++)
+    ColumnarRecordTable table = new ColumnarRecordTable(Collections.emptyList(),
+        content.rows.size() - 1);
+    Map<String, String> mapping = new HashMap<>();
+    String[] names = new String[content.cellData.length > 0 ? content.cellData[0].length : 0];
+    try
     {
-      int row = rows.get(record);
-      for (int j = 0; j < cellData[0].length; j++)
+      List<Integer> rows = new ArrayList<>(content.rows);
+      // first row contains the header
+      for (int j = 0; j < names.length; j++)
       {
-        if (columnIndexes.contains(j + columnIndexes.first()))
+        if (content.columns.contains(j + content.columns.first()))
         {
-          String column = UNO.XTextRange(range.getCellByPosition(j, rows.get(0))).getString();
+          String column = UNO.XTextRange(content.range.getCellByPosition(j, 0)).getString();
           column = CharMatcher.breakingWhitespace().replaceFrom(column, " ");
-          // first row contains the header
-          if (record == 0)
+          String calcColumnName = getCalcColumnNameForColumnIndex(j + content.columns.first() + 1);
+          String previous = mapping.put(column, calcColumnName);
+          if (previous != null)
+          {
+            names[Arrays.asList(names).indexOf(column)] = null;
+          }
+          names[j] = column;
+          table.addColumn(column);
+        }
+      }
+      for (int record = 1; record < rows.size(); record++)
+      {
+        int y = rows.get(record) - rows.get(0);
+        int id = table.addRecord();
+        for (int j = 0; j < names.length; j++)
+        {
+          if (names[j] != null)
           {
-            mapColumnNameToCalcColumnName.put(column, getCalcColumnNameForColumnIndex(j + 1));
-          } else
+            table.set(id, names[j], UNO.XTextRange(content.range.getCellByPosition(j, y)).getString());
+          }
+        }
+      }
+    } catch (IndexOutOfBoundsException e)
+    {
+      LOGGER.debug("", e);
+    }
+    return new SheetData(content, names, mapping, table);
+  }
+
+  /**
+   * Read only the values which have changed since the sheet was read the last time. Values are
+   * compared with the values of the last read.
+   *
+   * @param content
+   *          The content of the sheet.
+   * @param base
+   *          The data of the last read.
+   * @param records
+   *          Is filled with the ids of the changed records. It stays empty if the rows or columns
+   *          of the sheet have changed or no value has changed, so that the whole sheet has to be
+   *          read.
+   * @return The data with the changed values or null if the records are empty.
+   */
+  private SheetData readChanges(SheetContent content, SheetData base, Set<Integer> records)
+  {
+    Object[][] cellData = base.content.cellData;
+    String[] columnNameAt = base.columnNameAt;
+    if (!content.rows.equals(base.content.rows) || !content.columns.equals(base.content.columns)
+        || content.cellData.length != cellData.length || content.cellData.length == 0
+        || !Arrays.equals(content.cellData[0], cellData[0]))
+    {
+      return null;
+    }
+
+    ColumnarRecordTable table = null;
+    try
+    {
+      List<Integer> rows = new ArrayList<>(content.rows);
+      for (int record = 1; record < rows.size(); record++)
+      {
+        int y = rows.get(record) - rows.get(0);
+        for (int j = 0; j < columnNameAt.length; j++)
+        {
+          if (columnNameAt[j] != null && !Objects.equals(content.cellData[y][j], cellData[y][j]))
           {
-            String value = UNO.XTextRange(range.getCellByPosition(j, row)).getString();
-            data.put(record, column, value);
+            if (table == null)
+            {
+              table = base.data.copy();
+            }
+            table.set(record, columnNameAt[j],
+                UNO.XTextRange(content.range.getCellByPosition(j, y)).getString());
+            records.add(record);
           }
         }
       }
+    } catch (IndexOutOfBoundsException e)
+    {
+      LOGGER.debug("", e);
+      records.clear();
+      return null;
     }
+    if (table == null)
+    {
+      return null;
+    }
+    return new SheetData(content, columnNameAt, base.mapping, table);
+  }
+
+  /**
+   * Run a task on the main thread of Office.
+   *
+   * @param task
+   *          The task.
+   */
+  private static void runOnMainThread(Runnable task)
+  {
+    AsyncCallback.create(UNO.defaultContext).addCallback(data -> task.run(), null);
+  }
+
+  private static ScheduledThreadPoolExecutor createRefreshExecutor()
+  {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, "lots-calc-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.setRemoveOnCancelPolicy(true);
+    return executor;
   }
 
   /**
@@ -485,9 +811,12 @@ public class CalcModel implements DatasourceModel
    *          The placeholder for row numbers.
    * @param subst
    *          List of substitutions.
+   * @param mapColumnNameToCalcColumnName
+   *          Mapping from column name to column indexes.
    * @return A formula as string.
    */
-  private String buildFormula(String rowNumPlaceholder, FieldSubstitution subst)
+  private String buildFormula(String rowNumPlaceholder, FieldSubstitution subst,
+      Map<String, String> mapColumnNameToCalcColumnName)
   {
     StringBuilder formula = new StringBuilder();
     for (FieldSubstitution.SubstElement substEle : subst)
@@ -529,4 +858,50 @@ public class CalcModel implements DatasourceModel
     formula.append(')');
     return formula.toString();
   }
+
+  /**
+   * The visible part of a sheet, which contains data.
+   */
+  private static class SheetContent
+  {
+    private SortedSet<Integer> rows = new TreeSet<>();
+    private SortedSet<Integer> columns = new TreeSet<>();
+    private XCellRange range;
+    private Object[][] cellData = new Object[0][];
+  }
+
+  /**
+   * The data of a sheet as read from a {@link SheetContent}. It's never modified.
+   */
+  private static class SheetData
+  {
+    private final SheetContent content;
+
+    /**
+     * The column name of each column of {@link SheetContent#cellData}. Null if the column doesn't
+     * contain data or another column has the same name.
+     */
+    private final String[] columnNameAt;
+
+    /**
+     * Mapping from column name to column indexes.
+     */
+    private final Map<String, String> mapping;
+
+    private final ColumnarRecordTable data;
+
+    private SheetData()
+    {
+      this(new SheetContent(), new String[0], Collections.emptyMap(), new ColumnarRecordTable());
+    }
+
+    private SheetData(SheetContent content, String[] columnNameAt, Map<String, String> mapping,
+        ColumnarRecordTable data)
+    {
+      this.content = content;
+      this.columnNameAt = columnNameAt;
+      this.mapping = Collections.unmodifiableMap(mapping);
+      this.data = data;
+    }
+  }
 }
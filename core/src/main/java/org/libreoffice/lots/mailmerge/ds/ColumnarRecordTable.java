@@ -0,0 +1,224 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.ds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link RecordTable} which stores its values column by column. Each column has a dictionary of
+ * its distinct values and stores only their codes, so repeated values like salutations or cities
+ * are kept once per column.
+ */
+public class ColumnarRecordTable implements RecordTable
+{
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * The columns in the order of the data source.
+   */
+  private final Map<String, Column> columns = new LinkedHashMap<>();
+
+  /**
+   * The number of records.
+   */
+  private int size = 0;
+
+  /**
+   * The number of records, which fit into the code arrays of the columns.
+   */
+  private int capacity;
+
+  /**
+   * Create an empty table without columns.
+   */
+  public ColumnarRecordTable()
+  {
+    this(Collections.emptyList(), INITIAL_CAPACITY);
+  }
+
+  /**
+   * Create an empty table.
+   *
+   * @param columnNames
+   *          The columns of the table.
+   * @param expectedRecords
+   *          The expected number of records.
+   */
+  public ColumnarRecordTable(Collection<String> columnNames, int expectedRecords)
+  {
+    capacity = Math.max(expectedRecords, 1);
+    columnNames.forEach(this::addColumn);
+  }
+
+  /**
+   * Create a copy of this table, which can be modified independently.
+   *
+   * @return A new table with the same columns and records.
+   */
+  public ColumnarRecordTable copy()
+  {
+    ColumnarRecordTable table = new ColumnarRecordTable(Collections.emptyList(), capacity);
+    columns.forEach((name, c) -> table.columns.put(name, new Column(c)));
+    table.size = size;
+    return table;
+  }
+
+  /**
+   * Add a column. The column is empty for all existing records. Nothing is done if the table
+   * already has this column.
+   *
+   * @param column
+   *          The name of the column.
+   */
+  public void addColumn(String column)
+  {
+    columns.computeIfAbsent(column, c -> new Column(capacity));
+  }
+
+  /**
+   * Add a record with empty values.
+   *
+   * @return The row id of the new record.
+   */
+  public int addRecord()
+  {
+    if (size == capacity)
+    {
+      capacity += Math.max(capacity >> 1, INITIAL_CAPACITY);
+      columns.values().forEach(c -> c.grow(capacity));
+    }
+    return ++size;
+  }
+
+  /**
+   * Set a value.
+   *
+   * @param id
+   *          The row id of the record.
+   * @param column
+   *          The name of the column.
+   * @param value
+   *          The new value. Null is stored as empty string.
+   * @throws IllegalArgumentException
+   *           There's no such record or column.
+   */
+  public void set(int id, String column, String value)
+  {
+    Column c = columns.get(column);
+    if (c == null || id < 1 || id > size)
+    {
+      throw new IllegalArgumentException("No value at " + id + ", " + column);
+    }
+    c.codes[id - 1] = c.encode(value == null ? "" : value);
+  }
+
+  @Override
+  public Set<String> getColumnNames()
+  {
+    return Collections.unmodifiableSet(columns.keySet());
+  }
+
+  @Override
+  public int getNumberOfRecords()
+  {
+    return size;
+  }
+
+  @Override
+  public String get(int id, String column)
+  {
+    Column c = columns.get(column);
+    if (c == null || id < 1 || id > size)
+    {
+      return null;
+    }
+    return c.decode(id - 1);
+  }
+
+  @Override
+  public Map<String, String> getRecord(int id)
+  {
+    if (id < 1 || id > size)
+    {
+      return Collections.emptyMap();
+    }
+    Map<String, String> record = new LinkedHashMap<>();
+    columns.forEach((name, c) -> record.put(name, c.decode(id - 1)));
+    return Collections.unmodifiableMap(record);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "ColumnarRecordTable[" + columns.keySet() + ", " + size + " records]";
+  }
+
+  /**
+   * The dictionary encoded values of a column. Code 0 is always the empty string, so that new
+   * records are empty without touching the code array.
+   */
+  private static class Column
+  {
+    private final List<String> dictionary = new ArrayList<>(List.of(""));
+    private final Map<String, Integer> codeOfValue = new HashMap<>(Map.of("", 0));
+    private int[] codes;
+
+    private Column(int capacity)
+    {
+      codes = new int[capacity];
+    }
+
+    private Column(Column column)
+    {
+      dictionary.addAll(column.dictionary.subList(1, column.dictionary.size()));
+      codeOfValue.putAll(column.codeOfValue);
+      codes = column.codes.clone();
+    }
+
+    private void grow(int capacity)
+    {
+      codes = Arrays.copyOf(codes, capacity);
+    }
+
+    private int encode(String value)
+    {
+      return codeOfValue.computeIfAbsent(value, v -> {
+        dictionary.add(v);
+        return dictionary.size() - 1;
+      });
+    }
+
+    private String decode(int index)
+    {
+      return dictionary.get(codes[index]);
+    }
+  }
+}
@@ -23,7 +23,6 @@
 package org.libreoffice.lots.mailmerge.ds;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -31,8 +30,6 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import com.sun.star.awt.XTopWindow;
 import com.sun.star.frame.XModel;
 import com.sun.star.lang.EventObject;
@@ -70,11 +67,6 @@ public class DBModel implements DatasourceModel
    */
   private String datasourceName;
 
-  /**
-   * The row set for executing queries.
-   */
-  private XRowSet results;
-
   /**
    * The database connection.
    */
@@ -93,13 +85,25 @@ public class DBModel implements DatasourceModel
   /**
    * The data of the currently selected table.
    */
-  HashBasedTable<Integer, String, String> data = HashBasedTable.create();
+  private volatile RecordTable data = new ColumnarRecordTable();
 
   /**
    * Login timeout in seconds.
    */
   private static final int MAILMERGE_LOGIN_TIMEOUT = 30;
 
+  /**
+   * Tables with more records aren't read completely. Their records are read page by page while
+   * they are accessed.
+   */
+  static final int STREAMING_THRESHOLD = 10000;
+
+  /**
+   * Number of records read at once from tables with more than {@link #STREAMING_THRESHOLD}
+   * records.
+   */
+  static final int PAGE_SIZE = 500;
+
   /**
    * Listener for changes in the base file.
    */
@@ -133,7 +137,6 @@ public class DBModel implements DatasourceModel
    */
   public DBModel(XOfficeDatabaseDocument ds)
   {
-    results = UNO.XRowSet(UnoComponent.createComponentWithContext(UnoComponent.CSS_SDB_ROW_SET));
     try
     {
       this.datasourceName = UnoProperty.getProperty(ds.getDataSource(), UnoProperty.NAME).toString();
@@ -142,10 +145,6 @@ public class DBModel implements DatasourceModel
 
       ds.getDataSource().setLoginTimeout(DBModel.MAILMERGE_LOGIN_TIMEOUT);
       conn = ds.getDataSource().getConnection("", "");
-
-      UnoProperty.setProperty(results, UnoProperty.ACTIVE_CONNECTION, conn);
-      UnoProperty.setProperty(results, UnoProperty.ESCAPE_PROCESSING, false);
-      UnoProperty.setProperty(results, UnoProperty.COMMAND_TYPE, CommandType.COMMAND);
     } catch (SQLException x)
     {
       LOGGER.error("Kann keine Verbindung zur Datenquelle {} herstellen", datasourceName);
@@ -185,6 +184,7 @@ public class DBModel implements DatasourceModel
   public void dispose()
   {
     UNO.XModifiable(document).removeModifyListener(modifyListener);
+    closeData();
     if (conn != null)
     {
       try
@@ -195,10 +195,6 @@ public class DBModel implements DatasourceModel
         LOGGER.error("", e);
       }
     }
-    if (results != null)
-    {
-      UNO.XComponent(results).dispose();
-    }
   }
 
   @Override
@@ -234,11 +230,11 @@ public class DBModel implements DatasourceModel
       throw new NoTableSelectedException();
     }
 
-    return data.columnKeySet();
+    return data.getColumnNames();
   }
 
   @Override
-  public Table<Integer, String, String> getData() throws NoTableSelectedException
+  public RecordTable getData() throws NoTableSelectedException
   {
     if (tableName == null)
     {
@@ -256,7 +252,7 @@ public class DBModel implements DatasourceModel
       throw new NoTableSelectedException();
     }
 
-    return data.rowMap().size();
+    return data.getNumberOfRecords();
   }
 
   @Override
@@ -316,11 +312,7 @@ public class DBModel implements DatasourceModel
       throw new NoTableSelectedException();
     }
 
-    if (!data.containsRow(index))
-    {
-      Collections.emptyMap();
-    }
-    return data.row(index);
+    return data.getRecord(index);
   }
 
   @Override
@@ -336,7 +328,8 @@ public class DBModel implements DatasourceModel
   }
 
   /**
-   * Read the data from the currently selected table.
+   * Read the data from the currently selected table. Small tables are read completely, big tables
+   * are read page by page by a {@link ResultSetRecordTable}.
    *
    * @throws NoTableSelectedException
    *           No sheet is selected.
@@ -348,7 +341,9 @@ public class DBModel implements DatasourceModel
       throw new NoTableSelectedException();
     }
 
-    data.clear();
+    closeData();
+    data = new ColumnarRecordTable();
+    XRowSet results = null;
     try
     {
       UnoDictionary<XColumnsSupplier> tables = UnoDictionary.create(UNO.XTablesSupplier(conn)
@@ -360,26 +355,61 @@ public class DBModel implements DatasourceModel
       UnoDictionary<Object> columns = UnoDictionary.create(columnsSupplier.getColumns(), Object.class);
       Set<String> columnNames = columns.keySet();
 
+      results = UNO.XRowSet(UnoComponent.createComponentWithContext(UnoComponent.CSS_SDB_ROW_SET));
+      UnoProperty.setProperty(results, UnoProperty.ACTIVE_CONNECTION, conn);
+      UnoProperty.setProperty(results, UnoProperty.ESCAPE_PROCESSING, false);
+      UnoProperty.setProperty(results, UnoProperty.COMMAND_TYPE, CommandType.COMMAND);
       UnoProperty.setProperty(results, UnoProperty.COMMAND, "SELECT * FROM " + sqlIdentifier(tableName) + ";");
       results.execute();
+      int numberOfRecords = results.last() ? results.getRow() : 0;
+      if (numberOfRecords > STREAMING_THRESHOLD)
+      {
+        data = new ResultSetRecordTable(results, columnNames, numberOfRecords, PAGE_SIZE);
+        results = null;
+        return;
+      }
+
+      ColumnarRecordTable table = new ColumnarRecordTable(columnNames, numberOfRecords);
+      results.beforeFirst();
       XRow row = UNO.XRow(results);
       XColumnLocate locate = UNO.XColumnLocate(results);
-      int id = 1;
+      int[] columnIndexes = new int[columnNames.size()];
+      int i = 0;
+      for (String column : columnNames)
+      {
+        columnIndexes[i++] = locate.findColumn(column);
+      }
       while (results.next())
       {
+        int id = table.addRecord();
+        i = 0;
         for (String column : columnNames)
         {
-          String value = row.getString(locate.findColumn(column));
-          data.put(id, column, value);
+          table.set(id, column, row.getString(columnIndexes[i++]));
         }
-        id++;
       }
+      data = table;
     } catch (SQLException | IllegalArgumentException | UnoHelperException e)
     {
       LOGGER.error("", e);
+    } finally
+    {
+      if (results != null)
+      {
+        UNO.XComponent(results).dispose();
+      }
     }
   }
 
+  /**
+   * Release the current data. A result set, which is read page by page, is only disposed if no
+   * mail merge uses it anymore.
+   */
+  private void closeData()
+  {
+    data.release();
+  }
+
   /**
    * Escapes a string to be used in SQL statements.
    *
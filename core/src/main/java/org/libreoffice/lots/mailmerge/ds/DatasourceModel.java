@@ -30,7 +30,6 @@ import org.libreoffice.lots.config.ConfigThingy;
 import org.libreoffice.lots.mailmerge.FieldSubstitution;
 import org.libreoffice.lots.mailmerge.NoTableSelectedException;
 
-import com.google.common.collect.Table;
 import com.sun.star.util.XCloseBroadcaster;
 
 /**
@@ -124,7 +123,7 @@ public interface DatasourceModel extends XCloseBroadcaster
    * @throws NoTableSelectedException
    *           A table has to be selected before this method can used.
    */
-  Table<Integer, String, String> getData() throws NoTableSelectedException;
+  RecordTable getData() throws NoTableSelectedException;
 
   /**
    * Get the number of records in a table.
@@ -22,6 +22,8 @@
  */
 package org.libreoffice.lots.mailmerge.ds;
 
+import java.util.Set;
+
 /**
  * Listener for changes in a data source.
  */
@@ -31,4 +33,16 @@ public interface DatasourceModelListener
    * Called when the data source has changed.
    */
   void datasourceChanged();
+
+  /**
+   * Called when only some values of the data source have changed. The columns and the number of
+   * records are the same as before. By default it's handled like any other change.
+   *
+   * @param records
+   *          The ids of the changed records.
+   */
+  default void recordsChanged(Set<Integer> records)
+  {
+    datasourceChanged();
+  }
 }
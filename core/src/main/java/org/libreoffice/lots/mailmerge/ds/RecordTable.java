@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.ds;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The records of a table of a {@link DatasourceModel}. Records are identified by their row id,
+ * the first record has id 1.
+ */
+public interface RecordTable
+{
+  /**
+   * The columns of the table.
+   *
+   * @return The column names in the order of the data source.
+   */
+  Set<String> getColumnNames();
+
+  /**
+   * Get the number of records.
+   *
+   * @return The number of records.
+   */
+  int getNumberOfRecords();
+
+  /**
+   * Get a single value.
+   *
+   * @param id
+   *          The row id of the record.
+   * @param column
+   *          The name of the column.
+   * @return The value or null if there's no such record or column.
+   */
+  String get(int id, String column);
+
+  /**
+   * Get a record.
+   *
+   * @param id
+   *          The row id of the record.
+   * @return Mapping from column name to value. If there's no record with this id, the map is
+   *         empty.
+   */
+  Map<String, String> getRecord(int id);
+
+  /**
+   * Register another user of the table. Tables which hold resources of the data source stay
+   * readable until every user has called {@link #release()}, even if the data source reads a new
+   * table in the meantime.
+   */
+  default void retain()
+  {
+    // nothing to do
+  }
+
+  /**
+   * Unregister a user of the table, which has been registered by {@link #retain()}.
+   */
+  default void release()
+  {
+    // nothing to do
+  }
+}
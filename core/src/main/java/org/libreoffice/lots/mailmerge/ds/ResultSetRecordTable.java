@@ -0,0 +1,209 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.ds;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.star.lang.DisposedException;
+import com.sun.star.sdbc.SQLException;
+import com.sun.star.sdbc.XColumnLocate;
+import com.sun.star.sdbc.XRow;
+import com.sun.star.sdbc.XRowSet;
+
+import org.libreoffice.ext.unohelper.common.UNO;
+
+/**
+ * A {@link RecordTable} which reads its records page by page from a scrollable result set. Only
+ * the current page is kept in memory, so big tables can be used for a mail merge.
+ *
+ * The table owns the result set. The data source and every other user of the table, e.g. a running
+ * mail merge, hold a reference. The result set is disposed as soon as all references have been
+ * released.
+ */
+class ResultSetRecordTable implements RecordTable
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResultSetRecordTable.class);
+
+  private final XRowSet results;
+
+  private final Set<String> columnNames;
+
+  /**
+   * Mapping from column name to column index in the result set.
+   */
+  private final Map<String, Integer> columnIndexes = new LinkedHashMap<>();
+
+  private final int numberOfRecords;
+
+  private final int pageSize;
+
+  /**
+   * The records of the current page.
+   */
+  private ColumnarRecordTable page = new ColumnarRecordTable();
+
+  /**
+   * The row id of the first record of the current page.
+   */
+  private int pageStart = 1;
+
+  /**
+   * The number of users of the table. The data source which created the table is the first one.
+   */
+  private int references = 1;
+
+  /**
+   * Create a new table.
+   *
+   * @param results
+   *          An executed, scrollable result set.
+   * @param columnNames
+   *          The columns of the table.
+   * @param numberOfRecords
+   *          The number of records in the result set.
+   * @param pageSize
+   *          The number of records read at once.
+   * @throws SQLException
+   *           A column can't be found in the result set.
+   */
+  ResultSetRecordTable(XRowSet results, Set<String> columnNames, int numberOfRecords, int pageSize)
+      throws SQLException
+  {
+    this.results = results;
+    this.columnNames = Collections.unmodifiableSet(columnNames);
+    this.numberOfRecords = numberOfRecords;
+    this.pageSize = pageSize;
+    XColumnLocate locate = UNO.XColumnLocate(results);
+    for (String column : columnNames)
+    {
+      columnIndexes.put(column, locate.findColumn(column));
+    }
+  }
+
+  @Override
+  public Set<String> getColumnNames()
+  {
+    return columnNames;
+  }
+
+  @Override
+  public int getNumberOfRecords()
+  {
+    return numberOfRecords;
+  }
+
+  @Override
+  public synchronized String get(int id, String column)
+  {
+    if (!loadPage(id))
+    {
+      return null;
+    }
+    return page.get(id - pageStart + 1, column);
+  }
+
+  @Override
+  public synchronized Map<String, String> getRecord(int id)
+  {
+    if (!loadPage(id))
+    {
+      return Collections.emptyMap();
+    }
+    return page.getRecord(id - pageStart + 1);
+  }
+
+  @Override
+  public synchronized void retain()
+  {
+    if (references > 0)
+    {
+      references++;
+    }
+  }
+
+  /**
+   * Release a reference. The result set is disposed if it was the last one.
+   */
+  @Override
+  public synchronized void release()
+  {
+    if (references == 0)
+    {
+      return;
+    }
+    references--;
+    if (references == 0)
+    {
+      page = new ColumnarRecordTable();
+      UNO.XComponent(results).dispose();
+    }
+  }
+
+  /**
+   * Make sure that the current page contains the record.
+   *
+   * @param id
+   *          The row id of the record.
+   * @return False if there's no such record or it can't be read.
+   */
+  private boolean loadPage(int id)
+  {
+    if (id < 1 || id > numberOfRecords || references == 0)
+    {
+      return false;
+    }
+    if (id >= pageStart && id < pageStart + page.getNumberOfRecords())
+    {
+      return true;
+    }
+
+    ColumnarRecordTable newPage = new ColumnarRecordTable(columnNames, pageSize);
+    try
+    {
+      XRow row = UNO.XRow(results);
+      boolean hasRow = results.absolute(id);
+      while (hasRow && newPage.getNumberOfRecords() < pageSize)
+      {
+        int record = newPage.addRecord();
+        for (Map.Entry<String, Integer> column : columnIndexes.entrySet())
+        {
+          newPage.set(record, column.getKey(), row.getString(column.getValue()));
+        }
+        hasRow = results.next();
+      }
+    } catch (SQLException | DisposedException e)
+    {
+      LOGGER.error("Datensatz {} kann nicht gelesen werden", id, e);
+      return false;
+    }
+    page = newPage;
+    pageStart = id;
+    return page.getNumberOfRecords() > 0;
+  }
+}
@@ -24,19 +24,25 @@ package org.libreoffice.lots.mailmerge.mail;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.activation.DataHandler;
+import javax.activation.FileTypeMap;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.Multipart;
+import javax.mail.Part;
 import javax.mail.Session;
 import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
+import javax.mail.util.ByteArrayDataSource;
 
 import org.libreoffice.lots.WollMuxFiles;
 import org.libreoffice.lots.config.ConfigThingy;
@@ -99,7 +105,8 @@ public class EMailSender
   }
 
   /**
-   * Add an attachment to the mail.
+   * Add an attachment to the mail. The content of the file is read at once, so the file can be
+   * changed or deleted before the mail is sent.
    *
    * @param attachment
    *          The attachment.
@@ -110,8 +117,12 @@ public class EMailSender
    */
   public void addAttachment(File attachment) throws MessagingException, IOException
   {
+    byte[] content = Files.readAllBytes(attachment.toPath());
+    String type = FileTypeMap.getDefaultFileTypeMap().getContentType(attachment);
     MimeBodyPart messageBodyPart = new MimeBodyPart();
-    messageBodyPart.attachFile(attachment);
+    messageBodyPart.setDataHandler(new DataHandler(new ByteArrayDataSource(content, type)));
+    messageBodyPart.setFileName(attachment.getName());
+    messageBodyPart.setDisposition(Part.ATTACHMENT);
     ((Multipart) email.getContent()).addBodyPart(messageBodyPart);
   }
 
@@ -141,6 +152,21 @@ public class EMailSender
     }
   }
 
+  /**
+   * Send a message with a connection of the pool. The message is sent in the background.
+   *
+   * @param pool
+   *          The pool of connections to the mail server.
+   * @return A future, which completes when the message has been sent.
+   * @throws MessagingException
+   *           Problems with the mail message.
+   */
+  public CompletableFuture<Void> sendMessage(SmtpSessionPool pool) throws MessagingException
+  {
+    email.saveChanges();
+    return pool.send(email);
+  }
+
   /**
    * Get the mail server settings from the configuration and set them.
    *
@@ -190,10 +216,48 @@ public class EMailSender
 
         mailserver.setUsername(username);
       }
+
+      mailserver.setConnections(parsePositiveInt(wollmuxconf, "CONNECTIONS",
+          MailServerSettings.DEFAULT_CONNECTIONS));
+      mailserver.setMessagesPerConnection(parsePositiveInt(wollmuxconf, "MESSAGES_PER_CONNECTION",
+          MailServerSettings.DEFAULT_MESSAGES_PER_CONNECTION));
     }
     catch (MessagingException e)
     {
       throw new ConfigurationErrorException();
     }
   }
+
+  /**
+   * Parse a positive number of the mail settings.
+   *
+   * @param conf
+   *          The mail settings.
+   * @param key
+   *          The key of the number.
+   * @param defaultValue
+   *          The value to use, if the key is missing or invalid.
+   * @return The number.
+   */
+  private static int parsePositiveInt(ConfigThingy conf, String key, int defaultValue)
+  {
+    String value = conf.getString(key, "");
+    if (value.isEmpty())
+    {
+      return defaultValue;
+    }
+    try
+    {
+      int number = Integer.parseInt(value);
+      if (number > 0)
+      {
+        return number;
+      }
+    } catch (NumberFormatException e)
+    {
+      LOGGER.trace("", e);
+    }
+    LOGGER.error("{} has to be a positive integer number", key);
+    return defaultValue;
+  }
 }
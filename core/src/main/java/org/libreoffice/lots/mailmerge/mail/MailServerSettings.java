@@ -27,6 +27,16 @@ package org.libreoffice.lots.mailmerge.mail;
  */
 public class MailServerSettings
 {
+  /**
+   * Default number of connections used by {@link SmtpSessionPool}.
+   */
+  public static final int DEFAULT_CONNECTIONS = 2;
+
+  /**
+   * Default number of mails sent before a connection is reopened.
+   */
+  public static final int DEFAULT_MESSAGES_PER_CONNECTION = 100;
+
   private String mailserver;
 
   private Integer mailserverport;
@@ -35,6 +45,10 @@ public class MailServerSettings
 
   private String password;
 
+  private int connections = DEFAULT_CONNECTIONS;
+
+  private int messagesPerConnection = DEFAULT_MESSAGES_PER_CONNECTION;
+
   public String getMailserver()
   {
     return mailserver;
@@ -74,4 +88,24 @@ public class MailServerSettings
   {
     this.password = password;
   }
+
+  public int getConnections()
+  {
+    return connections;
+  }
+
+  public void setConnections(int connections)
+  {
+    this.connections = connections;
+  }
+
+  public int getMessagesPerConnection()
+  {
+    return messagesPerConnection;
+  }
+
+  public void setMessagesPerConnection(int messagesPerConnection)
+  {
+    this.messagesPerConnection = messagesPerConnection;
+  }
 }
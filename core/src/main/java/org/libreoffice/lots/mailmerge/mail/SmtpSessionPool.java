@@ -0,0 +1,257 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of SMTP connections, which are kept open while several mails are sent. The mails are
+ * sent in background threads, so the caller can prepare the next mail meanwhile.
+ */
+public class SmtpSessionPool implements AutoCloseable
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(SmtpSessionPool.class);
+
+  /**
+   * Number of mails per connection which may wait to be sent, before {@link #send(Message)}
+   * blocks.
+   */
+  private static final int QUEUED_MESSAGES_PER_CONNECTION = 2;
+
+  private final MailServerSettings settings;
+
+  private final Session session;
+
+  private final ExecutorService executor;
+
+  private final BlockingQueue<Connection> connections = new LinkedBlockingQueue<>();
+
+  private final List<Connection> allConnections = new ArrayList<>();
+
+  private final Semaphore queued;
+
+  /**
+   * Create a new pool. The number of connections and the number of mails sent per connection are
+   * taken from the settings.
+   *
+   * @param settings
+   *          The mail server to use.
+   */
+  public SmtpSessionPool(MailServerSettings settings)
+  {
+    this(settings, Session.getDefaultInstance(new Properties()));
+  }
+
+  /**
+   * Create a new pool.
+   *
+   * @param settings
+   *          The mail server to use.
+   * @param session
+   *          The mail session which provides the transports.
+   */
+  SmtpSessionPool(MailServerSettings settings, Session session)
+  {
+    this.settings = settings;
+    this.session = session;
+    int size = Math.max(1, settings.getConnections());
+    for (int i = 0; i < size; i++)
+    {
+      Connection connection = new Connection();
+      allConnections.add(connection);
+      connections.add(connection);
+    }
+    queued = new Semaphore(size * (1 + QUEUED_MESSAGES_PER_CONNECTION));
+
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 1, TimeUnit.MINUTES,
+        new LinkedBlockingQueue<>(), r -> {
+          Thread t = new Thread(r, "lots-smtp-" + threadCount.incrementAndGet());
+          t.setDaemon(true);
+          // Necessary for mapping MIME types to Java classes.
+          t.setContextClassLoader(SmtpSessionPool.class.getClassLoader());
+          return t;
+        });
+    pool.allowCoreThreadTimeOut(true);
+    executor = pool;
+  }
+
+  /**
+   * Send a mail with one of the connections of the pool. Blocks only if too many mails are waiting
+   * to be sent.
+   *
+   * @param message
+   *          The mail. It mustn't be changed until the future is completed.
+   * @return A future, which completes when the mail has been sent. If the mail can't be sent, the
+   *         future completes exceptionally with a {@link MessagingException} as cause.
+   */
+  public CompletableFuture<Void> send(Message message)
+  {
+    try
+    {
+      queued.acquire();
+    } catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+
+    try
+    {
+      return CompletableFuture.runAsync(() -> deliver(message), executor)
+          .whenComplete((r, e) -> queued.release());
+    } catch (RuntimeException e)
+    {
+      queued.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Wait until all mails have been sent and close all connections.
+   */
+  @Override
+  public void close()
+  {
+    executor.shutdown();
+    try
+    {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES))
+      {
+        LOGGER.debug("Waiting for mails to be sent");
+      }
+    } catch (InterruptedException e)
+    {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    allConnections.forEach(Connection::disconnect);
+  }
+
+  private void deliver(Message message)
+  {
+    Connection connection = null;
+    try
+    {
+      connection = connections.take();
+      connection.send(message);
+    } catch (MessagingException e)
+    {
+      throw new CompletionException(e);
+    } catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(e);
+    } finally
+    {
+      if (connection != null)
+      {
+        connections.add(connection);
+      }
+    }
+  }
+
+  /**
+   * A connection to the mail server, which is reopened if it fails or if the maximum number of
+   * mails per connection has been sent.
+   */
+  private class Connection
+  {
+    private Transport transport;
+
+    private int sent = 0;
+
+    private void send(Message message) throws MessagingException
+    {
+      try
+      {
+        sendOnce(message);
+      } catch (SendFailedException e)
+      {
+        // the server rejected the addresses, a new connection doesn't help
+        throw e;
+      } catch (MessagingException e)
+      {
+        LOGGER.warn("Sending mail failed, reconnecting", e);
+        disconnect();
+        sendOnce(message);
+      }
+    }
+
+    private void sendOnce(Message message) throws MessagingException
+    {
+      if (transport == null || !transport.isConnected())
+      {
+        disconnect();
+        transport = session.getTransport("smtp");
+        // Empty String activates AUTH so use null if no authentication is required.
+        transport.connect(settings.getMailserver(), settings.getMailserverport(),
+            settings.getUsername(), settings.getPassword());
+      }
+      transport.sendMessage(message, message.getAllRecipients());
+      sent++;
+      if (sent >= settings.getMessagesPerConnection())
+      {
+        disconnect();
+      }
+    }
+
+    private void disconnect()
+    {
+      sent = 0;
+      if (transport != null)
+      {
+        try
+        {
+          transport.close();
+        } catch (MessagingException e)
+        {
+          LOGGER.debug("Closing SMTP connection failed", e);
+        }
+        transport = null;
+      }
+    }
+  }
+}
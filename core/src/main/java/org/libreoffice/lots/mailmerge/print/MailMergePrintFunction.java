@@ -23,17 +23,22 @@
 package org.libreoffice.lots.mailmerge.print;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.sun.star.beans.PropertyValue;
+import com.sun.star.beans.PropertyVetoException;
+import com.sun.star.beans.UnknownPropertyException;
 import com.sun.star.frame.XStorable;
+import com.sun.star.lang.IllegalArgumentException;
+import com.sun.star.lang.WrappedTargetException;
 import com.sun.star.text.XTextDocument;
 
 import org.libreoffice.ext.unohelper.common.UNO;
@@ -62,6 +67,21 @@ public abstract class MailMergePrintFunction extends PrintFunction
    */
   public static final String PROP_FILEPATTERN = "MailMergeNew_FilePattern";
 
+  /**
+   * Key for saving the parsed texts with merge fields as a property of a {@link XPrintModel}, so
+   * that each text is only parsed once per mail merge.
+   *
+   * The property type is a {@link Map} from text to {@link MergeFieldTemplate}.
+   */
+  public static final String PROP_MERGE_FIELD_TEMPLATES = "MailMergeNew_MergeFieldTemplates";
+
+  /**
+   * Key for saving the {@link OutputFileWriter} as a property of a {@link XPrintModel}.
+   *
+   * The property type is a {@link OutputFileWriter}.
+   */
+  public static final String PROP_OUTPUT_FILE_WRITER = "MailMergeNew_OutputFileWriter";
+
   /**
    * Create a new print function with name and order.
    *
@@ -86,17 +106,48 @@ public abstract class MailMergePrintFunction extends PrintFunction
    */
   public static String replaceMergeFieldInText(Map<String, String> dataset, String text)
   {
-    for (Entry<String, String> entry : dataset.entrySet())
+    if (text == null)
     {
-      String mergeFieldWithTags = createMergeFieldTag(entry.getKey());
+      return null;
+    }
+    return MergeFieldTemplate.compile(text).render(dataset);
+  }
 
-      if (text.contains(mergeFieldWithTags))
+  /**
+   * Like {@link #replaceMergeFieldInText(Map, String)}, but the parsed text is cached in the
+   * {@link XPrintModel} for the next records.
+   *
+   * @param pmod
+   *          The {@link XPrintModel} of the mail merge.
+   * @param dataset
+   *          Map of key-value pairs, where the key is <code>&lt;tag&gt;</code>.
+   * @param text
+   *          Text, which contains tags to be replaced.
+   * @return Text where all occurrences are replaced, if there exists a record in data set.
+   */
+  public static String replaceMergeFieldInText(XPrintModel pmod, Map<String, String> dataset,
+      String text)
+  {
+    if (text == null)
+    {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    Map<String, MergeFieldTemplate> templates = (Map<String, MergeFieldTemplate>) pmod
+        .getProp(PROP_MERGE_FIELD_TEMPLATES, null);
+    if (templates == null)
+    {
+      templates = new ConcurrentHashMap<>();
+      try
       {
-        text = text.replace(mergeFieldWithTags, entry.getValue());
+        pmod.setPropertyValue(PROP_MERGE_FIELD_TEMPLATES, templates);
+      } catch (IllegalArgumentException | UnknownPropertyException | PropertyVetoException
+          | WrappedTargetException e)
+      {
+        LOGGER.debug("Could not cache merge field templates", e);
       }
     }
-
-    return text;
+    return templates.computeIfAbsent(text, MergeFieldTemplate::compile).render(dataset);
   }
 
   /**
@@ -139,7 +190,7 @@ public abstract class MailMergePrintFunction extends PrintFunction
     HashMap<String, String> dataset = new HashMap<>((HashMap<String, String>) pmod
         .getProp(SetFormValue.PROP_DATASET_EXPORT, new HashMap<String, String>()));
 
-    String filename = replaceMergeFieldInText(dataset,
+    String filename = replaceMergeFieldInText(pmod, dataset,
         (String) pmod.getProp(PROP_FILEPATTERN, null));
 
     if (!filename.toLowerCase().endsWith(".odt") && !filename.toLowerCase().endsWith(".pdf"))
@@ -205,4 +256,68 @@ public abstract class MailMergePrintFunction extends PrintFunction
     return outFile;
   }
 
+  /**
+   * Saves the document to a temporary file and moves it to outFile in the background, so that the
+   * next record can be processed in the meantime. A PDF is exported synchronously, because it has
+   * to be rendered from the document anyway. The files are completely written after
+   * {@link OutputFileWriter#close()} of the writer stored in {@link #PROP_OUTPUT_FILE_WRITER}.
+   *
+   * @param pmod
+   *          The {@link XPrintModel}.
+   * @param outFile
+   *          The file to create.
+   */
+  public void saveOutputFileAsync(XPrintModel pmod, File outFile)
+  {
+    OutputFileWriter writer = null;
+    if (!outFile.getName().toLowerCase().endsWith(".pdf"))
+    {
+      writer = getOutputFileWriter(pmod);
+    }
+    if (writer == null)
+    {
+      saveOutputFile(outFile, pmod.getTextDocument());
+      return;
+    }
+    File tempFile = writer.getTempFile(outFile);
+    saveOutputFile(tempFile, pmod.getTextDocument());
+    writer.write(tempFile, outFile);
+  }
+
+  /**
+   * Get the writer of this mail merge. The writer is created with the first file.
+   *
+   * @param pmod
+   *          The {@link XPrintModel}.
+   * @return The writer or null, if it couldn't be created.
+   */
+  private OutputFileWriter getOutputFileWriter(XPrintModel pmod)
+  {
+    OutputFileWriter writer = (OutputFileWriter) pmod.getProp(PROP_OUTPUT_FILE_WRITER, null);
+    if (writer == null)
+    {
+      try
+      {
+        writer = new OutputFileWriter(pmod);
+        pmod.setPropertyValue(PROP_OUTPUT_FILE_WRITER, writer);
+      } catch (IOException | IllegalArgumentException | UnknownPropertyException
+          | PropertyVetoException | WrappedTargetException e)
+      {
+        LOGGER.debug("Files are written synchronously", e);
+        if (writer != null)
+        {
+          try
+          {
+            writer.close();
+          } catch (IOException ex)
+          {
+            LOGGER.trace("", ex);
+          }
+        }
+        return null;
+      }
+    }
+    return writer;
+  }
+
 }
@@ -0,0 +1,129 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.print;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A text with merge field tags like <code>{{column}}</code>, which is parsed once and can then be
+ * rendered for many records. Tags without a value in the record are kept as they are.
+ */
+public final class MergeFieldTemplate
+{
+  private static final String TAG_START = "{{";
+
+  private static final String TAG_END = "}}";
+
+  /**
+   * The parts of the text. Literal text at even positions, names of merge fields at odd positions.
+   */
+  private final String[] parts;
+
+  private final int literalLength;
+
+  /**
+   * Reused for rendering.
+   */
+  private final StringBuilder builder;
+
+  private MergeFieldTemplate(List<String> parts, int literalLength)
+  {
+    this.parts = parts.toArray(String[]::new);
+    this.literalLength = literalLength;
+    this.builder = new StringBuilder(literalLength);
+  }
+
+  /**
+   * Parse a text.
+   *
+   * @param text
+   *          The text with merge field tags.
+   * @return The template of the text.
+   */
+  public static MergeFieldTemplate compile(String text)
+  {
+    List<String> parts = new ArrayList<>();
+    int literalLength = 0;
+    int pos = 0;
+    while (true)
+    {
+      int end = text.indexOf(TAG_END, pos);
+      int start = end < 0 ? -1 : text.lastIndexOf(TAG_START, end - TAG_START.length());
+      while (end >= 0 && start < pos)
+      {
+        // no tag start before this end, look for the next end
+        end = text.indexOf(TAG_END, end + 1);
+        start = end < 0 ? -1 : text.lastIndexOf(TAG_START, end - TAG_START.length());
+      }
+      if (end < 0)
+      {
+        parts.add(text.substring(pos));
+        literalLength += text.length() - pos;
+        break;
+      }
+      parts.add(text.substring(pos, start));
+      literalLength += start - pos;
+      parts.add(text.substring(start + TAG_START.length(), end));
+      pos = end + TAG_END.length();
+    }
+    return new MergeFieldTemplate(parts, literalLength);
+  }
+
+  /**
+   * Replace all merge field tags with the values of a record.
+   *
+   * @param dataset
+   *          Mapping from merge field names to values.
+   * @return The text with the values of the record.
+   */
+  public synchronized String render(Map<String, String> dataset)
+  {
+    if (parts.length == 1)
+    {
+      return parts[0];
+    }
+    builder.setLength(0);
+    builder.append(parts[0]);
+    for (int i = 1; i < parts.length; i += 2)
+    {
+      String value = dataset.get(parts[i]);
+      if (value == null)
+      {
+        builder.append(TAG_START).append(parts[i]).append(TAG_END);
+      } else
+      {
+        builder.append(value);
+      }
+      builder.append(parts[i + 1]);
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "MergeFieldTemplate(" + (parts.length / 2) + " tags, " + literalLength + " chars)";
+  }
+}
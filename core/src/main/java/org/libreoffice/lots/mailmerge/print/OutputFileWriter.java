@@ -0,0 +1,271 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.print;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.libreoffice.lots.print.PrintModels;
+import org.libreoffice.lots.util.L;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.muenchen.allg.itd51.wollmux.interfaces.XPrintModel;
+
+/**
+ * The I/O stage of a mail merge which creates one file per record. Each document is stored into a
+ * local temporary directory, which is fast, and then moved to its target in a background thread.
+ * Meanwhile the next record can be filled in.
+ *
+ * The temporary files are stored in a directory called ".tmp".
+ */
+public class OutputFileWriter implements AutoCloseable
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutputFileWriter.class);
+
+  /**
+   * Maximum number of files waiting to be exported, before
+   * {@link #write(File, File, OutputFileWriter.Export)} blocks.
+   */
+  private static final int MAX_PENDING_FILES = 4;
+
+  /**
+   * Creates a target file from a temporary file.
+   */
+  @FunctionalInterface
+  public interface Export
+  {
+    /**
+     * Create the target. The temporary file has to be removed afterwards.
+     *
+     * @param tempFile
+     *          The temporary file.
+     * @param target
+     *          The target file.
+     * @throws IOException
+     *           The target couldn't be created.
+     */
+    void export(File tempFile, File target) throws IOException;
+  }
+
+  private final Consumer<String> stage;
+
+  private final Path tempDir;
+
+  private final ExecutorService executor;
+
+  private final Semaphore pending;
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  private final AtomicInteger written = new AtomicInteger();
+
+  private final List<IOException> errors = new ArrayList<>();
+
+  /**
+   * Create a new I/O stage.
+   *
+   * @param pmod
+   *          The print model, whose stage is updated.
+   * @throws IOException
+   *           The temporary directory can't be created.
+   */
+  public OutputFileWriter(XPrintModel pmod) throws IOException
+  {
+    this(s -> PrintModels.setStage(pmod, s), MAX_PENDING_FILES);
+  }
+
+  /**
+   * Create a new I/O stage.
+   *
+   * @param stage
+   *          Is notified about each written file.
+   * @param maxPending
+   *          Maximum number of files waiting to be exported.
+   * @throws IOException
+   *           The temporary directory can't be created.
+   */
+  OutputFileWriter(Consumer<String> stage, int maxPending) throws IOException
+  {
+    this.stage = stage;
+    this.pending = new Semaphore(maxPending);
+    this.tempDir = Files.createDirectory(Files.createTempDirectory("MailMerge").resolve(".tmp"));
+    this.executor = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "lots-mailmerge-io");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * Get a temporary file, where a document for the target can be stored.
+   *
+   * @param target
+   *          The target file.
+   * @return A new file in the temporary directory with the same extension.
+   */
+  public File getTempFile(File target)
+  {
+    String name = target.getName();
+    int dot = name.lastIndexOf('.');
+    String extension = dot < 0 ? "" : name.substring(dot);
+    return tempDir.resolve(counter.incrementAndGet() + extension).toFile();
+  }
+
+  /**
+   * Move a temporary file to its target in the background. Blocks if too many files are waiting.
+   *
+   * @param tempFile
+   *          The file created with {@link #getTempFile(File)}.
+   * @param target
+   *          The target file.
+   */
+  public void write(File tempFile, File target)
+  {
+    write(tempFile, target, OutputFileWriter::move);
+  }
+
+  /**
+   * Create the target from a temporary file in the background. Blocks if too many files are
+   * waiting. Errors are reported by {@link #close()}.
+   *
+   * @param tempFile
+   *          The file created with {@link #getTempFile(File)}.
+   * @param target
+   *          The target file.
+   * @param export
+   *          Creates the target.
+   */
+  public void write(File tempFile, File target, Export export)
+  {
+    try
+    {
+      pending.acquire();
+    } catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      export(tempFile, target, export);
+      return;
+    }
+    try
+    {
+      executor.execute(() -> {
+        try
+        {
+          export(tempFile, target, export);
+        } finally
+        {
+          pending.release();
+        }
+      });
+    } catch (RejectedExecutionException e)
+    {
+      pending.release();
+      export(tempFile, target, export);
+    }
+  }
+
+  /**
+   * Wait until all files are written and remove the temporary directory.
+   *
+   * @throws IOException
+   *           Some files couldn't be written. The first error is the cause, further errors are
+   *           suppressed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    executor.shutdown();
+    try
+    {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES))
+      {
+        LOGGER.debug("Waiting for mail merge files to be written");
+      }
+    } catch (InterruptedException e)
+    {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    try
+    {
+      Files.deleteIfExists(tempDir);
+      Files.deleteIfExists(tempDir.getParent());
+    } catch (IOException e)
+    {
+      LOGGER.debug("Couldn't delete temporary directory {}", tempDir, e);
+    }
+    synchronized (errors)
+    {
+      LOGGER.debug("{} files written, {} failed", written.get(), errors.size());
+      if (!errors.isEmpty())
+      {
+        IOException ex = new IOException(
+            L.m("{0} files couldn't be written.", errors.size()), errors.get(0));
+        errors.stream().skip(1).forEach(ex::addSuppressed);
+        throw ex;
+      }
+    }
+  }
+
+  private void export(File tempFile, File target, Export export)
+  {
+    try
+    {
+      export.export(tempFile, target);
+      written.incrementAndGet();
+      stage.accept(L.m("Saved {0}", target.getName()));
+    } catch (IOException e)
+    {
+      LOGGER.error("Couldn't write {}", target, e);
+      synchronized (errors)
+      {
+        errors.add(e);
+      }
+      try
+      {
+        Files.deleteIfExists(tempFile.toPath());
+      } catch (IOException ex)
+      {
+        LOGGER.trace("", ex);
+      }
+    }
+  }
+
+  private static void move(File tempFile, File target) throws IOException
+  {
+    Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+}
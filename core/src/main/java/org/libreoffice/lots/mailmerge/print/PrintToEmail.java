@@ -28,6 +28,7 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 
 import javax.mail.MessagingException;
@@ -41,6 +42,7 @@ import de.muenchen.allg.itd51.wollmux.interfaces.XPrintModel;
 import org.libreoffice.lots.mailmerge.mail.AuthenticationDialog;
 import org.libreoffice.lots.mailmerge.mail.EMailSender;
 import org.libreoffice.lots.mailmerge.mail.MailServerSettings;
+import org.libreoffice.lots.mailmerge.mail.SmtpSessionPool;
 import org.libreoffice.lots.print.PrintModels;
 import org.libreoffice.lots.util.L;
 import org.slf4j.Logger;
@@ -109,6 +111,14 @@ public abstract class PrintToEmail extends MailMergePrintFunction
    */
   public static final String PROP_EMAIL_MAIL_SERVER_SETTINGS = "MailMergeNew_MailServerSettings";
 
+  /**
+   * Key for saving the pool of connections to the mail server as a property of a
+   * {@link XPrintModel}. The pool has to be closed after the mail merge.
+   *
+   * The property type is a {@link SmtpSessionPool}.
+   */
+  public static final String PROP_EMAIL_SMTP_SESSION_POOL = "MailMergeNew_SmtpSessionPool";
+
   /**
    * Title for dialogs indicating an error.
    */
@@ -168,9 +178,11 @@ public abstract class PrintToEmail extends MailMergePrintFunction
     try
     {
       EMailSender mail = new EMailSender();
-      mail.createNewMultipartMail(from, to, replaceMergeFieldInText(ds, subject), replaceMergeFieldInText(ds, message));
+      mail.createNewMultipartMail(from, to, replaceMergeFieldInText(pmod, ds, subject),
+          replaceMergeFieldInText(pmod, ds, message));
 
       MailServerSettings smtpSettings = getMailServerSettings(pmod, mail);
+      SmtpSessionPool pool = getSmtpSessionPool(pmod, smtpSettings);
 
       if (pmod.getProp(PROP_TARGETDIR, null) == null)
       {
@@ -178,31 +190,12 @@ public abstract class PrintToEmail extends MailMergePrintFunction
       }
       File document = saveOutputFile(createTempDocument(pmod, isODT), pmod.getTextDocument());
 
-      sendMail(mail, smtpSettings, document);
-
-      // Initialize properties if not already set.
-      if (!pmod.getPropertySetInfo().hasPropertyByName(PROP_EMAIL_REPORT_RECIPIENT_LIST))
-      {
-        pmod.setPropertyValue(PROP_EMAIL_REPORT_RECIPIENT_LIST, new ArrayList<String>());
-      }
-
-      if (!pmod.getPropertySetInfo().hasPropertyByName(PROP_EMAIL_REPORT_EMAILS_SENT_COUNT))
-      {
-        pmod.setPropertyValue(PROP_EMAIL_REPORT_EMAILS_SENT_COUNT, 0);
-      }
-
-      @SuppressWarnings("unchecked")
-      List<String> reportRecipientList = (List<String>) pmod.getPropertyValue(PROP_EMAIL_REPORT_RECIPIENT_LIST);
-      int mailsSentCount = (int) pmod.getPropertyValue(PROP_EMAIL_REPORT_EMAILS_SENT_COUNT);
-
-      if (reportRecipientList == null)
-        reportRecipientList = new ArrayList<>();
-
-      reportRecipientList.add(to);
-      mailsSentCount++;
-
-      pmod.setPropertyValue(PROP_EMAIL_REPORT_RECIPIENT_LIST, reportRecipientList);
-      pmod.setPropertyValue(PROP_EMAIL_REPORT_EMAILS_SENT_COUNT, mailsSentCount);
+      sendMail(mail, pool, document).thenAccept(sent -> {
+        if (sent)
+        {
+          reportSent(pmod, to);
+        }
+      });
     } catch (ConfigurationErrorException e)
     {
       LOGGER.error("Kein Mailserver", e);
@@ -221,6 +214,42 @@ public abstract class PrintToEmail extends MailMergePrintFunction
     }
   }
 
+  /**
+   * Add a recipient to the report of the mail merge, after the mail has been sent. The mails are
+   * sent by several threads, so the update of the report is synchronized.
+   *
+   * @param pmod
+   *          The {@link XPrintModel}.
+   * @param to
+   *          The recipient.
+   */
+  private static void reportSent(XPrintModel pmod, String to)
+  {
+    synchronized (pmod)
+    {
+      try
+      {
+        @SuppressWarnings("unchecked")
+        List<String> reportRecipientList = (List<String>) pmod
+            .getProp(PROP_EMAIL_REPORT_RECIPIENT_LIST, null);
+        int mailsSentCount = (int) pmod.getProp(PROP_EMAIL_REPORT_EMAILS_SENT_COUNT, 0);
+
+        if (reportRecipientList == null)
+          reportRecipientList = new ArrayList<>();
+
+        reportRecipientList.add(to);
+        mailsSentCount++;
+
+        pmod.setPropertyValue(PROP_EMAIL_REPORT_RECIPIENT_LIST, reportRecipientList);
+        pmod.setPropertyValue(PROP_EMAIL_REPORT_EMAILS_SENT_COUNT, mailsSentCount);
+      } catch (IllegalArgumentException | UnknownPropertyException | PropertyVetoException
+          | WrappedTargetException e)
+      {
+        LOGGER.error("Could not update the mail report", e);
+      }
+    }
+  }
+
   /**
    * Initialize the SMTP settings. There are three possibilities to get the settings
    * <ol>
@@ -280,6 +309,37 @@ public abstract class PrintToEmail extends MailMergePrintFunction
     return smtpSettings;
   }
 
+  /**
+   * Get the pool of connections of this mail merge. The pool is created with the first mail.
+   *
+   * @param pmod
+   *          The {@link XPrintModel}
+   * @param smtpSettings
+   *          The settings of the mail server.
+   * @return The pool.
+   * @throws PrintException
+   *           Could not store the pool.
+   */
+  private SmtpSessionPool getSmtpSessionPool(XPrintModel pmod, MailServerSettings smtpSettings)
+      throws PrintException
+  {
+    SmtpSessionPool pool = (SmtpSessionPool) pmod.getProp(PROP_EMAIL_SMTP_SESSION_POOL, null);
+    if (pool == null)
+    {
+      pool = new SmtpSessionPool(smtpSettings);
+      try
+      {
+        pmod.setPropertyValue(PROP_EMAIL_SMTP_SESSION_POOL, pool);
+      } catch (IllegalArgumentException | UnknownPropertyException | PropertyVetoException
+          | WrappedTargetException e)
+      {
+        pool.close();
+        throw new PrintException("Could not set smtp session pool", e);
+      }
+    }
+    return pool;
+  }
+
   /**
    * Test if mail is a valid mail address.
    *
@@ -301,16 +361,19 @@ public abstract class PrintToEmail extends MailMergePrintFunction
   }
 
   /**
-   * Send a document by mail.
+   * Send a document by mail. The document is attached and deleted at once, so the next record can
+   * use the same file name. The mail is sent in the background.
    *
    * @param mail
    *          The email, to which the document is attached, and than send.
-   * @param smtpSettings
-   *          The settings of the mail server.
+   * @param pool
+   *          The connections to the mail server.
    * @param document
    *          The document to send.
+   * @return A future, which completes with true when the mail has been sent or with false if it
+   *         couldn't be sent. It never completes exceptionally, errors are logged.
    */
-  private void sendMail(EMailSender mail, MailServerSettings smtpSettings, File document)
+  static CompletableFuture<Boolean> sendMail(EMailSender mail, SmtpSessionPool pool, File document)
   {
     try
     {
@@ -323,19 +386,31 @@ public abstract class PrintToEmail extends MailMergePrintFunction
         path = path.replaceFirst("file:", "");
       }
       mail.addAttachment(new File(path));
-      mail.sendMessage(smtpSettings);
+      deleteDocument(document);
+      return mail.sendMessage(pool).handle((r, e) -> {
+        if (e != null)
+        {
+          LOGGER.error("", e);
+          return false;
+        }
+        return true;
+      });
     } catch (ConfigurationErrorException | MessagingException | IOException e)
     {
       LOGGER.error("", e);
-    } finally
+      deleteDocument(document);
+      return CompletableFuture.completedFuture(false);
+    }
+  }
+
+  private static void deleteDocument(File document)
+  {
+    try
     {
-      try
-      {
-        Files.delete(document.toPath());
-      } catch (IOException e)
-      {
-        LOGGER.trace("Couldn't delete temporary document", e);
-      }
+      Files.delete(document.toPath());
+    } catch (IOException e)
+    {
+      LOGGER.trace("Couldn't delete temporary document", e);
     }
   }
 }
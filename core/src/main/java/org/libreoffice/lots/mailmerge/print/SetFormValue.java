@@ -24,6 +24,7 @@ package org.libreoffice.lots.mailmerge.print;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -33,12 +34,13 @@ import org.libreoffice.lots.document.TextDocumentController;
 import org.libreoffice.lots.document.SimulationResults.SimulationResultsProcessor;
 import org.libreoffice.lots.func.print.PrintException;
 import org.libreoffice.lots.func.print.PrintFunction;
+import org.libreoffice.lots.mailmerge.ds.ColumnarRecordTable;
+import org.libreoffice.lots.mailmerge.ds.RecordTable;
 import de.muenchen.allg.itd51.wollmux.interfaces.XPrintModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import com.sun.star.beans.PropertyValue;
 import com.sun.star.beans.PropertyVetoException;
 import com.sun.star.beans.UnknownPropertyException;
 import com.sun.star.lang.IllegalArgumentException;
@@ -105,7 +107,9 @@ public class SetFormValue extends PrintFunction
   }
 
   /**
-   * Take next data record and set mailmerge fields to its values. Calls next {@link PrintFunction}.
+   * Take next data record and set mailmerge fields to its values. All values of a record are set
+   * at once, so that depending fields and sections are updated once per record. Calls next
+   * {@link PrintFunction}.
    *
    * If there is a {@link SimulationResultsProcessor}, modification is only simulated and its
    * handler is called after each record instead of calling the next {@link PrintFunction}.
@@ -120,9 +124,7 @@ public class SetFormValue extends PrintFunction
     TextDocumentController documentController = DocumentManager
         .getTextDocumentController(pmod.getTextDocument());
 
-    @SuppressWarnings("unchecked")
-    Table<Integer, String, String> data = (Table<Integer, String, String>) pmod
-        .getProp(PROP_QUERYRESULTS, HashBasedTable.create());
+    RecordTable data = (RecordTable) pmod.getProp(PROP_QUERYRESULTS, new ColumnarRecordTable());
     @SuppressWarnings("unchecked")
     List<Integer> selection = (List<Integer>) pmod.getProp(PROP_RECORD_SELECTION,
         Collections.emptyList());
@@ -158,16 +160,11 @@ public class SetFormValue extends PrintFunction
         documentController.startSimulation();
       }
 
-      Map<String, String> record = data.row(sel);
-      for (Map.Entry<String, String> entry : record.entrySet())
-      {
-        pmod.setFormValue(entry.getKey(), entry.getValue());
-        dataSetExport.put(entry.getKey(), entry.getValue());
-      }
-      pmod.setFormValue(TAG_RECORD_ID, "" + sel);
-      dataSetExport.put(TAG_RECORD_ID, "" + sel);
-      pmod.setFormValue(TAG_MAILMERGE_ID, "" + mailMergeNumber);
-      dataSetExport.put(TAG_MAILMERGE_ID, "" + mailMergeNumber);
+      Map<String, String> record = new LinkedHashMap<>(data.getRecord(sel));
+      record.put(TAG_RECORD_ID, "" + sel);
+      record.put(TAG_MAILMERGE_ID, "" + mailMergeNumber);
+      pmod.setFormValues(toPropertyValues(record));
+      dataSetExport.putAll(record);
 
       // Pass to next print function, if there is no simProc. Otherwise
       // processing is done by simProc.
@@ -185,4 +182,18 @@ public class SetFormValue extends PrintFunction
 
     documentController.setFormFieldsPreviewMode(false);
   }
+
+  private static PropertyValue[] toPropertyValues(Map<String, String> record)
+  {
+    PropertyValue[] values = new PropertyValue[record.size()];
+    int i = 0;
+    for (Map.Entry<String, String> entry : record.entrySet())
+    {
+      values[i] = new PropertyValue();
+      values[i].Name = entry.getKey();
+      values[i].Value = entry.getValue();
+      i++;
+    }
+    return values;
+  }
 }
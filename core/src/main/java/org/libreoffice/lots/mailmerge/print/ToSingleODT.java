@@ -42,7 +42,7 @@ public class ToSingleODT extends MailMergePrintFunction
   public void print(XPrintModel printModel)
   {
     boolean isODT = true;
-    saveOutputFile(createTempDocument(printModel, isODT), printModel.getTextDocument());
+    saveOutputFileAsync(printModel, createTempDocument(printModel, isODT));
   }
 
 }
@@ -42,7 +42,7 @@ public class ToSinglePDF extends MailMergePrintFunction
   public void print(XPrintModel printModel)
   {
     boolean isODT = false;
-    saveOutputFile(createTempDocument(printModel, isODT), printModel.getTextDocument());
+    saveOutputFileAsync(printModel, createTempDocument(printModel, isODT));
   }
 
 }
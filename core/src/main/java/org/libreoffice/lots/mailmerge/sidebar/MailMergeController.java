@@ -30,9 +30,11 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -219,6 +221,15 @@ public class MailMergeController implements PreviewModelListener, DatasourceMode
     });
   }
 
+  @Override
+  public void recordsChanged(Set<Integer> records)
+  {
+    if (records.contains(previewModel.getPreviewNumber()))
+    {
+      updatePreviewFields();
+    }
+  }
+
   /**
    * Close this controller.
    */
@@ -659,16 +670,11 @@ public class MailMergeController implements PreviewModelListener, DatasourceMode
     {
       try
       {
-        for (Map.Entry<String, String> entry : previewModel.getCurrentRecord().entrySet())
-        {
-          new OnSetFormValue(textDocumentController.getModel().doc, entry.getKey(),
-              entry.getValue(), null).emit();
-        }
+        Map<String, String> record = new LinkedHashMap<>(previewModel.getCurrentRecord());
         String previewDatasetNumberStr = "" + previewModel.getPreviewNumber();
-        new OnSetFormValue(textDocumentController.getModel().doc, SetFormValue.TAG_RECORD_ID,
-            previewDatasetNumberStr, null).emit();
-        new OnSetFormValue(textDocumentController.getModel().doc, SetFormValue.TAG_MAILMERGE_ID,
-            previewDatasetNumberStr, null).emit();
+        record.put(SetFormValue.TAG_RECORD_ID, previewDatasetNumberStr);
+        record.put(SetFormValue.TAG_MAILMERGE_ID, previewDatasetNumberStr);
+        new OnSetFormValue(textDocumentController.getModel().doc, record, null).emit();
       } catch (NoTableSelectedException ex)
       {
         LOGGER.debug("", ex);
@@ -869,10 +875,10 @@ public class MailMergeController implements PreviewModelListener, DatasourceMode
     {
       String fieldId = ent.getKey();
       FieldSubstitution subst = ent.getValue();
+      // registers the new document commands
       subst.apply(textDocumentController, fieldId);
 
       // update data structure
-      textDocumentController.updateDocumentCommands();
       DocumentCommandInterpreter dci = new DocumentCommandInterpreter(
           textDocumentController);
       dci.scanGlobalDocumentCommands();
@@ -24,6 +24,8 @@ package org.libreoffice.lots.print;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -31,6 +33,7 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import com.sun.star.beans.Property;
 import com.sun.star.beans.PropertyAttribute;
+import com.sun.star.beans.PropertyValue;
 import com.sun.star.beans.PropertyVetoException;
 import com.sun.star.beans.UnknownPropertyException;
 import com.sun.star.beans.XPropertyChangeListener;
@@ -64,8 +67,9 @@ import org.libreoffice.lots.util.L;
  *
  * The {@link XPropertySet} interface is used to share data between the print functions.
  *
- * Each print function is executed with its own {@link SecondaryPrintModel} in a new thread. This class
- * has to do the synchronization.
+ * Each print function is executed with its own {@link SecondaryPrintModel} on a thread of the print
+ * executor (see {@link PrintFunction#printAndWait(XPrintModel)}). This class has to do the
+ * synchronization.
  */
 class PrimaryPrintModel implements XPrintModel
 {
@@ -183,15 +187,8 @@ class PrimaryPrintModel implements XPrintModel
     if (f != null)
     {
       XPrintModel pmod = new SecondaryPrintModel(this, 0);
-      Thread t = f.printAsync(pmod);
-      try
-      {
-        t.join();
-      } catch (InterruptedException e)
-      {
-        PrintModels.LOGGER.error("", e);
-        Thread.currentThread().interrupt();
-      }
+      f.printAndWait(pmod);
+      PrintModels.LOGGER.debug("Print functions: {}", PrintFunction.getMetrics());
     } else
     {
       setPropertySynchronized(PROP_FINAL_SHOW_COPIES_SPINNER, Boolean.TRUE);
@@ -325,6 +322,19 @@ class PrimaryPrintModel implements XPrintModel
     s.synchronize();
   }
 
+  @Override
+  public void setFormValues(PropertyValue[] values)
+  {
+    Map<String, String> formValues = new LinkedHashMap<>();
+    for (PropertyValue value : values)
+    {
+      formValues.put(value.Name, value.Value == null ? null : value.Value.toString());
+    }
+    SyncActionListener s = new SyncActionListener();
+    new OnSetFormValue(documentController.getModel().doc, formValues, s).emit();
+    s.synchronize();
+  }
+
   @Override
   public boolean getDocumentModified()
   {
@@ -26,6 +26,7 @@ import org.libreoffice.lots.GlobalFunctions;
 import org.libreoffice.lots.func.print.PrintFunction;
 import org.libreoffice.lots.util.L;
 
+import com.sun.star.beans.PropertyValue;
 import com.sun.star.beans.PropertyVetoException;
 import com.sun.star.beans.UnknownPropertyException;
 import com.sun.star.beans.XPropertyChangeListener;
@@ -95,15 +96,7 @@ class SecondaryPrintModel extends WeakBase implements XPrintModel
     if (f != null)
     {
       XPrintModel pmod = new SecondaryPrintModel(primary, idx + 1);
-      Thread t = f.printAsync(pmod);
-      try
-      {
-        t.join();
-      } catch (InterruptedException e)
-      {
-        PrintModels.LOGGER.error("", e);
-        Thread.currentThread().interrupt();
-      }
+      f.printAndWait(pmod);
       primary.setPrintProgressMaxValue(pmod, (short) 0);
     } else
     {
@@ -119,6 +112,12 @@ class SecondaryPrintModel extends WeakBase implements XPrintModel
     primary.setFormValue(arg0, arg1);
   }
 
+  @Override
+  public void setFormValues(PropertyValue[] values)
+  {
+    primary.setFormValues(values);
+  }
+
   @Override
   public boolean getDocumentModified()
   {
@@ -70,23 +70,34 @@ public class SenderEventListener implements WollMuxEventListener
       }
     } else
     {
-      // show sender which can't be updated from database
-      StringBuilder names = new StringBuilder();
-      List<String> lost = service.getLostDatasetDisplayStrings();
-      if (!lost.isEmpty())
-      {
-        for (String l : lost)
-        {
-          names.append("- " + l + "\n");
-        }
-        String message = L.m("The following data sets could not be updated from the database:\n\n"
-            + "{0}\nIf this problem persists, you might want to delete these data sets from "
-            + "your sender list and add them again!", names);
-        InfoDialog.showInfoModal(L.m("WollMux Info"), message);
-      }
+      // the senders are served from the cache, lost senders are only known after the refresh
+      service.refreshed().thenRun(() -> showLostSenders(service));
     }
 
     WollMuxEventHandler.getInstance().unregisterListener(this);
   }
 
+  /**
+   * Show senders which can't be updated from database.
+   *
+   * @param service
+   *          The sender service.
+   */
+  private void showLostSenders(SenderService service)
+  {
+    StringBuilder names = new StringBuilder();
+    List<String> lost = service.getLostDatasetDisplayStrings();
+    if (!lost.isEmpty())
+    {
+      for (String l : lost)
+      {
+        names.append("- " + l + "\n");
+      }
+      String message = L.m("The following data sets could not be updated from the database:\n\n"
+          + "{0}\nIf this problem persists, you might want to delete these data sets from "
+          + "your sender list and add them again!", names);
+      InfoDialog.showInfoModal(L.m("WollMux Info"), message);
+    }
+  }
+
 }
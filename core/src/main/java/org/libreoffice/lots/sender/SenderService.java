@@ -27,11 +27,18 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -59,8 +66,10 @@ import org.libreoffice.lots.db.Datasources;
 import org.libreoffice.lots.db.DummyDatasourceWithMessagebox;
 import org.libreoffice.lots.db.QueryPart;
 import org.libreoffice.lots.db.QueryResults;
+import org.libreoffice.lots.db.SimpleDataset;
 import org.libreoffice.lots.dialog.DialogLibrary;
 import org.libreoffice.lots.dialog.InfoDialog;
+import org.libreoffice.lots.event.handlers.OnPALChangedNotify;
 import org.libreoffice.lots.func.FunctionFactory;
 import org.libreoffice.lots.func.FunctionLibrary;
 import de.muenchen.allg.itd51.wollmux.interfaces.XPALChangeEventListener;
@@ -82,6 +91,12 @@ public class SenderService implements XPALProvider
 
   private static SenderService instance;
 
+  /**
+   * Executor for refreshing the cached senders from the data source. Its thread is only alive
+   * while a refresh is running.
+   */
+  private static final ExecutorService REFRESH_EXECUTOR = createRefreshExecutor();
+
   /**
    * Used by {@link #getSelectedDatasetTransformed()}; can be null!
    */
@@ -97,7 +112,7 @@ public class SenderService implements XPALProvider
   /**
    * The selected data set. Null only if data is empty.
    */
-  protected Sender selectedSender = null;
+  protected volatile Sender selectedSender = null;
 
   /**
    * The data source to which find(), getLOS(), etc. refer.
@@ -109,14 +124,37 @@ public class SenderService implements XPALProvider
    * database, but whose key was no longer found in it and therefore
    * could not be updated.
    */
-  protected List<Sender> lostDatasets = new ArrayList<>(0);
+  protected volatile List<Sender> lostDatasets = new ArrayList<>(0);
+
+  /**
+   * The data sets of the senders as read from the cache. They are replaced by the data sets of the
+   * data source as soon as the refresh has finished.
+   */
+  private final Set<Dataset> staleDatasets = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * Columns of the schema, which are unknown to the cache.
+   */
+  private Set<String> newColumns = Collections.emptySet();
+
+  private final Executor refreshExecutor;
+
+  /**
+   * Executor for notifying the listeners after a refresh.
+   */
+  private final Executor notificationExecutor;
+
+  private CompletableFuture<Void> refresh = CompletableFuture.completedFuture(null);
+
+  private final SenderStartupMetrics startupMetrics = new SenderStartupMetrics();
 
   /**
    * List of all LOSDJDatasets.
    * The list must be ordered so that datasets with the same key
    * can be identified by their position in the list.
+   * The list is never modified, changes publish a new list.
    */
-  protected List<Sender> data = new ArrayList<>();
+  protected volatile List<Sender> data = Collections.emptyList();
 
   protected String overrideFragDbSpalte;
 
@@ -169,7 +207,8 @@ public class SenderService implements XPALProvider
         {
           datasource = new DummyDatasourceWithMessagebox(cache.getSchema(), senderSourceStr);
         }
-        instance = new SenderService(datasource, columnTransformer, cache, overrideFragDbSpalte);
+        instance = new SenderService(datasource, columnTransformer, cache, overrideFragDbSpalte,
+            REFRESH_EXECUTOR, task -> new OnPALChangedNotify(task).emit());
       } catch (ConfigurationErrorException | SenderException e)
       {
         LOGGER.error("", e);
@@ -178,10 +217,58 @@ public class SenderService implements XPALProvider
     return instance;
   }
 
+  private static ExecutorService createRefreshExecutor()
+  {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES,
+        new LinkedBlockingQueue<>(), r -> {
+          Thread t = new Thread(r, "lots-sender-refresh");
+          t.setDaemon(true);
+          return t;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   SenderService(Datasource mainDatasource, ColumnTransformer columnTransformer,
       SenderCache cache, String overrideFragDbSpalte) throws SenderException
   {
-    registeredPALChangeListener = new ArrayList<>();
+    this(mainDatasource, columnTransformer, cache, overrideFragDbSpalte, Runnable::run);
+  }
+
+  SenderService(Datasource mainDatasource, ColumnTransformer columnTransformer,
+      SenderCache cache, String overrideFragDbSpalte, Executor refreshExecutor)
+      throws SenderException
+  {
+    this(mainDatasource, columnTransformer, cache, overrideFragDbSpalte, refreshExecutor,
+        Runnable::run);
+  }
+
+  /**
+   * Create the service. The senders are served from the cache at once, the refresh from the data
+   * source runs on the executor.
+   *
+   * @param mainDatasource
+   *          The data source of the senders.
+   * @param columnTransformer
+   *          The transformation of the sender values. May be null.
+   * @param cache
+   *          The local cache of the senders.
+   * @param overrideFragDbSpalte
+   *          The column with the personal fragment overrides.
+   * @param refreshExecutor
+   *          The executor of the refresh.
+   * @param notificationExecutor
+   *          The executor, which notifies the listeners after the refresh.
+   * @throws SenderException
+   *           There's no data source.
+   */
+  SenderService(Datasource mainDatasource, ColumnTransformer columnTransformer,
+      SenderCache cache, String overrideFragDbSpalte, Executor refreshExecutor,
+      Executor notificationExecutor) throws SenderException
+  {
+    registeredPALChangeListener = new CopyOnWriteArrayList<>();
+    this.refreshExecutor = refreshExecutor;
+    this.notificationExecutor = notificationExecutor;
     this.columnTransformer = columnTransformer;
     this.cache = cache;
     if (mainDatasource == null)
@@ -193,25 +280,34 @@ public class SenderService implements XPALProvider
     init(cache);
     selectFromCache(cache);
     addPALChangeEventListener(cache);
+    refresh = refresh();
   }
 
+  /**
+   * Build the sender list from the cache. Senders with cached values get a data set of these
+   * values until {@link #refresh()} has looked them up in the data source.
+   */
   private void init(SenderCache cache) throws SenderException
   {
+    long start = System.nanoTime();
+    List<String> schema = getSchema();
     List<String> cachedSchema = cache.getSchema();
-    Set<String> newColumns = new HashSet<>(getSchema());
+    newColumns = new HashSet<>(schema);
     newColumns.removeAll(cachedSchema);
 
     Set<String> removedColumns = new HashSet<>(cachedSchema);
-    removedColumns.removeAll(getSchema());
+    removedColumns.removeAll(schema);
     List<Sender> newSender = new ArrayList<>();
     for (SenderConf senderConf : cache.getData())
     {
       Sender sender;
-      QueryResults res = mainDatasource.getDatasetsByKey(List.of(senderConf.getKey()));
-      if (!res.isEmpty())
+      if (!senderConf.getCachedValues().isEmpty())
       {
-        Dataset base = res.iterator().next();
-        sender = new Sender(senderConf.getKey(), base, senderConf.getOverriddenValues());
+        Map<String, String> values = new HashMap<>();
+        schema.forEach(column -> values.put(column, senderConf.getCachedValues().get(column)));
+        Dataset cached = new SimpleDataset(senderConf.getKey(), values);
+        staleDatasets.add(cached);
+        sender = new Sender(senderConf.getKey(), cached, senderConf.getOverriddenValues());
       } else
       {
         sender = new Sender(senderConf.getKey(), null, senderConf.getOverriddenValues());
@@ -219,20 +315,113 @@ public class SenderService implements XPALProvider
         {
           sender.overrideValue(newColumn, "");
         }
-        if (!senderConf.getCachedValues().isEmpty())
-        {
-          lostDatasets.add(sender);
-        }
       }
       removedColumns.forEach(sender::drop);
       newSender.add(sender);
     }
+    updateSenderList(newSender);
+    startupMetrics.servedFromCache(newSender.size(), System.nanoTime() - start);
+  }
 
-    String lostKeys = lostDatasets.stream().map(Sender::getKey).collect(Collectors.joining(", "));
+  /**
+   * Look up the keys of all cached senders with one query in the data source. Senders found in
+   * the data source get the new data set, senders with cached values which aren't found anymore
+   * are lost. The new sender list is published at once, the listeners are notified by the
+   * notification executor afterwards.
+   *
+   * @return A future, which completes as soon as the senders have been refreshed.
+   */
+  private CompletableFuture<Void> refresh()
+  {
+    Set<String> keys = new LinkedHashSet<>();
+    data.forEach(sender -> keys.add(sender.getKey()));
+    if (keys.isEmpty())
+    {
+      startupMetrics.refreshed(0, 0, 0, 0);
+      return CompletableFuture.completedFuture(null);
+    }
+    long start = System.nanoTime();
+    return CompletableFuture.supplyAsync(() -> mainDatasource.getDatasetsByKey(keys), refreshExecutor)
+        .thenAccept(res -> applyRefresh(res, keys.size(), start))
+        .exceptionally(e -> {
+          startupMetrics.refreshFailed(keys.size(), System.nanoTime() - start);
+          LOGGER.error("Senders could not be updated from the database, using cached values.", e);
+          return null;
+        });
+  }
+
+  private void applyRefresh(QueryResults res, int keys, long start)
+  {
+    Map<String, Dataset> found = new HashMap<>();
+    res.forEach(ds -> found.putIfAbsent(ds.getKey(), ds));
+    List<Sender> lost = new ArrayList<>();
+    synchronized (this)
+    {
+      List<Sender> refreshed = new ArrayList<>(data.size());
+      Sender selected = null;
+      for (Sender sender : data)
+      {
+        Sender newSender = sender;
+        boolean stale = staleDatasets.contains(sender.dataset);
+        Dataset base = found.get(sender.getKey());
+        if (base != null && (stale || sender.dataset == null))
+        {
+          newSender = new Sender(sender.getKey(), base, new HashMap<>(sender.overridenValues));
+        } else if (stale)
+        {
+          Map<String, String> overridden = new HashMap<>(sender.overridenValues);
+          for (String newColumn : newColumns)
+          {
+            overridden.put(newColumn, "");
+          }
+          newSender = new Sender(sender.getKey(), null, overridden);
+          lost.add(newSender);
+        }
+        if (sender == selectedSender)
+        {
+          selected = newSender;
+        }
+        refreshed.add(newSender);
+      }
+      staleDatasets.clear();
+      data = Collections.unmodifiableList(refreshed);
+      lostDatasets = Collections.unmodifiableList(lost);
+      if (selected != null)
+      {
+        selectedSender.setSelected(false);
+        selected.setSelected(true);
+        selectedSender = selected;
+      }
+    }
+    startupMetrics.refreshed(keys, found.size(), lost.size(), System.nanoTime() - start);
+    LOGGER.debug("Sender startup: {}", startupMetrics);
+
+    String lostKeys = lost.stream().map(Sender::getKey).collect(Collectors.joining(", "));
     if (!lostKeys.isEmpty())
       LOGGER.info("The records with the following keys could not be updated from the database: {}",
           lostKeys);
-    updateSenderList(newSender);
+    notificationExecutor.execute(this::notifyListener);
+  }
+
+  /**
+   * Get a future, which completes as soon as the cached senders have been refreshed from the data
+   * source. Until then the senders have the values of the cache.
+   *
+   * @return The future of the refresh. It never completes exceptionally.
+   */
+  public CompletableFuture<Void> refreshed()
+  {
+    return refresh;
+  }
+
+  /**
+   * Get the statistics of the start of the service.
+   *
+   * @return The startup metrics.
+   */
+  public SenderStartupMetrics getStartupMetrics()
+  {
+    return startupMetrics;
   }
 
   private void selectFromCache(SenderCache cache) throws SenderException
@@ -330,11 +519,12 @@ public class SenderService implements XPALProvider
   @Override
   public String getCurrentSender()
   {
-    if (selectedSender == null)
+    Sender selected = selectedSender;
+    if (selected == null)
     {
       return "";
     }
-    return selectedSender.getDisplayString() + SenderService.SENDER_KEY_SEPARATOR + selectedSender.getKey();
+    return selected.getDisplayString() + SenderService.SENDER_KEY_SEPARATOR + selected.getKey();
   }
 
   /**
@@ -370,15 +560,15 @@ public class SenderService implements XPALProvider
   public void removePALChangeEventListener(XPALChangeEventListener listener)
   {
     LOGGER.trace("PersoenlicheAbsenderliste::removePALChangeEventListener()");
-    Iterator<XPALChangeEventListener> i = registeredPALChangeListener.iterator();
-    while (i.hasNext())
-    {
-      XInterface l = UNO.XInterface(i.next());
-      if (UnoRuntime.areSame(l, listener))
-        i.remove();
-    }
+    registeredPALChangeListener.removeIf(l -> {
+      XInterface xl = UNO.XInterface(l);
+      return UnoRuntime.areSame(xl, listener);
+    });
   }
 
+  /**
+   * Notify all listeners about a change of the sender list.
+   */
   void notifyListener()
   {
     EventObject event = new EventObject();
@@ -551,7 +741,7 @@ public class SenderService implements XPALProvider
     }
   }
 
-  private void updateSenderList(List<Sender> newSenderList) throws SenderException
+  private synchronized void updateSenderList(List<Sender> newSenderList) throws SenderException
   {
     if (selectedSender != null)
     {
@@ -566,11 +756,11 @@ public class SenderService implements XPALProvider
           break;
         }
       }
-      data = newSenderList;
+      data = Collections.unmodifiableList(new ArrayList<>(newSenderList));
       selectByKeyAndIndex(selectedSender.getKey(), index);
     } else
     {
-      data = newSenderList;
+      data = Collections.unmodifiableList(new ArrayList<>(newSenderList));
       if (!newSenderList.isEmpty())
       {
         select(newSenderList.get(0));
@@ -589,13 +779,14 @@ public class SenderService implements XPALProvider
    */
   Sender getSelectedDatasetTransformed() throws SenderException
   {
-    if (selectedSender == null)
+    Sender selected = selectedSender;
+    if (selected == null)
     {
       throw new SenderException("No sender is selected");
     }
     if (columnTransformer == null)
     {
-      return selectedSender;
+      return selected;
     }
     return new Sender(columnTransformer.transform(new Dataset()
     {
@@ -603,13 +794,13 @@ public class SenderService implements XPALProvider
       @Override
       public String getKey()
       {
-        return selectedSender.getKey();
+        return selected.getKey();
       }
 
       @Override
       public String get(String columnName) throws ColumnNotFoundException
       {
-        return selectedSender.get(columnName);
+        return selected.get(columnName);
       }
     }));
   }
@@ -622,7 +813,7 @@ public class SenderService implements XPALProvider
    * @throws SenderException
    *           The sender is not in the list of senders.
    */
-  public void select(Sender sender) throws SenderException
+  public synchronized void select(Sender sender) throws SenderException
   {
     if (sender != null && !data.contains(sender))
     {
@@ -688,8 +879,32 @@ public class SenderService implements XPALProvider
    */
   public CompletableFuture<List<Sender>> find(Map<String, String> searchQuery)
   {
-    AsyncSearch searchAsync = new AsyncSearch(searchQuery, mainDatasource);
-    return searchAsync.runSearchAsync()
+    return find(createSearch(searchQuery));
+  }
+
+  /**
+   * Create a search in the main datasource. Callers which start a new search while the previous
+   * one is still running, can cancel the previous one.
+   *
+   * @param searchQuery
+   *          Query to search against the main datasource.
+   * @return The search, which hasn't been started yet.
+   */
+  public AsyncSearch createSearch(Map<String, String> searchQuery)
+  {
+    return new AsyncSearch(searchQuery, mainDatasource);
+  }
+
+  /**
+   * Start a search created by {@link #createSearch(Map)}.
+   *
+   * @param search
+   *          The search.
+   * @return The found senders. The future is canceled if the search is canceled.
+   */
+  public CompletableFuture<List<Sender>> find(AsyncSearch search)
+  {
+    return search.runSearchAsync()
         .thenApply(res -> StreamSupport.stream(res.spliterator(), false).map(Sender::new).collect(Collectors.toList()));
   }
 
@@ -0,0 +1,183 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.sender;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of the start of the {@link SenderService}: how fast the sender list was served from
+ * the local cache, how long the refresh from the data source took and how many round trips to the
+ * data source were saved by looking up all keys at once.
+ */
+public final class SenderStartupMetrics
+{
+  private int cachedSenders = 0;
+
+  private long cacheNanos = 0;
+
+  private int lookedUpKeys = 0;
+
+  private int roundTrips = 0;
+
+  private int found = 0;
+
+  private int lost = 0;
+
+  private long refreshNanos = -1;
+
+  private boolean failed = false;
+
+  /**
+   * The sender list has been built from the local cache.
+   *
+   * @param senders
+   *          The number of senders in the cache.
+   * @param nanos
+   *          The time needed to build the list.
+   */
+  synchronized void servedFromCache(int senders, long nanos)
+  {
+    cachedSenders = senders;
+    cacheNanos = nanos;
+  }
+
+  /**
+   * The keys of the cached senders have been looked up in the data source.
+   *
+   * @param keys
+   *          The number of distinct keys.
+   * @param foundKeys
+   *          The number of keys found in the data source.
+   * @param lostSenders
+   *          The number of cached senders, which aren't in the data source anymore.
+   * @param nanos
+   *          The time between the start of the refresh and the update of the list.
+   */
+  synchronized void refreshed(int keys, int foundKeys, int lostSenders, long nanos)
+  {
+    lookedUpKeys = keys;
+    roundTrips = keys == 0 ? 0 : 1;
+    found = foundKeys;
+    lost = lostSenders;
+    refreshNanos = nanos;
+  }
+
+  /**
+   * The refresh from the data source failed, the senders of the cache are kept.
+   *
+   * @param keys
+   *          The number of distinct keys.
+   * @param nanos
+   *          The time until the refresh failed.
+   */
+  synchronized void refreshFailed(int keys, long nanos)
+  {
+    lookedUpKeys = keys;
+    roundTrips = keys == 0 ? 0 : 1;
+    failed = true;
+    refreshNanos = nanos;
+  }
+
+  /**
+   * Get the number of senders, which were served from the local cache.
+   *
+   * @return The number of cached senders.
+   */
+  public synchronized int getCachedSenders()
+  {
+    return cachedSenders;
+  }
+
+  /**
+   * Get the number of queries sent to the data source for refreshing the senders.
+   *
+   * @return The number of round trips.
+   */
+  public synchronized int getRoundTrips()
+  {
+    return roundTrips;
+  }
+
+  /**
+   * Get the number of queries, which a lookup per key would have needed in addition.
+   *
+   * @return The number of saved round trips.
+   */
+  public synchronized int getSavedRoundTrips()
+  {
+    return lookedUpKeys - roundTrips;
+  }
+
+  /**
+   * Get the number of keys found in the data source.
+   *
+   * @return The number of found keys.
+   */
+  public synchronized int getFound()
+  {
+    return found;
+  }
+
+  /**
+   * Get the number of cached senders, which couldn't be found in the data source.
+   *
+   * @return The number of lost senders.
+   */
+  public synchronized int getLost()
+  {
+    return lost;
+  }
+
+  /**
+   * Has the refresh from the data source finished?
+   *
+   * @return True if the refresh has finished successfully or with an error.
+   */
+  public synchronized boolean isRefreshed()
+  {
+    return refreshNanos >= 0;
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    long ms = TimeUnit.MILLISECONDS.toNanos(1);
+    StringBuilder buf = new StringBuilder();
+    buf.append(String.format("%d senders from cache in %.2f ms", cachedSenders,
+        (double) cacheNanos / ms));
+    if (refreshNanos < 0)
+    {
+      buf.append(", refresh pending");
+    } else
+    {
+      buf.append(String.format(", %s refresh of %d keys in %.2f ms (%d round trips, %d saved)",
+          failed ? "failed" : "finished", lookedUpKeys, (double) refreshNanos / ms, roundTrips,
+          getSavedRoundTrips()));
+      if (!failed)
+      {
+        buf.append(String.format(", %d found, %d lost", found, lost));
+      }
+    }
+    return buf.toString();
+  }
+}
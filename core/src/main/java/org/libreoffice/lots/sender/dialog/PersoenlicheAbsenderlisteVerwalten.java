@@ -50,6 +50,7 @@ import org.libreoffice.ext.unohelper.common.UNO;
 import org.libreoffice.ext.unohelper.dialog.adapter.AbstractActionListener;
 import org.libreoffice.ext.unohelper.dialog.adapter.AbstractKeyListener;
 import org.libreoffice.ext.unohelper.util.UnoComponent;
+import org.libreoffice.lots.db.AsyncSearch;
 import org.libreoffice.lots.dialog.InfoDialog;
 import org.libreoffice.lots.sender.Sender;
 import org.libreoffice.lots.sender.SenderException;
@@ -81,6 +82,32 @@ public class PersoenlicheAbsenderlisteVerwalten
 
   private XDialog dialog;
 
+  /**
+   * The running search. It's canceled as soon as a new search is started.
+   */
+  private AsyncSearch currentSearch;
+
+  /**
+   * Start a search with the values of the search fields. A search which is still running is
+   * canceled.
+   */
+  private void startSearch()
+  {
+    AsyncSearch search = SenderService.getInstance().createSearch(buildSearchQuery());
+    synchronized (this)
+    {
+      if (currentSearch != null)
+      {
+        currentSearch.cancel();
+      }
+      currentSearch = search;
+    }
+    SenderService.getInstance().find(search).thenAccept(result -> {
+      setLdapSearchResults(result);
+      showInfoDialog(result);
+    });
+  }
+
   /**
    * Create the dialog.
    *
@@ -126,11 +153,7 @@ public class PersoenlicheAbsenderlisteVerwalten
     searchResultList.setMultipleMode(true);
 
     XButton searchBtn = UNO.XButton(controlContainer.getControl("btnSearch"));
-    AbstractActionListener startSearchBtnActionListener = event -> SenderService.getInstance().find(buildSearchQuery())
-        .thenAccept(result -> {
-          setLdapSearchResults(result);
-          showInfoDialog(result);
-        });
+    AbstractActionListener startSearchBtnActionListener = event -> startSearch();
     searchBtn.addActionListener(startSearchBtnActionListener);
 
     XKeyListener startSearchListener = new AbstractKeyListener()
@@ -147,10 +170,7 @@ public class PersoenlicheAbsenderlisteVerwalten
           if (xWnd != null)
           {
             xWnd.setFocus();
-            SenderService.getInstance().find(buildSearchQuery()).thenAcceptAsync(result -> {
-              setLdapSearchResults(result);
-              showInfoDialog(result);
-            });
+            startSearch();
           }
         }
       }
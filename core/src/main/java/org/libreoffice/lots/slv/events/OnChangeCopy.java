@@ -28,6 +28,7 @@ import com.sun.star.text.XParagraphCursor;
 import com.sun.star.text.XTextCursor;
 
 import org.libreoffice.ext.unohelper.common.UNO;
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.TextDocumentController;
 import org.libreoffice.lots.event.handlers.WollMuxEvent;
@@ -152,4 +153,10 @@ public class OnChangeCopy extends WollMuxEvent
   {
     return this.getClass().getSimpleName() + "(" + model + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
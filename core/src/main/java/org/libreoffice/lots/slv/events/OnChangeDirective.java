@@ -28,6 +28,7 @@ import com.sun.star.text.XParagraphCursor;
 import com.sun.star.text.XTextCursor;
 
 import org.libreoffice.ext.unohelper.common.UNO;
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.TextDocumentController;
 import org.libreoffice.lots.event.handlers.WollMuxEvent;
@@ -119,4 +120,10 @@ public class OnChangeDirective extends WollMuxEvent
   {
     return this.getClass().getSimpleName() + "(" + documentController.getModel() + ")";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
@@ -38,6 +38,7 @@ import org.libreoffice.ext.unohelper.common.UNO;
 import org.libreoffice.ext.unohelper.common.UnoHelperException;
 import org.libreoffice.ext.unohelper.document.text.Bookmark;
 import org.libreoffice.ext.unohelper.util.UnoProperty;
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.WollMuxFiles;
 import org.libreoffice.lots.dialog.InfoDialog;
@@ -276,4 +277,10 @@ public class OnMarkBlock extends WollMuxEvent
   {
     return this.getClass().getSimpleName() + "(#" + documentController.getModel().hashCode() + ", '" + blockname + "')";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
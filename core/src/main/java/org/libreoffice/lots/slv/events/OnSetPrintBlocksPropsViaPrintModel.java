@@ -25,6 +25,7 @@ package org.libreoffice.lots.slv.events;
 import java.awt.event.ActionListener;
 import java.util.Set;
 
+import org.libreoffice.lots.HashableComponent;
 import org.libreoffice.lots.WollMuxFehlerException;
 import org.libreoffice.lots.document.TextDocumentController;
 import org.libreoffice.lots.document.TextDocumentModel;
@@ -99,4 +100,10 @@ public class OnSetPrintBlocksPropsViaPrintModel extends WollMuxEvent
     return this.getClass().getSimpleName() + "(#" + documentController.getModel().doc.hashCode()
         + ", '" + blockName + "', '" + visible + "', '" + showHighlightColor + "')";
   }
+
+  @Override
+  public Object getDispatchKey()
+  {
+    return new HashableComponent(documentController.getModel().doc);
+  }
 }
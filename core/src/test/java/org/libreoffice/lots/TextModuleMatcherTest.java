@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.libreoffice.lots.config.ConfigThingy;
+
+public class TextModuleMatcherTest
+{
+  private static final String CONF = "TextBlocks(Kuerzel(MATCH(\"tb1\" \"abs([0-9]+)\") FRAG_ID \"frag_a$1\")"
+      + " Kuerzel(MATCH \"(?i)XY\" FRAG_ID \"frag_xy\") Kuerzel(MATCH \"nofrag\"))"
+      + " TextBlocks(SEPARATOR \"/\" Kuerzel(MATCH \"tb1|tb2\" FRAG_ID \"frag_b\")"
+      + " Kuerzel(MATCH \"a*\" FRAG_ID \"X\") Kuerzel(MATCH \"g\" FRAG_ID \"$2\"))";
+
+  @Test
+  public void testParse() throws Exception
+  {
+    TextModuleMatcher matcher = TextModuleMatcher.compile(new ConfigThingy("", CONF));
+    assertArrayEquals(new String[] { "frag_b", "x#y" }, matcher.parse("tb1/x#y"));
+    assertArrayEquals(new String[] { "frag_a12", "x", "" }, matcher.parse("abs12#x#"));
+    assertArrayEquals(new String[] { "frag_xy" }, matcher.parse("xy"));
+    assertArrayEquals(new String[] { "XX" }, matcher.parse("aaa"));
+    assertArrayEquals(new String[] { "g" }, matcher.parse("g"));
+    assertNull(matcher.parse("nofrag"));
+    assertNull(matcher.parse("abs"));
+    assertNull(matcher.parse("xtb1"));
+  }
+
+  @Test
+  public void testSection() throws Exception
+  {
+    ConfigThingy conf = new ConfigThingy("", CONF);
+    ConfigThingy first = conf.query("TextBlocks").getFirstChild();
+    assertArrayEquals(new String[] { "frag_a1", "x/y" },
+        TextModule.parseIdentifierInTextbausteine("abs1#x/y", first));
+    // FRAG_ID references a group which doesn't exist
+    assertArrayEquals(new String[] { "tb1" }, TextModule.parseIdentifierInTextbausteine("tb1", first));
+    assertNull(TextModule.parseIdentifierInTextbausteine("tb2", first));
+  }
+
+  @Test
+  public void testCompiledFrom() throws Exception
+  {
+    ConfigThingy conf = new ConfigThingy("", CONF);
+    TextModuleMatcher matcher = TextModuleMatcher.compile(conf);
+    assertTrue(matcher.isCompiledFrom(conf));
+    assertTrue(!matcher.isCompiledFrom(new ConfigThingy("", CONF)));
+  }
+
+  @Test
+  public void testLiteralPrefix()
+  {
+    assertEquals("tb1", TextModuleMatcher.literalPrefix("tb1"));
+    assertEquals("abs", TextModuleMatcher.literalPrefix("abs([0-9]+)"));
+    assertEquals("ab", TextModuleMatcher.literalPrefix("abc?"));
+    assertEquals("ab", TextModuleMatcher.literalPrefix("abc*d"));
+    assertEquals("ab", TextModuleMatcher.literalPrefix("abc{0,2}"));
+    assertEquals("abc", TextModuleMatcher.literalPrefix("abc+"));
+    assertEquals("", TextModuleMatcher.literalPrefix("tb1|tb2"));
+    assertEquals("", TextModuleMatcher.literalPrefix("(?i)xy"));
+    assertEquals("", TextModuleMatcher.literalPrefix("a*"));
+    assertEquals("", TextModuleMatcher.literalPrefix("\\Qa\\E"));
+  }
+}
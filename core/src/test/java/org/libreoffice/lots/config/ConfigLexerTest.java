@@ -0,0 +1,95 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+import org.libreoffice.lots.config.ConfigLexer.TokenType;
+
+public class ConfigLexerTest
+{
+  @Test
+  public void testTokens() throws Exception
+  {
+    ConfigLexer lexer = new ConfigLexer(null,
+        new StringReader("\uFEFFA_1(\"x\"\"y\" 'a%nb%%c%u0041%d')\r\n# comment\r%include \"f\""));
+    assertToken(lexer, TokenType.KEY, "A_1", 1, 2);
+    assertToken(lexer, TokenType.OPENPAREN, "(", 1, 5);
+    assertToken(lexer, TokenType.STRING, "x\"y", 1, 6);
+    assertToken(lexer, TokenType.STRING, "a\nb%cA%d", 1, 13);
+    assertToken(lexer, TokenType.CLOSEPAREN, ")", 1, 30);
+    assertToken(lexer, TokenType.INCLUDE, "%include", 3, 1);
+    assertToken(lexer, TokenType.STRING, "f", 3, 10);
+    assertToken(lexer, TokenType.END, "", 4, 0);
+    assertToken(lexer, TokenType.END, "", 4, 0);
+  }
+
+  @Test
+  public void testLongLines() throws Exception
+  {
+    StringBuilder data = new StringBuilder();
+    String value = "v".repeat(1000);
+    for (int i = 0; i < 100; i++)
+    {
+      data.append("K").append(i).append(" \"").append(value).append("\"\r\n");
+    }
+    ConfigLexer lexer = new ConfigLexer(null, new StringReader(data.toString()));
+    for (int i = 0; i < 100; i++)
+    {
+      assertToken(lexer, TokenType.KEY, "K" + i, i + 1, 1);
+      assertToken(lexer, TokenType.STRING, value, i + 1, i < 10 ? 4 : 5);
+    }
+    assertToken(lexer, TokenType.END, "", 101, 0);
+  }
+
+  @Test
+  public void testSyntaxError() throws Exception
+  {
+    ConfigLexer lexer = new ConfigLexer(null, new StringReader("A\n  B ?x\n"));
+    lexer.next();
+    lexer.next();
+    SyntaxErrorException ex = assertThrows(SyntaxErrorException.class, lexer::next);
+    assertEquals("null: syntax error in line 2 at char 5, text in error location: \"?x\"",
+        ex.getMessage());
+
+    ConfigLexer unclosed = new ConfigLexer(null, new StringReader("'abc"));
+    assertThrows(SyntaxErrorException.class, unclosed::next);
+
+    ConfigLexer unicode = new ConfigLexer(null, new StringReader("\"%u00\""));
+    ex = assertThrows(SyntaxErrorException.class, unicode::next);
+    assertEquals(IllegalArgumentException.class, ex.getCause().getClass());
+  }
+
+  private static void assertToken(ConfigLexer lexer, TokenType type, String content, int line,
+      int position) throws Exception
+  {
+    assertEquals(type, lexer.next());
+    assertEquals(content, lexer.content());
+    assertEquals(line, lexer.line());
+    assertEquals(position, lexer.position());
+  }
+}
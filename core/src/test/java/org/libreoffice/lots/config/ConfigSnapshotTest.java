@@ -0,0 +1,160 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ConfigSnapshotTest
+{
+  private Path dir;
+  private File snapshotFile;
+
+  @BeforeEach
+  public void setUp() throws Exception
+  {
+    dir = Files.createTempDirectory("snapshot");
+    snapshotFile = dir.resolve("test.snapshot").toFile();
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception
+  {
+    ConfigSnapshot.awaitWrites();
+    for (File f : dir.toFile().listFiles())
+    {
+      Files.delete(f.toPath());
+    }
+    Files.delete(dir);
+  }
+
+  @Test
+  public void testFile() throws Exception
+  {
+    Path main = write("main.conf", "A(B \"1\")\n%include \"inc.conf\"\n");
+    Path inc = write("inc.conf", "C(\"2\" \"%uD800\")");
+    ConfigSnapshot snapshot = new ConfigSnapshot(snapshotFile);
+
+    ConfigThingy conf = snapshot.load("root", main.toUri().toURL());
+    String expected = conf.stringRepresentation();
+    ConfigSnapshot.awaitWrites();
+    assertTrue(snapshotFile.isFile());
+
+    // same modification time and length, so the snapshot is used
+    long lastModified = main.toFile().lastModified();
+    write("main.conf", "A(B \"3\")\n%include \"inc.conf\"\n");
+    main.toFile().setLastModified(lastModified);
+    conf = snapshot.load("root", main.toUri().toURL());
+    assertEquals("root", conf.getName());
+    assertEquals(expected, conf.stringRepresentation());
+    assertEquals("\uD800", conf.get("C").getLastChild().getName());
+
+    // modified include
+    write("inc.conf", "C \"4\"");
+    inc.toFile().setLastModified(lastModified + 10000);
+    conf = snapshot.load("root", main.toUri().toURL());
+    assertEquals("3", conf.getString("B"));
+    assertEquals("4", conf.getString("C"));
+    ConfigSnapshot.awaitWrites();
+
+    // same content with another modification time
+    inc.toFile().setLastModified(lastModified + 20000);
+    write("main.conf", "A(B \"5\")\n%include \"inc.conf\"\n");
+    main.toFile().setLastModified(lastModified);
+    byte[] before = Files.readAllBytes(snapshotFile.toPath());
+    conf = snapshot.load("root", main.toUri().toURL());
+    assertEquals("3", conf.getString("B"));
+
+    // the new modification time has been recorded
+    ConfigSnapshot.awaitWrites();
+    assertFalse(Arrays.equals(before, Files.readAllBytes(snapshotFile.toPath())));
+    before = Files.readAllBytes(snapshotFile.toPath());
+    assertEquals("3", snapshot.load("root", main.toUri().toURL()).getString("B"));
+    ConfigSnapshot.awaitWrites();
+    assertArrayEquals(before, Files.readAllBytes(snapshotFile.toPath()));
+  }
+
+  @Test
+  public void testString() throws Exception
+  {
+    ConfigSnapshot snapshot = new ConfigSnapshot(snapshotFile);
+    assertEquals("1", snapshot.load("", "A \"1\"").getString("A"));
+    ConfigSnapshot.awaitWrites();
+    assertEquals("1", snapshot.load("", "A \"1\"").getString("A"));
+    assertEquals("2", snapshot.load("", "A \"2\"").getString("A"));
+  }
+
+  @Test
+  public void testOtherUrl() throws Exception
+  {
+    Path first = write("first.conf", "A \"1\"");
+    Path second = write("second.conf", "A \"2\"");
+    ConfigSnapshot snapshot = new ConfigSnapshot(snapshotFile);
+    assertEquals("1", snapshot.load("", first.toUri().toURL()).getString("A"));
+    ConfigSnapshot.awaitWrites();
+    assertEquals("2", snapshot.load("", second.toUri().toURL()).getString("A"));
+    ConfigSnapshot.awaitWrites();
+    assertEquals("2", snapshot.load("", "A \"2\"").getString("A"));
+  }
+
+  @Test
+  public void testCorrupt() throws Exception
+  {
+    Path conf = write("main.conf", "A \"1\"");
+    Files.write(snapshotFile.toPath(), new byte[] { 0x4C, 0x4F, 0x54, 0x53, 0, 0, 0, 1, 0, 0 });
+    ConfigSnapshot snapshot = new ConfigSnapshot(snapshotFile);
+    assertEquals("1", snapshot.load("", conf.toUri().toURL()).getString("A"));
+    ConfigSnapshot.awaitWrites();
+    assertFalse(Files.readAllBytes(snapshotFile.toPath()).length == 10);
+  }
+
+  @Test
+  public void testInvalidLength() throws Exception
+  {
+    Path conf = write("main.conf", "A \"1\"");
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    buffer.putInt(0x4C4F5453).putInt(1).putInt(1).putInt(Integer.MAX_VALUE);
+    Files.write(snapshotFile.toPath(), buffer.array());
+    ConfigSnapshot snapshot = new ConfigSnapshot(snapshotFile);
+    assertEquals("1", snapshot.load("", conf.toUri().toURL()).getString("A"));
+    ConfigSnapshot.awaitWrites();
+  }
+
+  private Path write(String name, String content) throws Exception
+  {
+    return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+  }
+}
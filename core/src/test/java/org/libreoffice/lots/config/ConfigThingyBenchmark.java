@@ -0,0 +1,87 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.config;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing a generated configuration of several megabytes with
+ * {@link ConfigThingy#ConfigThingy(String, String)}. Run with
+ * {@code org.openjdk.jmh.Main ConfigThingyBenchmark} on the test class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigThingyBenchmark
+{
+  @Param({ "1000", "20000" })
+  private int datasets;
+
+  private String conf;
+
+  @Setup
+  public void setup()
+  {
+    StringBuilder buf = new StringBuilder();
+    buf.append("# generated configuration\n");
+    buf.append("Datenquellen(\n  Datenquelle(\n    NAME \"Personal\"\n    TYPE \"conf\"\n");
+    buf.append("    Schema(\"OID\" \"Vorname\" \"Nachname\" \"Mail\" \"Strasse\")\n    Daten(\n");
+    for (int i = 0; i < datasets; i++)
+    {
+      buf.append("      (\"").append(i).append("\", 'Vorname").append(i % 997)
+          .append("', \"Nachname ").append(i).append("\", \"user").append(i)
+          .append("@example.org\", \"Stra%u00dfe ").append(i % 101).append("%n\"\"2\"\"\")\n");
+    }
+    buf.append("    )\n  )\n)\n");
+    buf.append("Textbausteine(\n");
+    for (int i = 0; i < datasets; i++)
+    {
+      buf.append("  Kuerzel(MATCH(\"tb").append(i).append("\") FRAG_ID \"frag_").append(i)
+          .append("\") # comment ").append(i).append('\n');
+    }
+    buf.append(")\n");
+    conf = buf.toString();
+  }
+
+  @Benchmark
+  public ConfigThingy parse() throws IOException, SyntaxErrorException
+  {
+    return new ConfigThingy("", conf);
+  }
+}
@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class QueryIndexTest
+{
+  private static final String CONF = "A(B(C \"1\" C \"2\") B(D(C \"3\")) C \"4\")"
+      + " E(B(C \"5\" F(B \"6\")))";
+
+  private ConfigThingy plain;
+  private ConfigThingy indexed;
+
+  @BeforeEach
+  public void setUp() throws Exception
+  {
+    plain = new ConfigThingy("", CONF);
+    indexed = new ConfigThingy("", CONF);
+    indexed.enableQueryIndex();
+  }
+
+  @Test
+  public void testQuery() throws Exception
+  {
+    for (String name : List.of("A", "B", "C", "D", "E", "F", "X", ""))
+    {
+      for (int minlevel = -1; minlevel < 6; minlevel++)
+      {
+        for (int maxlevel = 0; maxlevel < 7; maxlevel++)
+        {
+          assertEquals(names(plain.query(name, maxlevel, minlevel)),
+              names(indexed.query(name, maxlevel, minlevel)), name + minlevel + maxlevel);
+          assertEquals(names(plain.queryByChild(name, maxlevel, minlevel)),
+              names(indexed.queryByChild(name, maxlevel, minlevel)), name + minlevel + maxlevel);
+        }
+        assertEquals(names(plain.queryAll(name, minlevel, false)),
+            names(indexed.queryAll(name, minlevel, false)), name + minlevel);
+        assertEquals(names(plain.queryAll(name, minlevel, true)),
+            names(indexed.queryAll(name, minlevel, true)), name + minlevel);
+      }
+    }
+    assertEquals("4", indexed.get("C").toString());
+    assertEquals(List.of("1", "2", "5"), values(indexed.query("C", 3, 3)));
+    assertEquals(List.of("B2", "B2"), names(indexed.queryByChild("C", 3, 3)));
+  }
+
+  @Test
+  public void testSubtree() throws Exception
+  {
+    ConfigThingy e = indexed.get("E");
+    assertEquals(List.of("5"), values(e.query("C")));
+    assertEquals(List.of("6"), values(e.query("B", 4, 3)));
+    assertNull(e.getQueryIndex());
+
+    for (int i = 0; i < 32; i++)
+    {
+      e.add("G").add(Integer.toString(i));
+    }
+    assertNotNull(e.getQueryIndex());
+    assertEquals(List.of("5"), values(e.query("C")));
+    assertEquals(32, e.query("G").count());
+  }
+
+  @Test
+  public void testSeparateTrees() throws Exception
+  {
+    ConfigThingy other = new ConfigThingy("", CONF);
+    other.enableQueryIndex();
+    QueryIndex index = indexed.getQueryIndex();
+    QueryIndex otherIndex = other.getQueryIndex();
+
+    other.get("D").add("X");
+    assertSame(index, indexed.getQueryIndex());
+    assertNotSame(otherIndex, other.getQueryIndex());
+    assertEquals(0, indexed.query("X").count());
+    assertEquals(1, other.query("X").count());
+  }
+
+  @Test
+  public void testModification() throws Exception
+  {
+    ConfigThingy b = indexed.get("E").get("B");
+    assertSame(b, indexed.query("B", 2).getLastChild());
+
+    ConfigThingy d = indexed.get("D");
+    d.add("X").add("7");
+    assertEquals(List.of("7"), values(indexed.query("X")));
+    d.add("Y");
+    assertEquals(1, indexed.query("Y").count());
+
+    ConfigThingy y = new ConfigThingy("Z");
+    d.addChild(y);
+    y.add("8");
+    assertEquals(List.of("8"), values(indexed.query("Z")));
+    y.setName("W");
+    assertEquals(0, indexed.query("Z").count());
+    assertEquals(List.of("W1"), names(indexed.queryByChild("8")));
+  }
+
+  private static List<String> values(ConfigThingy conf)
+  {
+    List<String> values = new ArrayList<>();
+    for (ConfigThingy c : conf)
+    {
+      values.add(c.toString());
+    }
+    return values;
+  }
+
+  private static List<String> names(ConfigThingy conf)
+  {
+    List<String> names = new ArrayList<>();
+    for (ConfigThingy c : conf)
+    {
+      names.add(c.getName() + c.count());
+    }
+    return names;
+  }
+}
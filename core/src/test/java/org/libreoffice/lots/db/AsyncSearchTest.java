@@ -23,15 +23,26 @@
 package org.libreoffice.lots.db;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.junit.jupiter.api.Test;
+import org.libreoffice.lots.config.ConfigThingy;
 import org.libreoffice.lots.db.AsyncSearch;
 import org.libreoffice.lots.db.QueryResults;
 import org.libreoffice.lots.db.mock.MockDatasource;
+import org.libreoffice.lots.db.mock.MockDataset;
 
 public class AsyncSearchTest
 {
@@ -50,4 +61,79 @@ public class AsyncSearchTest
     assertTrue(search.runSearchAsync().get().isEmpty());
   }
 
+  @Test
+  public void testAsyncSearchBatches() throws Exception
+  {
+    List<Dataset> data = new ArrayList<>();
+    for (int i = 0; i < 120; i++)
+    {
+      data.add(new MockDataset("ds" + i, "column", "value" + i));
+    }
+    Datasource ds = new RAMDatasource("ram", List.of("column"), data);
+    List<Integer> batchSizes = new ArrayList<>();
+    AsyncSearch search = new AsyncSearch(Map.of("column", "value"), ds);
+    QueryResults results = search.runSearchAsync(batch -> batchSizes.add(batch.size())).get();
+    assertEquals(120, results.size());
+    assertEquals(List.of(50, 50, 20), batchSizes);
+  }
+
+  @Test
+  public void testAsyncSearchStrategy() throws Exception
+  {
+    SearchStrategy strategy = SearchStrategy.parse(new ConfigThingy("",
+        "SearchStrategy(test (column \"${suchanfrage1}\") test2 (column \"${suchanfrage1}\"))"));
+    Map<String, Datasource> datasources = Map.of("test", new MockDatasource(), "test2",
+        new MockDatasource("test2", List.of("column"), List.of(new MockDataset("ds3", "column", "value"))));
+    List<Dataset> batches = Collections.synchronizedList(new ArrayList<>());
+    AsyncSearch search = new AsyncSearch("value", strategy, datasources);
+    assertEquals(2, search.runSearchAsync(batches::addAll).get().size());
+    assertEquals(2, batches.size());
+  }
+
+  @Test
+  public void testAsyncSearchCancel() throws Exception
+  {
+    AsyncSearch search = new AsyncSearch(Map.of("column", "value"), new MockDatasource());
+    search.cancel();
+    assertTrue(search.isCanceled());
+    List<Dataset> batches = new ArrayList<>();
+    CompletableFuture<QueryResults> future = search.runSearchAsync(batches::addAll);
+    assertThrows(CancellationException.class, future::get);
+    assertTrue(batches.isEmpty());
+  }
+
+  @Test
+  public void testAsyncSearchTimeout() throws Exception
+  {
+    CountDownLatch interrupted = new CountDownLatch(1);
+    Datasource slow = new MockDatasource("slow", List.of("column"), List.of(new MockDataset()))
+    {
+      @Override
+      public QueryResults find(List<QueryPart> query)
+      {
+        try
+        {
+          Thread.sleep(2000);
+        } catch (InterruptedException e)
+        {
+          interrupted.countDown();
+          Thread.currentThread().interrupt();
+        }
+        return super.find(query);
+      }
+    };
+    SearchStrategy strategy = SearchStrategy.parse(new ConfigThingy("",
+        "SearchStrategy(slow (column \"${suchanfrage1}\") test (column \"${suchanfrage1}\"))"));
+    Map<String, Datasource> datasources = Map.of("test", new MockDatasource(), "slow", slow);
+    AsyncSearch search = new AsyncSearch("value", strategy, datasources);
+    search.setTimeout(100);
+    assertEquals(1, search.runSearchAsync().get().size());
+    assertTrue(interrupted.await(1, TimeUnit.SECONDS), "slow query wasn't interrupted");
+
+    search = new AsyncSearch(Map.of("column", "value"), slow);
+    search.setTimeout(100);
+    CompletableFuture<QueryResults> future = search.runSearchAsync();
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertTrue(e.getCause() instanceof TimeoutException);
+  }
 }
@@ -0,0 +1,85 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.db;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.libreoffice.lots.db.mock.MockDataset;
+
+public class CompiledQueryTest
+{
+
+  @Test
+  public void testDataset()
+  {
+    CompiledQuery query = new CompiledQuery(
+        List.of(new QueryPart("Vorname", "*shel*"), new QueryPart("Nachname", "COO")));
+    assertTrue(query.test(new SimpleDataset("Test", Map.of("Vorname", "Sheldon", "Nachname", "Cooper"))));
+    assertFalse(query.test(new SimpleDataset("Test", Map.of("Vorname", "Sheldon", "Nachname", "Hofstadter"))));
+    assertFalse(query.test(new SimpleDataset("Test", Map.of("Vorname", "Sheldon"))));
+    assertTrue(new CompiledQuery(List.of()).test(new SimpleDataset("Test", Map.of())));
+    assertTrue(new CompiledQuery(List.of()).isEmpty());
+  }
+
+  @Test
+  public void testRegex()
+  {
+    CompiledQuery query = new CompiledQuery(List.of(new QueryPart("Vorname", "^sh.l")));
+    assertTrue(query.test(new SimpleDataset("Test", Map.of("Vorname", "Sheldon"))));
+    assertFalse(query.test(new SimpleDataset("Test", Map.of("Vorname", "Ashley"))));
+  }
+
+  @Test
+  public void testNullValue()
+  {
+    Map<String, String> data = new HashMap<>();
+    data.put("Vorname", null);
+    Dataset ds = new MockDataset("Test", data);
+    assertTrue(new CompiledQuery(List.of(new QueryPart("Vorname", ""))).test(ds));
+    assertFalse(new CompiledQuery(List.of(new QueryPart("Vorname", "a"))).test(ds));
+  }
+
+  @Test
+  public void testBind()
+  {
+    List<String> schema = List.of("Vorname", "Nachname");
+    String[] row = CompiledQuery.toLowerCaseRow(schema, new MockDataset("Test", "Vorname", "Sheldon"));
+    assertArrayEquals(new String[] { "sheldon", null }, row);
+
+    Predicate<String[]> pred = new CompiledQuery(List.of(new QueryPart("Vorname", "Sheldon*"))).bind(schema);
+    assertTrue(pred.test(row));
+    pred = new CompiledQuery(List.of(new QueryPart("Nachname", ""))).bind(schema);
+    assertFalse(pred.test(row));
+    pred = new CompiledQuery(List.of(new QueryPart("Unknown", ""))).bind(schema);
+    assertFalse(pred.test(row));
+  }
+
+}
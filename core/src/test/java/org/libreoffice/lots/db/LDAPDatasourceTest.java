@@ -26,12 +26,14 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.libreoffice.lots.config.ConfigThingy;
+import org.libreoffice.lots.config.ConfigurationErrorException;
 import org.libreoffice.lots.db.ColumnNotFoundException;
 import org.libreoffice.lots.db.Dataset;
 import org.libreoffice.lots.db.Datasource;
@@ -123,4 +125,78 @@ public class LDAPDatasourceTest
     assertEquals(1, results.size());
   }
 
+  @Test
+  public void testLDAPDatasourceCache() throws Exception
+  {
+    String url = "ldap://localhost:" + server.getListenPort();
+    LDAPDatasource ds = new LDAPDatasource(null,
+        new ConfigThingy("", "NAME \"ldap\" URL \"" + url + "\" BASE_DN \"" + BASE_DN
+            + "\" OBJECT_CLASS \"person\" Columns ((DB_COLUMN \"column\" PATH \"0:sn\") (DB_COLUMN \"column2\" PATH \"-1:ou\")) Schluessel (\"column\")"
+            + " CACHE_SIZE \"10\" CACHE_TTL \"60\""),
+        null);
+
+    QueryResults results = ds.find(List.of(new QueryPart("column", "Ldap")));
+    assertEquals(1, results.size());
+    results = ds.find(List.of(new QueryPart("column", "Ldap")));
+    assertEquals(1, results.size());
+    assertEquals(1, ds.getQueryCache().getHits());
+    assertEquals(1, ds.getQueryCache().getMisses());
+
+    String key = results.iterator().next().getKey();
+    assertEquals(1, ds.getDatasetsByKey(List.of(key)).size());
+    assertEquals(1, ds.getDatasetsByKey(List.of(key)).size());
+    assertEquals(1, ds.getKeyCache().getHits());
+    assertEquals(1, ds.getKeyCache().getMisses());
+
+    // same string representation as the query with two parts
+    results = ds.find(List.of(new QueryPart("column", "Ldap"), new QueryPart("column", "Ldap")));
+    assertEquals(1, results.size());
+    results = ds.find(List.of(new QueryPart("column", "Ldap, column=Ldap")));
+    assertEquals(0, results.size());
+    assertEquals(1, ds.getQueryCache().getHits());
+  }
+
+  @Test
+  public void testLDAPDatasourceCacheOrder() throws Exception
+  {
+    String url = "ldap://localhost:" + server.getListenPort();
+    LDAPDatasource ds = new LDAPDatasource(null,
+        new ConfigThingy("", "NAME \"ldap\" URL \"" + url + "\" BASE_DN \"" + BASE_DN
+            + "\" OBJECT_CLASS \"person\" Columns ((DB_COLUMN \"column\" PATH \"0:sn\")) Schluessel (\"column\")"),
+        null);
+
+    String ldap = "(&(sn=Ldap))==%§%==";
+    String muster = "(&(sn=Muster))==%§%==";
+    assertEquals(1, ds.getDatasetsByKey(List.of(ldap)).size());
+    List<String> columns = new ArrayList<>();
+    ds.getDatasetsByKey(List.of(muster, ldap)).forEach(d -> columns.add(getColumn(d)));
+    assertEquals(List.of("Muster", "Ldap"), columns);
+    assertEquals(1, ds.getKeyCache().getHits());
+  }
+
+  private static String getColumn(Dataset dataset)
+  {
+    try
+    {
+      return dataset.get("column");
+    } catch (ColumnNotFoundException e)
+    {
+      throw new AssertionError(e);
+    }
+  }
+
+  @Test
+  public void testLDAPDatasourceCacheConfig() throws Exception
+  {
+    String url = "ldap://localhost:" + server.getListenPort();
+    String conf = "NAME \"ldap\" URL \"" + url + "\" BASE_DN \"" + BASE_DN
+        + "\" OBJECT_CLASS \"person\" Columns ((DB_COLUMN \"column\" PATH \"0:sn\")) Schluessel (\"column\")";
+    LDAPDatasource ds = new LDAPDatasource(null, new ConfigThingy("", conf + " CACHE_SIZE \"0\""), null);
+    ds.find(List.of(new QueryPart("column", "Ldap")));
+    ds.find(List.of(new QueryPart("column", "Ldap")));
+    assertEquals(0, ds.getQueryCache().getHits());
+    assertThrows(ConfigurationErrorException.class,
+        () -> new LDAPDatasource(null, new ConfigThingy("", conf + " CACHE_TTL \"-1\""), null));
+  }
+
 }
@@ -0,0 +1,78 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class LRUCacheTest
+{
+
+  @Test
+  public void testLRU()
+  {
+    LRUCache<String, String> cache = new LRUCache<>(2, 1000);
+    cache.put("a", "1");
+    cache.put("b", "2");
+    assertEquals("1", cache.get("a"));
+    cache.put("c", "3");
+    assertNull(cache.get("b"));
+    assertEquals("1", cache.get("a"));
+    assertEquals("3", cache.get("c"));
+    assertEquals(2, cache.size());
+    assertEquals(3, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getEvictions());
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testTTL()
+  {
+    AtomicLong time = new AtomicLong(0);
+    LRUCache<String, String> cache = new LRUCache<>(10, 100, time::get);
+    cache.put("a", "1");
+    time.set(99);
+    assertEquals("1", cache.get("a"));
+    time.set(100);
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.size());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  @Test
+  public void testDisabled()
+  {
+    LRUCache<String, String> cache = new LRUCache<>(0, 100);
+    cache.put("a", "1");
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getEvictions());
+  }
+
+}
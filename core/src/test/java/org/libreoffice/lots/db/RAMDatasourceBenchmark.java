@@ -0,0 +1,101 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how {@link RAMDatasource#find(List)} scales with the number of datasets, with and
+ * without column indexes. Run with
+ * {@code org.openjdk.jmh.Main RAMDatasourceBenchmark} on the test class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RAMDatasourceBenchmark
+{
+  @Param({ "1000", "10000", "100000" })
+  private int rows;
+
+  @Param({ "false", "true" })
+  private boolean indexed;
+
+  private RAMDatasource datasource;
+
+  private List<QueryPart> query;
+
+  @Setup
+  public void setup()
+  {
+    List<String> schema = List.of("OID", "Vorname", "Nachname", "Mail");
+    List<Dataset> data = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++)
+    {
+      data.add(new SimpleDataset(Integer.toString(i), Map.of("OID", Integer.toString(i), "Vorname",
+          "Vorname" + (i % 997), "Nachname", "Nachname" + i, "Mail", "user" + i + "@example.org")));
+    }
+    datasource = new RAMDatasource("benchmark", schema, data,
+        indexed ? List.of("Vorname", "Nachname") : List.of());
+    query = List.of(new QueryPart("Vorname", "vorname12*"), new QueryPart("Nachname", "*name1*"));
+  }
+
+  @Benchmark
+  public QueryResults find()
+  {
+    return datasource.find(query);
+  }
+
+  @Benchmark
+  public int predicate()
+  {
+    Predicate<Dataset> pred = DatasetPredicate.makePredicate(query);
+    int count = 0;
+    for (Dataset ds : datasource.getContents())
+    {
+      if (pred.test(ds))
+      {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -27,8 +27,10 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
+import org.libreoffice.lots.config.ConfigurationErrorException;
 import org.libreoffice.lots.db.Datasource;
 import org.libreoffice.lots.db.QueryPart;
 import org.libreoffice.lots.db.QueryResults;
@@ -57,6 +59,26 @@ public class RAMDatasourceTest
     assertEquals(0, results.size());
   }
 
+  @Test
+  public void testIndexedRAMDatasource()
+  {
+    Datasource ds = new RAMDatasource("ram", List.of("column", "column2"),
+        List.of(new MockDataset("ds1", Map.of("column", "Sheldon", "column2", "Cooper")),
+            new MockDataset("ds2", Map.of("column", "Leonard", "column2", "Hofstadter")),
+            new MockDataset("ds1", Map.of("column", "Penny", "column2", "Hofstadter"))),
+        List.of("column"));
+    assertEquals(2, ds.getDatasetsByKey(List.of("ds1", "ds1", "unknown")).size());
+    assertEquals(1, ds.find(List.of(new QueryPart("column", "*heldo*"))).size());
+    assertEquals(1, ds.find(List.of(new QueryPart("column", "LEO"))).size());
+    assertEquals(3, ds.find(List.of(new QueryPart("column", "n"))).size());
+    assertEquals(0, ds.find(List.of(new QueryPart("column", "ldon"), new QueryPart("column2", "hof"))).size());
+    assertEquals(1, ds.find(List.of(new QueryPart("column", "^pen"), new QueryPart("column2", "hof"))).size());
+    assertEquals(0, ds.find(List.of(new QueryPart("column", "xyz"))).size());
+    assertEquals(0, ds.find(List.of(new QueryPart("unknown", "value"))).size());
+    assertThrows(ConfigurationErrorException.class,
+        () -> new RAMDatasource("ram", List.of("column"), List.of(), List.of("unknown")));
+  }
+
   @Test
   public void testUninitialized()
   {
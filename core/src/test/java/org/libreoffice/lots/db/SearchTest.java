@@ -24,13 +24,18 @@ package org.libreoffice.lots.db;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 import org.libreoffice.lots.config.ConfigThingy;
 import org.libreoffice.lots.db.Datasource;
+import org.libreoffice.lots.db.QueryPart;
 import org.libreoffice.lots.db.QueryResults;
 import org.libreoffice.lots.db.Search;
 import org.libreoffice.lots.db.SearchStrategy;
@@ -78,4 +83,52 @@ public class SearchTest
     results = Search.search("value", strategy, datasources);
     assertEquals(2, results.size());
   }
+
+  @Test
+  public void testSearchConcurrently() throws Exception
+  {
+    SearchStrategy strategy = SearchStrategy.parse(new ConfigThingy("",
+        "SearchStrategy(test (column \"${suchanfrage1}\") test2 (column \"${suchanfrage1}\"))"));
+    Map<String, Datasource> datasources = Map.of("test", new MockDatasource(), "test2",
+        new MockDatasource("test2", List.of("column"), List.of(new MockDataset("ds3", "column", "value"))));
+    assertNull(Search.searchConcurrently("value", strategy, null, 1000));
+    QueryResults results = Search.searchConcurrently("value", strategy, datasources, 1000);
+    assertEquals(2, results.size());
+    List<String> keys = new ArrayList<>();
+    results.forEach(ds -> keys.add(ds.getKey()));
+    assertEquals(List.of("ds", "ds3"), keys);
+  }
+
+  @Test
+  public void testSearchConcurrentlyTimeout() throws Exception
+  {
+    SearchStrategy strategy = SearchStrategy.parse(new ConfigThingy("",
+        "SearchStrategy(slow (column \"${suchanfrage1}\") test (column \"${suchanfrage1}\"))"));
+    CountDownLatch interrupted = new CountDownLatch(1);
+    Datasource slow = new MockDatasource("slow", List.of("column"), List.of(new MockDataset()))
+    {
+      @Override
+      public QueryResults find(List<QueryPart> query)
+      {
+        try
+        {
+          Thread.sleep(2000);
+        } catch (InterruptedException e)
+        {
+          interrupted.countDown();
+          Thread.currentThread().interrupt();
+        }
+        return super.find(query);
+      }
+    };
+    Map<String, Datasource> datasources = Map.of("test", new MockDatasource(), "slow", slow);
+    QueryResults results = Search.searchConcurrently("value", strategy, datasources, 100);
+    assertEquals(1, results.size());
+    assertTrue(interrupted.await(1, TimeUnit.SECONDS), "slow query wasn't interrupted");
+
+    strategy = SearchStrategy.parse(
+        new ConfigThingy("", "SearchStrategy(slow (column \"${suchanfrage1}\"))"));
+    results = Search.searchConcurrently("value", strategy, datasources, 100);
+    assertTrue(results.isEmpty());
+  }
 }
@@ -31,6 +31,7 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.libreoffice.lots.config.ConfigThingy;
+import org.libreoffice.lots.config.ConfigurationErrorException;
 import org.libreoffice.lots.db.ColumnNotFoundException;
 import org.libreoffice.lots.db.Dataset;
 import org.libreoffice.lots.db.Datasource;
@@ -52,4 +53,16 @@ public class ThingyDatasourceTest
     assertThrows(ColumnNotFoundException.class, () -> data.get("unknown"));
   }
 
+  @Test
+  public void testThingyDatasourceIndex() throws Exception
+  {
+    Datasource ds = new ThingyDatasource(null, new ConfigThingy("",
+        "NAME \"conf\" URL \"" + file + "\" Schluessel(\"column\") INDEX(\"column2\")"), null);
+    assertEquals(1, ds.find(List.of(new QueryPart("column2", "value4"))).size());
+    assertEquals(2, ds.find(List.of(new QueryPart("column2", "value*"))).size());
+    assertEquals(1, ds.getDatasetsByKey(List.of("value3")).size());
+    assertThrows(ConfigurationErrorException.class, () -> new ThingyDatasource(null, new ConfigThingy("",
+        "NAME \"conf\" URL \"" + file + "\" Schluessel(\"column\") INDEX(\"unknown\")"), null));
+  }
+
 }
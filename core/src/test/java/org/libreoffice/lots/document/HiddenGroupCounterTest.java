@@ -0,0 +1,108 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.document;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.star.text.XTextRange;
+
+public class HiddenGroupCounterTest
+{
+  @Test
+  public void testCounts()
+  {
+    Element a = new Element("A");
+    Element ab = new Element("A", "B");
+    Element c = new Element("C");
+    Map<String, Boolean> state = new HashMap<>(Map.of("A", false, "C", true));
+    HiddenGroupCounter counter = new HiddenGroupCounter(List.of(a, ab, c), state, 1);
+
+    assertFalse(counter.isVisible(a));
+    assertFalse(counter.isVisible(ab));
+    assertTrue(counter.isVisible(c));
+
+    counter.groupChanged(state.put("B", false), false, List.of(ab));
+    counter.groupChanged(state.put("A", true), true, List.of(a, ab));
+    assertTrue(counter.isVisible(a));
+    assertFalse(counter.isVisible(ab));
+
+    counter.groupChanged(state.put("A", true), true, List.of(a, ab));
+    counter.groupChanged(state.put("B", true), true, List.of(ab));
+    assertTrue(counter.isVisible(ab));
+
+    assertTrue(counter.isValidFor(state, 1));
+    assertFalse(counter.isValidFor(state, 2));
+    assertFalse(counter.isValidFor(new HashMap<>(state), 1));
+  }
+
+  private static class Element implements VisibilityElement
+  {
+    private final Set<String> groups;
+
+    private boolean visible = true;
+
+    private Element(String... groups)
+    {
+      this.groups = new HashSet<>(List.of(groups));
+    }
+
+    @Override
+    public boolean isVisible()
+    {
+      return visible;
+    }
+
+    @Override
+    public void setVisible(boolean visible)
+    {
+      this.visible = visible;
+    }
+
+    @Override
+    public Set<String> getGroups()
+    {
+      return groups;
+    }
+
+    @Override
+    public void addGroups(Set<String> groups)
+    {
+      this.groups.addAll(groups);
+    }
+
+    @Override
+    public XTextRange getAnchor()
+    {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.document.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.star.text.XTextCursor;
+import com.sun.star.text.XTextDocument;
+
+import org.libreoffice.ext.unohelper.common.UNO;
+import org.libreoffice.lots.test.OfficeTest;
+
+public class DocumentCommandsTest extends OfficeTest
+{
+
+  @Test
+  public void testNestedBatch() throws Exception
+  {
+    XTextDocument doc = UNO.XTextDocument(loadComponent("private:factory/swriter", false, true));
+    XTextCursor cursor = doc.getText().createTextCursor();
+    cursor.setString("ABC");
+    DocumentCommands commands = new DocumentCommands(UNO.XBookmarksSupplier(doc));
+    commands.update();
+    assertEquals(0, count(commands));
+
+    commands.beginBatch();
+    commands.addNewDocumentCommand(cursor, "WM(CMD 'setJumpMark')");
+    commands.beginBatch();
+    String name = commands.addNewDocumentCommand(cursor, "WM(CMD 'setJumpMark')");
+    commands.registerDocumentCommand(name);
+    assertFalse(commands.commitBatch(), "inner batch must not update");
+    assertEquals(0, count(commands));
+    assertTrue(commands.commitBatch(), "outer batch has to add the commands");
+    assertEquals(2, count(commands));
+
+    // nothing new
+    commands.beginBatch();
+    assertFalse(commands.commitBatch());
+    assertFalse(commands.update());
+    assertEquals(2, count(commands));
+  }
+
+  @Test
+  public void testCommitWithoutBegin() throws Exception
+  {
+    XTextDocument doc = UNO.XTextDocument(loadComponent("private:factory/swriter", false, true));
+    DocumentCommands commands = new DocumentCommands(UNO.XBookmarksSupplier(doc));
+    assertThrows(IllegalStateException.class, commands::commitBatch);
+    commands.beginBatch();
+    commands.commitBatch();
+    assertThrows(IllegalStateException.class, commands::commitBatch);
+  }
+
+  private static int count(DocumentCommands commands)
+  {
+    int count = 0;
+    for (Iterator<DocumentCommand> iter = commands.iterator(); iter.hasNext(); iter.next())
+    {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,340 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.document.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.star.text.XText;
+import com.sun.star.text.XTextRange;
+
+import org.libreoffice.lots.document.VisibilityElement;
+
+public class VisibilityIndexTest
+{
+  private int comparisons = 0;
+
+  private final VisibilityIndex index = new VisibilityIndex(new VisibilityIndex.Positions()
+  {
+    @Override
+    public Object getTextKey(XTextRange range)
+    {
+      return ((Range) range).text.split("/")[0];
+    }
+
+    @Override
+    public Comparator<XTextRange> getComparator(XTextRange range)
+    {
+      String text = ((Range) range).text;
+      return (a, b) -> {
+        comparisons++;
+        if (!text.equals(((Range) a).text) || !text.equals(((Range) b).text))
+        {
+          throw new IllegalArgumentException();
+        }
+        return Integer.compare(((Range) a).start, ((Range) b).start);
+      };
+    }
+  });
+
+  @Test
+  public void testNesting()
+  {
+    Element section = new Element("body", 0, 100, "A");
+    Element outer = new Element("body", 10, 20, "B");
+    Element inner = new Element("body", 12, 15, "C");
+    Element first = new Element("body", 30, 40, "D");
+    Element second = new Element("body", 30, 40, "E");
+    index.addAll(Arrays.asList(inner, second, section, first, outer));
+
+    assertEquals(Arrays.asList(section, outer, inner), index.getElements().subList(0, 3));
+    assertEquals(Set.of("A"), section.getGroups());
+    assertEquals(Set.of("A", "B"), outer.getGroups());
+    assertEquals(Set.of("A", "B", "C"), inner.getGroups());
+    assertEquals(Set.of("A", "D", "E"), first.getGroups());
+    assertEquals(Set.of("A", "D", "E"), second.getGroups());
+  }
+
+  @Test
+  public void testOverlapping()
+  {
+    Element a = new Element("body", 0, 10, "A");
+    Element b = new Element("body", 5, 15, "B");
+    Element c = new Element("body", 6, 8, "C");
+    index.addAll(Arrays.asList(c, b, a));
+
+    assertEquals(Set.of("A"), a.getGroups());
+    assertEquals(Set.of("B"), b.getGroups());
+    assertEquals(Set.of("A", "B", "C"), c.getGroups());
+
+    index.addAll(withFiller());
+
+    Element inserted = new Element("body", 9, 10, "D");
+    index.addAll(List.of(inserted));
+    assertEquals(Set.of("A", "B", "D"), inserted.getGroups());
+  }
+
+  @Test
+  public void testOverlappingInsert()
+  {
+    Element a = new Element("body", 0, 10, "A");
+    index.addAll(withFiller(a));
+
+    Element b = new Element("body", 5, 15, "B");
+    index.addAll(List.of(b));
+    Element c = new Element("body", 9, 10, "C");
+    index.addAll(List.of(c));
+    assertEquals(Set.of("A", "B", "C"), c.getGroups());
+  }
+
+  @Test
+  public void testOverlappingDescendant()
+  {
+    Element a = new Element("body", 0, 10, "A");
+    Element b = new Element("body", 6, 8, "B");
+    index.addAll(withFiller(a, b));
+
+    Element c = new Element("body", 2, 7, "C");
+    index.addAll(List.of(c));
+    Element d = new Element("body", 6, 7, "D");
+    index.addAll(List.of(d));
+    assertEquals(Set.of("A", "B", "C", "D"), d.getGroups());
+  }
+
+  @Test
+  public void testDifferentTexts()
+  {
+    Element body = new Element("body", 0, 100, "A");
+    Element cell = new Element("cell", 10, 20, "B");
+    index.addAll(Arrays.asList(body, cell));
+
+    assertEquals(Set.of("B"), cell.getGroups());
+    assertEquals(2, index.getElements().size());
+  }
+
+  @Test
+  public void testIncomparableText()
+  {
+    Element body = new Element("body", 0, 100, "A");
+    Element foreign = new Element("body/frame", 10, 20, "B");
+    Element inner = new Element("body", 30, 40, "C");
+    index.addAll(Arrays.asList(body, foreign, inner));
+
+    assertEquals(Arrays.asList(body, inner), index.getElements());
+    assertEquals(Set.of("B"), foreign.getGroups());
+    assertEquals(Set.of("A", "C"), inner.getGroups());
+
+    index.addAll(withFiller());
+    index.addAll(List.of(new Element("body/frame", 50, 60, "D")));
+    assertEquals(102, index.getElements().size());
+  }
+
+  @Test
+  public void testIncrementalInsert()
+  {
+    List<Element> siblings = new ArrayList<>();
+    for (int i = 0; i < 1000; i++)
+    {
+      siblings.add(new Element("body", 10 * i, 10 * i + 5, "S" + i));
+    }
+    Collections.shuffle(siblings);
+    index.addAll(siblings);
+
+    comparisons = 0;
+    Element leaf = new Element("body", 5001, 5002, "L");
+    index.addAll(List.of(leaf));
+    assertTrue(comparisons < 50, "comparisons: " + comparisons);
+    assertEquals(Set.of("L", "S500"), leaf.getGroups());
+    assertEquals(leaf, index.getElements().get(501));
+
+    Element container = new Element("body", 4990, 5010, "C");
+    index.addAll(List.of(container));
+    assertEquals(Set.of("C"), container.getGroups());
+    assertEquals(Set.of("C", "S500", "L"), leaf.getGroups());
+    assertEquals(Set.of("C", "S499"), siblings.stream().filter(e -> e.anchor.start == 4990)
+        .findFirst().get().getGroups());
+
+    Element equal = new Element("body", 5001, 5002, "E");
+    index.addAll(List.of(equal));
+    assertEquals(Set.of("C", "S500", "L", "E"), leaf.getGroups());
+    assertEquals(Set.of("C", "S500", "L", "E"), equal.getGroups());
+  }
+
+  @Test
+  public void testRemove()
+  {
+    Element section = new Element("body", 0, 100, "A");
+    Element middle = new Element("body", 10, 50, "B");
+    Element leaf = new Element("body", 20, 30, "C");
+    List<Element> filler = new ArrayList<>();
+    for (int i = 0; i < 100; i++)
+    {
+      filler.add(new Element("body", 200 + i, 200 + i, "F" + i));
+    }
+    index.addAll(filler);
+    index.addAll(Arrays.asList(section, middle, leaf));
+    index.removeAll(List.of(middle));
+    assertEquals(102, index.getElements().size());
+
+    Element added = new Element("body", 12, 13, "D");
+    index.addAll(List.of(added));
+    assertEquals(Set.of("A", "D"), added.getGroups());
+  }
+
+  @Test
+  public void testGroupLookup()
+  {
+    Element section = new Element("body", 0, 100, "A");
+    Element first = new Element("body", 10, 20, "B");
+    Element second = new Element("body", 30, 40, "C");
+    Element cell = new Element("cell", 0, 10, "B");
+    index.addAll(Arrays.asList(second, cell, first, section));
+
+    assertEquals(List.of(section, first, second), index.getElements("A"));
+    assertEquals(List.of(first, cell), index.getElements(List.of("B")));
+    assertEquals(List.of(first, second, cell), index.getElements(List.of("C", "B")));
+    assertEquals(List.of(), index.getElements("D"));
+
+    int modificationCount = index.getModificationCount();
+    Element nested = new Element("body", 32, 35, "D");
+    index.addAll(List.of(nested));
+    assertTrue(index.getModificationCount() != modificationCount);
+    assertEquals(List.of(second, nested), index.getElements("C"));
+    assertEquals(List.of(nested), index.getElements("D"));
+  }
+
+  /**
+   * Ergänzt die Elemente um genug unabhängige Elemente, damit einzelne Elemente danach
+   * per binärer Suche einsortiert werden.
+   */
+  private static List<Element> withFiller(Element... elements)
+  {
+    List<Element> result = new ArrayList<>(Arrays.asList(elements));
+    for (int i = 0; i < 100; i++)
+    {
+      result.add(new Element("body", 200 + i, 200 + i, "F" + i));
+    }
+    return result;
+  }
+
+  private static class Range implements XTextRange
+  {
+    private final String text;
+
+    private final int start;
+
+    private final int end;
+
+    private Range(String text, int start, int end)
+    {
+      this.text = text;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public XText getText()
+    {
+      return null;
+    }
+
+    @Override
+    public XTextRange getStart()
+    {
+      return new Range(text, start, start);
+    }
+
+    @Override
+    public XTextRange getEnd()
+    {
+      return new Range(text, end, end);
+    }
+
+    @Override
+    public String getString()
+    {
+      return "";
+    }
+
+    @Override
+    public void setString(String string)
+    {
+      // nicht benötigt
+    }
+  }
+
+  private static class Element implements VisibilityElement
+  {
+    private final Range anchor;
+
+    private final Set<String> groups = new HashSet<>();
+
+    private boolean visible = true;
+
+    private Element(String text, int start, int end, String group)
+    {
+      this.anchor = new Range(text, start, end);
+      groups.add(group);
+    }
+
+    @Override
+    public boolean isVisible()
+    {
+      return visible;
+    }
+
+    @Override
+    public void setVisible(boolean visible)
+    {
+      this.visible = visible;
+    }
+
+    @Override
+    public Set<String> getGroups()
+    {
+      return groups;
+    }
+
+    @Override
+    public void addGroups(Set<String> groups)
+    {
+      this.groups.addAll(groups);
+    }
+
+    @Override
+    public XTextRange getAnchor()
+    {
+      return anchor;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.libreoffice.lots.event.handlers.WollMuxEvent;
+
+public class AsyncEventDispatcherTest
+{
+
+  @Test
+  public void testOrderAndCoalescing()
+  {
+    List<Runnable> tasks = new ArrayList<>();
+    List<String> processed = new ArrayList<>();
+    EventMetrics metrics = new EventMetrics();
+    AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(e -> processed.add(e.toString()),
+        tasks::add, metrics);
+
+    dispatcher.dispatch(new TestEvent("doc", "a", "1"));
+    dispatcher.dispatch(new TestEvent("doc", "b", "2"));
+    dispatcher.dispatch(new TestEvent("doc", null, "3"));
+    dispatcher.dispatch(new TestEvent("doc", "a", "4"));
+    dispatcher.dispatch(new TestEvent("other", "a", "5"));
+    assertEquals(2, tasks.size());
+    assertEquals(4, metrics.getQueueDepth());
+    assertEquals(1, metrics.getCoalesced());
+
+    tasks.forEach(Runnable::run);
+    assertEquals(List.of("4", "2", "3", "5"), processed);
+    assertEquals(0, metrics.getQueueDepth());
+    assertEquals(4, metrics.getMaxQueueDepth());
+    assertEquals(4, metrics.getCount("TestEvent"));
+
+    tasks.clear();
+    dispatcher.dispatch(new TestEvent("doc", "a", "6"));
+    assertEquals(1, tasks.size());
+    tasks.get(0).run();
+    assertEquals("6", processed.get(4));
+  }
+
+  private static class TestEvent extends WollMuxEvent
+  {
+    private final Object dispatchKey;
+
+    private final Object coalescingKey;
+
+    private final String name;
+
+    private TestEvent(Object dispatchKey, Object coalescingKey, String name)
+    {
+      this.dispatchKey = dispatchKey;
+      this.coalescingKey = coalescingKey;
+      this.name = name;
+    }
+
+    @Override
+    public Object getDispatchKey()
+    {
+      return dispatchKey;
+    }
+
+    @Override
+    public Object getCoalescingKey()
+    {
+      return coalescingKey;
+    }
+
+    @Override
+    protected void doit()
+    {
+      // nothing to do
+    }
+
+    @Override
+    public String toString()
+    {
+      return name;
+    }
+  }
+}
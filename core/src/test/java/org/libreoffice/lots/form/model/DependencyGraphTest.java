@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.form.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.libreoffice.lots.config.ConfigThingy;
+import org.libreoffice.lots.dialog.DialogLibrary;
+import org.libreoffice.lots.func.EvaluationCache;
+import org.libreoffice.lots.func.FunctionLibrary;
+import org.libreoffice.lots.func.Values;
+import org.libreoffice.lots.ui.UIElementConfig;
+
+public class DependencyGraphTest
+{
+
+  private final Map<String, Control> controls = new HashMap<>();
+
+  private final Values values = new Values()
+  {
+    @Override
+    public boolean hasValue(String id)
+    {
+      return controls.containsKey(id);
+    }
+
+    @Override
+    public String getString(String id)
+    {
+      return controls.containsKey(id) ? controls.get(id).getValue() : "";
+    }
+
+    @Override
+    public boolean getBoolean(String id)
+    {
+      return "true".equalsIgnoreCase(getString(id));
+    }
+  };
+
+  private Control control(String conf) throws Exception
+  {
+    Control control = new Control(new UIElementConfig(new ConfigThingy("", conf)),
+        new FunctionLibrary(), new DialogLibrary(), new HashMap<>());
+    controls.put(control.getId(), control);
+    return control;
+  }
+
+  @Test
+  public void testUpdate() throws Exception
+  {
+    // c depends on a and b, b depends on a, d checks b
+    Control c = control("ID \"c\" TYPE \"textfield\" AUTOFILL(CAT(VALUE \"a\" VALUE \"b\"))");
+    Control a = control("ID \"a\" TYPE \"textfield\"");
+    Control b = control("ID \"b\" TYPE \"textfield\" AUTOFILL(CAT(VALUE \"a\" \"x\"))");
+    Control d = control("ID \"d\" TYPE \"textfield\" PLAUSI(MATCH(VALUE \"b\" \"ax\"))");
+    Control e = control("ID \"e\" TYPE \"textfield\" AUTOFILL(\"constant\")");
+    a.addDependingAutoFillFormField(b);
+    a.addDependingAutoFillFormField(c);
+    b.addDependingAutoFillFormField(c);
+    b.addDependingPlausiFormField(d);
+    a.addDependingAutoFillFormField(e);
+    controls.values().forEach(control -> control.addDependingPlausiFormField(control));
+    d.setOkay(values);
+    assertFalse(d.isOkay());
+
+    DependencyGraph graph = new DependencyGraph(List.of(c, a, b, d, e));
+    e.setValue("constant");
+    DependencyGraph.Changes changes = graph.update(a, "a", values);
+    assertEquals("ax", b.getValue());
+    assertEquals("aax", c.getValue());
+    assertEquals(List.of("a", "b", "c"),
+        changes.getValues().stream().map(Control::getId).collect(Collectors.toList()));
+    assertTrue(d.isOkay());
+    assertTrue(changes.getStates().contains(d));
+    assertTrue(changes.getGroups().isEmpty());
+  }
+
+  @Test
+  public void testUpdateSeveral() throws Exception
+  {
+    // c depends on a and b, b depends on a, but b is set explicitly
+    int[] evaluations = { 0 };
+    Control a = control("ID \"a\" TYPE \"textfield\"");
+    Control b = control("ID \"b\" TYPE \"textfield\" AUTOFILL(CAT(VALUE \"a\" \"x\"))");
+    Control c = new Control(new UIElementConfig(new ConfigThingy("",
+        "ID \"c\" TYPE \"textfield\" AUTOFILL(CAT(VALUE \"a\" VALUE \"b\"))")),
+        new FunctionLibrary(), new DialogLibrary(), new HashMap<>())
+    {
+      @Override
+      public String computeValue(Values values, EvaluationCache cache)
+      {
+        evaluations[0]++;
+        return super.computeValue(values, cache);
+      }
+    };
+    controls.put(c.getId(), c);
+    a.addDependingAutoFillFormField(b);
+    a.addDependingAutoFillFormField(c);
+    b.addDependingAutoFillFormField(c);
+    controls.values().forEach(control -> control.addDependingPlausiFormField(control));
+
+    DependencyGraph graph = new DependencyGraph(List.of(c, a, b));
+    Map<Control, String> record = new LinkedHashMap<>();
+    record.put(a, "1");
+    record.put(b, "2");
+    DependencyGraph.Changes changes = graph.update(record, values);
+    assertEquals("2", b.getValue());
+    assertEquals("12", c.getValue());
+    assertEquals(1, evaluations[0]);
+    assertEquals(List.of("a", "b", "c"),
+        changes.getValues().stream().map(Control::getId).collect(Collectors.toList()));
+    assertEquals(3, changes.getStates().size());
+  }
+}
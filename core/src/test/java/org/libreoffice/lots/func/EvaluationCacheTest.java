@@ -0,0 +1,198 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.func;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.libreoffice.lots.config.ConfigThingy;
+
+public class EvaluationCacheTest
+{
+  private static final String LIBRARY = "Functions("
+      + "Plus1(SUM(VALUE 'a' '1')) "
+      + "Choose(IF(VALUE 'c' THEN(VALUE 'a') ELSE('none'))) "
+      + "Twice(BIND(FUNCTION 'Plus1' SET('a' BIND(FUNCTION 'Plus1' SET('a' VALUE 'b'))))) "
+      + "Greeting(CAT(BIND(FUNCTION 'Plus1' SET('a' VALUE 'b')) ' ' VALUE 'name')) "
+      + "Lazy(BIND(FUNCTION 'Choose' SET('a' VALUE 'missing'))) "
+      + "Error(ISERROR(BIND(FUNCTION 'Plus1' SET('a' 'x')))))";
+
+  private static final List<String> NAMES = List.of("Plus1", "Choose", "Twice", "Greeting",
+      "Lazy", "Error");
+
+  private static final List<Values.SimpleMap> VALUES = List.of(values(),
+      values("a", "1", "b", "5", "c", "true", "name", "Hans"),
+      values("a", "x", "b", "2", "c", "false"), values("b", "y", "c", "true"));
+
+  private static Values.SimpleMap values(String... keyValues)
+  {
+    Values.SimpleMap values = new Values.SimpleMap();
+    for (int i = 0; i < keyValues.length; i += 2)
+    {
+      values.put(keyValues[i], keyValues[i + 1]);
+    }
+    return values;
+  }
+
+  private static FunctionLibrary library(boolean compile) throws Exception
+  {
+    ConfigThingy conf = new ConfigThingy("", LIBRARY);
+    if (compile)
+    {
+      return FunctionFactory.parseFunctions(conf, null, null, null);
+    }
+    FunctionLibrary lib = new FunctionLibrary();
+    for (ConfigThingy func : conf.getFirstChild())
+    {
+      lib.add(func.getName(), FunctionFactory.parseChildren(func, lib, null, null));
+    }
+    return lib;
+  }
+
+  /**
+   * The results of the compiled functions are expected. The interpreted SUM isn't reentrant, so
+   * Twice computes a wrong result without the cache.
+   */
+  @Test
+  public void testSameResults() throws Exception
+  {
+    FunctionLibrary expectedLib = library(true);
+    for (boolean compile : List.of(false, true))
+    {
+      FunctionLibrary lib = library(compile);
+      for (Values.SimpleMap values : VALUES)
+      {
+        EvaluationCache cache = new EvaluationCache();
+        for (int i = 0; i < 2; i++)
+        {
+          for (String name : NAMES)
+          {
+            Function expectedFunc = expectedLib.get(name);
+            String expected = expectedFunc.getResult(values);
+            String actual = cache.getResult(lib.get(name), values);
+            assertEquals(expected, actual, name);
+            assertEquals(expected == FunctionLibrary.ERROR, actual == FunctionLibrary.ERROR, name);
+            assertEquals(expectedFunc.getBoolean(values), cache.getBoolean(lib.get(name), values),
+                name);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSharedLibraryFunction() throws Exception
+  {
+    for (boolean compile : List.of(false, true))
+    {
+      FunctionLibrary lib = library(compile);
+      EvaluationCache cache = new EvaluationCache();
+      Values.SimpleMap values = values("b", "5", "name", "Hans");
+      assertEquals("6 Hans", cache.getResult(lib.get("Greeting"), values));
+      int misses = cache.getMisses();
+      // Plus1 with a=5 is reused by Twice, Plus1 with a=6 is new.
+      assertEquals("7", cache.getResult(lib.get("Twice"), values));
+      assertEquals(misses + 2, cache.getMisses());
+      assertEquals(1, cache.getHits());
+      assertEquals("6", cache.getResult(lib.get("Plus1"), values("a", "5")));
+      assertEquals(2, cache.getHits());
+    }
+  }
+
+  @Test
+  public void testChangedValues() throws Exception
+  {
+    Function func = library(true).get("Plus1");
+    EvaluationCache cache = new EvaluationCache();
+    Values.SimpleMap values = values("a", "1");
+    assertEquals("2", cache.getResult(func, values));
+    values.put("a", "2");
+    assertEquals("3", cache.getResult(func, values));
+    assertEquals("3", cache.getResult(func, values));
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  public void testNotCacheable() throws Exception
+  {
+    int[] calls = { 0 };
+    Function counter = new Function()
+    {
+      @Override
+      public String[] parameters()
+      {
+        return new String[] { "a" };
+      }
+
+      @Override
+      public void getFunctionDialogReferences(Collection<String> set)
+      {
+        // no dialogs
+      }
+
+      @Override
+      public String getResult(Values parameters)
+      {
+        calls[0]++;
+        return parameters.getString("a");
+      }
+
+      @Override
+      public boolean getBoolean(Values parameters)
+      {
+        return getResult(parameters).equalsIgnoreCase("true");
+      }
+
+      @Override
+      public boolean isCacheable()
+      {
+        return false;
+      }
+    };
+    FunctionLibrary lib = new FunctionLibrary();
+    lib.add("Counter", counter);
+    ConfigThingy conf = new ConfigThingy("", "Functions(Bound(BIND(FUNCTION 'Counter' "
+        + "SET('a' CAT(VALUE 'b' '!')))) Plus1(SUM(VALUE 'a' '1')))");
+    FunctionFactory.parseFunctions(lib, conf, "Functions", null, null);
+    Function bound = lib.get("Bound");
+    assertFalse(bound.isCacheable());
+    assertFalse(new IfFunction(counter, bound, bound).isCacheable());
+
+    EvaluationCache cache = new EvaluationCache();
+    Values.SimpleMap values = values("b", "x");
+    assertEquals("x!", cache.getResult(bound, values));
+    assertEquals("x!", cache.getResult(bound, values));
+    assertEquals(2, calls[0]);
+    assertEquals(2, cache.getUncached());
+    assertEquals(0, cache.getHits());
+    assertSame(FunctionLibrary.ERROR, cache.getResult(lib.get("Plus1"), values));
+    assertEquals(0.0, cache.getHitRate());
+  }
+}
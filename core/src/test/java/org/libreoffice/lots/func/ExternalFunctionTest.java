@@ -23,7 +23,11 @@
 package org.libreoffice.lots.func;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
 
 import org.junit.jupiter.api.Test;
 import org.libreoffice.lots.config.ConfigThingy;
@@ -58,6 +62,93 @@ public class ExternalFunctionTest
         "URL \"java:org.libreoffice.lots.func.ExternalFunctionTest.extMethod3\""));
   }
 
+  @Test
+  public void testResultCache() throws Exception
+  {
+    String url = "java:org.libreoffice.lots.func.ExternalFunctionTest.countingMethod";
+    ExternalFunction f = new ExternalFunction(new ConfigThingy("",
+        "URL \"" + url + "\" PARAMS(\"param\") CACHE_SIZE \"10\""));
+    assertTrue(f.isCached());
+    assertTrue(new ExternalFunctionFunction(new ConfigThingy("",
+        "URL \"" + url + "\" PARAMS(\"param\") CACHE_SIZE \"10\"")).isCacheable());
+    long count = ExternalFunction.getMetrics().getCount(url);
+    calls = 0;
+    Values.SimpleMap values = new Values.SimpleMap();
+    values.put("param", "a");
+    assertEquals("a1", f.invoke(values));
+    assertEquals("a1", f.invoke(values));
+    values.put("param", "b");
+    assertEquals("b2", f.invoke(values));
+    assertEquals(2, calls);
+    assertEquals(count + 3, ExternalFunction.getMetrics().getCount(url));
+    assertEquals(1, ExternalFunction.getMetrics().getCacheHits(url));
+
+    f = new ExternalFunction(new ConfigThingy("", "URL \"" + url + "\" PARAMS(\"param\")"));
+    assertFalse(f.isCached());
+    assertEquals("b3", f.invoke(values));
+    assertEquals("b4", f.invoke(values));
+
+    assertThrows(ConfigurationErrorException.class, () -> new ExternalFunction(
+        new ConfigThingy("", "URL \"" + url + "\" CACHE_SIZE \"-1\"")));
+  }
+
+  @Test
+  public void testReentrantInvoke() throws Exception
+  {
+    ExternalFunction f = new ExternalFunction(new ConfigThingy("",
+        "URL \"java:org.libreoffice.lots.func.ExternalFunctionTest.concat\" PARAMS(\"a\" \"b\")"));
+    Values values = new Values.None()
+    {
+      @Override
+      public String getString(String id)
+      {
+        if (id.equals("a"))
+        {
+          try
+          {
+            // reads the parameters again while the first call fills its arguments
+            return "(" + f.invoke(new Values.None()) + ")";
+          } catch (Exception e)
+          {
+            throw new AssertionError(e);
+          }
+        }
+        return id;
+      }
+    };
+    assertEquals("(-)-b", f.invoke(values));
+    assertEquals("(-)-b", f.invoke(values));
+  }
+
+  @Test
+  public void testException() throws Exception
+  {
+    ExternalFunction f = new ExternalFunction(new ConfigThingy("",
+        "URL \"java:org.libreoffice.lots.func.ExternalFunctionTest.failingMethod\""));
+    InvocationTargetException e = assertThrows(InvocationTargetException.class,
+        () -> f.invoke(new Values.None()));
+    assertTrue(e.getCause() instanceof UnsupportedOperationException);
+    assertThrows(IllegalArgumentException.class, () -> f.invoke(new Object[] { "too many" }));
+  }
+
+  private static int calls = 0;
+
+  public static String countingMethod(String param)
+  {
+    calls++;
+    return param + calls;
+  }
+
+  public static String concat(String a, String b)
+  {
+    return a + "-" + b;
+  }
+
+  public static String failingMethod()
+  {
+    throw new UnsupportedOperationException();
+  }
+
   public static String extMethod()
   {
     return "extMethod";
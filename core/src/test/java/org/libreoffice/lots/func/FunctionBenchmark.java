@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.func;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.libreoffice.lots.config.ConfigThingy;
+
+/**
+ * Compares the interpreted functions with the functions compiled by
+ * {@link FunctionFactory#compile(Function)} for typical TRAFO, PLAUSI and visibility conditions.
+ * Run with {@code org.openjdk.jmh.Main FunctionBenchmark} on the test class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionBenchmark
+{
+  @Param({ "trafo", "plausi", "condition", "bind" })
+  private String function;
+
+  private Function interpreted;
+
+  private Function compiled;
+
+  private Values.SimpleMap values;
+
+  @Setup
+  public void setup() throws Exception
+  {
+    String source;
+    switch (function)
+    {
+    case "trafo":
+      source = "IF(STRCMP(VALUE 'Anrede' 'Herr') THEN(CAT('Sehr geehrter Herr ' VALUE 'Nachname')) "
+          + "ELSE(CAT('Sehr geehrte Frau ' VALUE 'Nachname')))";
+      break;
+    case "plausi":
+      source = "AND(MATCH(VALUE 'Betrag' '-?[0-9]+([.,][0-9]+)?') "
+          + "LE(SUM(VALUE 'Betrag' PRODUCT(VALUE 'Betrag' '0.19')) DIVIDE('10000' BY '3' MAX '2'))"
+          + " NOT(ISERROR(VALUE 'Nachname')))";
+      break;
+    case "condition":
+      source = "OR(STRCMP(VALUE 'Anrede' 'Frau') AND(LENGTH(VALUE 'Nachname') "
+          + "GT(LENGTH(VALUE 'Nachname') LENGTH(CAT('ab' 'c')))))";
+      break;
+    default:
+      source = "BIND(FUNCTION(FORMAT(SUM(VALUE 'x' VALUE 'y') MIN '2')) SET('x' VALUE 'Betrag') "
+          + "SET('y' PRODUCT(VALUE 'Betrag' '0.19')))";
+    }
+    ConfigThingy conf = new ConfigThingy("", source);
+    interpreted = FunctionFactory.parse(conf.getFirstChild(), new FunctionLibrary(), null, null);
+    compiled = FunctionFactory.compile(interpreted);
+    values = new Values.SimpleMap();
+    values.put("Anrede", "Herr");
+    values.put("Nachname", "Mustermann");
+    values.put("Betrag", "1234");
+  }
+
+  @Benchmark
+  public String interpreted()
+  {
+    return interpreted.getResult(values);
+  }
+
+  @Benchmark
+  public String compiled()
+  {
+    return compiled.getResult(values);
+  }
+}
@@ -0,0 +1,144 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.func;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.libreoffice.lots.config.ConfigThingy;
+
+public class FunctionCompilerTest
+{
+  private static final List<String> FUNCTIONS = List.of(
+      "CAT(VALUE 'a' ' ' VALUE 'b')",
+      "LENGTH(VALUE 'a' VALUE 'b')",
+      "AND(VALUE 'a' 'true')",
+      "OR(MATCH(VALUE 'a' 'x.*') STRCMP(VALUE 'b' 'y'))",
+      "NOT(VALUE 'a')",
+      "IF(MATCH(VALUE 'a' '[0-9]+') THEN(SUM(VALUE 'a' '1')) ELSE('keine Zahl'))",
+      "IF(VALUE 'missing' THEN 'a' ELSE 'b')",
+      "REPLACE(VALUE 'a' '[aeiou]' '*')",
+      "SPLIT(VALUE 'a' ',' '1')",
+      "STRCMP(VALUE 'a' VALUE 'b' 'm')",
+      "ISERROR(VALUE 'missing')",
+      "ISERRORSTRING(CAT(VALUE 'missing'))",
+      "SELECT(VALUE 'missing' VALUE 'empty' VALUE 'a')",
+      "SELECT(VALUE 'missing' VALUE 'a' ONERROR('Fehler'))",
+      "SUM(VALUE 'a' VALUE 'b' '0.5')",
+      "MINUS(VALUE 'a')",
+      "ABS(DIFF(VALUE 'a' VALUE 'b' '3'))",
+      "SIGN(DIFF(VALUE 'a' VALUE 'b'))",
+      "PRODUCT(VALUE 'a' SUM(VALUE 'b' '2'))",
+      "DIVIDE(VALUE 'a' BY(VALUE 'b') MIN '2' MAX '4')",
+      "FORMAT(SUM(VALUE 'a' VALUE 'b') MIN '3')",
+      "LT(VALUE 'a' VALUE 'b' '100')",
+      "GE(VALUE 'a' VALUE 'b' MARGIN('2'))",
+      "NUMCMP(VALUE 'a' VALUE 'b')",
+      "SUM('1' '2' DIVIDE('1' BY '3' MAX '5'))",
+      "BIND(FUNCTION(CAT(VALUE 'x' '-' VALUE 'b')) SET('x' VALUE 'a'))",
+      "BIND(FUNCTION(CAT(VALUE 'x' '-' VALUE 'b')) SET('x' VALUE 'missing'))",
+      "BIND(FUNCTION(ISERROR(VALUE 'x')) SET('x' VALUE 'missing'))",
+      "BIND(FUNCTION(BIND(FUNCTION(CAT(VALUE 'x' VALUE 'y')) SET('y' VALUE 'x'))) "
+          + "SET('x' SUM(VALUE 'a' '1')))",
+      "BIND(FUNCTION(BIND(FUNCTION(VALUE 'y') SET('y' VALUE 'missing'))) SET('x' 'egal'))");
+
+  private static final List<Values.SimpleMap> VALUES = List.of(values(),
+      values("a", "12", "b", "3", "empty", ""), values("a", "xyz,abc", "b", "y"),
+      values("a", "-7,5", "b", "0"), values("a", "true", "b", "TRUE"),
+      values("a", "0", "b", "0.25"));
+
+  private static Values.SimpleMap values(String... keyValues)
+  {
+    Values.SimpleMap values = new Values.SimpleMap();
+    for (int i = 0; i < keyValues.length; i += 2)
+    {
+      values.put(keyValues[i], keyValues[i + 1]);
+    }
+    return values;
+  }
+
+  private static Function parse(String func) throws Exception
+  {
+    ConfigThingy conf = new ConfigThingy("", func);
+    return FunctionFactory.parse(conf.getFirstChild(), new FunctionLibrary(), null, null);
+  }
+
+  @Test
+  public void testSameResults() throws Exception
+  {
+    for (String source : FUNCTIONS)
+    {
+      Function interpreted = parse(source);
+      Function compiled = FunctionFactory.compile(interpreted);
+      assertTrue(compiled instanceof FunctionCompiler.CompiledFunction, source);
+      for (Values.SimpleMap values : VALUES)
+      {
+        String expected = interpreted.getResult(values);
+        String actual = compiled.getResult(values);
+        assertEquals(expected, actual, source);
+        assertEquals(expected == FunctionLibrary.ERROR, actual == FunctionLibrary.ERROR, source);
+        assertEquals(interpreted.getBoolean(values), compiled.getBoolean(values), source);
+      }
+    }
+  }
+
+  @Test
+  public void testConstantFolding() throws Exception
+  {
+    Function compiled = FunctionFactory.compile(parse("CAT(SUM('1' '2') ' ' LENGTH('abc'))"));
+    Values counting = new Values.None()
+    {
+      @Override
+      public boolean hasValue(String id)
+      {
+        throw new AssertionError("constant function reads " + id);
+      }
+    };
+    assertEquals("3 3", compiled.getResult(counting));
+    assertSame(FunctionLibrary.ERROR, FunctionFactory.compile(parse("SUM('a')")).getResult(counting));
+  }
+
+  @Test
+  public void testCompileTwice() throws Exception
+  {
+    Function compiled = FunctionFactory.compile(parse("NOT(VALUE 'a')"));
+    assertSame(compiled, FunctionFactory.compile(compiled));
+    assertEquals(List.of("a"), List.of(compiled.parameters()));
+  }
+
+  @Test
+  public void testLibraryFunctions() throws Exception
+  {
+    ConfigThingy conf = new ConfigThingy("", "Functions(Plus1(SUM(VALUE 'a' '1')) "
+        + "Twice(BIND(FUNCTION 'Plus1' SET('a' BIND(FUNCTION 'Plus1' SET('a' VALUE 'b'))))))");
+    FunctionLibrary lib = FunctionFactory.parseFunctions(conf, null, null, null);
+    assertTrue(lib.get("Twice") instanceof FunctionCompiler.CompiledFunction);
+    assertEquals("7", lib.get("Twice").getResult(values("b", "5")));
+    assertSame(FunctionLibrary.ERROR, lib.get("Twice").getResult(values("b", "x")));
+  }
+}
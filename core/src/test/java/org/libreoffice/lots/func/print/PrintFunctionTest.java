@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.func.print;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.muenchen.allg.itd51.wollmux.interfaces.XPrintModel;
+
+public class PrintFunctionTest
+{
+  private static class ChainFunction extends PrintFunction
+  {
+    private final PrintFunction next;
+
+    private final List<Thread> threads;
+
+    private ChainFunction(String name, int order, PrintFunction next, List<Thread> threads)
+    {
+      super(name, order);
+      this.next = next;
+      this.threads = threads;
+    }
+
+    @Override
+    public void print(XPrintModel printModel) throws PrintException
+    {
+      threads.add(Thread.currentThread());
+      if (next != null)
+      {
+        next.printAndWait(printModel);
+      } else
+      {
+        throw new PrintException("letzte Druckfunktion", null);
+      }
+    }
+  }
+
+  @Test
+  public void testChainOnOneThread()
+  {
+    List<Thread> threads = new ArrayList<>();
+    PrintFunction last = new ChainFunction("PrintFunctionTestLast", 30, null, threads);
+    PrintFunction middle = new ChainFunction("PrintFunctionTestMiddle", 20, last, threads);
+    PrintFunction first = new ChainFunction("PrintFunctionTestFirst", 10, middle, threads);
+
+    PrintFunctionMetrics metrics = PrintFunction.getMetrics();
+    for (int i = 0; i < 3; i++)
+    {
+      first.printAndWait(null);
+    }
+
+    assertEquals(9, threads.size());
+    assertNotEquals(Thread.currentThread(), threads.get(0));
+    assertTrue(threads.get(0).getName().startsWith("lots-print-"));
+    assertEquals(threads.get(0), threads.get(1));
+    assertEquals(threads.get(0), threads.get(2));
+    assertEquals(3, metrics.getCount("PrintFunctionTestFirst"));
+    assertEquals(3, metrics.getCount("PrintFunctionTestLast"));
+    assertTrue(metrics.getSelfTime("PrintFunctionTestFirst") <= metrics
+        .getTotalTime("PrintFunctionTestFirst"));
+    assertTrue(metrics.getTotalTime("PrintFunctionTestMiddle") <= metrics
+        .getTotalTime("PrintFunctionTestFirst"));
+    assertTrue(metrics.getThreads() >= 1);
+    assertTrue(metrics.toString().contains("PrintFunctionTestLast: count 3, failed 3"));
+  }
+}
@@ -26,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,7 +36,6 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import com.google.common.collect.Table;
 import com.sun.star.lang.EventObject;
 import com.sun.star.sheet.XSpreadsheet;
 import com.sun.star.sheet.XSpreadsheetDocument;
@@ -114,7 +114,7 @@ public class CalcModelTest extends OfficeTest
     Set<String> columns = Set.of("Test", "Column with 2 rows", "1", "2.0", "3.5");
     assertEquals(columns, model.getColumnNames());
 
-    Table<Integer, String, String> data = model.getData();
+    RecordTable data = model.getData();
     assertEquals("1", data.get(1, "Test"), "wrong data");
     // second record is hidden, so it doesn't count
     assertEquals("3.5", data.get(2, "Test"), "wrong data");
@@ -148,4 +148,39 @@ public class CalcModelTest extends OfficeTest
     UNO.XModifiable(xDoc).setModified(false);
   }
 
+  @Test
+  public void updateRecord() throws Exception
+  {
+    List<Runnable> notifications = new ArrayList<>();
+    model.dispose();
+    model = new CalcModel(xDoc, notifications::add);
+    model.activateTable("Tabelle1");
+    List<Set<Integer>> changes = new ArrayList<>();
+    model.addDatasourceListener(new DatasourceModelListener()
+    {
+      @Override
+      public void datasourceChanged()
+      {
+        changes.add(Set.of());
+      }
+
+      @Override
+      public void recordsChanged(Set<Integer> records)
+      {
+        changes.add(records);
+      }
+    });
+
+    XSpreadsheet sheet = UNO.XSpreadsheet(xDoc.getSheets().getByName("Tabelle1"));
+    UNO.XTextRange(sheet.getCellByPosition(3, 1)).setString("Musterfrau");
+    UNO.XTextRange(sheet.getCellByPosition(1, 1)).setString("Erika");
+    assertEquals("Erika", model.getRecord(1).get("SGVorname"), "wrong data");
+    assertEquals("Musterfrau", model.getRecord(1).get("SGNachname"), "wrong data");
+    assertEquals(List.of(), changes, "listeners should be notified by the notifier");
+    notifications.forEach(Runnable::run);
+    assertEquals(List.of(Set.of(1)), changes, "modifications should be reported once");
+    assertEquals(4, model.getNumberOfRecords(), "Different number of records");
+
+    UNO.XModifiable(xDoc).setModified(false);
+  }
 }
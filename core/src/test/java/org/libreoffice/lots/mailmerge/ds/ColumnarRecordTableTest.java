@@ -0,0 +1,83 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.ds;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class ColumnarRecordTableTest
+{
+  @Test
+  public void testRecords()
+  {
+    ColumnarRecordTable table = new ColumnarRecordTable(List.of("Anrede", "Nachname"), 1);
+    for (int i = 1; i <= 100; i++)
+    {
+      assertEquals(i, table.addRecord());
+      table.set(i, "Anrede", i % 2 == 0 ? "Frau" : "Herr");
+      table.set(i, "Nachname", "Name" + i);
+    }
+    assertEquals(100, table.getNumberOfRecords());
+    assertEquals(List.of("Anrede", "Nachname"), List.copyOf(table.getColumnNames()));
+    assertEquals(Map.of("Anrede", "Frau", "Nachname", "Name42"), table.getRecord(42));
+    assertEquals("Herr", table.get(1, "Anrede"));
+    assertSame(table.get(2, "Anrede"), table.get(100, "Anrede"));
+  }
+
+  @Test
+  public void testMissingValues()
+  {
+    ColumnarRecordTable table = new ColumnarRecordTable();
+    table.addColumn("A");
+    int id = table.addRecord();
+    table.addColumn("B");
+    table.set(id, "A", null);
+    assertEquals(Map.of("A", "", "B", ""), table.getRecord(id));
+    assertTrue(table.getRecord(2).isEmpty());
+    assertTrue(table.getRecord(0).isEmpty());
+    assertNull(table.get(id, "C"));
+    assertThrows(IllegalArgumentException.class, () -> table.set(2, "A", "x"));
+  }
+
+  @Test
+  public void testCopy()
+  {
+    ColumnarRecordTable table = new ColumnarRecordTable(List.of("A"), 1);
+    table.set(table.addRecord(), "A", "x");
+    ColumnarRecordTable copy = table.copy();
+    copy.set(1, "A", "y");
+    copy.set(copy.addRecord(), "A", "x");
+    assertEquals("x", table.get(1, "A"));
+    assertEquals(1, table.getNumberOfRecords());
+    assertEquals(Map.of("A", "y"), copy.getRecord(1));
+    assertEquals(Map.of("A", "x"), copy.getRecord(2));
+  }
+}
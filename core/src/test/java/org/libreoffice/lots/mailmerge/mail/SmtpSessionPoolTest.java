@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.mail;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import javax.mail.Message;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+public class SmtpSessionPoolTest
+{
+  private GreenMail greenMail;
+
+  @BeforeEach
+  public void setUp()
+  {
+    greenMail = new GreenMail(ServerSetupTest.SMTP);
+    greenMail.start();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    greenMail.stop();
+  }
+
+  @Test
+  public void testSend() throws Exception
+  {
+    MailServerSettings settings = new MailServerSettings();
+    settings.setMailserver("localhost");
+    settings.setMailserverport(Integer.toString(ServerSetupTest.SMTP.getPort()));
+    settings.setConnections(2);
+    settings.setMessagesPerConnection(3);
+    Session session = Session.getInstance(new Properties());
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    try (SmtpSessionPool pool = new SmtpSessionPool(settings, session))
+    {
+      for (int i = 0; i < 10; i++)
+      {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("from@example.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("to" + i + "@example.com"));
+        message.setSubject("mail " + i);
+        message.setText("text");
+        message.saveChanges();
+        futures.add(pool.send(message));
+      }
+    }
+
+    futures.forEach(CompletableFuture::join);
+    assertEquals(10, greenMail.getReceivedMessages().length);
+  }
+}
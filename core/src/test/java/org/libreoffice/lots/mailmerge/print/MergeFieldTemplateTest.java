@@ -0,0 +1,57 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.print;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class MergeFieldTemplateTest
+{
+
+  @Test
+  public void testRender()
+  {
+    Map<String, String> dataset = Map.of("Name", "Hofstadter", "Vorname", "Leonard", "Ort", "{{Name}}");
+    MergeFieldTemplate template = MergeFieldTemplate.compile("Hallo {{Vorname}} {{Name}}, {{Unbekannt}}!");
+    assertEquals("Hallo Leonard Hofstadter, {{Unbekannt}}!", template.render(dataset));
+    assertEquals("Hallo Sheldon Cooper, {{Unbekannt}}!",
+        template.render(Map.of("Name", "Cooper", "Vorname", "Sheldon")));
+
+    assertEquals("no tags", MergeFieldTemplate.compile("no tags").render(dataset));
+    assertEquals("", MergeFieldTemplate.compile("").render(dataset));
+    assertEquals("{Hofstadter}", MergeFieldTemplate.compile("{{{Name}}}").render(dataset));
+    assertEquals("a}}b Leonard {{", MergeFieldTemplate.compile("a}}b {{Vorname}} {{").render(dataset));
+    assertEquals("{{Name}}", MergeFieldTemplate.compile("{{Ort}}").render(dataset));
+    assertEquals("HofstadterLeonard", MergeFieldTemplate.compile("{{Name}}{{Vorname}}").render(dataset));
+  }
+
+  @Test
+  public void testReplaceMergeFieldInText()
+  {
+    assertEquals("Hallo Penny", MailMergePrintFunction.replaceMergeFieldInText(Map.of("Vorname", "Penny"),
+        "Hallo " + MailMergePrintFunction.createMergeFieldTag("Vorname")));
+  }
+}
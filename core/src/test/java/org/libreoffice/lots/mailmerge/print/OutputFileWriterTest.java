@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.print;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OutputFileWriterTest
+{
+
+  @TempDir
+  Path targetDir;
+
+  @Test
+  public void testWrite() throws Exception
+  {
+    List<String> stages = Collections.synchronizedList(new ArrayList<>());
+    List<File> targets = new ArrayList<>();
+    OutputFileWriter writer = new OutputFileWriter(stages::add, 2);
+    for (int i = 0; i < 5; i++)
+    {
+      File target = targetDir.resolve("file" + i + ".odt").toFile();
+      File tempFile = writer.getTempFile(target);
+      assertTrue(tempFile.getName().endsWith(".odt"));
+      Files.write(tempFile.toPath(), Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+      writer.write(tempFile, target);
+      targets.add(target);
+    }
+    writer.close();
+
+    assertEquals(5, stages.size());
+    for (int i = 0; i < 5; i++)
+    {
+      assertEquals(Integer.toString(i),
+          new String(Files.readAllBytes(targets.get(i).toPath()), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testBackPressure() throws Exception
+  {
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> exported = Collections.synchronizedList(new ArrayList<>());
+    OutputFileWriter writer = new OutputFileWriter(s -> {}, 2);
+    OutputFileWriter.Export export = (tempFile, target) -> {
+      try
+      {
+        release.await();
+      } catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      exported.add(target.getName());
+    };
+
+    // one file is exported, one file waits
+    writer.write(new File("a"), new File("a"), export);
+    writer.write(new File("b"), new File("b"), export);
+
+    CountDownLatch written = new CountDownLatch(1);
+    Thread producer = new Thread(() -> {
+      writer.write(new File("c"), new File("c"), export);
+      written.countDown();
+    });
+    producer.start();
+    assertFalse(written.await(200, TimeUnit.MILLISECONDS));
+
+    release.countDown();
+    assertTrue(written.await(5, TimeUnit.SECONDS));
+    writer.close();
+    assertEquals(List.of("a", "b", "c"), exported);
+  }
+
+  @Test
+  public void testErrorOnClose() throws Exception
+  {
+    OutputFileWriter writer = new OutputFileWriter(s -> {}, 2);
+    File target = targetDir.resolve("file.odt").toFile();
+    writer.write(writer.getTempFile(target), target);
+    writer.write(new File("a"), new File("a"), (tempFile, t) -> {
+      throw new IOException("export failed");
+    });
+
+    IOException ex = assertThrows(IOException.class, writer::close);
+    assertTrue(ex.getCause() instanceof IOException);
+    assertEquals(1, ex.getSuppressed().length);
+    assertEquals("export failed", ex.getSuppressed()[0].getMessage());
+    assertFalse(target.exists());
+  }
+}
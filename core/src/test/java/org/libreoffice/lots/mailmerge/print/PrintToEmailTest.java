@@ -0,0 +1,120 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München and LibreOffice contributors
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package org.libreoffice.lots.mailmerge.print;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javax.mail.BodyPart;
+import javax.mail.Multipart;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.libreoffice.lots.mailmerge.mail.EMailSender;
+import org.libreoffice.lots.mailmerge.mail.MailServerSettings;
+import org.libreoffice.lots.mailmerge.mail.SmtpSessionPool;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+public class PrintToEmailTest
+{
+  private GreenMail greenMail;
+
+  @TempDir
+  Path targetDir;
+
+  @BeforeEach
+  public void setUp()
+  {
+    greenMail = new GreenMail(ServerSetupTest.SMTP);
+    greenMail.start();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    greenMail.stop();
+  }
+
+  @Test
+  public void testSameFileName() throws Exception
+  {
+    MailServerSettings settings = new MailServerSettings();
+    settings.setMailserver("localhost");
+    settings.setMailserverport(Integer.toString(ServerSetupTest.SMTP.getPort()));
+    settings.setConnections(2);
+
+    // the file pattern is the same for every record
+    File document = targetDir.resolve("Brief.odt").toFile();
+    CompletableFuture<Boolean> first;
+    CompletableFuture<Boolean> second;
+    try (SmtpSessionPool pool = new SmtpSessionPool(settings))
+    {
+      first = send(pool, document, "first@example.com", "first record");
+      assertFalse(document.exists());
+      second = send(pool, document, "second@example.com", "second record");
+      assertFalse(document.exists());
+    }
+
+    assertTrue(first.join());
+    assertTrue(second.join());
+    MimeMessage[] messages = greenMail.getReceivedMessages();
+    assertEquals(2, messages.length);
+    Map<String, String> attachments = new HashMap<>();
+    for (MimeMessage message : messages)
+    {
+      BodyPart attachment = ((Multipart) message.getContent()).getBodyPart(1);
+      assertEquals("Brief.odt", attachment.getFileName());
+      try (InputStream in = attachment.getInputStream())
+      {
+        attachments.put(message.getAllRecipients()[0].toString(),
+            new String(in.readAllBytes(), StandardCharsets.UTF_8));
+      }
+    }
+    assertEquals(Map.of("first@example.com", "first record", "second@example.com", "second record"),
+        attachments);
+  }
+
+  private CompletableFuture<Boolean> send(SmtpSessionPool pool, File document, String to,
+      String content) throws Exception
+  {
+    Files.write(document.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    EMailSender mail = new EMailSender();
+    mail.createNewMultipartMail("from@example.com", to, "subject", "text");
+    return PrintToEmail.sendMail(mail, pool, document);
+  }
+}
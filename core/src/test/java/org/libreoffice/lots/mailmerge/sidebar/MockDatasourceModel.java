@@ -32,8 +32,8 @@ import org.libreoffice.lots.mailmerge.FieldSubstitution;
 import org.libreoffice.lots.mailmerge.NoTableSelectedException;
 import org.libreoffice.lots.mailmerge.ds.DatasourceModel;
 import org.libreoffice.lots.mailmerge.ds.DatasourceModelListener;
+import org.libreoffice.lots.mailmerge.ds.RecordTable;
 
-import com.google.common.collect.Table;
 import com.sun.star.util.XCloseListener;
 
 public class MockDatasourceModel implements DatasourceModel
@@ -114,7 +114,7 @@ public class MockDatasourceModel implements DatasourceModel
   }
 
   @Override
-  public Table<Integer, String, String> getData() throws NoTableSelectedException
+  public RecordTable getData() throws NoTableSelectedException
   {
     return null;
   }
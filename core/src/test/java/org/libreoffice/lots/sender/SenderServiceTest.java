@@ -25,23 +25,31 @@ package org.libreoffice.lots.sender;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.libreoffice.lots.config.ConfigThingy;
+import org.libreoffice.lots.db.AsyncSearch;
 import org.libreoffice.lots.db.ColumnNotFoundException;
 import org.libreoffice.lots.db.ColumnTransformer;
 import org.libreoffice.lots.db.Dataset;
 import org.libreoffice.lots.db.Datasource;
+import org.libreoffice.lots.db.QueryResults;
 import org.libreoffice.lots.db.mock.MockDataset;
 import org.libreoffice.lots.db.mock.MockDatasource;
 import org.libreoffice.lots.func.StringLiteralFunction;
@@ -50,6 +58,10 @@ import org.libreoffice.lots.sender.SenderException;
 import org.libreoffice.lots.sender.SenderService;
 import org.libreoffice.lots.sender.mock.MockCache;
 
+import com.sun.star.lang.EventObject;
+
+import de.muenchen.allg.itd51.wollmux.interfaces.XPALChangeEventListener;
+
 public class SenderServiceTest
 {
   private SenderService service;
@@ -153,6 +165,20 @@ public class SenderServiceTest
     assertEquals(1, results.size());
   }
 
+  @Test
+  public void testFindSeveral() throws InterruptedException, ExecutionException
+  {
+    CompletableFuture<List<Sender>> first = service.find(Map.of("column", "value1"));
+    CompletableFuture<List<Sender>> second = service.find(Map.of("column", "value1"));
+    assertEquals(1, first.get().size(), "a search mustn't cancel other searches");
+    assertEquals(1, second.get().size());
+
+    AsyncSearch canceled = service.createSearch(Map.of("column", "value1"));
+    canceled.cancel();
+    ExecutionException e = assertThrows(ExecutionException.class, () -> service.find(canceled).get());
+    assertTrue(e.getCause() instanceof CancellationException);
+  }
+
   @Test
   public void testGetAllSender()
   {
@@ -204,4 +230,91 @@ public class SenderServiceTest
     assertEquals(0, service.getCurrentOverrideFragMap().count());
   }
 
+  @Test
+  public void testRefreshInBackground() throws Exception
+  {
+    List<Collection<String>> lookups = new ArrayList<>();
+    Datasource ds = new MockDatasource("mock", List.of("column", "column2"), List.of(first, second))
+    {
+      @Override
+      public QueryResults getDatasetsByKey(Collection<String> keys)
+      {
+        lookups.add(keys);
+        return super.getDatasetsByKey(keys);
+      }
+    };
+    List<Runnable> pending = new ArrayList<>();
+    List<Runnable> notifications = new ArrayList<>();
+    MockCache mockCache = new MockCache();
+    SenderService asyncService = new SenderService(ds, null, mockCache, "column", pending::add,
+        notifications::add);
+    Sender cached = asyncService.selectedSender;
+    Dataset cachedDataset = cached.getDataset();
+
+    assertEquals(1, pending.size());
+    assertFalse(asyncService.refreshed().isDone());
+    assertEquals(Map.of("column", "value1"), asyncService.getCurrentSenderValues());
+    assertEquals(Collections.emptyList(), asyncService.getLostDatasetDisplayStrings());
+    assertEquals(2, asyncService.getStartupMetrics().getCachedSenders());
+    assertFalse(asyncService.getStartupMetrics().isRefreshed());
+
+    List<EventObject> events = new ArrayList<>();
+    asyncService.addPALChangeEventListener(new XPALChangeEventListener()
+    {
+      @Override
+      public void updateContent(EventObject event)
+      {
+        events.add(event);
+      }
+
+      @Override
+      public void disposing(EventObject event)
+      {
+        // nothing to do
+      }
+    });
+    pending.get(0).run();
+
+    assertTrue(asyncService.refreshed().isDone());
+    assertEquals(1, lookups.size());
+    assertEquals(List.of("ds", "lost"), new ArrayList<>(lookups.get(0)));
+    assertEquals(Map.of("column", "value1", "column2", "value2"), asyncService.getCurrentSenderValues());
+    assertEquals(List.of(", "), asyncService.getLostDatasetDisplayStrings());
+    assertSame(cachedDataset, cached.getDataset());
+    assertNotSame(cached, asyncService.selectedSender);
+    assertTrue(asyncService.selectedSender.isSelected());
+    assertTrue(events.isEmpty());
+    assertFalse(mockCache.isSaved());
+
+    assertEquals(1, notifications.size());
+    notifications.get(0).run();
+    assertFalse(events.isEmpty());
+    assertTrue(mockCache.isSaved());
+
+    SenderStartupMetrics metrics = asyncService.getStartupMetrics();
+    assertTrue(metrics.isRefreshed());
+    assertEquals(1, metrics.getRoundTrips());
+    assertEquals(1, metrics.getSavedRoundTrips());
+    assertEquals(1, metrics.getFound());
+    assertEquals(1, metrics.getLost());
+  }
+
+  @Test
+  public void testRefreshFailed() throws Exception
+  {
+    Datasource ds = new MockDatasource("mock", List.of("column", "column2"), List.of(first, second))
+    {
+      @Override
+      public QueryResults getDatasetsByKey(Collection<String> keys)
+      {
+        throw new IllegalStateException("offline");
+      }
+    };
+    SenderService offline = new SenderService(ds, null, new MockCache(), "column");
+    assertTrue(offline.refreshed().isDone());
+    assertEquals(Map.of("column", "value1"), offline.getCurrentSenderValues());
+    assertEquals(Collections.emptyList(), offline.getLostDatasetDisplayStrings());
+    assertTrue(offline.getStartupMetrics().isRefreshed());
+  }
+
 }